@@ -18,18 +18,44 @@
  */
 package org.nuxeo.ecm.core.blob;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 import java.util.HashSet;
 import java.util.Set;
 
 import org.nuxeo.ecm.core.api.NuxeoException;
 import org.nuxeo.ecm.core.blob.binary.BinaryGarbageCollector;
 import org.nuxeo.ecm.core.blob.binary.BinaryManagerStatus;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.kv.KeyValueService;
+import org.nuxeo.runtime.kv.KeyValueStore;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
 
 /**
  * Basic implementation for a garbage collector recording marked or to-delete blobs in memory.
+ * <p>
+ * Implementations can either list the to-delete blobs before the marking in {@link #toDelete}, or record the marked
+ * blobs in the compact {@link #markFilter} and list the blobs to sweep after the marking.
  */
 public abstract class AbstractBlobGarbageCollector implements BinaryGarbageCollector {
 
+    /**
+     * The false positive probability of the {@link #markFilter}, a false positive being an unused blob that is not
+     * collected.
+     *
+     * @since 2021.20
+     */
+    public static final double MARK_FILTER_FPP = 0.01;
+
+    /**
+     * The key/value store holding the position reached by the interrupted sweeps, by garbage collector id.
+     *
+     * @since 2021.20
+     */
+    public static final String SWEEP_CHECKPOINT_KV = "blobGC";
+
     // volatile as this is designed to be called from another thread
     protected volatile long startTime;
 
@@ -41,6 +67,13 @@ public abstract class AbstractBlobGarbageCollector implements BinaryGarbageColle
     // new implementations must use this instead
     protected Set<String> toDelete;
 
+    /**
+     * Marked keys, for implementations sweeping the blobs after the marking, see {@link #newMarkFilter}.
+     *
+     * @since 2021.20
+     */
+    protected BloomFilter<CharSequence> markFilter;
+
     @Override
     public boolean isInProgress() {
         return startTime != 0;
@@ -55,18 +88,23 @@ public abstract class AbstractBlobGarbageCollector implements BinaryGarbageColle
         status = new BinaryManagerStatus();
         marked = null;
         computeToDelete();
-        if (marked == null && toDelete == null) {
+        if (marked == null && toDelete == null && markFilter == null) {
             throw new IllegalStateException("New class must define 'toDelete'");
         }
         if (marked != null && toDelete != null) {
             throw new IllegalStateException("New class must not define 'marked'");
         }
+        if (markFilter != null && (marked != null || toDelete != null)) {
+            throw new IllegalStateException("New class must not define 'toDelete' when using 'markFilter'");
+        }
     }
 
     /**
      * Computes keys candidate for deletion.
      * <p>
-     * Overrides should not call super (this allows detecting old implementations).
+     * Overrides should not call super (this allows detecting old implementations). Overrides that cannot hold all the
+     * keys in memory can instead define the {@link #markFilter} and sweep the unmarked blobs in
+     * {@link #removeUnmarkedBlobsAndUpdateStatus}.
      *
      * @since 11.5
      */
@@ -86,6 +124,7 @@ public abstract class AbstractBlobGarbageCollector implements BinaryGarbageColle
         } finally {
             marked = null;
             toDelete = null;
+            markFilter = null;
             status.gcDuration = System.currentTimeMillis() - startTime;
             startTime = 0;
         }
@@ -113,11 +152,70 @@ public abstract class AbstractBlobGarbageCollector implements BinaryGarbageColle
     public void mark(String digest) {
         if (marked != null) {
             marked.add(digest);
+        } else if (markFilter != null) {
+            markFilter.put(digest);
         } else {
             toDelete.remove(digest);
         }
     }
 
+    /**
+     * Creates a mark filter sized for the given number of keys. Its memory footprint is about 10 bits per key, marking
+     * more keys than expected only increases the number of unused blobs that are not collected.
+     *
+     * @since 2021.20
+     */
+    protected BloomFilter<CharSequence> newMarkFilter(long expectedKeys) {
+        return BloomFilter.create(Funnels.stringFunnel(UTF_8), Math.max(expectedKeys, 1), MARK_FILTER_FPP);
+    }
+
+    /**
+     * The mark filter can be updated concurrently, unlike the sets of keys.
+     *
+     * @since 2021.20
+     */
+    @Override
+    public boolean isConcurrentMarkSupported() {
+        return markFilter != null;
+    }
+
+    /**
+     * Gets the position reached by the last interrupted sweep, from which the next sweep resumes, or {@code null} if
+     * the last sweep completed.
+     *
+     * @since 2021.20
+     */
+    protected String getSweepCheckpoint() {
+        KeyValueStore kvStore = getSweepCheckpointKeyValueStore();
+        return kvStore == null ? null : kvStore.getString(getId());
+    }
+
+    /**
+     * Sets the position reached by the sweep, {@code null} once it completed.
+     *
+     * @since 2021.20
+     */
+    protected void setSweepCheckpoint(String position) {
+        KeyValueStore kvStore = getSweepCheckpointKeyValueStore();
+        if (kvStore != null) {
+            kvStore.put(getId(), position);
+        }
+    }
+
+    protected KeyValueStore getSweepCheckpointKeyValueStore() {
+        KeyValueService kvService = Framework.getService(KeyValueService.class);
+        return kvService == null ? null : kvService.getKeyValueStore(SWEEP_CHECKPOINT_KV);
+    }
+
+    /**
+     * Checks whether a key may have been marked, when using a {@link #markFilter}.
+     *
+     * @since 2021.20
+     */
+    protected boolean isMarked(String key) {
+        return markFilter.mightContain(key);
+    }
+
     @Override
     public BinaryManagerStatus getStatus() {
         return status;
@@ -473,7 +473,15 @@ public class CachingBlobStore extends AbstractBlobStore {
         @Override
         public void mark(String key) {
             delegate.mark(key);
-            cacheDelegate.mark(key);
+            // the cache garbage collector may not support concurrent marking
+            synchronized (cacheDelegate) {
+                cacheDelegate.mark(key);
+            }
+        }
+
+        @Override
+        public boolean isConcurrentMarkSupported() {
+            return delegate.isConcurrentMarkSupported();
         }
 
         @Override
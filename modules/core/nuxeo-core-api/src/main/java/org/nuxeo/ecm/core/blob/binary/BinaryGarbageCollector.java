@@ -53,6 +53,18 @@ public interface BinaryGarbageCollector {
      */
     void mark(String digest);
 
+    /**
+     * Checks whether {@link #mark} can be called concurrently from several threads, allowing the repositories to be
+     * marked in parallel.
+     * <p>
+     * Only meaningful after {@link #start}.
+     *
+     * @since 2021.20
+     */
+    default boolean isConcurrentMarkSupported() {
+        return false;
+    }
+
     /**
      * Stops the garbage collection process and deletes all binaries that have not been marked (sweep).
      *
@@ -0,0 +1,129 @@
+/*
+ * (C) Copyright 2021 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.blob;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+import org.nuxeo.ecm.core.blob.binary.BinaryManagerStatus;
+
+/**
+ * @since 2021.20
+ */
+public class TestBlobGarbageCollectorMarkFilter {
+
+    protected static final int NUM_BLOBS = 10_000;
+
+    /**
+     * Garbage collector sweeping the blobs of a map after the marking.
+     */
+    protected static class MarkFilterGarbageCollector extends AbstractBlobGarbageCollector {
+
+        protected final Map<String, Integer> blobs;
+
+        protected MarkFilterGarbageCollector(Map<String, Integer> blobs) {
+            this.blobs = blobs;
+        }
+
+        @Override
+        public String getId() {
+            return "test";
+        }
+
+        @Override
+        public void computeToDelete() {
+            markFilter = newMarkFilter(blobs.size());
+        }
+
+        @Override
+        public void removeUnmarkedBlobsAndUpdateStatus(boolean delete) {
+            blobs.entrySet().removeIf(es -> {
+                if (isMarked(es.getKey())) {
+                    status.numBinaries++;
+                    status.sizeBinaries += es.getValue();
+                    return false;
+                }
+                status.numBinariesGC++;
+                status.sizeBinariesGC += es.getValue();
+                return delete;
+            });
+        }
+    }
+
+    protected Map<String, Integer> createBlobs() {
+        Map<String, Integer> blobs = new TreeMap<>();
+        for (int i = 0; i < NUM_BLOBS; i++) {
+            blobs.put("key" + i, Integer.valueOf(10));
+        }
+        return blobs;
+    }
+
+    @Test
+    public void testMarkFilter() {
+        Map<String, Integer> blobs = createBlobs();
+        MarkFilterGarbageCollector gc = new MarkFilterGarbageCollector(blobs);
+
+        // dry run
+        gc.start();
+        assertTrue(gc.isInProgress());
+        for (int i = 0; i < NUM_BLOBS; i += 2) {
+            gc.mark("key" + i);
+        }
+        gc.stop(false);
+        assertFalse(gc.isInProgress());
+        BinaryManagerStatus status = gc.getStatus();
+        // all the marked blobs are kept, a few unmarked ones may be kept as false positives
+        long numBinariesGC = status.numBinariesGC;
+        assertTrue(String.valueOf(numBinariesGC), numBinariesGC <= NUM_BLOBS / 2);
+        assertTrue(String.valueOf(numBinariesGC), numBinariesGC > NUM_BLOBS / 2 * 0.95);
+        assertEquals(NUM_BLOBS, status.numBinaries + numBinariesGC);
+        assertEquals(10 * numBinariesGC, status.sizeBinariesGC);
+        assertEquals(NUM_BLOBS, blobs.size());
+
+        // actual deletion
+        gc.start();
+        for (int i = 0; i < NUM_BLOBS; i += 2) {
+            gc.mark("key" + i);
+        }
+        gc.stop(true);
+        assertEquals(numBinariesGC, gc.getStatus().numBinariesGC);
+        assertEquals(NUM_BLOBS - numBinariesGC, blobs.size());
+        for (int i = 0; i < NUM_BLOBS; i += 2) {
+            assertTrue(blobs.containsKey("key" + i));
+        }
+    }
+
+    @Test
+    public void testConcurrentMark() {
+        Map<String, Integer> blobs = createBlobs();
+        MarkFilterGarbageCollector gc = new MarkFilterGarbageCollector(blobs);
+
+        gc.start();
+        assertTrue(gc.isConcurrentMarkSupported());
+        IntStream.range(0, NUM_BLOBS / 2).parallel().forEach(i -> gc.mark("key" + 2 * i));
+        gc.stop(true);
+        for (int i = 0; i < NUM_BLOBS; i += 2) {
+            assertTrue(blobs.containsKey("key" + i));
+        }
+    }
+
+}
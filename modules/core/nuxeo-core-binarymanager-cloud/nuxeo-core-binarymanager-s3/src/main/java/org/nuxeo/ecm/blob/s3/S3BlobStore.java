@@ -21,6 +21,7 @@ package org.nuxeo.ecm.blob.s3;
 import static org.apache.commons.io.output.NullOutputStream.NULL_OUTPUT_STREAM;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 import static org.nuxeo.ecm.blob.s3.S3BlobStoreConfiguration.DELIMITER;
+import static org.nuxeo.ecm.blob.s3.S3BlobStoreConfiguration.GC_EXPECTED_BLOBS_PROPERTY;
 import static org.nuxeo.ecm.core.blob.BlobProviderDescriptor.ALLOW_BYTE_RANGE;
 import static org.nuxeo.ecm.core.blob.KeyStrategy.VER_SEP;
 
@@ -36,7 +37,10 @@ import java.util.Calendar;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
 
 import org.apache.commons.lang3.mutable.MutableObject;
 import org.apache.logging.log4j.LogManager;
@@ -901,16 +905,56 @@ public class S3BlobStore extends AbstractBlobStore {
 
         @Override
         public void computeToDelete() {
-            // list S3 objects in the bucket
-            boolean useDeDuplication = keyStrategy.useDeDuplication();
+            long expectedBlobs = config.getLongProperty(GC_EXPECTED_BLOBS_PROPERTY);
+            if (expectedBlobs > 0) {
+                // the bucket is listed after the marking, see sweep
+                markFilter = newMarkFilter(expectedBlobs);
+                return;
+            }
             toDelete = new HashSet<>();
+            logTrace("->", "listObjects on " + getId());
+            listObjects((key, summary) -> {
+                long length = summary.getSize();
+                status.sizeBinaries += length;
+                status.numBinaries++;
+                toDelete.add(key);
+                if (toDelete.size() % WARN_OBJECTS_THRESHOLD == 0) {
+                    log.warn("Listing {} in progress, {} objects ...", getId(), toDelete.size());
+                }
+            });
+            logTrace("<--", status.numBinaries + " objects");
+            if (toDelete.size() >= WARN_OBJECTS_THRESHOLD) {
+                log.warn("Listing {} completed, {} objects.", getId(), toDelete.size());
+            }
+        }
+
+        /**
+         * Lists the S3 objects of the bucket holding blobs, with their key.
+         *
+         * @since 2021.20
+         */
+        protected void listObjects(BiConsumer<String, S3ObjectSummary> consumer) {
+            listObjects(null, consumer, list -> true);
+        }
+
+        /**
+         * Lists the S3 objects of the bucket holding blobs, with their key, starting after the given S3 object key.
+         *
+         * @param marker the S3 object key after which to start, or {@code null} to start from the beginning
+         * @param continuation called after each page, returns {@code false} to stop the listing
+         * @return {@code true} if all the objects were listed, {@code false} if the listing was stopped
+         * @since 2021.20
+         */
+        protected boolean listObjects(String marker, BiConsumer<String, S3ObjectSummary> consumer,
+                Predicate<ObjectListing> continuation) {
+            boolean useDeDuplication = keyStrategy.useDeDuplication();
             ObjectListing list = null;
             int prefixLength = bucketPrefix.length();
-            logTrace("->", "listObjects on " + getId());
             do {
                 if (list == null) {
                     ListObjectsRequest listObjectsRequest = new ListObjectsRequest().withBucketName(bucketName)
-                                                                                    .withPrefix(bucketPrefix);
+                                                                                    .withPrefix(bucketPrefix)
+                                                                                    .withMarker(marker);
                     if (config.getSubDirsDepth() == 0) {
                         // use delimiter to avoid useless listing of objects in "subdirectories"
                         listObjectsRequest.setDelimiter(DELIMITER);
@@ -932,19 +976,13 @@ public class S3BlobStore extends AbstractBlobStore {
                             continue;
                         }
                     }
-                    long length = summary.getSize();
-                    status.sizeBinaries += length;
-                    status.numBinaries++;
-                    toDelete.add(key);
-                     if (toDelete.size() % WARN_OBJECTS_THRESHOLD == 0) {
-                        log.warn("Listing {} in progress, {} objects ...", getId(), toDelete.size());
-                    }
+                    consumer.accept(key, summary);
+                }
+                if (!continuation.test(list)) {
+                    return !list.isTruncated();
                 }
             } while (list.isTruncated());
-            logTrace("<--", status.numBinaries + " objects");
-            if (toDelete.size() >= WARN_OBJECTS_THRESHOLD) {
-                log.warn("Listing {} completed, {} objects.", getId(), toDelete.size());
-            }
+            return true;
         }
 
         /**
@@ -956,11 +994,15 @@ public class S3BlobStore extends AbstractBlobStore {
             if (seppos > 0) {
                 key = key.substring(0, seppos);
             }
-            toDelete.remove(key);
+            super.mark(key);
         }
 
         @Override
         public void removeUnmarkedBlobsAndUpdateStatus(boolean delete) {
+            if (markFilter != null) {
+                sweep(delete);
+                return;
+            }
             for (String key : toDelete) {
                 long length = lengthOfBlob(key);
                 if (length < 0) {
@@ -976,6 +1018,65 @@ public class S3BlobStore extends AbstractBlobStore {
                 }
             }
         }
+
+        /**
+         * Lists the bucket and deletes the unmarked blobs page by page, without holding the keys in memory.
+         * <p>
+         * When deleting, the sweep stops after {@link S3BlobStoreConfiguration#GC_SWEEP_MAX_DURATION_PROPERTY} and
+         * records the last listed object, the next sweep then resumes after it and only goes back to the beginning of
+         * the bucket once it reached its end. A dry run always lists the whole bucket.
+         *
+         * @since 2021.20
+         */
+        protected void sweep(boolean delete) {
+            long maxLastModified = startTime - config.getGCSweepTimeMargin().toMillis();
+            Duration maxDuration = delete ? config.getGCSweepMaxDuration() : null;
+            long deadline = maxDuration == null ? Long.MAX_VALUE : System.currentTimeMillis() + maxDuration.toMillis();
+            String marker = delete ? getSweepCheckpoint() : null;
+            if (marker != null) {
+                log.info("Resuming sweep of {} after: {}", getId(), marker);
+            }
+            logTrace("->", "listObjects on " + getId());
+            boolean completed = listObjects(marker, (key, summary) -> {
+                if ((status.numBinaries + status.numBinariesGC + 1) % WARN_OBJECTS_THRESHOLD == 0) {
+                    log.warn("Sweeping {} in progress, {} objects kept, {} unused ...", getId(), status.numBinaries,
+                            status.numBinariesGC);
+                }
+                long length = summary.getSize();
+                if (summary.getLastModified().getTime() >= maxLastModified || isMarked(key)) {
+                    status.sizeBinaries += length;
+                    status.numBinaries++;
+                    return;
+                }
+                status.sizeBinariesGC += length;
+                status.numBinariesGC++;
+                if (delete) {
+                    deleteBlob(key);
+                } else {
+                    log.debug("Unused blob: {}", key);
+                }
+            }, list -> {
+                if (!delete) {
+                    return true;
+                }
+                List<S3ObjectSummary> summaries = list.getObjectSummaries();
+                if (!summaries.isEmpty()) {
+                    // checkpoint after each page, so that an interrupted sweep resumes from there
+                    setSweepCheckpoint(summaries.get(summaries.size() - 1).getKey());
+                }
+                return System.currentTimeMillis() < deadline;
+            });
+            logTrace("<--", status.numBinaries + " objects");
+            if (!delete) {
+                return;
+            }
+            if (completed) {
+                setSweepCheckpoint(null);
+            } else {
+                log.warn("Sweep of {} stopped after {}, the next garbage collection resumes after: {}", getId(),
+                        maxDuration, getSweepCheckpoint());
+            }
+        }
     }
 
 }
@@ -42,6 +42,7 @@ import java.util.concurrent.Executors;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.nuxeo.common.Environment;
+import org.nuxeo.common.utils.DurationUtils;
 import org.nuxeo.ecm.blob.CloudBlobStoreConfiguration;
 import org.nuxeo.ecm.core.api.NuxeoException;
 import org.nuxeo.ecm.core.storage.sql.S3Utils;
@@ -137,6 +138,35 @@ public class S3BlobStoreConfiguration extends CloudBlobStoreConfiguration {
      */
     public static final String MULTIPART_CLEANUP_DISABLED_PROPERTY = "multipart.cleanup.disabled";
 
+    /**
+     * The expected number of blobs of the bucket, enabling the garbage collection with a compact mark filter sized
+     * accordingly and an incremental sweep, instead of holding all the keys of the bucket in memory.
+     *
+     * @since 2021.20
+     */
+    public static final String GC_EXPECTED_BLOBS_PROPERTY = "gc.expectedBlobs";
+
+    /**
+     * The maximum duration of a sweep of the garbage collection with a mark filter, unlimited by default. An
+     * interrupted sweep is resumed by the next garbage collection from where it stopped.
+     *
+     * @since 2021.20
+     */
+    public static final String GC_SWEEP_MAX_DURATION_PROPERTY = "gc.sweepMaxDuration";
+
+    /**
+     * The margin before the start of the garbage collection with a mark filter after which the objects are never
+     * collected, as they may not have been marked. It accounts for the clock differences with S3.
+     *
+     * @since 2021.20
+     */
+    public static final String GC_SWEEP_TIME_MARGIN_PROPERTY = "gc.sweepTimeMargin";
+
+    /**
+     * @since 2021.20
+     */
+    public static final Duration DEFAULT_GC_SWEEP_TIME_MARGIN = Duration.ofMinutes(5);
+
     public static final String DELIMITER = "/";
 
     /**
@@ -332,6 +362,26 @@ public class S3BlobStoreConfiguration extends CloudBlobStoreConfiguration {
     /**
      * @since 2021.11
      */
+    /**
+     * Gets the maximum duration of a sweep, or {@code null} if unlimited.
+     *
+     * @since 2021.20
+     */
+    public Duration getGCSweepMaxDuration() {
+        return DurationUtils.parsePositive(getProperty(GC_SWEEP_MAX_DURATION_PROPERTY), null);
+    }
+
+    /**
+     * @since 2021.20
+     */
+    public Duration getGCSweepTimeMargin() {
+        String value = getProperty(GC_SWEEP_TIME_MARGIN_PROPERTY);
+        if (isBlank(value)) {
+            return DEFAULT_GC_SWEEP_TIME_MARGIN;
+        }
+        return DurationUtils.parse(value.trim());
+    }
+
     public static long getMultipartCopyPartSize() {
         // backward compatibility with configuration service property
         ConfigurationService configurationService = Framework.getService(ConfigurationService.class);
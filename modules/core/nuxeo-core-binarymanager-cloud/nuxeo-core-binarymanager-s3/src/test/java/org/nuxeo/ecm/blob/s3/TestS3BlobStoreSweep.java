@@ -0,0 +1,107 @@
+/*
+ * (C) Copyright 2021 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.blob.s3;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.nuxeo.ecm.core.blob.AbstractBlobGarbageCollector.SWEEP_CHECKPOINT_KV;
+
+import java.io.IOException;
+import java.util.TreeMap;
+
+import org.junit.Test;
+import org.nuxeo.ecm.core.blob.binary.BinaryGarbageCollector;
+import org.nuxeo.ecm.core.blob.binary.BinaryManagerStatus;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.kv.KeyValueService;
+import org.nuxeo.runtime.kv.KeyValueStore;
+import org.nuxeo.runtime.test.runner.Deploy;
+
+/**
+ * Tests the S3 garbage collection using a mark filter, which lists the bucket while sweeping.
+ *
+ * @since 2021.20
+ */
+@Deploy("org.nuxeo.runtime.kv")
+@Deploy("org.nuxeo.ecm.core.storage.binarymanager.s3.tests:OSGI-INF/test-blob-provider-s3-sweep.xml")
+public class TestS3BlobStoreSweep extends TestS3BlobStoreAbstract {
+
+    // the sweep doesn't collect the objects written less than gc.sweepTimeMargin before the GC start
+
+    @Override
+    public boolean hasGCTimeThreshold() {
+        return true;
+    }
+
+    @Override
+    public void waitForGCTimeThreshold() {
+        try {
+            Thread.sleep(10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    public void testConcurrentMarkSupported() {
+        BinaryGarbageCollector gc = bs.unwrap().getBinaryGarbageCollector();
+        gc.start();
+        try {
+            assertTrue(gc.isConcurrentMarkSupported());
+        } finally {
+            gc.stop(false);
+        }
+    }
+
+    @Test
+    public void testSweepResumesFromCheckpoint() throws IOException {
+        S3BlobStore s3BlobStore = (S3BlobStore) bs.unwrap();
+        // sorted by key, which is also the S3 listing order
+        TreeMap<String, String> blobs = new TreeMap<>();
+        blobs.put(s3BlobStore.writeBlob(blobContext(ID1, FOO)), FOO);
+        blobs.put(s3BlobStore.writeBlob(blobContext(ID2, "barbaz")), "barbaz");
+        assertEquals(2, blobs.size());
+        String firstKey = blobs.firstKey();
+        String lastKey = blobs.lastKey();
+        waitForGCTimeThreshold();
+
+        // pretend that a previous sweep stopped after the first blob
+        BinaryGarbageCollector gc = s3BlobStore.getBinaryGarbageCollector();
+        KeyValueStore kvStore = Framework.getService(KeyValueService.class).getKeyValueStore(SWEEP_CHECKPOINT_KV);
+        kvStore.put(gc.getId(), s3BlobStore.bucketPrefix + firstKey);
+
+        // nothing is marked, but only the blobs after the checkpoint are swept
+        gc.start();
+        gc.stop(true);
+        BinaryManagerStatus status = gc.getStatus();
+        assertEquals(0, status.numBinaries);
+        assertEquals(1, status.numBinariesGC);
+        assertBlob(s3BlobStore, firstKey, blobs.get(firstKey));
+        assertNoBlob(s3BlobStore, lastKey);
+        // the sweep reached the end of the bucket, the next one starts from the beginning
+        assertNull(kvStore.getString(gc.getId()));
+
+        gc.start();
+        gc.stop(true);
+        status = gc.getStatus();
+        assertEquals(0, status.numBinaries);
+        assertEquals(1, status.numBinariesGC);
+        assertNoBlob(s3BlobStore, firstKey);
+    }
+
+}
@@ -25,6 +25,9 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
 
 import javax.inject.Inject;
 
@@ -36,6 +39,8 @@ import org.nuxeo.ecm.core.api.Blobs;
 import org.nuxeo.ecm.core.api.blobholder.BlobHolder;
 import org.nuxeo.ecm.core.api.blobholder.SimpleBlobHolder;
 import org.nuxeo.ecm.core.convert.api.ConversionService;
+import org.nuxeo.ecm.core.convert.plugins.text.extractors.PDF2TextConverter;
+import org.nuxeo.ecm.core.convert.plugins.text.extractors.TextSink;
 import org.nuxeo.ecm.core.test.CoreFeature;
 import org.nuxeo.ecm.platform.commandline.executor.api.CommandLineExecutorService;
 import org.nuxeo.runtime.test.runner.Deploy;
@@ -138,6 +143,22 @@ public class TestConverters extends SimpleConverterTest {
         assertTrue(textContent.contains("d\u00e9j\u00e0"));
     }
 
+    /**
+     * @since 2021.20
+     */
+    @Test
+    public void testPDFBoxConverterMaxTextSize() throws Exception {
+        BlobHolder bh = getBlobFromPath("test-docs/hello.pdf");
+        PDF2TextConverter converter = new PDF2TextConverter();
+        String text = converter.convert(bh, new HashMap<>()).getBlob().getString();
+        assertTrue(text, text.contains(" third "));
+
+        Map<String, Serializable> parameters = new HashMap<>();
+        parameters.put(TextSink.MAX_TEXT_SIZE_PARAMETER, Integer.valueOf(10));
+        String truncated = converter.convert(bh, parameters).getBlob().getString();
+        assertEquals(text.substring(0, 10), truncated);
+    }
+
     @Test
     public void testAiConverter() throws Exception {
         String textContent = doTestTextConverter("application/illustrator", "ps2pdf2text", "hello.ai");
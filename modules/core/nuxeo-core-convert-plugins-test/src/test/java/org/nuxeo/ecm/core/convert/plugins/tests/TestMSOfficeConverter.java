@@ -20,17 +20,26 @@
 
 package org.nuxeo.ecm.core.convert.plugins.tests;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.nuxeo.common.utils.FileUtils;
 import org.nuxeo.ecm.core.api.Blob;
+import org.nuxeo.ecm.core.api.blobholder.BlobHolder;
+import org.nuxeo.ecm.core.convert.api.ConversionService;
+import org.nuxeo.ecm.core.convert.plugins.text.extractors.TextSink;
 import org.nuxeo.ecm.core.test.CoreFeature;
+import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.test.runner.Deploy;
 import org.nuxeo.runtime.test.runner.Features;
 import org.nuxeo.runtime.test.runner.FeaturesRunner;
@@ -112,6 +121,40 @@ public class TestMSOfficeConverter extends SimpleConverterTest {
         doTestTextConverterBlob("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", "xlx2text", blob);
     }
 
+    /**
+     * @since 2021.20
+     */
+    @Test
+    public void testMaxTextSize() throws IOException {
+        doTestMaxTextSize("application/msword", "msoffice2text", "hello.doc");
+        doTestMaxTextSize("application/vnd.ms-excel", "xl2text", "hello.xls");
+        doTestMaxTextSize("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", "xlx2text",
+                "hello.xlsx");
+    }
+
+    /**
+     * @since 2021.20
+     */
+    @Test
+    @Deploy("org.nuxeo.ecm.core.convert.plugins.test.test:test-convert-service-contrib.xml")
+    public void testXlsxConverterFallbackMaxTextSize() throws IOException {
+        doTestMaxTextSize("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", "xlx2text",
+                "hello.xlsx");
+    }
+
+    protected void doTestMaxTextSize(String srcMT, String converterName, String fileName) throws IOException {
+        ConversionService cs = Framework.getService(ConversionService.class);
+        BlobHolder bh = getBlobFromPath("test-docs/" + fileName);
+        bh.getBlob().setMimeType(srcMT);
+        String text = cs.convert(converterName, bh, new HashMap<>()).getBlob().getString();
+        assertTrue(text, text.length() > 3);
+
+        Map<String, Serializable> parameters = new HashMap<>();
+        parameters.put(TextSink.MAX_TEXT_SIZE_PARAMETER, Integer.valueOf(3));
+        String truncated = cs.convert(converterName, bh, parameters).getBlob().getString();
+        assertEquals(text.substring(0, 3), truncated);
+    }
+
     @Test
     public void testAnyToTextConverterWord() throws IOException {
         doTestAny2TextConverter("application/msword", "msoffice2text", "hello.doc");
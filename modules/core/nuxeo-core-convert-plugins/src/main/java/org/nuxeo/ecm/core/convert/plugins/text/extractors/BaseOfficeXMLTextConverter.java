@@ -22,18 +22,18 @@ package org.nuxeo.ecm.core.convert.plugins.text.extractors;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.HashMap;
+import java.util.Map;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
 
 import javax.xml.parsers.ParserConfigurationException;
 
 import org.nuxeo.ecm.core.api.blobholder.BlobHolder;
 import org.nuxeo.ecm.core.convert.api.ConversionException;
+import org.nuxeo.ecm.core.convert.cache.SimpleCachableBlobHolder;
 import org.nuxeo.ecm.core.convert.extension.Converter;
 import org.nuxeo.ecm.core.convert.extension.ConverterDescriptor;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
-import org.xml.sax.XMLReader;
 
 /**
  * Base class that contains SAX based text extractor fallback
@@ -47,28 +47,36 @@ public abstract class BaseOfficeXMLTextConverter implements Converter {
     protected long maxSize4POI = 5 * 1024 * 1024L;
 
     protected BlobHolder runFallBackConverter(BlobHolder blobHolder, final String prefix) throws ConversionException {
+        return runFallBackConverter(blobHolder, prefix, new HashMap<>());
+    }
 
-        Converter fallback = new XmlZip2TextConverter() {
-            @Override
-            protected void readXmlZipContent(ZipInputStream zis, XMLReader reader, StringBuilder sb)
-                    throws IOException, SAXException {
+    /**
+     * Extracts the raw text of the XML zip entries matching the prefix, streamed to a {@link TextSink} bounded by the
+     * conversion parameters.
+     *
+     * @since 2021.20
+     */
+    protected BlobHolder runFallBackConverter(BlobHolder blobHolder, String prefix,
+            Map<String, Serializable> parameters) throws ConversionException {
+        try (TextSink sink = TextSink.of(parameters)) {
+            Xml2TextHandler xml2text = new Xml2TextHandler();
+            UnclosableZipInputStream zis = new UnclosableZipInputStream(blobHolder.getBlob().getStream());
+            try {
                 ZipEntry zipEntry = zis.getNextEntry();
-
-                while (zipEntry != null) {
-                    if ((zipEntry.getName().startsWith(prefix)) && (zipEntry.getName().endsWith(".xml"))) {
-                        Xml2TextHandler xml2text;
-                        try {
-                            xml2text = new Xml2TextHandler();
-                            sb.append(xml2text.parse(new InputSource(zis)));
-                        } catch (ParserConfigurationException e) {
-                            throw new IOException("Error during raw XML Text extraction", e);
-                        }
+                while (zipEntry != null && !sink.isFull()) {
+                    if (zipEntry.getName().startsWith(prefix) && zipEntry.getName().endsWith(".xml")) {
+                        xml2text.parse(new InputSource(zis), sink);
                     }
                     zipEntry = zis.getNextEntry();
                 }
+            } finally {
+                zis.close(); // appease code analyzers
+                zis.doClose(); // real close
             }
-        };
-        return fallback.convert(blobHolder, new HashMap<String, Serializable>());
+            return new SimpleCachableBlobHolder(sink.getBlob());
+        } catch (IOException | ParserConfigurationException | SAXException e) {
+            throw new ConversionException("Error during OpenXml2Text conversion", blobHolder, e);
+        }
     }
 
     @Override
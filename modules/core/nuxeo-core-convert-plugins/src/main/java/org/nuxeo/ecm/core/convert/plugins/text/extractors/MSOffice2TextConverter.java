@@ -19,12 +19,7 @@
  */
 package org.nuxeo.ecm.core.convert.plugins.text.extractors;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.io.Serializable;
 import java.util.Map;
 
@@ -32,45 +27,27 @@ import org.apache.poi.extractor.POITextExtractor;
 import org.apache.poi.ooxml.extractor.ExtractorFactory;
 import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
 import org.apache.xmlbeans.XmlException;
-import org.nuxeo.ecm.core.api.Blob;
-import org.nuxeo.ecm.core.api.Blobs;
 import org.nuxeo.ecm.core.api.blobholder.BlobHolder;
 import org.nuxeo.ecm.core.convert.api.ConversionException;
 import org.nuxeo.ecm.core.convert.cache.SimpleCachableBlobHolder;
 import org.nuxeo.ecm.core.convert.extension.Converter;
 import org.nuxeo.ecm.core.convert.extension.ConverterDescriptor;
-import org.nuxeo.runtime.api.Framework;
 
 public class MSOffice2TextConverter implements Converter {
 
     @Override
     public BlobHolder convert(BlobHolder blobHolder, Map<String, Serializable> parameters) throws ConversionException {
 
-        File f = null;
-
-        try (POITextExtractor extractor = ExtractorFactory.createExtractor(blobHolder.getBlob().getStream())) {
+        try (POITextExtractor extractor = ExtractorFactory.createExtractor(blobHolder.getBlob().getStream());
+                TextSink sink = TextSink.of(parameters)) {
             // TODO: find a way to distinguish headings from paragraphs using
             // WordExtractor#getParagraphText()?
 
-            // Get extracted text with Unix end of line characters
-            String extractedText = extractor.getText().replace("\r\n", "\n");
-
-            byte[] bytes = extractedText.getBytes("UTF-8");
-            f = Framework.createTempFile("po-msoffice2text", ".txt");
-            try (OutputStream fas = new FileOutputStream(f)) {
-                fas.write(bytes);
-            }
-
-            try (InputStream is = new FileInputStream(f)) {
-                Blob blob = Blobs.createBlob(is, "text/plain", "UTF-8");
-                return new SimpleCachableBlobHolder(blob);
-            }
+            // Write extracted text with Unix end of line characters
+            sink.write(extractor.getText().replace("\r\n", "\n"));
+            return new SimpleCachableBlobHolder(sink.getBlob());
         } catch (IOException | OpenXML4JException | XmlException e) {
             throw new ConversionException("Error during MSOffice2Text conversion", blobHolder, e);
-        } finally {
-            if (f != null) {
-                f.delete();
-            }
         }
     }
 
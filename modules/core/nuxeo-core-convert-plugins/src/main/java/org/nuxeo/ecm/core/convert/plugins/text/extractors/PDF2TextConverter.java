@@ -19,11 +19,7 @@
  */
 package org.nuxeo.ecm.core.convert.plugins.text.extractors;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.io.Serializable;
 import java.util.HashSet;
 import java.util.List;
@@ -35,16 +31,15 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.pdfbox.contentstream.operator.Operator;
 import org.apache.pdfbox.cos.COSBase;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.encryption.AccessPermission;
 import org.apache.pdfbox.text.PDFTextStripper;
-import org.nuxeo.ecm.core.api.Blob;
 import org.nuxeo.ecm.core.api.Blobs;
 import org.nuxeo.ecm.core.api.blobholder.BlobHolder;
 import org.nuxeo.ecm.core.convert.api.ConversionException;
 import org.nuxeo.ecm.core.convert.cache.SimpleCachableBlobHolder;
 import org.nuxeo.ecm.core.convert.extension.Converter;
 import org.nuxeo.ecm.core.convert.extension.ConverterDescriptor;
-import org.nuxeo.runtime.api.Framework;
 
 public class PDF2TextConverter implements Converter {
 
@@ -72,6 +67,14 @@ public class PDF2TextConverter implements Converter {
             log.warn("Caught error in pdfbox during extraction (stack logged only once)", e);
         }
 
+        @Override
+        public void processPage(PDPage page) throws IOException {
+            if (output instanceof TextSink && ((TextSink) output).isFull()) {
+                return;
+            }
+            super.processPage(page);
+        }
+
     }
 
     private static final Log log = LogFactory.getLog(PDF2TextConverter.class);
@@ -79,11 +82,7 @@ public class PDF2TextConverter implements Converter {
     @Override
     public BlobHolder convert(BlobHolder blobHolder, Map<String, Serializable> parameters) throws ConversionException {
 
-        PDDocument document = null;
-        File f = null;
-        OutputStream fas = null;
-        try {
-            document = PDDocument.load(blobHolder.getBlob().getStream());
+        try (PDDocument document = PDDocument.load(blobHolder.getBlob().getStream())) {
             // NXP-1556: if document is protected an IOException will be raised
             // Instead of catching the exception based on its message string
             // lets avoid sending messages that will generate this error
@@ -99,39 +98,16 @@ public class PDF2TextConverter implements Converter {
                 // right-to-left languages.
                 textStripper.setSortByPosition(true);
 
-                String text = textStripper.getText(document);
-                // replace non breaking space by regular spaces (why?)
-                // text = text.replace("\u00a0", " ");
-                f = Framework.createTempFile("pdfboplugin", ".txt");
-                fas = new FileOutputStream(f);
-                fas.write(text.getBytes("UTF-8"));
-                try (FileInputStream is = new FileInputStream(f)) {
-                    Blob blob = Blobs.createBlob(is, "text/plain", "UTF-8");
-                    return new SimpleCachableBlobHolder(blob);
+                // write the text page by page, the remaining pages are skipped once the sink is full
+                try (TextSink sink = TextSink.of(parameters)) {
+                    textStripper.writeText(document, sink);
+                    return new SimpleCachableBlobHolder(sink.getBlob());
                 }
             } else {
                 return new SimpleCachableBlobHolder(Blobs.createBlob(""));
             }
         } catch (IOException e) {
             throw new ConversionException("Error during text extraction with PDFBox", blobHolder, e);
-        } finally {
-            if (document != null) {
-                try {
-                    document.close();
-                } catch (IOException e) {
-                    log.error("Error while closing PDFBox document", e);
-                }
-            }
-            if (fas != null) {
-                try {
-                    fas.close();
-                } catch (IOException e) {
-                    log.error(e);
-                }
-            }
-            if (f != null) {
-                f.delete();
-            }
         }
     }
 
@@ -0,0 +1,141 @@
+/*
+ * (C) Copyright 2021 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.convert.plugins.text.extractors;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Serializable;
+import java.io.Writer;
+import java.util.Map;
+
+import org.nuxeo.ecm.core.api.Blob;
+import org.nuxeo.ecm.core.api.Blobs;
+
+/**
+ * Writer used by the text extractors to write the extracted text incrementally to a temporary file, instead of
+ * building it in memory.
+ * <p>
+ * The text is truncated to a maximum number of characters, passed to the converters with the
+ * {@value #MAX_TEXT_SIZE_PARAMETER} parameter. Once the sink is {@link #isFull() full}, the extractors stop reading the
+ * source document.
+ *
+ * @since 2021.20
+ */
+public class TextSink extends Writer {
+
+    /** Conversion parameter holding the maximum number of characters of the extracted text, unlimited if absent. */
+    public static final String MAX_TEXT_SIZE_PARAMETER = "maxTextSize";
+
+    protected final long maxSize;
+
+    protected final Blob blob;
+
+    protected final Writer writer;
+
+    protected long size;
+
+    protected boolean truncated;
+
+    /**
+     * @param maxSize the maximum number of characters to write, unlimited if not positive
+     */
+    public TextSink(long maxSize) throws IOException {
+        this.maxSize = maxSize;
+        blob = Blobs.createBlobWithExtension(".txt");
+        blob.setMimeType("text/plain");
+        blob.setEncoding(UTF_8.name());
+        writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(blob.getFile()), UTF_8));
+    }
+
+    /**
+     * Creates a sink bounded by the {@value #MAX_TEXT_SIZE_PARAMETER} conversion parameter.
+     */
+    public static TextSink of(Map<String, Serializable> parameters) throws IOException {
+        Serializable maxSize = parameters == null ? null : parameters.get(MAX_TEXT_SIZE_PARAMETER);
+        if (maxSize instanceof Number) {
+            return new TextSink(((Number) maxSize).longValue());
+        } else if (maxSize != null) {
+            return new TextSink(Long.parseLong(maxSize.toString()));
+        }
+        return new TextSink(0);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        writer.write(cbuf, off, bound(len));
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        writer.write(str, off, bound(len));
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        if (bound(1) > 0) {
+            writer.write(c);
+        }
+    }
+
+    /**
+     * Returns the number of characters that can still be written out of the given length.
+     */
+    protected int bound(int len) {
+        if (maxSize > 0 && size + len > maxSize) {
+            truncated = true;
+            len = (int) (maxSize - size);
+        }
+        size += len;
+        return len;
+    }
+
+    /**
+     * Checks whether the maximum size is reached, meaning that any further text is discarded.
+     */
+    public boolean isFull() {
+        return truncated || maxSize > 0 && size >= maxSize;
+    }
+
+    /**
+     * Checks whether some text was discarded.
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    /**
+     * Closes the sink and returns the written text as a UTF-8 {@code text/plain} blob.
+     */
+    public Blob getBlob() throws IOException {
+        close();
+        return blob;
+    }
+
+}
@@ -33,7 +33,6 @@ import org.apache.poi.hssf.usermodel.HSSFSheet;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.poifs.filesystem.POIFSFileSystem;
 import org.apache.poi.ss.usermodel.Row;
-import org.nuxeo.ecm.core.api.Blobs;
 import org.nuxeo.ecm.core.api.blobholder.BlobHolder;
 import org.nuxeo.ecm.core.convert.api.ConversionException;
 import org.nuxeo.ecm.core.convert.cache.SimpleCachableBlobHolder;
@@ -51,14 +50,15 @@ public class XL2TextConverter implements Converter {
     @Override
     public BlobHolder convert(BlobHolder blobHolder, Map<String, Serializable> parameters) throws ConversionException {
 
-        StringBuilder sb = new StringBuilder();
         try (InputStream stream = blobHolder.getBlob().getStream(); //
                 POIFSFileSystem fs = new POIFSFileSystem(stream); //
-                HSSFWorkbook workbook = new HSSFWorkbook(fs)) {
-            for (int i = 0; i < workbook.getNumberOfSheets(); i++) {
+                HSSFWorkbook workbook = new HSSFWorkbook(fs); //
+                TextSink sink = TextSink.of(parameters)) {
+            for (int i = 0; i < workbook.getNumberOfSheets() && !sink.isFull(); i++) {
                 HSSFSheet sheet = workbook.getSheetAt(i);
                 Iterator<Row> rows = sheet.rowIterator();
-                while (rows.hasNext()) {
+                while (rows.hasNext() && !sink.isFull()) {
+                    StringBuilder sb = new StringBuilder();
                     HSSFRow row = (HSSFRow) rows.next();
                     Iterator<?> cells = row.cellIterator();
                     while (cells.hasNext()) {
@@ -67,9 +67,10 @@ public class XL2TextConverter implements Converter {
                         sb.append(CELL_SEP);
                     }
                     sb.append(ROW_SEP);
+                    sink.append(sb);
                 }
             }
-            return new SimpleCachableBlobHolder(Blobs.createBlob(sb.toString()));
+            return new SimpleCachableBlobHolder(sink.getBlob());
         } catch (IOException e) {
             throw new ConversionException("Error during XL2Text conversion", blobHolder, e);
         }
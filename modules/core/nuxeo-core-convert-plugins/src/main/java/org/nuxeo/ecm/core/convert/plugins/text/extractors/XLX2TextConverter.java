@@ -35,7 +35,6 @@ import org.apache.poi.xssf.usermodel.XSSFRow;
 import org.apache.poi.xssf.usermodel.XSSFSheet;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.nuxeo.ecm.core.api.Blob;
-import org.nuxeo.ecm.core.api.Blobs;
 import org.nuxeo.ecm.core.api.blobholder.BlobHolder;
 import org.nuxeo.ecm.core.convert.api.ConversionException;
 import org.nuxeo.ecm.core.convert.cache.SimpleCachableBlobHolder;
@@ -50,22 +49,22 @@ public class XLX2TextConverter extends BaseOfficeXMLTextConverter implements Con
     @Override
     public BlobHolder convert(BlobHolder blobHolder, Map<String, Serializable> parameters) {
 
-        StringBuilder sb = new StringBuilder();
-
         try {
             Blob blob = blobHolder.getBlob();
 
             if (blob.getLength() < 0 || blob.getLength() > maxSize4POI) {
-                return runFallBackConverter(blobHolder, "xl/");
+                return runFallBackConverter(blobHolder, "xl/", parameters);
             }
 
             try (InputStream stream = blob.getStream(); //
                     OPCPackage p = OPCPackage.open(stream); //
-                    XSSFWorkbook workbook = new XSSFWorkbook(p)) {
-                for (int i = 0; i < workbook.getNumberOfSheets(); i++) {
+                    XSSFWorkbook workbook = new XSSFWorkbook(p); //
+                    TextSink sink = TextSink.of(parameters)) {
+                for (int i = 0; i < workbook.getNumberOfSheets() && !sink.isFull(); i++) {
                     XSSFSheet sheet = workbook.getSheetAt(i);
                     Iterator<Row> rows = sheet.rowIterator();
-                    while (rows.hasNext()) {
+                    while (rows.hasNext() && !sink.isFull()) {
+                        StringBuilder sb = new StringBuilder();
                         XSSFRow row = (XSSFRow) rows.next();
                         Iterator<Cell> cells = row.cellIterator();
                         while (cells.hasNext()) {
@@ -73,10 +72,11 @@ public class XLX2TextConverter extends BaseOfficeXMLTextConverter implements Con
                             appendTextFromCell(cell, sb);
                         }
                         sb.append(ROW_SEP);
+                        sink.append(sb);
                     }
                 }
+                return new SimpleCachableBlobHolder(sink.getBlob());
             }
-            return new SimpleCachableBlobHolder(Blobs.createBlob(sb.toString()));
         } catch (IOException | OpenXML4JException e) {
             throw new ConversionException("Error during XLX2Text conversion", blobHolder, e);
         }
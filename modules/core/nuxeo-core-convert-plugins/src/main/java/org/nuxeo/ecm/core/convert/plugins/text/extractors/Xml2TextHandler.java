@@ -24,6 +24,7 @@ package org.nuxeo.ecm.core.convert.plugins.text.extractors;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Writer;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
@@ -53,6 +54,9 @@ public class Xml2TextHandler extends DefaultHandler {
 
     protected boolean trim = false;
 
+    /** @since 2021.20 */
+    protected Writer writer;
+
     public Xml2TextHandler() throws SAXException, ParserConfigurationException {
         parser = factory.newSAXParser();
         XMLReader reader = parser.getXMLReader();
@@ -86,6 +90,20 @@ public class Xml2TextHandler extends DefaultHandler {
         return text;
     }
 
+    /**
+     * Parses the XML and writes its text to the given writer, instead of building it in memory.
+     *
+     * @since 2021.20
+     */
+    public void parse(InputSource is, Writer writer) throws SAXException, IOException {
+        this.writer = writer;
+        try {
+            parser.parse(is, this);
+        } finally {
+            this.writer = null;
+        }
+    }
+
     public String getText() {
         return builder.toString();
     }
@@ -115,13 +133,32 @@ public class Xml2TextHandler extends DefaultHandler {
             while (i < end && Character.isWhitespace(ch[i])) {
                 i++;
             }
-            builder.append(" ").append(ch, i, length - i + start);
+            append(" ");
+            append(ch, i, length - i + start);
             trim = false;
             // System.out.println("["+new String(ch, i, length - i + start)+"]");
         } else {
-            builder.append(ch, start, length);
+            append(ch, start, length);
             // System.out.println("{"+new String(ch, start, length)+"}");
         }
     }
 
+    /** @since 2021.20 */
+    protected void append(String str) throws SAXException {
+        append(str.toCharArray(), 0, str.length());
+    }
+
+    /** @since 2021.20 */
+    protected void append(char[] ch, int start, int length) throws SAXException {
+        if (writer == null) {
+            builder.append(ch, start, length);
+            return;
+        }
+        try {
+            writer.write(ch, start, length);
+        } catch (IOException e) {
+            throw new SAXException(e);
+        }
+    }
+
 }
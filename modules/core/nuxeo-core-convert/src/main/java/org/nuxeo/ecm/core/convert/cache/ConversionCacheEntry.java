@@ -67,6 +67,15 @@ public class ConversionCacheEntry {
         return persisted;
     }
 
+    /**
+     * Checks whether the persisted file of this entry exists.
+     *
+     * @since 2021.20
+     */
+    public boolean exists() {
+        return persisted && persistPath != null && new File(persistPath).exists();
+    }
+
     public void remove() {
         if (persisted && persistPath != null) {
             new File(persistPath).delete();
@@ -22,14 +22,13 @@ package org.nuxeo.ecm.core.convert.cache;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.logging.Log;
@@ -41,14 +40,17 @@ import org.nuxeo.ecm.core.convert.service.ConversionServiceImpl;
 
 /**
  * Manager for the cache system of the {@link ConversionService}.
+ * <p>
+ * The cache entries are held in a concurrent map. As the file of an entry is derived from its key, the file is only
+ * written or deleted while computing the mapping of the key, so that concurrent additions of the same key are coalesced
+ * and a file still referenced by a live entry is never deleted. No lock is held while a conversion result is restored.
+ * For a cache shared by the nodes of a cluster, see {@link KeyValueConversionCache}.
  *
  * @author tiry
  */
 public class ConversionCacheHolder {
 
-    protected static final Map<String, ConversionCacheEntry> cache = new HashMap<>();
-
-    protected static final ReentrantReadWriteLock cacheLock = new ReentrantReadWriteLock();
+    protected static final Map<String, ConversionCacheEntry> cache = new ConcurrentHashMap<>();
 
     private static final Log log = LogFactory.getLog(ConversionCacheHolder.class);
 
@@ -67,7 +69,7 @@ public class ConversionCacheHolder {
     }
 
     public static int getNbCacheEntries() {
-        return cache.keySet().size();
+        return cache.size();
     }
 
     protected static List<String> getSubPathFromKey(String key) {
@@ -108,54 +110,39 @@ public class ConversionCacheHolder {
 
     public static void addToCache(String key, BlobHolder result) {
         Objects.requireNonNull(key);
-        cacheLock.writeLock().lock();
-        try {
-            doAddToCache(key, result);
-        } finally {
-            cacheLock.writeLock().unlock();
-        }
+        doAddToCache(key, result);
     }
 
     protected static void doAddToCache(String key, BlobHolder result) {
-        ConversionCacheEntry cce = new ConversionCacheEntry(result);
-        boolean persisted = false;
-
-        try {
-            persisted = cce.persist(getCacheEntryPath(key));
-        } catch (IOException e) {
-            log.error("Error while trying to persist cache entry", e);
-        }
-
-        if (persisted) {
-            cache.put(key, cce);
-        }
+        cache.compute(key, (k, previous) -> {
+            if (previous != null && previous.exists()) {
+                // already added by a concurrent conversion
+                return previous;
+            }
+            ConversionCacheEntry cce = new ConversionCacheEntry(result);
+            boolean persisted = false;
+            try {
+                persisted = cce.persist(getCacheEntryPath(k));
+            } catch (IOException e) {
+                log.error("Error while trying to persist cache entry", e);
+            }
+            return persisted ? cce : null;
+        });
     }
 
     public static void removeFromCache(String key) {
-        cacheLock.writeLock().lock();
-        try {
-            doRemoveFromCache(key);
-        } finally {
-            cacheLock.writeLock().unlock();
-        }
-
+        doRemoveFromCache(key);
     }
 
     protected static void doRemoveFromCache(String key) {
-        if (cache.containsKey(key)) {
-            ConversionCacheEntry cce = cache.get(key);
+        cache.computeIfPresent(key, (k, cce) -> {
             cce.remove();
-            cache.remove(key);
-        }
+            return null;
+        });
     }
 
     public static ConversionCacheEntry getCacheEntry(String key) {
-        cacheLock.readLock().lock();
-        try {
-            return doGetCacheEntry(key);
-        } finally {
-            cacheLock.readLock().unlock();
-        }
+        return doGetCacheEntry(key);
     }
 
     protected static ConversionCacheEntry doGetCacheEntry(String key) {
@@ -163,53 +150,45 @@ public class ConversionCacheHolder {
     }
 
     public static BlobHolder getFromCache(String key) {
-        // in case of present key but missing file we need to remove the cache key.
-        cacheLock.writeLock().lock();
-        try {
-            BlobHolder result = doGetFromCache(key);
-            if (result == null) {
-                removeFromCache(key);
-            }
-            return result;
-        } finally {
-            cacheLock.writeLock().unlock();
+        ConversionCacheEntry cacheEntry = cache.get(key);
+        if (cacheEntry == null) {
+            return null;
         }
+        BlobHolder result = doGetFromCache(cacheEntry);
+        if (result == null) {
+            // in case of present key but missing file we need to remove the cache key, unless it was replaced
+            cache.computeIfPresent(key, (k, cce) -> {
+                if (cce != cacheEntry) {
+                    return cce;
+                }
+                cce.remove();
+                return null;
+            });
+        }
+        return result;
     }
 
-    protected static BlobHolder doGetFromCache(String key) {
-        ConversionCacheEntry cacheEntry = cache.get(key);
-        if (cacheEntry != null) {
-            if (CACHE_HITS.incrementAndGet() < 0) {
-                // skip all negative values
-                CACHE_HITS.addAndGet(Long.MIN_VALUE); // back to 0
-            }
-            BlobHolder restored = cacheEntry.restore();
-            if (restored.getBlob().getFile().exists()) {
-                return restored;
-            }
+    protected static BlobHolder doGetFromCache(ConversionCacheEntry cacheEntry) {
+        if (CACHE_HITS.incrementAndGet() < 0) {
+            // skip all negative values
+            CACHE_HITS.addAndGet(Long.MIN_VALUE); // back to 0
+        }
+        BlobHolder restored = cacheEntry.restore();
+        if (restored != null && restored.getBlob().getFile().exists()) {
+            return restored;
         }
         return null;
     }
 
     public static Set<String> getCacheKeys() {
-        cacheLock.readLock().lock();
-        try {
-            return new HashSet<>(cache.keySet());
-        } finally {
-            cacheLock.readLock().unlock();
-        }
+        return new HashSet<>(cache.keySet());
     }
 
     /**
      * @since 6.0
      */
     public static void deleteCache() {
-        cacheLock.writeLock().lock();
-        try {
-            cache.clear();
-            new File(ConversionServiceImpl.getCacheBasePath()).delete();
-        } finally {
-            cacheLock.writeLock().unlock();
-        }
+        cache.clear();
+        new File(ConversionServiceImpl.getCacheBasePath()).delete();
     }
 }
@@ -0,0 +1,295 @@
+/*
+ * (C) Copyright 2021 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.convert.cache;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.ecm.core.api.Blob;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.api.blobholder.BlobHolder;
+import org.nuxeo.ecm.core.api.blobholder.SimpleBlobHolder;
+import org.nuxeo.ecm.core.blob.BlobInfo;
+import org.nuxeo.ecm.core.blob.BlobManager;
+import org.nuxeo.ecm.core.blob.BlobProvider;
+import org.nuxeo.ecm.core.convert.api.ConversionException;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.kv.KeyValueService;
+import org.nuxeo.runtime.kv.KeyValueStore;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Conversion cache shared by all the nodes of a cluster.
+ * <p>
+ * The converted blobs are stored in a {@link BlobProvider} and the cache index is stored in a {@link KeyValueStore},
+ * no global lock is involved. Index entries expire after a TTL, the blobs they reference are left to the garbage
+ * collection of the blob provider, which should be a transient one.
+ * <p>
+ * Concurrent requests for the same conversion are coalesced: on a given node the callers wait for the same conversion,
+ * and across the cluster a lock held in the key/value store makes the other nodes wait for the result of the node
+ * doing the conversion, unless the lock expires.
+ * <p>
+ * The storage format is the following:
+ *
+ * <pre>
+ *   cacheKey:      [{"key": key in blob provider, "mimetype": ..., "encoding": ..., "filename": ...,
+ *                    "length": ..., "digest": ...}, ...]
+ *   cacheKey.lock: id of the node doing the conversion
+ * </pre>
+ *
+ * @since 2021.20
+ */
+public class KeyValueConversionCache {
+
+    private static final Logger log = LogManager.getLogger(KeyValueConversionCache.class);
+
+    protected static final String DOT_LOCK = ".lock";
+
+    protected static final String KEY = "key";
+
+    protected static final String MIMETYPE = "mimetype";
+
+    protected static final String ENCODING = "encoding";
+
+    protected static final String FILENAME = "filename";
+
+    protected static final String LENGTH = "length";
+
+    protected static final String DIGEST = "digest";
+
+    protected static final long POLL_INTERVAL_MS = 100;
+
+    /** Identifies this node as the owner of the conversion locks. */
+    protected static final String NODE_ID = UUID.randomUUID().toString();
+
+    protected static final ObjectMapper MAPPER = new ObjectMapper();
+
+    protected final String keyValueStoreName;
+
+    protected final String blobProviderId;
+
+    protected final long ttl;
+
+    protected final long lockTTL;
+
+    /** Conversions in progress on this node. */
+    protected final Map<String, CompletableFuture<BlobHolder>> inFlight = new ConcurrentHashMap<>();
+
+    protected final AtomicLong hits = new AtomicLong();
+
+    /**
+     * @param keyValueStoreName the key/value store holding the index
+     * @param blobProviderId the blob provider storing the converted blobs
+     * @param ttl the TTL of the cache entries, in seconds
+     * @param lockTTL the maximum time, in seconds, other callers wait for a conversion done elsewhere
+     */
+    public KeyValueConversionCache(String keyValueStoreName, String blobProviderId, long ttl, long lockTTL) {
+        this.keyValueStoreName = keyValueStoreName;
+        this.blobProviderId = blobProviderId;
+        this.ttl = ttl;
+        this.lockTTL = lockTTL;
+    }
+
+    protected KeyValueStore getKeyValueStore() {
+        return Framework.getService(KeyValueService.class).getKeyValueStore(keyValueStoreName);
+    }
+
+    protected BlobProvider getBlobProvider() {
+        BlobProvider blobProvider = Framework.getService(BlobManager.class)
+                                             .getBlobProviderWithNamespace(blobProviderId, "default");
+        if (blobProvider == null) {
+            throw new NuxeoException("No blob provider with id: " + blobProviderId);
+        }
+        return blobProvider;
+    }
+
+    public long getCacheHits() {
+        return hits.get();
+    }
+
+    /**
+     * Gets the cached conversion result, or runs the conversion and caches its result.
+     * <p>
+     * Only one conversion for a given key runs at a time in the cluster, the other callers get its result.
+     */
+    public BlobHolder computeIfAbsent(String key, Supplier<BlobHolder> converter) {
+        BlobHolder result = get(key);
+        if (result != null) {
+            return result;
+        }
+        CompletableFuture<BlobHolder> future = new CompletableFuture<>();
+        CompletableFuture<BlobHolder> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            // another thread of this node is doing the conversion, get our own copy of its result if it was cached
+            result = await(existing);
+            BlobHolder cached = get(key);
+            return cached == null ? result : cached;
+        }
+        try {
+            result = computeClusterWide(key, converter);
+            future.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    protected BlobHolder await(CompletableFuture<BlobHolder> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NuxeoException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new ConversionException("Conversion failed", cause);
+        }
+    }
+
+    protected BlobHolder computeClusterWide(String key, Supplier<BlobHolder> converter) {
+        KeyValueStore kvs = getKeyValueStore();
+        String lockKey = key + DOT_LOCK;
+        long deadline = System.currentTimeMillis() + lockTTL * 1000;
+        while (!kvs.compareAndSet(lockKey, null, NODE_ID, lockTTL)) {
+            // another node is doing the conversion, wait for its result
+            if (System.currentTimeMillis() > deadline) {
+                log.debug("Timeout waiting for conversion of: {}, converting locally", key);
+                return convertAndPut(key, converter);
+            }
+            try {
+                Thread.sleep(POLL_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new NuxeoException(e);
+            }
+            BlobHolder result = get(key);
+            if (result != null) {
+                return result;
+            }
+        }
+        try {
+            // the conversion may have been done between our cache check and the lock acquisition
+            BlobHolder result = get(key);
+            if (result != null) {
+                return result;
+            }
+            return convertAndPut(key, converter);
+        } finally {
+            kvs.compareAndSet(lockKey, NODE_ID, null);
+        }
+    }
+
+    protected BlobHolder convertAndPut(String key, Supplier<BlobHolder> converter) {
+        BlobHolder result = converter.get();
+        if (result instanceof CachableBlobHolder) {
+            put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * Gets the cached conversion result, or {@code null} if there is none.
+     */
+    public BlobHolder get(String key) {
+        KeyValueStore kvs = getKeyValueStore();
+        String json = kvs.getString(key);
+        if (json == null) {
+            return null;
+        }
+        List<Map<String, String>> blobMaps;
+        try {
+            blobMaps = MAPPER.readValue(json, new TypeReference<List<Map<String, String>>>() {
+            });
+        } catch (IOException e) {
+            log.warn("Invalid conversion cache entry: {}", key, e);
+            remove(key);
+            return null;
+        }
+        BlobProvider bp = getBlobProvider();
+        List<Blob> blobs = new ArrayList<>(blobMaps.size());
+        for (Map<String, String> blobMap : blobMaps) {
+            BlobInfo blobInfo = new BlobInfo();
+            blobInfo.key = blobMap.get(KEY);
+            blobInfo.mimeType = blobMap.get(MIMETYPE);
+            blobInfo.encoding = blobMap.get(ENCODING);
+            blobInfo.filename = blobMap.get(FILENAME);
+            String length = blobMap.get(LENGTH);
+            blobInfo.length = length == null ? null : Long.valueOf(length);
+            blobInfo.digest = blobMap.get(DIGEST);
+            try {
+                blobs.add(bp.readBlob(blobInfo));
+            } catch (IOException e) {
+                // the blob was garbage collected, the entry is obsolete
+                log.debug("Missing blob: {} for conversion cache entry: {}", blobInfo.key, key);
+                remove(key);
+                return null;
+            }
+        }
+        hits.incrementAndGet();
+        return new SimpleBlobHolder(blobs);
+    }
+
+    /**
+     * Stores a conversion result in the cache.
+     */
+    public void put(String key, BlobHolder result) {
+        List<Blob> blobs = result.getBlobs();
+        if (blobs == null) {
+            return;
+        }
+        BlobProvider bp = getBlobProvider();
+        List<Map<String, String>> blobMaps = new ArrayList<>(blobs.size());
+        try {
+            for (Blob blob : blobs) {
+                Map<String, String> blobMap = new HashMap<>();
+                blobMap.put(KEY, bp.writeBlob(blob));
+                blobMap.put(MIMETYPE, blob.getMimeType());
+                blobMap.put(ENCODING, blob.getEncoding());
+                blobMap.put(FILENAME, blob.getFilename());
+                blobMap.put(LENGTH, String.valueOf(blob.getLength()));
+                blobMap.put(DIGEST, blob.getDigest());
+                blobMaps.add(blobMap);
+            }
+            getKeyValueStore().put(key, MAPPER.writeValueAsString(blobMaps), ttl);
+        } catch (IOException e) {
+            log.error("Error while trying to store conversion cache entry: {}", key, e);
+        }
+    }
+
+    public void remove(String key) {
+        getKeyValueStore().put(key, (String) null);
+    }
+
+}
@@ -43,6 +43,15 @@ public class GlobalConfigDescriptor {
 
     public static final String DEFAULT_CACHING_DIRECTORY = "convertcache";
 
+    /** @since 2021.20 */
+    public static final String DEFAULT_CACHE_KEY_VALUE_STORE = "convertcache";
+
+    /** @since 2021.20 */
+    public static final long DEFAULT_CACHE_TTL = 24 * 60 * 60; // 1 day
+
+    /** @since 2021.20 */
+    public static final long DEFAULT_CACHE_LOCK_TTL = 5 * 60; // 5 minutes
+
     @XNode("enableCache")
     protected Boolean enableCache;
 
@@ -97,6 +106,58 @@ public class GlobalConfigDescriptor {
         return diskCacheSize == null ? DEFAULT_DISK_CACHE_IN_KB : diskCacheSize.intValue();
     }
 
+    /**
+     * The blob provider storing the conversion results, enables the cluster-wide conversion cache when set.
+     *
+     * @since 2021.20
+     */
+    @XNode("cacheBlobProvider")
+    protected String cacheBlobProvider;
+
+    /** @since 2021.20 */
+    public String getCacheBlobProvider() {
+        return cacheBlobProvider;
+    }
+
+    /**
+     * The key/value store holding the index of the cluster-wide conversion cache.
+     *
+     * @since 2021.20
+     */
+    @XNode("cacheKeyValueStore")
+    protected String cacheKeyValueStore;
+
+    /** @since 2021.20 */
+    public String getCacheKeyValueStore() {
+        return cacheKeyValueStore == null ? DEFAULT_CACHE_KEY_VALUE_STORE : cacheKeyValueStore;
+    }
+
+    /**
+     * The TTL of the cluster-wide conversion cache entries, in seconds.
+     *
+     * @since 2021.20
+     */
+    @XNode("cacheTTL")
+    protected Long cacheTTL;
+
+    /** @since 2021.20 */
+    public long getCacheTTL() {
+        return cacheTTL == null ? DEFAULT_CACHE_TTL : cacheTTL.longValue();
+    }
+
+    /**
+     * The maximum time, in seconds, a node waits for a conversion done by another node of the cluster.
+     *
+     * @since 2021.20
+     */
+    @XNode("cacheLockTTL")
+    protected Long cacheLockTTL;
+
+    /** @since 2021.20 */
+    public long getCacheLockTTL() {
+        return cacheLockTTL == null ? DEFAULT_CACHE_LOCK_TTL : cacheLockTTL.longValue();
+    }
+
     public void update(GlobalConfigDescriptor other) {
         if (other.enableCache != null) {
             enableCache = other.enableCache;
@@ -110,6 +171,18 @@ public class GlobalConfigDescriptor {
         if (other.cachingDirectory != null) {
             cachingDirectory = other.cachingDirectory;
         }
+        if (other.cacheBlobProvider != null) {
+            cacheBlobProvider = other.cacheBlobProvider;
+        }
+        if (other.cacheKeyValueStore != null) {
+            cacheKeyValueStore = other.cacheKeyValueStore;
+        }
+        if (other.cacheTTL != null) {
+            cacheTTL = other.cacheTTL;
+        }
+        if (other.cacheLockTTL != null) {
+            cacheLockTTL = other.cacheLockTTL;
+        }
     }
 
 }
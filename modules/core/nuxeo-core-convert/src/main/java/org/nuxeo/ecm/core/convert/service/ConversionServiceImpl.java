@@ -53,6 +53,7 @@ import org.nuxeo.ecm.core.convert.api.ConverterNotRegistered;
 import org.nuxeo.ecm.core.convert.cache.CacheKeyGenerator;
 import org.nuxeo.ecm.core.convert.cache.ConversionCacheHolder;
 import org.nuxeo.ecm.core.convert.cache.GCTask;
+import org.nuxeo.ecm.core.convert.cache.KeyValueConversionCache;
 import org.nuxeo.ecm.core.convert.extension.ChainedConverter;
 import org.nuxeo.ecm.core.convert.extension.Converter;
 import org.nuxeo.ecm.core.convert.extension.ConverterDescriptor;
@@ -92,6 +93,9 @@ public class ConversionServiceImpl extends DefaultComponent implements Conversio
 
     protected final GlobalConfigDescriptor config = new GlobalConfigDescriptor();
 
+    /** @since 2021.20 */
+    protected volatile KeyValueConversionCache sharedCache;
+
     protected Thread gcThread;
 
     protected GCTask gcTask;
@@ -125,6 +129,7 @@ public class ConversionServiceImpl extends DefaultComponent implements Conversio
             GlobalConfigDescriptor desc = (GlobalConfigDescriptor) contribution;
             config.update(desc);
             config.clearCachingDirectory();
+            sharedCache = null;
         } else {
             log.error("Unable to handle unknown extensionPoint {}", extensionPoint);
         }
@@ -333,18 +338,27 @@ public class ConversionServiceImpl extends DefaultComponent implements Conversio
 
         String cacheKey = CacheKeyGenerator.computeKey(converterName, blobHolder, parameters);
 
-        BlobHolder result = ConversionCacheHolder.getFromCache(cacheKey);
+        BlobHolder result;
+        KeyValueConversionCache kvCache = getSharedCache();
+        if (kvCache != null) {
+            // the cached blobs keep their original filename
+            Map<String, Serializable> params = parameters;
+            result = kvCache.computeIfAbsent(cacheKey, () -> desc.getConverterInstance().convert(blobHolder, params));
+        } else {
+            result = ConversionCacheHolder.getFromCache(cacheKey);
 
-        if (result == null) {
-            Converter converter = desc.getConverterInstance();
-            result = converter.convert(blobHolder, parameters);
+            if (result == null) {
+                Converter converter = desc.getConverterInstance();
+                result = converter.convert(blobHolder, parameters);
 
-            if (config.isCacheEnabled()) {
-                ConversionCacheHolder.addToCache(cacheKey, result);
+                if (config.isCacheEnabled()) {
+                    ConversionCacheHolder.addToCache(cacheKey, result);
+                }
+            } else if (result.getBlobs() != null && result.getBlobs().size() == 1) {
+                // we need to reset the filename if result is a single file from the cache because the name is just a
+                // hash
+                result.getBlob().setFilename(null);
             }
-        } else if (result.getBlobs() != null && result.getBlobs().size() == 1) {
-            // we need to reset the filename if result is a single file from the cache because the name is just a hash
-            result.getBlob().setFilename(null);
         }
 
         if (result != null) {
@@ -355,6 +369,25 @@ public class ConversionServiceImpl extends DefaultComponent implements Conversio
         return result;
     }
 
+    /**
+     * Gets the cluster-wide conversion cache, or {@code null} if the cache is disabled or no blob provider is configured
+     * for it.
+     *
+     * @since 2021.20
+     */
+    protected KeyValueConversionCache getSharedCache() {
+        if (!config.isCacheEnabled() || config.getCacheBlobProvider() == null) {
+            return null;
+        }
+        KeyValueConversionCache cache = sharedCache;
+        if (cache == null) {
+            cache = new KeyValueConversionCache(config.getCacheKeyValueStore(), config.getCacheBlobProvider(),
+                    config.getCacheTTL(), config.getCacheLockTTL());
+            sharedCache = cache;
+        }
+        return cache;
+    }
+
     /**
      * Returns true if the converter has the given {@code mimeType} as source mime type, false otherwise.
      *
@@ -23,12 +23,19 @@ package org.nuxeo.ecm.core.convert.tests;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -39,6 +46,7 @@ import org.nuxeo.ecm.core.api.blobholder.BlobHolder;
 import org.nuxeo.ecm.core.api.blobholder.SimpleBlobHolder;
 import org.nuxeo.ecm.core.convert.api.ConversionService;
 import org.nuxeo.ecm.core.convert.cache.CacheKeyGenerator;
+import org.nuxeo.ecm.core.convert.cache.ConversionCacheEntry;
 import org.nuxeo.ecm.core.convert.cache.ConversionCacheGCManager;
 import org.nuxeo.ecm.core.convert.cache.ConversionCacheHolder;
 import org.nuxeo.ecm.core.convert.cache.SimpleCachableBlobHolder;
@@ -127,4 +135,36 @@ public class TestCache {
         assertEquals(0, ConversionCacheHolder.getNbCacheEntries());
     }
 
+    @Test
+    public void testConcurrentAddToCache() throws Exception {
+        File file = FileUtils.getResourceFileFromContext("test-data/hello.doc");
+        String cacheKey = CacheKeyGenerator.computeKey("identity", new SimpleBlobHolder(Blobs.createBlob(file)), null);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> ConversionCacheHolder.addToCache(cacheKey,
+                        new SimpleCachableBlobHolder(Blobs.createBlob(file)))));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, ConversionCacheHolder.getNbCacheEntries());
+        ConversionCacheEntry entry = ConversionCacheHolder.getCacheEntry(cacheKey);
+
+        // adding again keeps the live entry and its file
+        ConversionCacheHolder.addToCache(cacheKey, new SimpleCachableBlobHolder(Blobs.createBlob(file)));
+        assertSame(entry, ConversionCacheHolder.getCacheEntry(cacheKey));
+        BlobHolder blobHolder = ConversionCacheHolder.getFromCache(cacheKey);
+        assertNotNull(blobHolder);
+        assertEquals(file.length(), blobHolder.getBlob().getFile().length());
+
+        ConversionCacheHolder.removeFromCache(cacheKey);
+        assertNull(ConversionCacheHolder.getFromCache(cacheKey));
+    }
+
 }
@@ -0,0 +1,136 @@
+/*
+ * (C) Copyright 2021 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.convert.tests;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Inject;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.ecm.core.api.Blob;
+import org.nuxeo.ecm.core.api.Blobs;
+import org.nuxeo.ecm.core.api.blobholder.BlobHolder;
+import org.nuxeo.ecm.core.api.blobholder.SimpleBlobHolder;
+import org.nuxeo.ecm.core.convert.api.ConversionService;
+import org.nuxeo.ecm.core.convert.cache.ConversionCacheHolder;
+import org.nuxeo.ecm.core.convert.cache.KeyValueConversionCache;
+import org.nuxeo.ecm.core.convert.cache.SimpleCachableBlobHolder;
+import org.nuxeo.runtime.test.runner.Deploy;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+
+/**
+ * @since 2021.20
+ */
+@RunWith(FeaturesRunner.class)
+@Features(ConvertFeature.class)
+@Deploy("org.nuxeo.runtime.kv")
+@Deploy("org.nuxeo.ecm.core.convert:OSGI-INF/convert-service-config-shared-cache.xml")
+@Deploy("org.nuxeo.ecm.core.convert:OSGI-INF/converters-test-contrib3.xml")
+public class TestKeyValueConversionCache {
+
+    @Inject
+    protected ConversionService cs;
+
+    protected KeyValueConversionCache newCache() {
+        return new KeyValueConversionCache("convertcache", "convertcache", 60, 10);
+    }
+
+    @Test
+    public void testConvertUsesSharedCache() throws Exception {
+        int localEntries = ConversionCacheHolder.getNbCacheEntries();
+        Blob blob = Blobs.createBlob("hello shared cache", "text/plain", null, "hello.txt");
+        BlobHolder result = cs.convert("identity", new SimpleBlobHolder(blob), null);
+        assertEquals("hello shared cache", result.getBlob().getString());
+
+        BlobHolder cached = cs.convert("identity", new SimpleBlobHolder(blob), null);
+        assertEquals("hello shared cache", cached.getBlob().getString());
+        assertEquals("hello.txt", cached.getBlob().getFilename());
+        // the local cache is not used
+        assertEquals(localEntries, ConversionCacheHolder.getNbCacheEntries());
+    }
+
+    @Test
+    public void testPutGetRemove() throws Exception {
+        KeyValueConversionCache cache = newCache();
+        assertNull(cache.get("putgetremove"));
+        Blob blob = Blobs.createBlob("foo", "text/plain", UTF_8.name(), "foo.txt");
+        cache.put("putgetremove", new SimpleCachableBlobHolder(blob));
+        BlobHolder bh = cache.get("putgetremove");
+        assertNotNull(bh);
+        assertEquals("foo", bh.getBlob().getString());
+        assertEquals("text/plain", bh.getBlob().getMimeType());
+        assertEquals("foo.txt", bh.getBlob().getFilename());
+        assertEquals(1, cache.getCacheHits());
+        cache.remove("putgetremove");
+        assertNull(cache.get("putgetremove"));
+    }
+
+    @Test
+    public void testSingleFlight() throws Exception {
+        KeyValueConversionCache cache = newCache();
+        AtomicInteger conversions = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        int nbThreads = 5;
+        ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
+        try {
+            List<Future<BlobHolder>> futures = new ArrayList<>();
+            for (int i = 0; i < nbThreads; i++) {
+                futures.add(executor.submit(() -> cache.computeIfAbsent("singleflight", () -> {
+                    conversions.incrementAndGet();
+                    started.countDown();
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return new SimpleCachableBlobHolder(Blobs.createBlob("bar"));
+                })));
+            }
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            release.countDown();
+            for (Future<BlobHolder> future : futures) {
+                assertEquals("bar", future.get(20, TimeUnit.SECONDS).getBlob().getString());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, conversions.get());
+    }
+
+    @Test
+    public void testNonCachableResultNotCached() {
+        KeyValueConversionCache cache = newCache();
+        cache.computeIfAbsent("noncachable", () -> new SimpleBlobHolder(Blobs.createBlob("baz")));
+        assertNull(cache.get("noncachable"));
+    }
+
+}
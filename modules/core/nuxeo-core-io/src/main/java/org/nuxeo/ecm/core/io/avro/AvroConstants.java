@@ -51,6 +51,12 @@ public class AvroConstants {
 
     public static final String ENCODING = "encoding";
 
+    /** @since 2021.20 */
+    public static final String ENVELOPE = "documentEnvelope";
+
+    /** @since 2021.20 */
+    public static final String ENVELOPE_DOCUMENT_SCHEMA = "documentSchema";
+
     public static final String IS_CHECKEDIN = "isCheckedIn";
 
     public static final String IS_LATEST_MAJOR_VERSION = "isLatestMajorVersion";
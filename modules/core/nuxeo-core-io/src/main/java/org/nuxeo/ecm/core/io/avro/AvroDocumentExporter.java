@@ -0,0 +1,304 @@
+/*
+ * (C) Copyright 2021 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.io.avro;
+
+import static org.nuxeo.common.concurrent.ThreadFactories.newThreadFactory;
+import static org.nuxeo.ecm.core.io.avro.AvroConstants.DATA;
+import static org.nuxeo.ecm.core.io.avro.AvroConstants.ENVELOPE_DOCUMENT_SCHEMA;
+import static org.nuxeo.ecm.core.io.avro.AvroConstants.PRIMARY_TYPE;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.Schema.Type;
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.ecm.core.api.Blob;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.DocumentRef;
+import org.nuxeo.ecm.core.api.IdRef;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.api.ScrollResult;
+import org.nuxeo.ecm.core.query.sql.NXQL;
+import org.nuxeo.ecm.core.utils.BlobsExtractor;
+import org.nuxeo.runtime.avro.AvroService;
+
+/**
+ * Exports a document subtree to an Avro container file.
+ * <p>
+ * The subtree is walked folder by folder so that a parent is always written before its children. Documents are
+ * fetched by batches with the caller session, then mapped and encoded to Avro in parallel by a pool of workers, a
+ * bounded window of pending documents keeps the memory usage constant whatever the size of the subtree. Records are
+ * appended to the file in the traversal order.
+ * <p>
+ * The content of the blobs is embedded in the records, so the window is also bounded by the total length of the blobs
+ * of the pending documents. A single document is always accepted, its blobs must fit in memory.
+ * <p>
+ * As each document type has its own Avro schema, the file contains {@link #ENVELOPE_SCHEMA} records holding the type,
+ * the binary encoded document and, on the first document of each type only, the document schema.
+ * <p>
+ * Only live documents are exported, versions and proxies are skipped as they can't be mapped to Avro yet.
+ *
+ * @since 2021.20
+ * @see AvroDocumentImporter
+ */
+public class AvroDocumentExporter {
+
+    private static final Logger log = LogManager.getLogger(AvroDocumentExporter.class);
+
+    protected static final String CHILDREN_QUERY = "SELECT * FROM Document WHERE ecm:parentId = %s AND ecm:isProxy = 0";
+
+    protected static final int SCROLL_KEEP_ALIVE_SECONDS = 60;
+
+    protected static final long DEFAULT_MAX_PENDING_BYTES = 100L * 1024 * 1024;
+
+    /**
+     * Schema of the records of the container file.
+     */
+    public static final Schema ENVELOPE_SCHEMA = Schema.createRecord(AvroConstants.ENVELOPE, null, AvroConstants.ECM,
+            false,
+            Arrays.asList(new Field(PRIMARY_TYPE, Schema.create(Type.STRING), null, (Object) null),
+                    new Field(ENVELOPE_DOCUMENT_SCHEMA,
+                            Schema.createUnion(Schema.create(Type.NULL), Schema.create(Type.STRING)), null,
+                            Field.NULL_DEFAULT_VALUE),
+                    new Field(DATA, Schema.create(Type.BYTES), null, (Object) null)));
+
+    protected final AvroService service;
+
+    protected int batchSize = 100;
+
+    protected int threads = Runtime.getRuntime().availableProcessors();
+
+    protected int queueSize = 1000;
+
+    protected long maxPendingBytes = DEFAULT_MAX_PENDING_BYTES;
+
+    protected final BlobsExtractor blobsExtractor = new BlobsExtractor();
+
+    protected CodecFactory codec = CodecFactory.deflateCodec(CodecFactory.DEFAULT_DEFLATE_LEVEL);
+
+    /** Document schemas by document type, the schema only depends on the type. */
+    protected final Map<String, Schema> schemas = new ConcurrentHashMap<>();
+
+    public AvroDocumentExporter(AvroService service) {
+        this.service = service;
+    }
+
+    /**
+     * Sets the number of documents fetched from the repository at once.
+     */
+    public AvroDocumentExporter batchSize(int batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Sets the number of threads used to map documents to Avro.
+     */
+    public AvroDocumentExporter threads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of documents being mapped or waiting to be written.
+     */
+    public AvroDocumentExporter queueSize(int queueSize) {
+        this.queueSize = queueSize;
+        return this;
+    }
+
+    /**
+     * Sets the maximum total length of the blobs of the documents being mapped or waiting to be written.
+     */
+    public AvroDocumentExporter maxPendingBytes(long maxPendingBytes) {
+        this.maxPendingBytes = maxPendingBytes;
+        return this;
+    }
+
+    /**
+     * Sets the codec used to compress the container file blocks.
+     */
+    public AvroDocumentExporter codec(CodecFactory codec) {
+        this.codec = codec;
+        return this;
+    }
+
+    /**
+     * Exports the subtree starting at the given document, included, to the output stream.
+     *
+     * @return the number of exported documents
+     */
+    public long export(CoreSession session, DocumentRef rootRef, OutputStream out) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads, newThreadFactory("Nuxeo-AvroExport"));
+        try (DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<>(ENVELOPE_SCHEMA))) {
+            writer.setCodec(codec);
+            writer.create(ENVELOPE_SCHEMA, out);
+            ExportContext context = new ExportContext(writer, executor);
+            DocumentModel root = session.getDocument(rootRef);
+            root.detach(true);
+            context.submit(root);
+            Deque<String> folders = new ArrayDeque<>();
+            if (root.isFolderish()) {
+                folders.add(root.getId());
+            }
+            while (!folders.isEmpty()) {
+                exportChildren(session, folders.poll(), folders, context);
+            }
+            context.flush();
+            log.debug("Exported {} documents from {}", context.count, rootRef);
+            return context.count;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    protected void exportChildren(CoreSession session, String parentId, Deque<String> folders, ExportContext context)
+            throws IOException {
+        String query = String.format(CHILDREN_QUERY, NXQL.escapeString(parentId));
+        ScrollResult<String> scroll = session.scroll(query, batchSize, SCROLL_KEEP_ALIVE_SECONDS);
+        while (scroll.hasResults()) {
+            DocumentRef[] refs = scroll.getResults().stream().map(IdRef::new).toArray(DocumentRef[]::new);
+            for (DocumentModel doc : session.getDocuments(refs)) {
+                // load everything so that the mapping can be done outside of the session
+                doc.detach(true);
+                if (doc.isFolderish()) {
+                    folders.add(doc.getId());
+                }
+                context.submit(doc);
+            }
+            scroll = session.scroll(scroll.getScrollId());
+        }
+    }
+
+    /**
+     * Maps the document to an {@link #ENVELOPE_SCHEMA} record, the document schema is added by the writer.
+     */
+    protected GenericRecord toEnvelope(DocumentModel doc) throws IOException {
+        Schema schema = schemas.computeIfAbsent(doc.getType(), type -> service.createSchema(doc));
+        GenericRecord record = service.toAvro(schema, doc);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(bytes, null);
+        new GenericDatumWriter<GenericRecord>(schema).write(record, encoder);
+        encoder.flush();
+        GenericRecord envelope = new GenericData.Record(ENVELOPE_SCHEMA);
+        envelope.put(PRIMARY_TYPE, doc.getType());
+        envelope.put(DATA, ByteBuffer.wrap(bytes.toByteArray()));
+        return envelope;
+    }
+
+    /**
+     * Gets the total length of the blobs of the document, embedded in its record.
+     */
+    protected long getBlobsLength(DocumentModel doc) {
+        long length = 0;
+        for (Blob blob : blobsExtractor.getBlobs(doc)) {
+            if (blob != null) {
+                length += Math.max(blob.getLength(), 0);
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Holds the pending mappings, in traversal order, and writes them once the window is full.
+     */
+    protected class ExportContext {
+
+        protected final DataFileWriter<GenericRecord> writer;
+
+        protected final ExecutorService executor;
+
+        protected final Deque<Future<GenericRecord>> pending = new ArrayDeque<>();
+
+        /** Blobs length of the pending documents, in the same order. */
+        protected final Deque<Long> pendingLengths = new ArrayDeque<>();
+
+        protected long pendingBytes;
+
+        protected final Set<String> writtenTypes = new HashSet<>();
+
+        protected long count;
+
+        protected ExportContext(DataFileWriter<GenericRecord> writer, ExecutorService executor) {
+            this.writer = writer;
+            this.executor = executor;
+        }
+
+        protected void submit(DocumentModel doc) throws IOException {
+            long length = getBlobsLength(doc);
+            while (!pending.isEmpty() && (pending.size() >= queueSize || pendingBytes + length > maxPendingBytes)) {
+                writeNext();
+            }
+            pending.add(executor.submit(() -> toEnvelope(doc)));
+            pendingLengths.add(Long.valueOf(length));
+            pendingBytes += length;
+        }
+
+        protected void flush() throws IOException {
+            while (!pending.isEmpty()) {
+                writeNext();
+            }
+        }
+
+        protected void writeNext() throws IOException {
+            write(pending.poll());
+            pendingBytes -= pendingLengths.poll().longValue();
+        }
+
+        protected void write(Future<GenericRecord> future) throws IOException {
+            GenericRecord envelope;
+            try {
+                envelope = future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new NuxeoException("Interrupted while exporting documents", e);
+            } catch (ExecutionException e) {
+                throw new NuxeoException("Unable to map document to Avro", e.getCause());
+            }
+            String type = (String) envelope.get(PRIMARY_TYPE);
+            if (writtenTypes.add(type)) {
+                envelope.put(ENVELOPE_DOCUMENT_SCHEMA, schemas.get(type).toString());
+            }
+            writer.append(envelope);
+            count++;
+        }
+    }
+
+}
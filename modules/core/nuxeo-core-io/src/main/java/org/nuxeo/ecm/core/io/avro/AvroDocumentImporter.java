@@ -0,0 +1,241 @@
+/*
+ * (C) Copyright 2021 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.io.avro;
+
+import static org.nuxeo.common.concurrent.ThreadFactories.newThreadFactory;
+import static org.nuxeo.ecm.core.io.avro.AvroConstants.DATA;
+import static org.nuxeo.ecm.core.io.avro.AvroConstants.ENVELOPE_DOCUMENT_SCHEMA;
+import static org.nuxeo.ecm.core.io.avro.AvroConstants.PRIMARY_TYPE;
+import static org.nuxeo.ecm.core.io.avro.AvroDocumentExporter.ENVELOPE_SCHEMA;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.avro.Schema;
+import org.apache.avro.file.DataFileStream;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericData.StringType;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.DocumentRef;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.runtime.avro.AvroService;
+import org.nuxeo.runtime.transaction.TransactionHelper;
+
+/**
+ * Imports documents from an Avro container file written by {@link AvroDocumentExporter}.
+ * <p>
+ * The file is read sequentially, the decoding and mapping of the documents is done in parallel by a pool of workers
+ * within a bounded window, and the documents are imported, keeping their ids, by batches in the file order so that a
+ * parent is always created before its children. A transaction is committed after each batch.
+ * <p>
+ * The root of the exported subtree is imported under the given parent, the other documents keep their parent.
+ *
+ * @since 2021.20
+ * @see AvroDocumentExporter
+ */
+public class AvroDocumentImporter {
+
+    private static final Logger log = LogManager.getLogger(AvroDocumentImporter.class);
+
+    protected final AvroService service;
+
+    protected int batchSize = 100;
+
+    protected int threads = Runtime.getRuntime().availableProcessors();
+
+    protected int queueSize = 1000;
+
+    protected long maxPendingBytes = AvroDocumentExporter.DEFAULT_MAX_PENDING_BYTES;
+
+    public AvroDocumentImporter(AvroService service) {
+        this.service = service;
+    }
+
+    /**
+     * Sets the number of documents imported, and committed, at once.
+     */
+    public AvroDocumentImporter batchSize(int batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Sets the number of threads used to map documents from Avro.
+     */
+    public AvroDocumentImporter threads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of documents being mapped or waiting to be imported.
+     */
+    public AvroDocumentImporter queueSize(int queueSize) {
+        this.queueSize = queueSize;
+        return this;
+    }
+
+    /**
+     * Sets the maximum total length of the encoded documents being mapped or waiting to be imported, not counting the
+     * current batch.
+     */
+    public AvroDocumentImporter maxPendingBytes(long maxPendingBytes) {
+        this.maxPendingBytes = maxPendingBytes;
+        return this;
+    }
+
+    /**
+     * Imports the documents of the input stream, the root of the exported subtree being created under the given
+     * parent.
+     *
+     * @return the number of imported documents
+     */
+    public long importDocuments(CoreSession session, DocumentRef parentRef, InputStream in) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads, newThreadFactory("Nuxeo-AvroImport"));
+        GenericDatumReader<GenericRecord> envelopeReader = new GenericDatumReader<>(ENVELOPE_SCHEMA);
+        try (DataFileStream<GenericRecord> stream = new DataFileStream<>(in, envelopeReader)) {
+            ImportContext context = new ImportContext(session);
+            String parentId = session.getDocument(parentRef).getId();
+            Deque<Future<DocumentModel>> pending = new ArrayDeque<>();
+            Deque<Integer> pendingLengths = new ArrayDeque<>();
+            long pendingBytes = 0;
+            Map<String, Schema> schemas = new HashMap<>();
+            GenericRecord envelope = null;
+            long read = 0;
+            while (stream.hasNext()) {
+                envelope = stream.next(envelope);
+                String type = envelope.get(PRIMARY_TYPE).toString();
+                Object documentSchema = envelope.get(ENVELOPE_DOCUMENT_SCHEMA);
+                if (documentSchema != null) {
+                    Schema parsed = new Schema.Parser().parse(documentSchema.toString());
+                    // read strings as java.lang.String as expected by the mappers
+                    GenericData.setStringType(parsed, StringType.String);
+                    schemas.put(type, parsed);
+                }
+                Schema schema = schemas.get(type);
+                if (schema == null) {
+                    throw new NuxeoException("No Avro schema found for document type: " + type);
+                }
+                byte[] data = toByteArray((ByteBuffer) envelope.get(DATA));
+                while (!pending.isEmpty()
+                        && (pending.size() >= queueSize || pendingBytes + data.length > maxPendingBytes)) {
+                    context.add(pending.poll());
+                    pendingBytes -= pendingLengths.poll().intValue();
+                }
+                // the first document is the root of the exported subtree
+                String newParentId = read++ == 0 ? parentId : null;
+                pending.add(executor.submit(() -> fromAvro(schema, data, newParentId)));
+                pendingLengths.add(Integer.valueOf(data.length));
+                pendingBytes += data.length;
+            }
+            while (!pending.isEmpty()) {
+                context.add(pending.poll());
+            }
+            context.flush();
+            log.debug("Imported {} documents under {}", context.count, parentRef);
+            return context.count;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Maps the binary encoded document, setting its parent if {@code parentId} is not {@code null}.
+     */
+    protected DocumentModel fromAvro(Schema schema, byte[] data, String parentId) throws IOException {
+        BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(data, null);
+        GenericRecord record = new GenericDatumReader<GenericRecord>(schema).read(null, decoder);
+        if (parentId != null) {
+            record.put(AvroConstants.PARENT_ID, parentId);
+        }
+        return service.fromAvro(schema, DocumentModel.class, record);
+    }
+
+    protected static byte[] toByteArray(ByteBuffer buffer) {
+        // the envelope record, and its buffer, is reused by the reader
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Accumulates the mapped documents and imports them by batches.
+     */
+    protected class ImportContext {
+
+        protected final CoreSession session;
+
+        protected final List<DocumentModel> batch = new ArrayList<>(batchSize);
+
+        protected long count;
+
+        protected ImportContext(CoreSession session) {
+            this.session = session;
+        }
+
+        protected void add(Future<DocumentModel> future) {
+            DocumentModel doc;
+            try {
+                doc = future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new NuxeoException("Interrupted while importing documents", e);
+            } catch (ExecutionException e) {
+                throw new NuxeoException("Unable to map document from Avro", e.getCause());
+            }
+            String lifeCycleState = doc.getCurrentLifeCycleState();
+            if (lifeCycleState != null) {
+                doc.putContextData(CoreSession.IMPORT_LIFECYCLE_STATE, lifeCycleState);
+            }
+            batch.add(doc);
+            if (batch.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        protected void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            session.importDocuments(batch);
+            count += batch.size();
+            batch.clear();
+            if (TransactionHelper.isTransactionActiveOrMarkedRollback()) {
+                TransactionHelper.commitOrRollbackTransaction();
+                TransactionHelper.startTransaction();
+            }
+        }
+    }
+
+}
@@ -19,9 +19,11 @@
 package org.nuxeo.ecm.core.io.avro;
 
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -98,7 +100,10 @@ public class DocumentModelMapper extends AvroMapper<DocumentModel, GenericRecord
         String repositoryName = (String) input.get(AvroConstants.REPOSITORY_NAME);
         Boolean isProxy = (Boolean) input.get(AvroConstants.IS_PROXY);
         DocumentRef parentRef = parentId == null ? null : new IdRef(parentId);
-        Set<String> facets = (Set<String>) input.get(AvroConstants.MIXIN_TYPES);
+        // a set when mapped in memory, an array when read from an Avro file
+        Collection<String> mixinTypes = (Collection<String>) input.get(AvroConstants.MIXIN_TYPES);
+        Set<String> facets = mixinTypes == null || mixinTypes instanceof Set ? (Set<String>) mixinTypes
+                : new HashSet<>(mixinTypes);
         DocumentModelImpl doc = new DocumentModelImpl(type, uuid, new Path(path), null, parentRef, null, facets, null,
                 isProxy, null, repositoryName, null);
         doc.setIsVersion((Boolean) input.get(AvroConstants.IS_VERSION));
@@ -26,9 +26,11 @@ import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.ws.rs.core.MediaType;
 
@@ -37,16 +39,31 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.nuxeo.ecm.core.io.registry.context.RenderingContext;
 import org.nuxeo.ecm.core.io.registry.reflect.MarshallerInspector;
+import org.nuxeo.runtime.metrics.MetricsService;
 import org.nuxeo.runtime.model.ComponentContext;
 import org.nuxeo.runtime.model.DefaultComponent;
 import org.nuxeo.runtime.model.Descriptor;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import io.dropwizard.metrics5.Counter;
+import io.dropwizard.metrics5.MetricName;
+import io.dropwizard.metrics5.MetricRegistry;
+import io.dropwizard.metrics5.SharedMetricRegistries;
+
 /**
  * Implementation of {@link MarshallerRegistry}.
  * <p>
  * This implementation is based on {@link MarshallerInspector} class which is able to create marshaller instance and
  * inject properties. This class also manage marshaller's priorities.
  * </p>
+ * <p>
+ * The type checks done to find the candidates of a resolution (managed class and generic type compatibility) only
+ * depend on the registered marshallers, so their result is memoized per candidates set, marshalled class, generic type
+ * and media type. The {@link Marshaller#accept(Class, Type, MediaType)} check may depend on the
+ * {@link RenderingContext} and is always done on each resolution.
+ * </p>
  *
  * @since 7.2
  */
@@ -84,6 +101,45 @@ public class MarshallerRegistryImpl extends DefaultComponent implements Marshall
      */
     private static final Map<Class<?>, MarshallerInspector> marshallersByType = new ConcurrentHashMap<>();
 
+    /**
+     * Maximum number of resolution keys to memoize, the least recently used ones are evicted first.
+     *
+     * @since 2021.20
+     */
+    protected static final int MAX_COMPATIBLE_CANDIDATES = 10_000;
+
+    /**
+     * Type compatible {@link MarshallerInspector}, ordered by their priority, organized by resolution key.
+     *
+     * @since 2021.20
+     */
+    private static final Cache<CandidatesKey, List<MarshallerInspector>> compatibleCandidates = //
+            CacheBuilder.newBuilder().maximumSize(MAX_COMPATIBLE_CANDIDATES).build();
+
+    /**
+     * Version of the registered marshallers, part of the resolution keys so that a resolution computed while the
+     * registry was changing is never reused once the change is done.
+     *
+     * @since 2021.20
+     */
+    private static final AtomicLong generation = new AtomicLong();
+
+    /**
+     * @since 2021.20
+     */
+    protected static final String METRIC_RESOLUTION_HIT = "nuxeo.marshallers.resolution.cache.hit";
+
+    /**
+     * @since 2021.20
+     */
+    protected static final String METRIC_RESOLUTION_MISS = "nuxeo.marshallers.resolution.cache.miss";
+
+    protected final MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+
+    protected final Counter resolutionHitCount = registry.counter(MetricName.build(METRIC_RESOLUTION_HIT));
+
+    protected final Counter resolutionMissCount = registry.counter(MetricName.build(METRIC_RESOLUTION_MISS));
+
     @Override
     public void deactivate(ComponentContext context) {
         clear();
@@ -158,6 +214,7 @@ public class MarshallerRegistryImpl extends DefaultComponent implements Marshall
                 inspectors.add(inspector);
             }
         }
+        invalidateCompatibleCandidates();
     }
 
     @Override
@@ -191,6 +248,17 @@ public class MarshallerRegistryImpl extends DefaultComponent implements Marshall
                 }
             }
         }
+        invalidateCompatibleCandidates();
+    }
+
+    /**
+     * Invalidates the memoized resolutions, must be called once the registered marshallers are changed.
+     *
+     * @since 2021.20
+     */
+    protected static void invalidateCompatibleCandidates() {
+        generation.incrementAndGet();
+        compatibleCandidates.invalidateAll();
     }
 
     @Override
@@ -289,23 +357,17 @@ public class MarshallerRegistryImpl extends DefaultComponent implements Marshall
     @SuppressWarnings("unchecked")
     private <T> Marshaller<T> searchCandidate(RenderingContext ctx, Class<T> marshalledClazz, Type genericType,
             MediaType mediatype, Set<MarshallerInspector> candidates, boolean forceInstantiation) {
-        for (MarshallerInspector inspector : candidates) {
-            // checks the managed class is compatible
-            if (inspector.getMarshalledType().isAssignableFrom(marshalledClazz)) {
-                // checks the generic type is compatible
-                if (genericType == null || marshalledClazz.equals(inspector.getGenericType())
-                        || TypeUtils.isAssignable(genericType, inspector.getGenericType())) {
-                    Marshaller<T> marshaller = null;
-                    if (forceInstantiation) {
-                        marshaller = (Marshaller<T>) inspector.getNewInstance(ctx, false);
-                    } else {
-                        marshaller = inspector.getInstance(ctx);
-                    }
-                    // checks the marshaller accepts the request
-                    if (marshaller.accept(marshalledClazz, genericType, mediatype)) {
-                        return marshaller;
-                    }
-                }
+        for (MarshallerInspector inspector : getCompatibleCandidates(marshalledClazz, genericType, mediatype,
+                candidates)) {
+            Marshaller<T> marshaller = null;
+            if (forceInstantiation) {
+                marshaller = (Marshaller<T>) inspector.getNewInstance(ctx, false);
+            } else {
+                marshaller = inspector.getInstance(ctx);
+            }
+            // checks the marshaller accepts the request
+            if (marshaller.accept(marshalledClazz, genericType, mediatype)) {
+                return marshaller;
             }
         }
         return null;
@@ -315,20 +377,45 @@ public class MarshallerRegistryImpl extends DefaultComponent implements Marshall
             Class<T> marshalledClazz, Type genericType, MediaType mediatype, Set<MarshallerInspector> candidates) {
         // keep the marshallers (in fact enrichers) sorted to respect their priority
         Map<MarshallerInspector, Marshaller<T>> result = new LinkedHashMap<>();
+        for (MarshallerInspector inspector : getCompatibleCandidates(marshalledClazz, genericType, mediatype,
+                candidates)) {
+            // checks the marshaller accepts the request
+            Marshaller<T> marshaller = inspector.getInstance(ctx);
+            if (marshaller.accept(marshalledClazz, genericType, mediatype)) {
+                result.put(inspector, marshaller);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the candidates whose managed class and generic type are compatible with the requested ones, in their
+     * priority order. The result is memoized until the next registration change.
+     *
+     * @since 2021.20
+     */
+    protected List<MarshallerInspector> getCompatibleCandidates(Class<?> marshalledClazz, Type genericType,
+            MediaType mediatype, Set<MarshallerInspector> candidates) {
+        CandidatesKey key = new CandidatesKey(generation.get(), candidates, marshalledClazz, genericType, mediatype);
+        List<MarshallerInspector> result = compatibleCandidates.getIfPresent(key);
+        if (result != null) {
+            resolutionHitCount.inc();
+            return result;
+        }
+        resolutionMissCount.inc();
+        result = new ArrayList<>();
         for (MarshallerInspector inspector : candidates) {
             // checks the managed class is compatible
             if (inspector.getMarshalledType().isAssignableFrom(marshalledClazz)) {
                 // checks the generic type is compatible
                 if (genericType == null || marshalledClazz.equals(inspector.getGenericType())
                         || TypeUtils.isAssignable(genericType, inspector.getGenericType())) {
-                    // checks the marshaller accepts the request
-                    Marshaller<T> marshaller = inspector.getInstance(ctx);
-                    if (marshaller.accept(marshalledClazz, genericType, mediatype)) {
-                        result.put(inspector, marshaller);
-                    }
+                    result.add(inspector);
                 }
             }
         }
+        result = Collections.unmodifiableList(result);
+        compatibleCandidates.put(key, result);
         return result;
     }
 
@@ -359,6 +446,56 @@ public class MarshallerRegistryImpl extends DefaultComponent implements Marshall
         readersByMediaType.clear();
         writers.clear();
         readers.clear();
+        invalidateCompatibleCandidates();
+    }
+
+    /**
+     * Key of a memoized resolution. The candidates set is compared by identity as it's one of the registry sets. The
+     * generation of the registry is part of the key, so that a resolution computed concurrently to a registration
+     * change is never returned after it.
+     *
+     * @since 2021.20
+     */
+    protected static final class CandidatesKey {
+
+        protected final long generation;
+
+        protected final Set<MarshallerInspector> candidates;
+
+        protected final Class<?> marshalledClazz;
+
+        protected final Type genericType;
+
+        protected final MediaType mediatype;
+
+        protected CandidatesKey(long generation, Set<MarshallerInspector> candidates, Class<?> marshalledClazz,
+                Type genericType, MediaType mediatype) {
+            this.generation = generation;
+            this.candidates = candidates;
+            this.marshalledClazz = marshalledClazz;
+            this.genericType = genericType;
+            this.mediatype = mediatype;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(generation, System.identityHashCode(candidates), marshalledClazz, genericType,
+                    mediatype);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof CandidatesKey)) {
+                return false;
+            }
+            CandidatesKey other = (CandidatesKey) obj;
+            return generation == other.generation && candidates == other.candidates
+                    && marshalledClazz.equals(other.marshalledClazz) && Objects.equals(genericType, other.genericType)
+                    && Objects.equals(mediatype, other.mediatype);
+        }
     }
 
 }
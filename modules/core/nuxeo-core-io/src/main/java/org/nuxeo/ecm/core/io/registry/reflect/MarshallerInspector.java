@@ -48,6 +48,11 @@ import org.nuxeo.ecm.core.io.registry.context.RenderingContext;
 import org.nuxeo.ecm.core.io.registry.context.RenderingContextImpl;
 import org.nuxeo.ecm.core.io.registry.context.ThreadSafeRenderingContext;
 import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.metrics.MetricsService;
+
+import io.dropwizard.metrics5.Counter;
+import io.dropwizard.metrics5.MetricName;
+import io.dropwizard.metrics5.SharedMetricRegistries;
 
 /**
  * Utility class used to instanciate marshallers. This class checks if a marshaller has annotation {@link Setup} and
@@ -74,6 +79,17 @@ public class MarshallerInspector implements Comparable<MarshallerInspector> {
 
     private static final Log log = LogFactory.getLog(MarshallerInspector.class);
 
+    /**
+     * @since 2021.20
+     */
+    public static final String METRIC_INSTANCES_CREATED = "nuxeo.marshallers.instances.created";
+
+    /**
+     * Counts the marshaller instances created, singletons and per thread instances are counted once.
+     */
+    private static final Counter instancesCreatedCount = SharedMetricRegistries.getOrCreate(
+            MetricsService.class.getName()).counter(MetricName.build(METRIC_INSTANCES_CREATED));
+
     private Class<?> clazz;
 
     private Integer priority;
@@ -369,7 +385,8 @@ public class MarshallerInspector implements Comparable<MarshallerInspector> {
      */
     public Object getNewInstance(RenderingContext ctx, boolean singleton) {
         try {
-            Object instance = clazz.getDeclaredConstructor().newInstance();
+            Object instance = constructor.newInstance();
+            instancesCreatedCount.inc();
             if (!singleton) {
                 // inject services right now - do not for the singleton
                 injectServices(instance);
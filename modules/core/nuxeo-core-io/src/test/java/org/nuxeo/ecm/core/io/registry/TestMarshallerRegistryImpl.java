@@ -30,9 +30,14 @@ import org.junit.runner.RunWith;
 import org.nuxeo.ecm.core.io.CoreIOFeature;
 import org.nuxeo.ecm.core.io.registry.TestReaderRegistry.DefaultNumberReader;
 import org.nuxeo.ecm.core.io.registry.context.RenderingContext;
+import org.nuxeo.runtime.metrics.MetricsService;
 import org.nuxeo.runtime.test.runner.Features;
 import org.nuxeo.runtime.test.runner.FeaturesRunner;
 
+import io.dropwizard.metrics5.Counter;
+import io.dropwizard.metrics5.MetricName;
+import io.dropwizard.metrics5.SharedMetricRegistries;
+
 /**
  * @since 10.10
  */
@@ -71,6 +76,23 @@ public class TestMarshallerRegistryImpl {
         assertIsEmpty();
     }
 
+    @Test
+    public void testResolutionCache() {
+        registry.clear();
+        registry.register(DefaultNumberReader.class);
+        Counter hits = SharedMetricRegistries.getOrCreate(MetricsService.class.getName())
+                                             .counter(MetricName.build(MarshallerRegistryImpl.METRIC_RESOLUTION_HIT));
+        assertHasOne();
+        long before = hits.getCount();
+        assertHasOne();
+        assertTrue(hits.getCount() > before);
+        // registration changes invalidate the memoized resolutions
+        registry.deregister(DefaultNumberReader.class);
+        assertIsEmpty();
+        registry.register(DefaultNumberReader.class);
+        assertHasOne();
+    }
+
     private void assertIsEmpty() {
         assertTrue(registry.getAllReaders(ctx, Number.class, null, APPLICATION_JSON_TYPE).isEmpty());
     }
@@ -0,0 +1,500 @@
+/*
+ * (C) Copyright 2021 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.query.sql;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.ecm.core.query.sql.model.DateLiteral;
+import org.nuxeo.ecm.core.query.sql.model.DoubleLiteral;
+import org.nuxeo.ecm.core.query.sql.model.IdentityQueryTransformer;
+import org.nuxeo.ecm.core.query.sql.model.IntegerLiteral;
+import org.nuxeo.ecm.core.query.sql.model.Literal;
+import org.nuxeo.ecm.core.query.sql.model.SQLQuery;
+import org.nuxeo.ecm.core.query.sql.model.StringLiteral;
+import org.nuxeo.runtime.api.Framework;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import io.dropwizard.metrics5.Gauge;
+import io.dropwizard.metrics5.MetricName;
+import io.dropwizard.metrics5.MetricRegistry;
+import io.dropwizard.metrics5.SharedMetricRegistries;
+
+/**
+ * Cache of parsed NXQL queries, keyed by the query with its literals replaced by placeholders.
+ * <p>
+ * Queries having the same shape and differing only by their literals are parsed once: the parsed query is kept as a
+ * template, and the literals of the following queries are bound into a copy of it.
+ * <p>
+ * Before a shape is cached, the template is checked by parsing a probe query with distinct literals, to make sure that
+ * the literals found in the query string map one-to-one and in order to the literals of the parsed query. Shapes that
+ * fail this check (negative numbers, arithmetic, ...) are remembered as not cacheable and always parsed.
+ * <p>
+ * The maximum number of cached shapes is configured by the {@value #CACHE_SIZE_PROP} property, 0 disables the cache.
+ *
+ * @since 2021.20
+ */
+public class SQLQueryCache {
+
+    private static final Logger log = LogManager.getLogger(SQLQueryCache.class);
+
+    public static final String CACHE_SIZE_PROP = "nuxeo.core.query.parse.cache.size";
+
+    public static final int DEFAULT_CACHE_SIZE = 1000;
+
+    /** Longer queries are not cached. */
+    public static final int MAX_QUERY_LENGTH = 8192;
+
+    protected static final String NUXEO_METRICS_REGISTRY_NAME = "org.nuxeo.runtime.metrics.MetricsService";
+
+    protected static final char STRING = 's';
+
+    protected static final char DATE = 'd';
+
+    protected static final char INTEGER = 'i';
+
+    protected static final char DOUBLE = 'f';
+
+    /** Marks a query shape that cannot be cached. */
+    protected static final Template NOT_CACHEABLE = new Template(null, null);
+
+    protected static volatile SQLQueryCache instance;
+
+    /** Whether the configuration disables the cache, so that it's not checked again on each parse. */
+    protected static volatile boolean disabled;
+
+    protected final Cache<String, Template> cache;
+
+    protected final LongAdder hits = new LongAdder();
+
+    protected final LongAdder misses = new LongAdder();
+
+    protected static class Template {
+
+        protected final SQLQuery query;
+
+        protected final char[] kinds;
+
+        protected Template(SQLQuery query, char[] kinds) {
+            this.query = query;
+            this.kinds = kinds;
+        }
+    }
+
+    /**
+     * A query split into its literals and the parts between them.
+     */
+    protected static class Shape {
+
+        /** The parts of the query between the literals, one more than the literals. */
+        protected final List<String> parts = new ArrayList<>();
+
+        protected final List<String> values = new ArrayList<>();
+
+        protected final StringBuilder kinds = new StringBuilder();
+
+        protected String getKey() {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < values.size(); i++) {
+                sb.append(parts.get(i)).append('?').append(kinds.charAt(i));
+            }
+            return sb.append(parts.get(values.size())).toString();
+        }
+
+        protected char[] getKinds() {
+            return kinds.toString().toCharArray();
+        }
+    }
+
+    public SQLQueryCache(int maxSize) {
+        cache = CacheBuilder.newBuilder().maximumSize(maxSize).build();
+        registerMetrics();
+    }
+
+    /**
+     * Gets the cache, or {@code null} if it is disabled.
+     */
+    public static SQLQueryCache getInstance() {
+        SQLQueryCache cache = instance;
+        if (cache != null || disabled) {
+            return cache;
+        }
+        synchronized (SQLQueryCache.class) {
+            if (instance == null && !disabled) {
+                int size = getCacheSize();
+                if (size > 0) {
+                    instance = new SQLQueryCache(size);
+                } else {
+                    disabled = true;
+                }
+            }
+            return instance;
+        }
+    }
+
+    protected static int getCacheSize() {
+        String value = Framework.getRuntime() == null ? System.getProperty(CACHE_SIZE_PROP)
+                : Framework.getProperty(CACHE_SIZE_PROP);
+        if (value == null || value.isBlank()) {
+            return DEFAULT_CACHE_SIZE;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            log.error("Invalid value for {}: {}, using: {}", CACHE_SIZE_PROP, value, DEFAULT_CACHE_SIZE);
+            return DEFAULT_CACHE_SIZE;
+        }
+    }
+
+    protected void registerMetrics() {
+        MetricRegistry registry = SharedMetricRegistries.getOrCreate(NUXEO_METRICS_REGISTRY_NAME);
+        MetricName name = MetricName.build("nuxeo", "query", "parse", "cache");
+        registerGauge(registry, name.resolve("size"), cache::size);
+        registerGauge(registry, name.resolve("hit.count"), hits::sum);
+        registerGauge(registry, name.resolve("miss.count"), misses::sum);
+        registerGauge(registry, name.resolve("hit.ratio"), this::getHitRatio);
+    }
+
+    protected static void registerGauge(MetricRegistry registry, MetricName name, Gauge<?> gauge) {
+        registry.remove(name);
+        registry.register(name, gauge);
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public double getHitRatio() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Parses the query, using the template of a query of the same shape if available.
+     */
+    public SQLQuery parse(String string) {
+        Shape shape = string.length() > MAX_QUERY_LENGTH ? null : getShape(string);
+        if (shape == null) {
+            misses.increment();
+            return SQLQueryParser.doParse(string);
+        }
+        String key = shape.getKey();
+        Template template = cache.getIfPresent(key);
+        if (template != null && template != NOT_CACHEABLE) {
+            SQLQuery query = bind(template.query, template.kinds, shape.values);
+            if (query != null) {
+                hits.increment();
+                query.setQueryString(string);
+                return query;
+            }
+        }
+        misses.increment();
+        SQLQuery query = SQLQueryParser.doParse(string);
+        if (template == null) {
+            template = newTemplate(query, shape);
+            cache.put(key, template);
+        }
+        return query;
+    }
+
+    /**
+     * Creates the template for a parsed query, after checking that its literals can be rebound.
+     */
+    protected Template newTemplate(SQLQuery query, Shape shape) {
+        char[] kinds = shape.getKinds();
+        // copy of the query with its own literals
+        SQLQuery copy = bind(query, kinds, shape.values);
+        if (copy == null || !copy.equals(query)) {
+            log.trace("Query literals cannot be rebound: {}", query);
+            return NOT_CACHEABLE;
+        }
+        if (kinds.length > 0) {
+            // check with distinct literals that they are bound in the right order
+            List<String> probeValues = new ArrayList<>(kinds.length);
+            Set<String> dates = new HashSet<>();
+            StringBuilder probe = new StringBuilder();
+            for (int i = 0; i < kinds.length; i++) {
+                String value;
+                switch (kinds[i]) {
+                case STRING:
+                    value = "probe" + i;
+                    break;
+                case INTEGER:
+                    value = String.valueOf(1000001 + i);
+                    break;
+                case DOUBLE:
+                    value = (1000001 + i) + ".5";
+                    break;
+                default:
+                    // dates must stay valid, they must differ to be told apart
+                    value = shape.values.get(i);
+                    if (!dates.add(value)) {
+                        return NOT_CACHEABLE;
+                    }
+                }
+                probeValues.add(value);
+                probe.append(shape.parts.get(i)).append(value);
+            }
+            probe.append(shape.parts.get(kinds.length));
+            SQLQuery probeQuery;
+            try {
+                probeQuery = SQLQueryParser.doParse(probe.toString());
+            } catch (RuntimeException e) {
+                log.trace("Cannot parse probe query: {}", probe, e);
+                return NOT_CACHEABLE;
+            }
+            if (!probeQuery.equals(bind(copy, kinds, probeValues))) {
+                log.trace("Query literals cannot be rebound: {}", query);
+                return NOT_CACHEABLE;
+            }
+        }
+        return new Template(copy, kinds);
+    }
+
+    /**
+     * Binds new literal values into a copy of the template query.
+     *
+     * @return the bound query, or {@code null} if the values cannot be bound
+     */
+    protected static SQLQuery bind(SQLQuery template, char[] kinds, List<String> values) {
+        LiteralBinder binder = new LiteralBinder(kinds, values);
+        try {
+            SQLQuery query = binder.transform(template);
+            return binder.index == values.size() ? query : null;
+        } catch (RuntimeException e) { // invalid literal, or different literals
+            log.trace("Cannot bind literals: {} in query: {}", values, template, e);
+            return null;
+        }
+    }
+
+    /**
+     * Copies a query, replacing its literals in order by new values.
+     */
+    protected static class LiteralBinder extends IdentityQueryTransformer {
+
+        protected final char[] kinds;
+
+        protected final List<String> values;
+
+        protected int index;
+
+        protected LiteralBinder(char[] kinds, List<String> values) {
+            this.kinds = kinds;
+            this.values = values;
+        }
+
+        protected String next(char kind) {
+            if (index >= values.size() || kinds[index] != kind) {
+                throw new IllegalStateException("Unexpected literal of kind: " + kind + " at index: " + index);
+            }
+            return values.get(index++);
+        }
+
+        @Override
+        public Literal transform(DateLiteral node) {
+            return new DateLiteral(next(DATE), node.onlyDate);
+        }
+
+        @Override
+        public Literal transform(DoubleLiteral node) {
+            return new DoubleLiteral(next(DOUBLE));
+        }
+
+        @Override
+        public Literal transform(IntegerLiteral node) {
+            return new IntegerLiteral(next(INTEGER));
+        }
+
+        @Override
+        public Literal transform(StringLiteral node) {
+            return new StringLiteral(next(STRING));
+        }
+    }
+
+    /**
+     * Splits a query into its literals and the parts between them, following the NXQL lexer rules.
+     *
+     * @return the shape, or {@code null} if the query is not handled
+     */
+    protected static Shape getShape(String query) {
+        Shape shape = new Shape();
+        StringBuilder part = new StringBuilder();
+        String previousWord = null;
+        int n = query.length();
+        int i = 0;
+        while (i < n) {
+            char c = query.charAt(i);
+            if (c == '\'' || c == '"') {
+                StringBuilder value = new StringBuilder();
+                int j = i + 1;
+                boolean closed = false;
+                while (j < n) {
+                    char ch = query.charAt(j);
+                    if (ch == c) {
+                        closed = true;
+                        break;
+                    } else if (ch == '\n' || ch == '\r') {
+                        return null;
+                    } else if (ch == '\\' && j + 1 < n) {
+                        char next = query.charAt(j + 1);
+                        if (next == 't') {
+                            value.append('\t');
+                        } else if (next == 'n') {
+                            value.append('\n');
+                        } else if (next == 'r') {
+                            value.append('\r');
+                        } else if (next == '\\' || next == c) {
+                            value.append(next);
+                        } else {
+                            // lone backslash
+                            value.append('\\');
+                            j++;
+                            continue;
+                        }
+                        j += 2;
+                    } else {
+                        value.append(ch);
+                        j++;
+                    }
+                }
+                if (!closed) {
+                    return null;
+                }
+                boolean date = "DATE".equals(previousWord) || "TIMESTAMP".equals(previousWord);
+                if (date && value.indexOf(String.valueOf(c)) >= 0) {
+                    return null; // cannot be rewritten as a probe
+                }
+                shape.parts.add(part.append(c).toString());
+                shape.values.add(value.toString());
+                shape.kinds.append(date ? DATE : STRING);
+                part = new StringBuilder().append(c);
+                previousWord = null;
+                i = j + 1;
+            } else if (isDigit(c) || c == '.' && i + 1 < n && isDigit(query.charAt(i + 1))) {
+                if (i > 0 && isIdentifierPart(query.charAt(i - 1))) {
+                    // index in a path, or number not handled (negative, arithmetic)
+                    part.append(c);
+                    i++;
+                    continue;
+                }
+                int j = i;
+                while (j < n && isDigit(query.charAt(j))) {
+                    j++;
+                }
+                if (j < n && query.charAt(j) == '.') {
+                    j++;
+                    while (j < n && isDigit(query.charAt(j))) {
+                        j++;
+                    }
+                }
+                if (j + 1 < n && (query.charAt(j) == 'e' || query.charAt(j) == 'E')) {
+                    int k = j + 1;
+                    if (query.charAt(k) == '+' || query.charAt(k) == '-') {
+                        k++;
+                    }
+                    if (k < n && isDigit(query.charAt(k))) {
+                        j = k;
+                        while (j < n && isDigit(query.charAt(j))) {
+                            j++;
+                        }
+                    }
+                }
+                if (j < n && (Character.isLetter(query.charAt(j)) || query.charAt(j) == '_')) {
+                    return null;
+                }
+                String value = query.substring(i, j);
+                if ("LIMIT".equals(previousWord) || "OFFSET".equals(previousWord)) {
+                    // not a literal
+                    part.append(value);
+                } else {
+                    shape.parts.add(part.toString());
+                    shape.values.add(value);
+                    shape.kinds.append(isInteger(value) ? INTEGER : DOUBLE);
+                    part = new StringBuilder();
+                }
+                previousWord = null;
+                i = j;
+            } else if (c == '/' && query.startsWith("/*+", i)) {
+                int end = query.indexOf("*/", i);
+                if (end < 0) {
+                    return null;
+                }
+                part.append(query, i, end + 2);
+                previousWord = null;
+                i = end + 2;
+            } else if (Character.isJavaIdentifierStart(c)) {
+                int j = i + 1;
+                while (j < n && isIdentifierPart(query.charAt(j))) {
+                    j++;
+                }
+                String word = query.substring(i, j);
+                part.append(word);
+                previousWord = word.toUpperCase(Locale.ENGLISH);
+                i = j;
+            } else {
+                part.append(c);
+                if (!Character.isWhitespace(c)) {
+                    previousWord = null;
+                }
+                i++;
+            }
+        }
+        shape.parts.add(part.toString());
+        return shape;
+    }
+
+    protected static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    protected static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == ':' || c == '.' || c == '-' || c == '/' || c == '*'
+                || c == '[' || c == ']' || c == '$';
+    }
+
+    protected static boolean isInteger(String value) {
+        if ("0".equals(value)) {
+            return true;
+        }
+        if (value.isEmpty() || value.charAt(0) == '0') {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (!isDigit(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
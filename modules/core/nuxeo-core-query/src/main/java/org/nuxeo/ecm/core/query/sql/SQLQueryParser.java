@@ -48,7 +48,25 @@ public final class SQLQueryParser {
         }
     }
 
+    /**
+     * Parses a query string.
+     * <p>
+     * Queries differing only by their literals are parsed once, see {@link SQLQueryCache}.
+     */
     public static SQLQuery parse(String string) throws QueryParseException {
+        SQLQueryCache cache = SQLQueryCache.getInstance();
+        if (cache == null) {
+            return doParse(string);
+        }
+        return cache.parse(string);
+    }
+
+    /**
+     * Parses a query string without using the cache.
+     *
+     * @since 2021.20
+     */
+    static SQLQuery doParse(String string) throws QueryParseException {
         SQLQuery query = parse(new StringReader(string));
         query.setQueryString(string);
         return query;
@@ -0,0 +1,121 @@
+/*
+ * (C) Copyright 2021 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.query.sql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.nuxeo.ecm.core.query.QueryParseException;
+import org.nuxeo.ecm.core.query.sql.model.SQLQuery;
+
+public class TestSQLQueryCache {
+
+    protected SQLQueryCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new SQLQueryCache(100);
+    }
+
+    protected void assertParsedLike(String query) {
+        SQLQuery cached = cache.parse(query);
+        SQLQuery parsed = SQLQueryParser.doParse(query);
+        assertEquals(parsed, cached);
+        assertEquals(query, cached.getQueryString());
+    }
+
+    @Test
+    public void testHitWithOtherLiterals() {
+        assertParsedLike("SELECT * FROM Document WHERE dc:title = 'foo' AND ecm:isProxy = 0");
+        assertEquals(0, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertParsedLike("SELECT * FROM Document WHERE dc:title = 'bar' AND ecm:isProxy = 1");
+        assertParsedLike("SELECT * FROM Document WHERE dc:title = 'it\\'s' AND ecm:isProxy = 1");
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testHitWithListsAndDates() {
+        assertParsedLike("SELECT * FROM File WHERE ecm:uuid IN ('a', 'b') AND dc:modified > DATE '2021-01-01'"
+                + " AND dc:created < TIMESTAMP '2021-01-01T10:00:00.000+01:00' AND size > 1.5 ORDER BY dc:title");
+        assertParsedLike("SELECT * FROM File WHERE ecm:uuid IN ('c', 'd') AND dc:modified > DATE '2021-02-03'"
+                + " AND dc:created < TIMESTAMP '2021-05-06T11:12:13.000+01:00' AND size > 2.25 ORDER BY dc:title");
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void testLimitIsPartOfTheShape() {
+        assertParsedLike("SELECT * FROM Document WHERE dc:title = 'foo' LIMIT 10 OFFSET 20");
+        assertParsedLike("SELECT * FROM Document WHERE dc:title = 'bar' LIMIT 5 OFFSET 20");
+        assertEquals(0, cache.getHits());
+        assertParsedLike("SELECT * FROM Document WHERE dc:title = 'baz' LIMIT 5 OFFSET 20");
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void testNotCacheable() {
+        // negative numbers and arithmetic are not rebound
+        assertParsedLike("SELECT p FROM t WHERE p * -2 / 3 + 4 - 5 = 2");
+        assertParsedLike("SELECT p FROM t WHERE p * -3 / 3 + 4 - 5 = 2");
+        // same dates cannot be told apart
+        assertParsedLike("SELECT p FROM t WHERE d > DATE '2021-01-01' AND e > DATE '2021-01-01'");
+        assertParsedLike("SELECT p FROM t WHERE d > DATE '2021-01-01' AND e > DATE '2021-01-01'");
+        // path indexes are not literals
+        assertParsedLike("SELECT * FROM Document WHERE files/0/file/name = 'foo'");
+        assertParsedLike("SELECT * FROM Document WHERE files/1/file/name = 'foo'");
+        assertEquals(0, cache.getHits());
+        assertParsedLike("SELECT * FROM Document WHERE files/1/file/name = 'bar'");
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void testInvalidQuery() {
+        assertParsedLike("SELECT * FROM Document WHERE dc:modified > DATE '2021-01-01'");
+        try {
+            cache.parse("SELECT * FROM Document WHERE dc:modified > DATE 'foo'");
+            fail();
+        } catch (QueryParseException e) {
+            // ok
+        }
+        try {
+            cache.parse("SELECT * FROM Document WHERE dc:title = 'foo");
+            fail();
+        } catch (QueryParseException e) {
+            // ok
+        }
+    }
+
+    @Test
+    public void testShape() {
+        SQLQueryCache.Shape shape = SQLQueryCache.getShape(
+                "SELECT * FROM Document WHERE a = 'x\\ty' AND b = 12 AND c = 1.5e3 AND d = DATE \"2021-01-01\"");
+        assertNotNull(shape);
+        assertEquals("SELECT * FROM Document WHERE a = '?s' AND b = ?i AND c = ?f AND d = DATE \"?d\"",
+                shape.getKey());
+        assertEquals("x\ty", shape.values.get(0));
+        assertEquals("12", shape.values.get(1));
+        assertEquals("1.5e3", shape.values.get(2));
+        assertEquals("2021-01-01", shape.values.get(3));
+        assertNull(SQLQueryCache.getShape("SELECT * FROM Document WHERE a = 'x"));
+        assertNull(SQLQueryCache.getShape("SELECT * FROM Document WHERE a = 12abc"));
+    }
+
+}
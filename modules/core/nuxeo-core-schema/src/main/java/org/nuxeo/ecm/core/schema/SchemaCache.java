@@ -0,0 +1,299 @@
+/*
+ * (C) Copyright 2021 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.schema;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.common.Environment;
+import org.nuxeo.ecm.core.schema.types.Schema;
+import org.nuxeo.runtime.api.Framework;
+
+/**
+ * Persistent cache of the schemas loaded from XSD, to avoid parsing the XSD files at each boot or reload.
+ * <p>
+ * Each schema is stored in its serialized form, along with the checksums of all the XSD resources (the schema file
+ * itself and its imports and includes) it was loaded from. A cached schema is used only if its binding (prefix, root
+ * element, version writability) and all these checksums are unchanged. The whole cache is discarded when the code
+ * loading the schemas changes.
+ * <p>
+ * The cache is enabled by the {@value #ENABLED_PROP} property. It is not thread-safe, the {@link SchemaManagerImpl}
+ * uses it while holding its lock.
+ *
+ * @since 2021.20
+ */
+public class SchemaCache {
+
+    private static final Logger log = LogManager.getLogger(SchemaCache.class);
+
+    public static final String ENABLED_PROP = "nuxeo.schema.cache.enabled";
+
+    public static final String CACHE_FILE = "schemas.cache";
+
+    protected static final int FORMAT_VERSION = 1;
+
+    protected final File file;
+
+    protected final String codeStamp;
+
+    /** Cached entries, by schema name. */
+    protected final Map<String, Entry> entries;
+
+    protected boolean changed;
+
+    protected long hits;
+
+    protected static class Entry {
+
+        protected final String binding;
+
+        /** Checksum of each source, by URL. */
+        protected final Map<String, String> sources;
+
+        protected final byte[] schema;
+
+        protected Entry(String binding, Map<String, String> sources, byte[] schema) {
+            this.binding = binding;
+            this.sources = sources;
+            this.schema = schema;
+        }
+    }
+
+    public SchemaCache(File file) {
+        this.file = file;
+        codeStamp = getCodeStamp();
+        entries = load();
+    }
+
+    /**
+     * Creates the schema cache, or returns {@code null} if it is disabled.
+     */
+    public static SchemaCache create() {
+        Environment env = Environment.getDefault();
+        if (!Framework.isBooleanPropertyTrue(ENABLED_PROP) || env == null) {
+            return null;
+        }
+        return new SchemaCache(new File(env.getData(), CACHE_FILE));
+    }
+
+    /**
+     * Gets the number of schemas taken from the cache since it was created.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    protected static String getBinding(SchemaBindingDescriptor sd) {
+        return sd.prefix + '|' + sd.xsdRootElement + '|' + sd.isVersionWritable;
+    }
+
+    /**
+     * Gets the cached schema for the given binding, or {@code null} if it is not cached or if its sources changed.
+     */
+    public Schema get(SchemaBindingDescriptor sd) {
+        Entry entry = entries.get(sd.name);
+        if (entry == null || !entry.binding.equals(getBinding(sd))) {
+            return null;
+        }
+        for (Map.Entry<String, String> es : entry.sources.entrySet()) {
+            if (!es.getValue().equals(checksum(es.getKey()))) {
+                log.debug("Source: {} of schema: {} changed", es::getKey, () -> sd.name);
+                return null;
+            }
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(entry.schema))) {
+            Schema schema = (Schema) in.readObject();
+            hits++;
+            return schema;
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            log.debug("Cannot read cached schema: {}", sd.name, e);
+            entries.remove(sd.name);
+            changed = true;
+            return null;
+        }
+    }
+
+    /**
+     * Caches a schema loaded from the given sources.
+     */
+    public void put(SchemaBindingDescriptor sd, Schema schema, Collection<URL> sources) {
+        Map<String, String> checksums = new LinkedHashMap<>();
+        for (URL url : sources) {
+            String source = url.toExternalForm();
+            String checksum = checksum(source);
+            if (checksum == null) {
+                return;
+            }
+            checksums.put(source, checksum);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(schema);
+        } catch (IOException e) {
+            log.debug("Cannot cache schema: {}", sd.name, e);
+            return;
+        }
+        entries.put(sd.name, new Entry(getBinding(sd), checksums, bytes.toByteArray()));
+        changed = true;
+    }
+
+    /**
+     * Computes the checksum of a source, or returns {@code null} if it cannot be read.
+     */
+    protected static String checksum(String source) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (InputStream in = new URL(source).openStream()) {
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = in.read(buf)) != -1) {
+                digest.update(buf, 0, n);
+            }
+        } catch (IOException e) {
+            log.debug("Cannot read schema source: {}", source, e);
+            return null;
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Gets a stamp of the code loading the schemas, to discard the cache when it changes.
+     */
+    protected static String getCodeStamp() {
+        URL url = XSDLoader.class.getResource(XSDLoader.class.getSimpleName() + ".class");
+        try {
+            File f;
+            if ("jar".equals(url.getProtocol())) {
+                f = new File(((JarURLConnection) url.openConnection()).getJarFileURL().toURI());
+            } else if ("file".equals(url.getProtocol())) {
+                f = new File(url.toURI());
+            } else {
+                return url.toExternalForm();
+            }
+            return f.length() + ":" + f.lastModified();
+        } catch (IOException | URISyntaxException | IllegalArgumentException e) {
+            return url.toExternalForm();
+        }
+    }
+
+    protected Map<String, Entry> load() {
+        try (InputStream in = new GZIPInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())));
+                DataInputStream data = new DataInputStream(in)) {
+            if (data.readInt() != FORMAT_VERSION || !codeStamp.equals(data.readUTF())) {
+                log.debug("Ignoring schema cache written by another version");
+                return new HashMap<>();
+            }
+            int size = data.readInt();
+            Map<String, Entry> result = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                String name = data.readUTF();
+                String binding = data.readUTF();
+                int nsources = data.readInt();
+                Map<String, String> sources = new LinkedHashMap<>();
+                for (int j = 0; j < nsources; j++) {
+                    sources.put(data.readUTF(), data.readUTF());
+                }
+                byte[] schema = new byte[data.readInt()];
+                data.readFully(schema);
+                result.put(name, new Entry(binding, sources, schema));
+            }
+            log.debug("Loaded schema cache with {} schemas", size);
+            return result;
+        } catch (NoSuchFileException e) {
+            return new HashMap<>();
+        } catch (IOException e) {
+            log.warn("Ignoring invalid schema cache: {}", file, e);
+            return new HashMap<>();
+        }
+    }
+
+    /**
+     * Writes the cache if it changed, keeping only the given schemas.
+     */
+    public void save(Set<String> schemaNames) {
+        if (entries.keySet().retainAll(schemaNames)) {
+            changed = true;
+        }
+        if (!changed) {
+            return;
+        }
+        File tmp = new File(file.getPath() + ".tmp");
+        try {
+            Files.createDirectories(file.getAbsoluteFile().getParentFile().toPath());
+            try (OutputStream out = new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp.toPath())));
+                    DataOutputStream data = new DataOutputStream(out)) {
+                data.writeInt(FORMAT_VERSION);
+                data.writeUTF(codeStamp);
+                data.writeInt(entries.size());
+                for (Map.Entry<String, Entry> es : entries.entrySet()) {
+                    Entry entry = es.getValue();
+                    data.writeUTF(es.getKey());
+                    data.writeUTF(entry.binding);
+                    data.writeInt(entry.sources.size());
+                    for (Map.Entry<String, String> source : entry.sources.entrySet()) {
+                        data.writeUTF(source.getKey());
+                        data.writeUTF(source.getValue());
+                    }
+                    data.writeInt(entry.schema.length);
+                    data.write(entry.schema);
+                }
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            changed = false;
+            log.debug("Saved schema cache with {} schemas", entries.size());
+        } catch (IOException e) {
+            log.warn("Failed to save schema cache: {}", file, e);
+            tmp.delete();
+        }
+    }
+
+}
@@ -145,6 +145,13 @@ public class SchemaManagerImpl implements SchemaManager {
 
     private File schemaDir;
 
+    /**
+     * Persistent cache of the schemas loaded from XSD, or {@code null} if disabled.
+     *
+     * @since 2021.20
+     */
+    protected SchemaCache schemaCache;
+
     public static final String SCHEMAS_DIR_NAME = "schemas";
 
     /**
@@ -185,6 +192,7 @@ public class SchemaManagerImpl implements SchemaManager {
         }
         clearSchemaDir();
         registerBuiltinTypes();
+        schemaCache = SchemaCache.create();
     }
 
     protected void clearSchemaDir() {
@@ -436,6 +444,9 @@ public class SchemaManagerImpl implements SchemaManager {
         if (errors.getSuppressed().length > 0) {
             throw errors;
         }
+        if (schemaCache != null) {
+            schemaCache.save(resolvedSchemas.keySet());
+        }
     }
 
     protected void copySchema(SchemaBindingDescriptor sd) throws IOException {
@@ -463,9 +474,21 @@ public class SchemaManagerImpl implements SchemaManager {
             // INLINE Schemas ARE NOT YET IMPLEMENTED!
             return;
         }
+        if (schemaCache != null) {
+            Schema schema = schemaCache.get(sd);
+            if (schema != null) {
+                registerSchema(schema);
+                log.info("Registered schema: {} from cache", sd.name);
+                return;
+            }
+        }
         // loadSchema calls this.registerSchema
         XSDLoader schemaLoader = new XSDLoader(this, sd);
-        schemaLoader.loadSchema(sd.name, sd.prefix, sd.file, sd.xsdRootElement, sd.isVersionWritable);
+        Schema schema = schemaLoader.loadSchema(sd.name, sd.prefix, sd.file, sd.xsdRootElement,
+                sd.isVersionWritable);
+        if (schemaCache != null && schema != null) {
+            schemaCache.put(sd, schema, schemaLoader.getSources());
+        }
         log.info("Registered schema: {} from {}", sd.name, sd.file);
     }
 
@@ -39,6 +39,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -118,6 +119,13 @@ public class XSDLoader {
 
     protected SchemaBindingDescriptor sd;
 
+    /**
+     * The URLs of the XSD resources read to load the schema, including the resolved imports and includes.
+     *
+     * @since 2021.20
+     */
+    protected Set<URL> sources = new LinkedHashSet<>();
+
     /**
      * @deprecated since 11.1. Use {@link Framework#getService(Class)} with {@link ObjectResolverService} instead.
      */
@@ -154,7 +162,7 @@ public class XSDLoader {
         ErrorHandler errorHandler = new SchemaErrorHandler();
         parser.setErrorHandler(errorHandler);
         if (sd != null) {
-            parser.setEntityResolver(new NXSchemaResolver(schemaManager, sd));
+            parser.setEntityResolver(new NXSchemaResolver(schemaManager, sd, sources));
         }
         return parser;
     }
@@ -165,9 +173,16 @@ public class XSDLoader {
 
         protected SchemaBindingDescriptor sd;
 
+        protected Set<URL> sources;
+
         NXSchemaResolver(SchemaManagerImpl schemaManager, SchemaBindingDescriptor sd) {
+            this(schemaManager, sd, new LinkedHashSet<>());
+        }
+
+        NXSchemaResolver(SchemaManagerImpl schemaManager, SchemaBindingDescriptor sd, Set<URL> sources) {
             this.schemaManager = schemaManager;
             this.sd = sd;
+            this.sources = sources;
         }
 
         @Override
@@ -186,8 +201,11 @@ public class XSDLoader {
                     url = sd.context.getResource(importXSDSubPath);
                 }
                 if (url != null) {
+                    sources.add(url);
                     return new InputSource(url.openStream());
                 }
+            } else {
+                sources.add(xsd.toURI().toURL());
             }
 
             return null;
@@ -236,6 +254,7 @@ public class XSDLoader {
     public Schema loadSchema(String name, String prefix, File file, String xsdElement, boolean isVersionWritable)
             throws SAXException, IOException, TypeException {
         XSOMParser parser = getParser();
+        sources.add(file.toURI().toURL());
         String systemId = file.toURI().toURL().toExternalForm();
         if (file.getPath().startsWith("\\\\")) { // Windows UNC share
             // work around a bug in Xerces due to
@@ -900,6 +919,15 @@ public class XSDLoader {
         return referencedXSD;
     }
 
+    /**
+     * Gets the URLs of the XSD resources read to load the schema, including the resolved imports and includes.
+     *
+     * @since 2021.20
+     */
+    public Set<URL> getSources() {
+        return sources;
+    }
+
     /**
      * ignore case where xsd:nillable is recognized as false by xsom (we don't know if it's not specified and we want to
      * preserve a default value to true. Therefore, we provide a custom attribute nxs:nillable to force nillable as
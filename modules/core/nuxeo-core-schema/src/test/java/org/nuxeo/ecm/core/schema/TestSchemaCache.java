@@ -0,0 +1,120 @@
+/*
+ * (C) Copyright 2021 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.schema;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.Set;
+
+import javax.inject.Inject;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.nuxeo.ecm.core.schema.types.Schema;
+import org.nuxeo.ecm.core.schema.types.primitives.StringType;
+import org.nuxeo.runtime.test.ResourceHelper;
+import org.nuxeo.runtime.test.runner.Deploy;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+import org.nuxeo.runtime.test.runner.RuntimeFeature;
+
+/**
+ * @since 2021.20
+ */
+@RunWith(FeaturesRunner.class)
+@Features(RuntimeFeature.class)
+@Deploy("org.nuxeo.ecm.core.schema")
+public class TestSchemaCache {
+
+    @Inject
+    protected SchemaManager schemaManager;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    protected File xsd;
+
+    protected File lib;
+
+    @Before
+    public void before() throws Exception {
+        File schemasDir = ((SchemaManagerImpl) schemaManager).getSchemasDir();
+        xsd = new File(schemasDir, "cachetest.xsd");
+        lib = new File(schemasDir, "schema-lib.xsd");
+        copy("schema/schema.xsd", xsd);
+        copy("schema/schema-lib.xsd", lib);
+    }
+
+    @After
+    public void after() {
+        FileUtils.deleteQuietly(xsd);
+        FileUtils.deleteQuietly(lib);
+    }
+
+    protected void copy(String resource, File file) throws Exception {
+        try (InputStream in = ResourceHelper.getResource(resource).openStream()) {
+            FileUtils.copyInputStreamToFile(in, file);
+        }
+    }
+
+    @Test
+    public void testCache() throws Exception {
+        File cacheFile = new File(folder.getRoot(), SchemaCache.CACHE_FILE);
+        SchemaBindingDescriptor sd = new SchemaBindingDescriptor("cachetest", "ct");
+        sd.file = xsd;
+
+        SchemaCache cache = new SchemaCache(cacheFile);
+        assertNull(cache.get(sd));
+        XSDLoader loader = new XSDLoader((SchemaManagerImpl) schemaManager, sd);
+        Schema schema = loader.loadSchema(sd.name, sd.prefix, sd.file, sd.xsdRootElement, sd.isVersionWritable);
+        // the included schema is a source too
+        assertEquals(2, loader.getSources().size());
+        cache.put(sd, schema, loader.getSources());
+        cache.save(Set.of(sd.name));
+
+        // reused at next boot
+        cache = new SchemaCache(cacheFile);
+        Schema cached = cache.get(sd);
+        assertNotNull(cached);
+        assertEquals(1, cache.getHits());
+        assertEquals(schema.getName(), cached.getName());
+        assertEquals(schema.getNamespace(), cached.getNamespace());
+        assertEquals(schema.getFields().size(), cached.getFields().size());
+        assertSame(StringType.INSTANCE, cached.getField("description").getType());
+        assertEquals("personInfo", cached.getField("person").getType().getName());
+
+        // different binding
+        SchemaBindingDescriptor sd2 = new SchemaBindingDescriptor("cachetest", "other");
+        sd2.file = xsd;
+        assertNull(cache.get(sd2));
+
+        // included schema changed
+        FileUtils.writeStringToFile(lib, "\n<!-- changed -->\n", UTF_8, true);
+        assertNull(new SchemaCache(cacheFile).get(sd));
+    }
+
+}
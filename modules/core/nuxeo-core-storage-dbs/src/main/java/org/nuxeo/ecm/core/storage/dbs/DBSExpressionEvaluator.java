@@ -72,6 +72,7 @@ import org.nuxeo.ecm.core.schema.types.Type;
 import org.nuxeo.ecm.core.schema.types.primitives.BooleanType;
 import org.nuxeo.ecm.core.schema.types.primitives.DateType;
 import org.nuxeo.ecm.core.storage.ExpressionEvaluator;
+import org.nuxeo.ecm.core.storage.ExpressionEvaluator.CompiledOperand;
 import org.nuxeo.ecm.core.storage.State;
 import org.nuxeo.runtime.api.Framework;
 
@@ -102,6 +103,12 @@ public class DBSExpressionEvaluator extends ExpressionEvaluator {
 
     protected boolean parsing;
 
+    /** Whether the expression is compiled at parse time, or walked for each state. */
+    protected boolean compile = true;
+
+    /** The compiled expression, if {@link #compile} is set. */
+    protected CompiledOperand compiledExpression;
+
     /** Info about a value and how to compute it from the toplevel state or an iterator's state. */
     protected static final class ValueInfo {
 
@@ -322,6 +329,15 @@ public class DBSExpressionEvaluator extends ExpressionEvaluator {
         return schemaManager.getNoPerDocumentQueryFacets().contains(mixin);
     }
 
+    /**
+     * Sets whether the expression is compiled when parsed (the default), or walked for each evaluated state.
+     *
+     * @since 2021.20
+     */
+    public void setCompile(boolean compile) {
+        this.compile = compile;
+    }
+
     /**
      * Initializes parsing datastructures.
      */
@@ -341,7 +357,13 @@ public class DBSExpressionEvaluator extends ExpressionEvaluator {
         // we do parsing using the ExpressionEvaluator to be sure that references
         // are visited in the same order as when we'll do actual expression evaluation
         parsing = true;
-        walkAll();
+        if (compile) {
+            // the projection is still walked, the expression is compiled with its references bound to their values
+            walkSelectClauseAndOrderBy(selectClause, orderByClause);
+            compiledExpression = compile(expression);
+        } else {
+            walkAll();
+        }
         parsing = false;
 
         // we use all iterators in reversed ordered to increment them lexicographically from the end
@@ -401,7 +423,7 @@ public class DBSExpressionEvaluator extends ExpressionEvaluator {
     protected Map<String, Serializable> walkAll() {
         refCount = 0;
         Map<String, Serializable> projection = walkSelectClauseAndOrderBy(selectClause, orderByClause);
-        Object res = walkExpression(expression);
+        Object res = compiledExpression == null ? walkExpression(expression) : compiledExpression.evaluate();
         if (TRUE.equals(res)) {
             // returns one match
             return projection;
@@ -477,6 +499,13 @@ public class DBSExpressionEvaluator extends ExpressionEvaluator {
         return walkReferenceGetValueInfo(ref).getValueForEvaluation();
     }
 
+    @Override
+    protected CompiledOperand compileReference(Reference ref) {
+        // called while parsing, the value info is bound once instead of being looked up by index
+        ValueInfo valueInfo = walkReferenceGetValueInfo(ref);
+        return valueInfo::getValueForEvaluation;
+    }
+
     protected ValueInfo walkReferenceGetValueInfo(Reference ref) {
         if (parsing) {
             ValueInfo valueInfo = parseReference(ref);
@@ -831,9 +860,20 @@ public class DBSExpressionEvaluator extends ExpressionEvaluator {
         if (parsing) {
             return null;
         }
-        /*
-         * Primary types that match.
-         */
+        return matchMixinTypes(getMatchPrimaryTypes(mixins, include), getMatchMixinTypes(mixins), include);
+    }
+
+    @Override
+    protected CompiledOperand compileMixinTypes(List<String> mixins, boolean include) {
+        Set<String> matchPrimaryTypes = getMatchPrimaryTypes(mixins, include);
+        Set<String> matchMixinTypes = getMatchMixinTypes(mixins);
+        return () -> matchMixinTypes(matchPrimaryTypes, matchMixinTypes, include);
+    }
+
+    /**
+     * Primary types that match.
+     */
+    protected Set<String> getMatchPrimaryTypes(List<String> mixins, boolean include) {
         Set<String> matchPrimaryTypes;
         if (include) {
             matchPrimaryTypes = new HashSet<>();
@@ -846,18 +886,26 @@ public class DBSExpressionEvaluator extends ExpressionEvaluator {
                 matchPrimaryTypes.removeAll(getMixinDocumentTypes(mixin));
             }
         }
-        /*
-         * Instance mixins that match.
-         */
+        return matchPrimaryTypes;
+    }
+
+    /**
+     * Instance mixins that match.
+     */
+    protected Set<String> getMatchMixinTypes(List<String> mixins) {
         Set<String> matchMixinTypes = new HashSet<>();
         for (String mixin : mixins) {
             if (!isNeverPerInstanceMixin(mixin)) {
                 matchMixinTypes.add(mixin);
             }
         }
-        /*
-         * Evaluation.
-         */
+        return matchMixinTypes;
+    }
+
+    /**
+     * Evaluates the mixin types match on the current state.
+     */
+    protected Boolean matchMixinTypes(Set<String> matchPrimaryTypes, Set<String> matchMixinTypes, boolean include) {
         String primaryType = (String) state.get(KEY_PRIMARY_TYPE);
         Object[] mixinTypesArray = (Object[]) state.get(KEY_MIXIN_TYPES);
         List<Object> mixinTypes = mixinTypesArray == null ? Collections.emptyList() : Arrays.asList(mixinTypesArray);
@@ -867,19 +915,26 @@ public class DBSExpressionEvaluator extends ExpressionEvaluator {
                 return TRUE;
             }
             // mixin types
-            matchMixinTypes.retainAll(mixinTypes); // intersection
-            return Boolean.valueOf(!matchMixinTypes.isEmpty());
+            return Boolean.valueOf(intersects(matchMixinTypes, mixinTypes));
         } else {
             // primary types
             if (!matchPrimaryTypes.contains(primaryType)) {
                 return FALSE;
             }
             // mixin types
-            matchMixinTypes.retainAll(mixinTypes); // intersection
-            return Boolean.valueOf(matchMixinTypes.isEmpty());
+            return Boolean.valueOf(!intersects(matchMixinTypes, mixinTypes));
         }
     }
 
+    protected static boolean intersects(Set<String> set, List<Object> values) {
+        for (Object value : values) {
+            if (set.contains(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder("SELECT ");
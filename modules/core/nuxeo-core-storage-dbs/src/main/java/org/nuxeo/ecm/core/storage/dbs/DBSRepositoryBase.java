@@ -137,6 +137,9 @@ public abstract class DBSRepositoryBase implements DBSRepository {
             fulltextConfiguration = FulltextConfigurationFactory.make(fulltextDescriptor);
         }
         changeTokenEnabled = descriptor.isChangeTokenEnabled();
+        // null values sort before any other value
+        capabilities.put(CAPABILITY_QUERY_NULLS_LAST_ASC, Boolean.FALSE);
+        capabilities.put(CAPABILITY_QUERY_NULLS_LAST_DESC, Boolean.TRUE);
         blobManager = Framework.getService(BlobManager.class);
         initBlobsPaths();
         initLockManager();
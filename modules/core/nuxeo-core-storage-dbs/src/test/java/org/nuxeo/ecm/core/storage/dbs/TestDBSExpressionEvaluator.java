@@ -139,4 +139,67 @@ public class TestDBSExpressionEvaluator {
                 projections);
     }
 
+    protected void assertCompiledMatchesInterpreted(String where, State... states) {
+        SQLQuery query = SQLQueryParser.parse("SELECT ecm:uuid FROM D WHERE " + where);
+        DBSExpressionEvaluator compiled = new DBSExpressionEvaluator(null, query, null, false);
+        compiled.parse();
+        DBSExpressionEvaluator interpreted = new DBSExpressionEvaluator(null, query, null, false);
+        interpreted.setCompile(false);
+        interpreted.parse();
+        for (State state : states) {
+            assertEquals(where + " on " + state.get("ecm:id"), interpreted.matches(state), compiled.matches(state));
+        }
+    }
+
+    @Test
+    public void testCompiledExpression() throws Exception {
+        State[] states = { //
+                state("ecm:id", "id1", "ecm:name", "doc1", "ecm:primaryType", "MyDoc", //
+                        "ecm:ancestorIds", new Object[] { "root", "folder" }, //
+                        "cmp:addresses", list(state("city", "Paris", "number", 1L), //
+                                state("city", "New York", "number", 3L))),
+                state("ecm:id", "id2", "ecm:name", "doc/sub", "ecm:primaryType", "MyDoc", //
+                        "ecm:mixinTypes", new Object[] { "Folderish" }, //
+                        "cmp:addresses", list(state("city", "London", "number", 2L))),
+                state("ecm:id", "id3", "ecm:parentId", "id1", "ecm:primaryType", "File") };
+        String[] wheres = { //
+                "cmp:addresses/*1/city = 'Paris'", //
+                "cmp:addresses/*1/city <> 'Paris'", //
+                "cmp:addresses/*1/city LIKE 'Par%' AND cmp:addresses/*1/number > 0", //
+                "cmp:addresses/*/city ILIKE 'new%' OR ecm:name NOT LIKE 'doc_'", //
+                "cmp:addresses/*1/number IN (1, 3) AND NOT cmp:addresses/*1/city IN ('London')", //
+                "cmp:addresses/*1/number NOT IN (2)", //
+                "cmp:addresses/*1/number BETWEEN 1 AND 2", //
+                "cmp:addresses/*1/number NOT BETWEEN 1 AND 2", //
+                "cmp:addresses/*1/number <= 2 OR cmp:addresses/*1/number >= 3 OR cmp:addresses/*1/number < 0", //
+                "ecm:parentId IS NULL AND ecm:name IS NOT NULL", //
+                "ecm:mixinType = 'Folderish'", //
+                "ecm:mixinType <> 'Folderish'", //
+                "ecm:mixinType NOT IN ('Folderish', 'Foo')", //
+                "ecm:ancestorId = 'root'", //
+                "ecm:ancestorId <> 'root'", //
+                "ecm:name STARTSWITH 'doc'", //
+                "ecm:primaryType = 'MyDoc' AND ecm:uuid <> 'id2'", //
+                "ecm:primaryType = 'File' OR ecm:name = 'doc1' OR ecm:uuid = 'id2'", //
+        };
+        for (String where : wheres) {
+            assertCompiledMatchesInterpreted(where, states);
+        }
+    }
+
+    @Test
+    public void testCompiledExpressionShortCircuit() throws Exception {
+        SQLQuery query = SQLQueryParser.parse("SELECT ecm:uuid FROM D WHERE " //
+                + "ecm:name = 'doc1' AND cmp:addresses/*1/city LIKE 'Par%' AND cmp:addresses/*1/number = 1");
+        DBSExpressionEvaluator evaluator = new DBSExpressionEvaluator(null, query, null, false);
+        evaluator.parse();
+        assertEquals(list(map("ecm:uuid", "id1")), evaluator.matches(state( //
+                "ecm:id", "id1", "ecm:name", "doc1", //
+                "cmp:addresses", list(state("city", "London", "number", 2L), //
+                        state("city", "Paris", "number", 1L)))));
+        assertEquals(list(), evaluator.matches(state( //
+                "ecm:id", "id2", "ecm:name", "doc2", //
+                "cmp:addresses", list(state("city", "Paris", "number", 1L)))));
+    }
+
 }
@@ -0,0 +1,129 @@
+/*
+ * (C) Copyright 2021 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.storage.dbs;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.ecm.core.query.sql.SQLQueryParser;
+import org.nuxeo.ecm.core.query.sql.model.SQLQuery;
+import org.nuxeo.ecm.core.storage.State;
+import org.nuxeo.runtime.test.runner.Deploy;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+import org.nuxeo.runtime.test.runner.RuntimeFeature;
+
+/**
+ * Benchmarks the evaluation of a compiled expression against the walk of the same expression, on in-memory states.
+ * <p>
+ * Skipped unless run with {@code -Ddbs.evaluator.benchmark=true}.
+ *
+ * @since 2021.20
+ */
+@RunWith(FeaturesRunner.class)
+@Features(RuntimeFeature.class)
+@Deploy("org.nuxeo.ecm.core.schema")
+@Deploy("org.nuxeo.ecm.core.storage.dbs.tests:OSGI-INF/test-complex.xml")
+public class TestDBSExpressionEvaluatorBenchmark {
+
+    private static final Logger log = LogManager.getLogger(TestDBSExpressionEvaluatorBenchmark.class);
+
+    public static final String BENCHMARK_PROP = "dbs.evaluator.benchmark";
+
+    public static final String ITERATIONS_PROP = "dbs.evaluator.benchmark.iterations";
+
+    protected static final String QUERY = "SELECT ecm:uuid FROM D WHERE ecm:primaryType IN ('MyDoc', 'Folder')"
+            + " AND ecm:name LIKE 'doc%' AND ecm:mixinType <> 'HiddenInNavigation'"
+            + " AND cmp:addresses/*1/city ILIKE 'par%' AND cmp:addresses/*1/number BETWEEN 1 AND 50";
+
+    @Before
+    public void before() {
+        Assume.assumeTrue("Skip DBS expression evaluator benchmark", Boolean.getBoolean(BENCHMARK_PROP));
+    }
+
+    protected static State state(Serializable... values) {
+        State state = new State();
+        for (int i = 0; i < values.length; i += 2) {
+            state.put((String) values[i], values[i + 1]);
+        }
+        return state;
+    }
+
+    protected static List<State> getStates(int count) {
+        String[] cities = { "Paris", "London", "New York", "Parma" };
+        List<State> states = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ArrayList<State> addresses = new ArrayList<>();
+            for (int j = 0; j < 3; j++) {
+                addresses.add(state("city", cities[(i + j) % cities.length], "number", Long.valueOf((i * j) % 100)));
+            }
+            states.add(state("ecm:id", "id" + i, "ecm:name", (i % 3 == 0 ? "file" : "doc") + i, //
+                    "ecm:primaryType", i % 5 == 0 ? "File" : "MyDoc", //
+                    "ecm:mixinTypes", new Object[] { "Versionable" }, //
+                    "cmp:addresses", addresses));
+        }
+        return states;
+    }
+
+    protected long run(DBSExpressionEvaluator evaluator, List<State> states, int iterations) {
+        long matches = 0;
+        for (int i = 0; i < iterations; i++) {
+            for (State state : states) {
+                matches += evaluator.matches(state).size();
+            }
+        }
+        return matches;
+    }
+
+    @Test
+    public void benchmark() {
+        int iterations = Integer.getInteger(ITERATIONS_PROP, 20);
+        List<State> states = getStates(10_000);
+        SQLQuery query = SQLQueryParser.parse(QUERY);
+
+        DBSExpressionEvaluator interpreted = new DBSExpressionEvaluator(null, query, null, false);
+        interpreted.setCompile(false);
+        interpreted.parse();
+        DBSExpressionEvaluator compiled = new DBSExpressionEvaluator(null, query, null, false);
+        compiled.parse();
+
+        // warm up
+        long expected = run(interpreted, states, 1);
+        assertEquals(expected, run(compiled, states, 1));
+
+        long start = System.nanoTime();
+        run(interpreted, states, iterations);
+        long interpretedTime = System.nanoTime() - start;
+        start = System.nanoTime();
+        run(compiled, states, iterations);
+        long compiledTime = System.nanoTime() - start;
+
+        log.warn("DBS expression evaluator benchmark: {} states x {} iterations, {} matches per iteration,"
+                + " interpreted: {} ms, compiled: {} ms", states.size(), iterations, expected,
+                TimeUnit.NANOSECONDS.toMillis(interpretedTime), TimeUnit.NANOSECONDS.toMillis(compiledTime));
+    }
+
+}
@@ -3874,6 +3874,69 @@ public class TestSQLBackend extends SQLBackendTestCase {
         assertEquals(0, jdbc.executeCount);
     }
 
+    @Test
+    public void testChildAbsentCached() throws Exception {
+        Session session = repository.getConnection();
+        Node root = session.getRootNode();
+        Node foo = session.addChildNode(root, "foo", null, "TestDoc", false);
+        session.addChildNode(foo, "bar", null, "TestDoc", false);
+        session.save();
+        session.close();
+        session = repository.getConnection();
+        foo = session.getNodeByPath("/foo", null);
+
+        JDBCConnection jdbc = (JDBCConnection) ((SoftRefCachingMapper) ((SessionImpl) session).getMapper()).mapper;
+        jdbc.countExecutes = true;
+        jdbc.executeCount = 0;
+        assertFalse(session.hasChildNode(foo, "gee", false));
+        assertEquals(1, jdbc.executeCount);
+        // second lookup of a missing child doesn't go to the database
+        assertFalse(session.hasChildNode(foo, "gee", false));
+        assertEquals(1, jdbc.executeCount);
+
+        // creating the child is seen
+        session.addChildNode(foo, "gee", null, "TestDoc", false);
+        assertTrue(session.hasChildNode(foo, "gee", false));
+        session.save();
+        assertTrue(session.hasChildNode(foo, "gee", false));
+        session.close();
+    }
+
+    @Test
+    public void testPrefetchChildren() throws Exception {
+        Session session = repository.getConnection();
+        Node root = session.getRootNode();
+        List<Serializable> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Node folder = session.addChildNode(root, "folder" + i, null, "TestDoc", false);
+            session.addChildNode(folder, "child", null, "TestDoc", false);
+            ids.add(folder.getId());
+        }
+        Node empty = session.addChildNode(root, "empty", null, "TestDoc", false);
+        ids.add(empty.getId());
+        session.save();
+        session.close();
+        session = repository.getConnection();
+
+        JDBCConnection jdbc = (JDBCConnection) ((SoftRefCachingMapper) ((SessionImpl) session).getMapper()).mapper;
+        jdbc.countExecutes = true;
+        jdbc.executeCount = 0;
+        session.prefetchChildren(ids, false);
+        assertEquals(1, jdbc.executeCount);
+        for (int i = 0; i < 3; i++) {
+            Node folder = session.getNodeById(ids.get(i));
+            jdbc.executeCount = 0;
+            assertTrue(session.hasChildNode(folder, "child", false));
+            assertFalse(session.hasChildNode(folder, "other", false));
+            assertEquals(0, jdbc.executeCount);
+        }
+        empty = session.getNodeById(empty.getId());
+        jdbc.executeCount = 0;
+        assertFalse(session.hasChildren(empty, false));
+        assertEquals(0, jdbc.executeCount);
+        session.close();
+    }
+
     @Test
     public void testPathDeep() throws Exception {
         Session session = repository.getConnection();
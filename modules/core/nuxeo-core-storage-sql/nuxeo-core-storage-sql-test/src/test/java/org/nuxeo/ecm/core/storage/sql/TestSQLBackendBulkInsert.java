@@ -0,0 +1,70 @@
+/*
+ * (C) Copyright 2021 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.storage.sql;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+import org.junit.Test;
+import org.nuxeo.ecm.core.storage.sql.jdbc.JDBCRowMapper;
+import org.nuxeo.runtime.test.runner.Deploy;
+
+/**
+ * All the tests of TestSQLBackend with bulk inserts activated.
+ *
+ * @since 2021.20
+ */
+@Deploy("org.nuxeo.ecm.core.storage.sql.test.tests:OSGI-INF/test-bulk-insert-contrib.xml")
+public class TestSQLBackendBulkInsert extends TestSQLBackend {
+
+    @Test
+    public void testBulkInsert() throws Exception {
+        Session session = repository.getConnection();
+        Node root = session.getRootNode();
+        Node folder = session.addChildNode(root, "folder", null, "TestDoc", false);
+        Calendar cal = new GregorianCalendar(2008, Calendar.JULY, 14, 12, 34, 56);
+        int n = 2 * JDBCRowMapper.BULK_INSERT_MIN_ROWS + 1;
+        for (int i = 0; i < n; i++) {
+            Node node = session.addChildNode(folder, "doc" + i, null, "TestDoc", false);
+            node.setSimpleProperty("tst:title", "title \"" + i + "\",\\");
+            node.setSimpleProperty("tst:count", Long.valueOf(i));
+            node.setSimpleProperty("tst:created", cal);
+            node.setCollectionProperty("tst:subjects", new String[] { "a", "b\"," + i });
+        }
+        session.save();
+        session.close();
+
+        session = repository.getConnection();
+        folder = session.getNodeByPath("/folder", null);
+        List<Node> children = session.getChildren(folder, null, false);
+        assertEquals(n, children.size());
+        for (int i = 0; i < n; i++) {
+            Node node = session.getChildNode(folder, "doc" + i, false);
+            assertEquals("title \"" + i + "\",\\", node.getSimpleProperty("tst:title").getString());
+            assertEquals(Long.valueOf(i), node.getSimpleProperty("tst:count").getValue());
+            assertEquals(cal.getTimeInMillis(),
+                    ((Calendar) node.getSimpleProperty("tst:created").getValue()).getTimeInMillis());
+            assertEquals(Arrays.asList("a", "b\"," + i),
+                    Arrays.asList(node.getCollectionProperty("tst:subjects").getStrings()));
+        }
+        session.close();
+    }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * (C) Copyright 2021 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.storage.sql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Serializable;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link SharedCachingMapper}.
+ *
+ * @since 2021.20
+ */
+public class TestSQLBackendSharedCache extends SQLBackendTestCase {
+
+    @Override
+    protected RepositoryDescriptor newDescriptor(String name) {
+        RepositoryDescriptor descriptor = super.newDescriptor(name);
+        descriptor.cachingMapperClass = SharedCachingMapper.class;
+        return descriptor;
+    }
+
+    protected SharedRowCache getSharedCache() {
+        return SharedRowCache.getCache(repository.getName(), null);
+    }
+
+    @Test
+    public void testSharedBetweenSessions() throws Exception {
+        Session session1 = repository.getConnection();
+        assertTrue(session1.getMapper() instanceof SharedCachingMapper);
+        Node root = session1.getRootNode();
+        Node node = session1.addChildNode(root, "foo", null, "TestDoc", false);
+        node.setSimpleProperty("tst:title", "hello");
+        session1.save();
+        Serializable id = node.getId();
+        session1.close();
+
+        // read from the database and fill the shared cache
+        Session session2 = repository.getConnection();
+        assertEquals("hello", session2.getNodeById(id).getSimpleProperty("tst:title").getString());
+        session2.close();
+
+        // read from the shared cache
+        long hits = getSharedCache().cache.stats().hitCount();
+        Session session3 = repository.getConnection();
+        assertEquals("hello", session3.getNodeById(id).getSimpleProperty("tst:title").getString());
+        session3.close();
+        assertTrue(getSharedCache().cache.stats().hitCount() > hits);
+    }
+
+    @Test
+    public void testCrossSessionInvalidation() throws Exception {
+        Session session1 = repository.getConnection();
+        Node root1 = session1.getRootNode();
+        Node node1 = session1.addChildNode(root1, "foo", null, "TestDoc", false);
+        node1.setSimpleProperty("tst:title", "t1");
+        session1.save();
+        Serializable id = node1.getId();
+
+        Session session2 = repository.getConnection();
+        assertEquals("t1", session2.getNodeById(id).getSimpleProperty("tst:title").getString());
+
+        node1.setSimpleProperty("tst:title", "t2");
+        session1.save();
+
+        // a new session doesn't see the stale shared value
+        Session session3 = repository.getConnection();
+        assertEquals("t2", session3.getNodeById(id).getSimpleProperty("tst:title").getString());
+        session3.close();
+
+        // the other session sees the new value after processing invalidations
+        session2.save(); // process invalidations (non-transactional)
+        assertEquals("t2", session2.getNodeById(id).getSimpleProperty("tst:title").getString());
+        session2.close();
+
+        // deletion
+        session1.removeNode(node1);
+        session1.save();
+        session1.close();
+        Session session4 = repository.getConnection();
+        assertNull(session4.getNodeById(id));
+        session4.close();
+    }
+
+    @Test
+    public void testStaleReadNotCached() throws Exception {
+        SharedRowCache cache = getSharedCache();
+        RowId rowId = new RowId(Model.HIER_TABLE_NAME, "someid");
+        long gen = cache.getGeneration();
+        // an invalidation happens while the row is read from the database
+        cache.invalidate(rowId);
+        cache.putIfNotInvalidated(new Row(Model.HIER_TABLE_NAME, "someid"), gen);
+        assertNull(cache.get(rowId));
+        gen = cache.getGeneration();
+        cache.putIfNotInvalidated(new Row(Model.HIER_TABLE_NAME, "someid"), gen);
+        assertEquals(rowId, new RowId(cache.get(rowId)));
+    }
+
+    @Test
+    public void testEstimateSize() {
+        Row small = new Row("tst", "id");
+        small.putNew("title", "a");
+        Row big = new Row("tst", "id");
+        big.putNew("title", new String(new char[1000]));
+        assertTrue(SharedRowCache.estimateSize(big) > SharedRowCache.estimateSize(small) + 1000);
+    }
+
+}
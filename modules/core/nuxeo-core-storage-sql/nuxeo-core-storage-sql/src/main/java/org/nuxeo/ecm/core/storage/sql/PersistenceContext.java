@@ -1416,6 +1416,15 @@ public class PersistenceContext {
         return fragments;
     }
 
+    /**
+     * Fetches in bulk the hier fragments for the children of the given parents.
+     *
+     * @since 2021.20
+     */
+    public void prefetchChildren(Collection<Serializable> parentIds, boolean complexProp) {
+        getHierSelectionContext(complexProp).prefetchSelections(parentIds);
+    }
+
     /** Checks that we don't move/copy under ourselves. */
     protected void checkNotUnder(Serializable parentId, Serializable id, String op) {
         Serializable pid = parentId;
@@ -131,6 +131,9 @@ public class RepositoryImpl implements Repository, org.nuxeo.ecm.core.model.Repo
 
     protected SQLInfo sqlInfo;
 
+    /** @since 2021.20 */
+    protected final Map<String, Object> capabilities = new HashMap<>();
+
     public RepositoryImpl(RepositoryDescriptor repositoryDescriptor) {
         this.repositoryDescriptor = repositoryDescriptor;
         sessions = new CopyOnWriteArrayList<>();
@@ -285,6 +288,11 @@ public class RepositoryImpl implements Repository, org.nuxeo.ecm.core.model.Repo
         } catch (SQLException cause) {
             throw new NuxeoException("Cannot get connection from datasource: " + dataSourceName, cause);
         }
+        // databases needing NULLS LAST on descending sorts consider null values higher than any other value
+        boolean nullsLastAsc = dialect.needsNullsLastOnDescSort();
+        capabilities.put(CAPABILITY_QUERY_NULLS_LAST_ASC, Boolean.valueOf(nullsLastAsc));
+        capabilities.put(CAPABILITY_QUERY_NULLS_LAST_DESC,
+                Boolean.valueOf(!nullsLastAsc || dialect.getDescending().contains("NULLS LAST")));
 
         // model setup
         ModelSetup modelSetup = new ModelSetup();
@@ -427,6 +435,7 @@ public class RepositoryImpl implements Repository, org.nuxeo.ecm.core.model.Repo
         if (clusterInvalidator != null) {
             clusterInvalidator.close();
         }
+        SharedRowCache.removeCache(getName());
 
         if (selfRegisteredLockManager) {
             LockManagerService lms = Framework.getService(LockManagerService.class);
@@ -532,7 +541,7 @@ public class RepositoryImpl implements Repository, org.nuxeo.ecm.core.model.Repo
 
     @Override
     public Object getCapability(String name) {
-        return null;
+        return capabilities.get(name);
     }
 
     /**
@@ -236,6 +236,18 @@ public interface RowMapper {
      */
     Set<Serializable> readSelectionsIds(SelectionType selType, List<Serializable> values);
 
+    /**
+     * Reads the rows corresponding to several selections at once.
+     *
+     * @param selType the selection type
+     * @param selIds the selection ids (parent ids for a hierarchy selection)
+     * @param criterion an optional additional criterion depending on the selection type (complex prop flag for a
+     *            hierarchy selection)
+     * @return the list of rows
+     * @since 2021.20
+     */
+    List<Row> readSelectionsRows(SelectionType selType, List<Serializable> selIds, Serializable criterion);
+
     /*
      * ----- Copy -----
      */
@@ -54,6 +54,13 @@ public class Selection {
 
     private static final Log log = LogFactory.getLog(Selection.class);
 
+    /**
+     * Maximum number of filter values remembered as absent, past which they are forgotten.
+     *
+     * @since 2021.20
+     */
+    protected static final int MAX_ABSENT = 10_000;
+
     /**
      * The selection id, also the key which this instance has in the map holding it.
      * <p>
@@ -106,6 +113,16 @@ public class Selection {
      */
     protected Set<Serializable> deleted;
 
+    /**
+     * The filter values known to be absent from the database, when the information is not complete.
+     * <p>
+     * Avoids going to the database for repeated lookups of missing values, for instance name collision checks. Values
+     * created or modified locally are found in the existing or created ids before this is checked.
+     *
+     * @since 2021.20
+     */
+    protected Set<Serializable> absent;
+
     /**
      * Constructs a {@link Selection} for the given selection id.
      * <p>
@@ -205,6 +222,34 @@ public class Selection {
         assert !complete;
         complete = true;
         existing = new HashSet<>(actualExisting);
+        absent = null;
+    }
+
+    /**
+     * Records that no row in the database has the given filtered value.
+     *
+     * @param filter the value that was filtered on
+     * @since 2021.20
+     */
+    public void addAbsent(Serializable filter) {
+        if (complete) {
+            return;
+        }
+        if (absent == null) {
+            absent = new HashSet<>();
+        } else if (absent.size() >= MAX_ABSENT) {
+            absent.clear();
+        }
+        absent.add(filter);
+    }
+
+    /**
+     * Checks whether complete information about the existing ids is known.
+     *
+     * @since 2021.20
+     */
+    public boolean isComplete() {
+        return complete;
     }
 
     /**
@@ -215,6 +260,7 @@ public class Selection {
      */
     public void setIncomplete() {
         complete = false;
+        absent = null;
     }
 
     /**
@@ -330,7 +376,10 @@ public class Selection {
                 }
             }
         }
-        return complete ? null : SimpleFragment.UNKNOWN;
+        if (complete || (absent != null && absent.contains(filter))) {
+            return null;
+        }
+        return SimpleFragment.UNKNOWN;
     }
 
     /**
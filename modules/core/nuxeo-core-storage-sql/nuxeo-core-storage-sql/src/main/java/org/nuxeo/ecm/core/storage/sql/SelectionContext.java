@@ -20,10 +20,12 @@ package org.nuxeo.ecm.core.storage.sql;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 
 import org.apache.commons.collections.map.AbstractReferenceMap;
@@ -222,12 +224,17 @@ public class SelectionContext {
      * @return the fragment, or {@code null} if not found
      */
     public SimpleFragment getSelectionFragment(Serializable selId, String filter) {
-        SimpleFragment fragment = getSelection(selId).getFragmentByValue(filter);
+        Selection selection = getSelection(selId);
+        SimpleFragment fragment = selection.getFragmentByValue(filter);
         if (fragment == SimpleFragment.UNKNOWN) {
             // read it through the mapper
             List<Row> rows = mapper.readSelectionRows(selType, selId, filter, criterion, true);
             Row row = rows.isEmpty() ? null : rows.get(0);
             fragment = (SimpleFragment) context.getFragmentFromFetchedRow(row, false);
+            if (row == null) {
+                // remember it, until the selection is invalidated
+                selection.addAbsent(filter);
+            }
         }
         return fragment;
     }
@@ -264,6 +271,39 @@ public class SelectionContext {
         return fragments;
     }
 
+    /**
+     * Reads from the mapper in one call the selections for the given ids for which complete information is not known.
+     *
+     * @param selIds the selection ids
+     * @since 2021.20
+     */
+    public void prefetchSelections(Collection<Serializable> selIds) {
+        Map<Serializable, List<Serializable>> todo = new HashMap<>();
+        for (Serializable selId : selIds) {
+            Selection selection = getSelectionOrNull(selId);
+            if (selection == null || !selection.isComplete()) {
+                todo.put(selId, new ArrayList<>());
+            }
+        }
+        if (todo.isEmpty()) {
+            return;
+        }
+        List<Row> rows = mapper.readSelectionsRows(selType, new ArrayList<>(todo.keySet()), criterion);
+        for (Fragment fragment : context.getFragmentsFromFetchedRows(rows, false)) {
+            Serializable selId = ((SimpleFragment) fragment).get(selType.selKey);
+            List<Serializable> ids = todo.get(selId);
+            if (ids != null) {
+                ids.add(fragment.getId());
+            }
+        }
+        for (Entry<Serializable, List<Serializable>> es : todo.entrySet()) {
+            Selection selection = getSelection(es.getKey());
+            if (!selection.isComplete()) {
+                selection.addExistingComplete(es.getValue());
+            }
+        }
+    }
+
     /**
      * Gets all the selection fragment ids for a given list of values.
      *
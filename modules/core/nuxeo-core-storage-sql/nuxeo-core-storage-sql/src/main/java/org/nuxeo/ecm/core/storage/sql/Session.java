@@ -223,6 +223,16 @@ public interface Session extends AutoCloseable {
      */
     List<Node> getChildren(Node parent, String name, boolean complexProp);
 
+    /**
+     * Fetches in bulk the children of several nodes, so that later children lookups on these nodes don't need to
+     * access the database.
+     *
+     * @param parentIds the parent node ids
+     * @param complexProp whether to fetch complex properties or regular children
+     * @since 2021.20
+     */
+    void prefetchChildren(Collection<Serializable> parentIds, boolean complexProp);
+
     /**
      * Creates a new child node.
      *
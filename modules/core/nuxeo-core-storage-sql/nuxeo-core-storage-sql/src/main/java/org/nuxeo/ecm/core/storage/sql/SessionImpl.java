@@ -841,6 +841,11 @@ public class SessionImpl implements Session {
         return nodes;
     }
 
+    @Override
+    public void prefetchChildren(Collection<Serializable> parentIds, boolean complexProp) {
+        context.prefetchChildren(parentIds, complexProp);
+    }
+
     @Override
     public void orderBefore(Node parent, Node source, Node dest) {
         context.orderBefore(parent.getId(), source.getId(), dest == null ? null : dest.getId());
@@ -0,0 +1,489 @@
+/*
+ * (C) Copyright 2021 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.storage.sql;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.nuxeo.ecm.core.storage.sql.ACLRow.ACLRowPositionComparator;
+import org.nuxeo.runtime.metrics.MetricsService;
+
+import io.dropwizard.metrics5.Counter;
+import io.dropwizard.metrics5.MetricName;
+import io.dropwizard.metrics5.MetricRegistry;
+import io.dropwizard.metrics5.SharedMetricRegistries;
+import io.dropwizard.metrics5.Timer;
+import io.dropwizard.metrics5.Timer.Context;
+
+/**
+ * A {@link RowMapper} that uses a {@link SharedRowCache} shared by all the sessions of the repository.
+ * <p>
+ * The cache only holds {@link Row}s that are known to be identical to what's committed in the underlying
+ * {@link RowMapper}: rows written by the current transaction are removed from the shared cache and are read from the
+ * underlying mapper until the transaction ends, the shared cache being invalidated again when the invalidations are
+ * sent at post-commit time.
+ *
+ * @since 2021.20
+ */
+public class SharedCachingRowMapper implements RowMapper {
+
+    protected SharedRowCache cache;
+
+    protected Model model;
+
+    /**
+     * The {@link RowMapper} to which operations that cannot be processed from the cache are delegated.
+     */
+    protected RowMapper rowMapper;
+
+    /**
+     * The local invalidations due to writes through this mapper that should be propagated to other sessions at
+     * post-commit time.
+     */
+    protected final VCSInvalidations localInvalidations;
+
+    /**
+     * The rows written by the current transaction, not visible to other sessions yet, that must bypass the cache.
+     */
+    protected final Set<RowId> dirtyRowIds = new HashSet<>();
+
+    /**
+     * The queue of invalidations received from other session or from the cluster invalidator, to process at
+     * pre-transaction time.
+     */
+    protected final VCSInvalidationsQueue invalidationsQueue;
+
+    /**
+     * The propagator of invalidations to other mappers.
+     */
+    protected VCSInvalidationsPropagator invalidationsPropagator;
+
+    protected final MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+
+    protected Counter cacheHitCount;
+
+    protected Timer cacheGetTimer;
+
+    // sor means system of record (database access)
+    protected Counter sorRows;
+
+    protected Timer sorGetTimer;
+
+    public SharedCachingRowMapper() {
+        localInvalidations = new VCSInvalidations();
+        invalidationsQueue = new VCSInvalidationsQueue("mapper-" + this);
+    }
+
+    public void initialize(String repositoryName, Model model, RowMapper rowMapper,
+            VCSInvalidationsPropagator invalidationsPropagator, Map<String, String> properties) {
+        this.model = model;
+        this.rowMapper = rowMapper;
+        this.invalidationsPropagator = invalidationsPropagator;
+        invalidationsPropagator.addQueue(invalidationsQueue);
+        cache = SharedRowCache.getCache(repositoryName, properties);
+        setMetrics(repositoryName);
+    }
+
+    protected void setMetrics(String repositoryName) {
+        cacheHitCount = registry.counter(
+                MetricName.build("nuxeo", "repositories", "repository", "cache", "shared", "sessions", "hit")
+                          .tagged("repository", repositoryName));
+        cacheGetTimer = registry.timer(
+                MetricName.build("nuxeo", "repositories", "repository", "cache", "shared", "sessions", "timer")
+                          .tagged("repository", repositoryName));
+        sorRows = registry.counter(
+                MetricName.build("nuxeo", "repositories", "repository", "cache", "shared", "sor", "rows")
+                          .tagged("repository", repositoryName));
+        sorGetTimer = registry.timer(
+                MetricName.build("nuxeo", "repositories", "repository", "cache", "shared", "sor", "timer")
+                          .tagged("repository", repositoryName));
+    }
+
+    public void close() {
+        invalidateDirtyRows();
+        invalidationsPropagator.removeQueue(invalidationsQueue);
+    }
+
+    @Override
+    public Serializable generateNewId() {
+        return rowMapper.generateNewId();
+    }
+
+    /*
+     * ----- Cache -----
+     */
+
+    protected static boolean isAbsent(Row row) {
+        return SharedRowCache.isAbsent(row);
+    }
+
+    protected void cachePut(Row row, long gen) {
+        if (dirtyRowIds.contains(row)) {
+            return;
+        }
+        // for ACL collections, make sure the order is correct
+        // (without the cache, the query to get a list of collection does an
+        // ORDER BY pos, so users of the cache must get the same behavior)
+        if (row.isCollection() && row.values.length > 0 && row.values[0] instanceof ACLRow) {
+            row = row.clone();
+            row.values = sortACLRows((ACLRow[]) row.values);
+        }
+        cache.putIfNotInvalidated(row, gen);
+    }
+
+    protected ACLRow[] sortACLRows(ACLRow[] acls) {
+        ACLRow[] res = acls.clone();
+        Arrays.sort(res, ACLRowPositionComparator.INSTANCE);
+        return res;
+    }
+
+    protected void cachePutAbsent(RowId rowId, long gen) {
+        if (dirtyRowIds.contains(rowId)) {
+            return;
+        }
+        cache.putAbsentIfNotInvalidated(rowId, gen);
+    }
+
+    protected void cachePutAbsentIfNull(RowId rowId, Row row, long gen) {
+        if (row != null) {
+            cachePut(row, gen);
+        } else {
+            cachePutAbsent(rowId, gen);
+        }
+    }
+
+    protected void cachePutAbsentIfRowId(RowId rowId, long gen) {
+        if (rowId instanceof Row) {
+            cachePut((Row) rowId, gen);
+        } else {
+            cachePutAbsent(rowId, gen);
+        }
+    }
+
+    @SuppressWarnings("resource") // Time.Context closed by stop()
+    protected Row cacheGet(RowId rowId) {
+        if (dirtyRowIds.contains(rowId)) {
+            return null;
+        }
+        final Context context = cacheGetTimer.time();
+        try {
+            Row row = cache.get(rowId);
+            if (row != null) {
+                cacheHitCount.inc();
+            }
+            return row;
+        } finally {
+            context.stop();
+        }
+    }
+
+    /**
+     * Marks a row as written by the current transaction.
+     */
+    protected void cacheRemoveDirty(RowId rowId) {
+        rowId = new RowId(rowId);
+        dirtyRowIds.add(rowId);
+        cache.invalidate(rowId);
+    }
+
+    protected void invalidateDirtyRows() {
+        for (RowId rowId : dirtyRowIds) {
+            cache.invalidate(rowId);
+        }
+        dirtyRowIds.clear();
+    }
+
+    /*
+     * ----- Invalidations / Cache Management -----
+     */
+
+    @Override
+    public VCSInvalidations receiveInvalidations() {
+        // invalidations from the underlying mapper (cluster)
+        // already propagated to our invalidations queue
+        VCSInvalidations remoteInvals = rowMapper.receiveInvalidations();
+
+        VCSInvalidations ret = invalidationsQueue.getInvalidations();
+
+        if (ret.all) {
+            clearCache();
+        } else if (remoteInvals != null) {
+            // invalidations from other local sessions have already been applied to the shared cache by the sender
+            if (remoteInvals.modified != null) {
+                remoteInvals.modified.forEach(cache::invalidate);
+            }
+            if (remoteInvals.deleted != null) {
+                remoteInvals.deleted.forEach(cache::invalidate);
+            }
+        }
+
+        return ret.isEmpty() ? null : ret;
+    }
+
+    // propagate invalidations
+    @Override
+    public void sendInvalidations(VCSInvalidations invalidations) {
+        // add local invalidations
+        if (!localInvalidations.isEmpty()) {
+            if (invalidations == null) {
+                invalidations = new VCSInvalidations();
+            }
+            invalidations.add(localInvalidations);
+            localInvalidations.clear();
+        }
+        // our writes are now visible to other sessions, remove what they may have cached meanwhile
+        invalidateDirtyRows();
+
+        if (invalidations != null && !invalidations.isEmpty()) {
+            // send to underlying mapper
+            rowMapper.sendInvalidations(invalidations);
+
+            // queue to other mappers' caches
+            invalidationsPropagator.propagateInvalidations(invalidations, invalidationsQueue);
+        }
+    }
+
+    @Override
+    public void clearCache() {
+        cache.invalidateAll();
+        dirtyRowIds.clear();
+        localInvalidations.clear();
+        rowMapper.clearCache();
+    }
+
+    @Override
+    public void rollback() {
+        try {
+            rowMapper.rollback();
+        } finally {
+            invalidateDirtyRows();
+            localInvalidations.clear();
+        }
+    }
+
+    /*
+     * ----- Batch -----
+     */
+
+    /*
+     * Use those from the cache if available, read from the mapper for the rest.
+     */
+    @Override
+    public List<? extends RowId> read(Collection<RowId> rowIds, boolean cacheOnly) {
+        List<RowId> res = new ArrayList<>(rowIds.size());
+        // find which are in cache, and which not
+        List<RowId> todo = new ArrayList<>();
+        for (RowId rowId : rowIds) {
+            Row row = cacheGet(rowId);
+            if (row == null) {
+                if (cacheOnly) {
+                    res.add(new RowId(rowId));
+                } else {
+                    todo.add(rowId);
+                }
+            } else if (isAbsent(row)) {
+                res.add(new RowId(rowId));
+            } else {
+                res.add(row);
+            }
+        }
+        if (!todo.isEmpty()) {
+            @SuppressWarnings("resource")
+            final Context context = sorGetTimer.time();
+            try {
+                long gen = cache.getGeneration();
+                // ask missing ones to underlying row mapper
+                List<? extends RowId> fetched = rowMapper.read(todo, cacheOnly);
+                // add them to the cache
+                for (RowId rowId : fetched) {
+                    cachePutAbsentIfRowId(rowId, gen);
+                }
+                // merge results
+                res.addAll(fetched);
+                sorRows.inc(fetched.size());
+            } finally {
+                context.stop();
+            }
+        }
+        return res;
+    }
+
+    /*
+     * Remove from the cache then pass all the writes to the mapper.
+     */
+    @Override
+    public void write(RowBatch batch) {
+        // we avoid gathering invalidations for a write-only table: fulltext
+        for (Row row : batch.creates) {
+            cacheRemoveDirty(row);
+            if (!Model.FULLTEXT_TABLE_NAME.equals(row.tableName)) {
+                // we need to send modified invalidations for created
+                // fragments because other session's ABSENT fragments have
+                // to be invalidated
+                localInvalidations.addModified(new RowId(row));
+            }
+        }
+        for (RowUpdate rowu : batch.updates) {
+            cacheRemoveDirty(rowu.row);
+            if (!Model.FULLTEXT_TABLE_NAME.equals(rowu.row.tableName)) {
+                localInvalidations.addModified(new RowId(rowu.row));
+            }
+        }
+        for (RowId rowId : batch.deletes) {
+            if (rowId instanceof Row) {
+                throw new AssertionError();
+            }
+            cacheRemoveDirty(rowId);
+            if (!Model.FULLTEXT_TABLE_NAME.equals(rowId.tableName)) {
+                localInvalidations.addDeleted(rowId);
+            }
+        }
+        for (RowId rowId : batch.deletesDependent) {
+            if (rowId instanceof Row) {
+                throw new AssertionError();
+            }
+            cacheRemoveDirty(rowId);
+            if (!Model.FULLTEXT_TABLE_NAME.equals(rowId.tableName)) {
+                localInvalidations.addDeleted(rowId);
+            }
+        }
+
+        // propagate to underlying mapper
+        rowMapper.write(batch);
+    }
+
+    /*
+     * ----- Read -----
+     */
+
+    @Override
+    public Row readSimpleRow(RowId rowId) {
+        Row row = cacheGet(rowId);
+        if (row == null) {
+            long gen = cache.getGeneration();
+            row = rowMapper.readSimpleRow(rowId);
+            cachePutAbsentIfNull(rowId, row, gen);
+            return row;
+        } else if (isAbsent(row)) {
+            return null;
+        } else {
+            return row;
+        }
+    }
+
+    @Override
+    public Map<String, String> getBinaryFulltext(RowId rowId) {
+        return rowMapper.getBinaryFulltext(rowId);
+    }
+
+    @Override
+    public Serializable[] readCollectionRowArray(RowId rowId) {
+        Row row = cacheGet(rowId);
+        if (row == null) {
+            long gen = cache.getGeneration();
+            Serializable[] array = rowMapper.readCollectionRowArray(rowId);
+            assert array != null;
+            row = new Row(rowId.tableName, rowId.id, array);
+            cachePut(row, gen);
+            return row.values;
+        } else if (isAbsent(row)) {
+            return null;
+        } else {
+            return row.values;
+        }
+    }
+
+    @Override
+    public List<Row> readSelectionRows(SelectionType selType, Serializable selId, Serializable filter,
+            Serializable criterion, boolean limitToOne) {
+        long gen = cache.getGeneration();
+        List<Row> rows = rowMapper.readSelectionRows(selType, selId, filter, criterion, limitToOne);
+        for (Row row : rows) {
+            cachePut(row, gen);
+        }
+        return rows;
+    }
+
+    @Override
+    public List<Row> readSelectionsRows(SelectionType selType, List<Serializable> selIds, Serializable criterion) {
+        long gen = cache.getGeneration();
+        List<Row> rows = rowMapper.readSelectionsRows(selType, selIds, criterion);
+        for (Row row : rows) {
+            cachePut(row, gen);
+        }
+        return rows;
+    }
+
+    @Override
+    public Set<Serializable> readSelectionsIds(SelectionType selType, List<Serializable> values) {
+        return rowMapper.readSelectionsIds(selType, values);
+    }
+
+    /*
+     * ----- Copy -----
+     */
+
+    @Override
+    public CopyResult copy(IdWithTypes source, Serializable destParentId, String destName, Row overwriteRow,
+            boolean excludeSpecialChildren, boolean excludeACL) {
+        CopyResult result = rowMapper.copy(source, destParentId, destName, overwriteRow, excludeSpecialChildren,
+                excludeACL);
+        VCSInvalidations invalidations = result.invalidations;
+        if (invalidations.modified != null) {
+            for (RowId rowId : invalidations.modified) {
+                cacheRemoveDirty(rowId);
+                localInvalidations.addModified(new RowId(rowId));
+            }
+        }
+        if (invalidations.deleted != null) {
+            for (RowId rowId : invalidations.deleted) {
+                cacheRemoveDirty(rowId);
+                localInvalidations.addDeleted(rowId);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<NodeInfo> getDescendantsInfo(Serializable rootId) {
+        return rowMapper.getDescendantsInfo(rootId);
+    }
+
+    @Override
+    public void remove(Serializable rootId, List<NodeInfo> nodeInfos) {
+        rowMapper.remove(rootId, nodeInfos);
+        for (NodeInfo info : nodeInfos) {
+            for (String fragmentName : model.getTypeFragments(new IdWithTypes(info))) {
+                RowId rowId = new RowId(fragmentName, info.id);
+                cacheRemoveDirty(rowId);
+                localInvalidations.addDeleted(rowId);
+            }
+        }
+    }
+
+    @Override
+    public long getCacheSize() {
+        // the shared cache is reported by its own gauges
+        return 0;
+    }
+
+}
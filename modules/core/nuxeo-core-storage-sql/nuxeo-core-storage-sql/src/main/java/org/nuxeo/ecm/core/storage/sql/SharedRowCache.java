@@ -0,0 +1,262 @@
+/*
+ * (C) Copyright 2021 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.storage.sql;
+
+import java.io.Serializable;
+import java.util.Calendar;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.runtime.metrics.MetricsService;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+
+import io.dropwizard.metrics5.Gauge;
+import io.dropwizard.metrics5.MetricName;
+import io.dropwizard.metrics5.MetricRegistry;
+import io.dropwizard.metrics5.SharedMetricRegistries;
+
+/**
+ * A row cache shared by all the {@link SharedCachingRowMapper}s of a repository.
+ * <p>
+ * The cache is a concurrent, lock-striped, cache bounded by the estimated size in bytes of the rows it holds, the rows
+ * are strongly referenced and evicted on a least-recently-used basis when the maximum size is reached.
+ * <p>
+ * As the cache is not transactional, a row read from the database is only put in the cache if no invalidation happened
+ * while it was read, see {@link #getGeneration}.
+ *
+ * @since 2021.20
+ */
+public class SharedRowCache {
+
+    private static final Logger log = LogManager.getLogger(SharedRowCache.class);
+
+    /** Property of the caching mapper holding the maximum size of the cache, in bytes. */
+    public static final String MAX_SIZE_PROP = "maxSize";
+
+    /** Property of the caching mapper holding the number of segments of the cache. */
+    public static final String CONCURRENCY_LEVEL_PROP = "concurrencyLevel";
+
+    public static final long DEFAULT_MAX_SIZE = 256L * 1024 * 1024;
+
+    public static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+    protected static final String ABSENT = "__ABSENT__\0\0\0";
+
+    protected static final Map<String, SharedRowCache> CACHES = new ConcurrentHashMap<>();
+
+    // rough estimates of the memory used by the JVM, for a 64-bit JVM with compressed oops
+    protected static final int OBJECT_OVERHEAD = 16;
+
+    protected static final int REFERENCE_SIZE = 4;
+
+    protected static final int ROW_OVERHEAD = 64;
+
+    protected static final int CALENDAR_SIZE = 448;
+
+    protected final String repositoryName;
+
+    protected final Cache<RowId, Row> cache;
+
+    /** Incremented on each invalidation, used to detect invalidations concurrent to a database read. */
+    protected final AtomicLong generation = new AtomicLong();
+
+    protected final MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+
+    protected final MetricName metricName;
+
+    protected SharedRowCache(String repositoryName, long maxSize, int concurrencyLevel) {
+        this.repositoryName = repositoryName;
+        cache = CacheBuilder.newBuilder()
+                            .maximumWeight(maxSize)
+                            .weigher((Weigher<RowId, Row>) (rowId, row) -> estimateSize(row))
+                            .concurrencyLevel(concurrencyLevel)
+                            .recordStats()
+                            .build();
+        metricName = MetricName.build("nuxeo", "repositories", "repository", "cache", "shared")
+                               .tagged("repository", repositoryName);
+        registerMetrics();
+    }
+
+    /**
+     * Gets the cache of the given repository, creating it if needed using the caching mapper properties.
+     */
+    public static SharedRowCache getCache(String repositoryName, Map<String, String> properties) {
+        return CACHES.computeIfAbsent(repositoryName, name -> {
+            long maxSize = getLong(properties, MAX_SIZE_PROP, DEFAULT_MAX_SIZE);
+            int concurrencyLevel = (int) getLong(properties, CONCURRENCY_LEVEL_PROP, DEFAULT_CONCURRENCY_LEVEL);
+            log.info("Creating VCS shared row cache for repository: {}, maxSize: {} bytes, concurrencyLevel: {}", name,
+                    maxSize, concurrencyLevel);
+            return new SharedRowCache(name, maxSize, concurrencyLevel);
+        });
+    }
+
+    /**
+     * Removes the cache of the given repository, if any.
+     */
+    public static void removeCache(String repositoryName) {
+        SharedRowCache cache = CACHES.remove(repositoryName);
+        if (cache != null) {
+            cache.invalidateAll();
+            cache.unregisterMetrics();
+        }
+    }
+
+    protected static long getLong(Map<String, String> properties, String key, long defaultValue) {
+        String value = properties == null ? null : properties.get(key);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            log.error("Invalid value for VCS shared row cache property: {}: {}, using: {}", key, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    protected void registerMetrics() {
+        unregisterMetrics();
+        registerGauge(() -> cache.size(), "size");
+        registerGauge(() -> cache.stats().hitCount(), "hit", "count");
+        registerGauge(() -> cache.stats().hitRate(), "hit", "ratio");
+        registerGauge(() -> cache.stats().missCount(), "miss", "count");
+        registerGauge(() -> cache.stats().evictionCount(), "eviction", "count");
+    }
+
+    protected void registerGauge(Gauge<?> gauge, String... names) {
+        registry.register(metricName.resolve(String.join(".", names)), gauge);
+    }
+
+    protected void unregisterMetrics() {
+        String prefix = metricName.getKey();
+        registry.removeMatching((name, metric) -> name.getKey().startsWith(prefix)
+                && repositoryName.equals(name.getTags().get("repository")));
+    }
+
+    /**
+     * Gets the current invalidation generation, to be passed to {@link #putIfNotInvalidated}.
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Gets a copy of the cached row, or an absent row (see {@link #isAbsent}), or {@code null} if not in the cache.
+     */
+    public Row get(RowId rowId) {
+        Row row = cache.getIfPresent(rowId);
+        if (row != null && !isAbsent(row)) {
+            row = row.clone();
+        }
+        return row;
+    }
+
+    /**
+     * Puts a copy of the row in the cache, unless an invalidation happened since the given generation was read.
+     */
+    public void putIfNotInvalidated(Row row, long gen) {
+        RowId rowId = new RowId(row);
+        cache.put(rowId, row.clone());
+        recheck(rowId, gen);
+    }
+
+    /**
+     * Puts an absent row in the cache, unless an invalidation happened since the given generation was read.
+     */
+    public void putAbsentIfNotInvalidated(RowId rowId, long gen) {
+        rowId = new RowId(rowId);
+        cache.put(rowId, new Row(ABSENT, (Serializable) null));
+        recheck(rowId, gen);
+    }
+
+    protected void recheck(RowId rowId, long gen) {
+        // an invalidation may have raced with the database read, in which case the row may be stale
+        if (generation.get() != gen) {
+            cache.invalidate(rowId);
+        }
+    }
+
+    public void invalidate(RowId rowId) {
+        generation.incrementAndGet();
+        cache.invalidate(rowId);
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    /**
+     * Gets the number of cached rows.
+     */
+    public long size() {
+        return cache.size();
+    }
+
+    public static boolean isAbsent(Row row) {
+        return row.tableName == ABSENT; // == is ok
+    }
+
+    /**
+     * Estimates the memory used by a row.
+     */
+    protected static int estimateSize(Row row) {
+        long size = ROW_OVERHEAD + estimateSize(row.id);
+        if (row.values != null) {
+            size += OBJECT_OVERHEAD + (long) REFERENCE_SIZE * row.values.length;
+            for (Serializable value : row.values) {
+                size += estimateSize(value);
+            }
+        }
+        if (row.keys != null) {
+            // keys are interned model strings, only count the array
+            size += OBJECT_OVERHEAD + (long) REFERENCE_SIZE * row.keys.length;
+        }
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    protected static long estimateSize(Object value) {
+        if (value == null) {
+            return 0;
+        } else if (value instanceof String) {
+            return 2 * OBJECT_OVERHEAD + ((String) value).length();
+        } else if (value instanceof Calendar) {
+            return CALENDAR_SIZE;
+        } else if (value instanceof ACLRow) {
+            ACLRow acl = (ACLRow) value;
+            return OBJECT_OVERHEAD + 10 * REFERENCE_SIZE + estimateSize(acl.name) + estimateSize(acl.permission)
+                    + estimateSize(acl.user) + estimateSize(acl.group) + estimateSize(acl.creator)
+                    + estimateSize(acl.begin) + estimateSize(acl.end);
+        } else if (value instanceof Object[]) {
+            Object[] array = (Object[]) value;
+            long size = OBJECT_OVERHEAD + (long) REFERENCE_SIZE * array.length;
+            for (Object v : array) {
+                size += estimateSize(v);
+            }
+            return size;
+        } else {
+            // Long, Double, Boolean, and other small values
+            return OBJECT_OVERHEAD + 8;
+        }
+    }
+
+}
@@ -413,6 +413,15 @@ public class SoftRefCachingRowMapper implements RowMapper {
         return rows;
     }
 
+    @Override
+    public List<Row> readSelectionsRows(SelectionType selType, List<Serializable> selIds, Serializable criterion) {
+        List<Row> rows = rowMapper.readSelectionsRows(selType, selIds, criterion);
+        for (Row row : rows) {
+            cachePut(row);
+        }
+        return rows;
+    }
+
     @Override
     public Set<Serializable> readSelectionsIds(SelectionType selType, List<Serializable> values) {
         return rowMapper.readSelectionsIds(selType, values);
@@ -90,17 +90,29 @@ public class SQLSession extends BaseSession {
      */
     public static final String COPY_FINDFREENAME_DISABLED_PROP = "nuxeo.vcs.copy.findFreeName.disabled";
 
+    /**
+     * Framework property to fetch at once the complex properties of all the children listed by
+     * {@link #getChildren(Node)}. This saves a query per child when the callers read their complex properties, but reads
+     * them needlessly otherwise.
+     *
+     * @since 2021.20
+     */
+    public static final String CHILDREN_PREFETCH_PROP = "nuxeo.vcs.children.prefetch";
+
     private final SessionImpl session;
 
     private final boolean negativeAclAllowed;
 
     private final boolean copyFindFreeNameDisabled;
 
+    private final boolean childrenPrefetch;
+
     public SQLSession(SessionImpl session, Repository repository) {
         super(repository);
         this.session = session;
         negativeAclAllowed = Framework.isBooleanPropertyTrue(ALLOW_NEGATIVE_ACL_PROPERTY);
         copyFindFreeNameDisabled = Framework.isBooleanPropertyTrue(COPY_FINDFREENAME_DISABLED_PROP);
+        childrenPrefetch = Framework.isBooleanPropertyTrue(CHILDREN_PREFETCH_PROP);
     }
 
     /*
@@ -543,6 +555,14 @@ public class SQLSession extends BaseSession {
 
     protected List<Document> getChildren(Node node) {
         List<Node> nodes = session.getChildren(node, null, false);
+        if (childrenPrefetch && nodes.size() > 1) {
+            // the callers read the complex properties of all the children, fetch them at once
+            List<Serializable> ids = new ArrayList<>(nodes.size());
+            for (Node n : nodes) {
+                ids.add(n.getId());
+            }
+            session.prefetchChildren(ids, true);
+        }
         List<Document> children = new ArrayList<>(nodes.size());
         for (Node n : nodes) {
             try {
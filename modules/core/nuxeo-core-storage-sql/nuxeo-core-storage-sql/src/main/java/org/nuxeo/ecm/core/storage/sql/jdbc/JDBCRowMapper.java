@@ -78,6 +78,28 @@ public class JDBCRowMapper extends JDBCConnection implements RowMapper {
     /** Property to determine whether collection appends delete all then re-insert, or are optimized for append. */
     public static final String COLLECTION_DELETE_BEFORE_APPEND_PROP = "org.nuxeo.vcs.list-delete-before-append";
 
+    /**
+     * Property to enable bulk inserts of simple fragment rows, through the native bulk load of the database if available
+     * (PostgreSQL {@code COPY}) or multi-row {@code INSERT} statements.
+     *
+     * @since 2021.20
+     */
+    public static final String BULK_INSERT_PROP = "org.nuxeo.vcs.bulk-insert";
+
+    /**
+     * Minimum number of rows for a table to use bulk inserts.
+     *
+     * @since 2021.20
+     */
+    public static final int BULK_INSERT_MIN_ROWS = 10;
+
+    /**
+     * Maximum number of rows inserted by a single multi-row {@code INSERT} statement.
+     *
+     * @since 2021.20
+     */
+    public static final int BULK_INSERT_MAX_ROWS = 1000;
+
     /**
      * Cluster invalidator, or {@code null} if this mapper does not participate in invalidation propagation (cluster
      * invalidator, lock manager).
@@ -88,6 +110,8 @@ public class JDBCRowMapper extends JDBCConnection implements RowMapper {
 
     private final boolean collectionDeleteBeforeAppend;
 
+    private final boolean bulkInsert;
+
     private final CollectionIO aclCollectionIO;
 
     private final CollectionIO scalarCollectionIO;
@@ -99,6 +123,7 @@ public class JDBCRowMapper extends JDBCConnection implements RowMapper {
         this.invalidationsPropagator = invalidationsPropagator;
         ConfigurationService configurationService = Framework.getService(ConfigurationService.class);
         collectionDeleteBeforeAppend = configurationService.isBooleanTrue(COLLECTION_DELETE_BEFORE_APPEND_PROP);
+        bulkInsert = configurationService.isBooleanTrue(BULK_INSERT_PROP);
         aclCollectionIO = new ACLCollectionIO(collectionDeleteBeforeAppend);
         scalarCollectionIO = new ScalarCollectionIO(collectionDeleteBeforeAppend);
     }
@@ -506,9 +531,18 @@ public class JDBCRowMapper extends JDBCConnection implements RowMapper {
         if (sql == null) {
             throw new NuxeoException("Unknown table: " + tableName);
         }
+        List<Column> columns = sqlInfo.getInsertColumns(tableName);
+        if (bulkInsert && rows.size() >= BULK_INSERT_MIN_ROWS && !columns.isEmpty()) {
+            if (dialect.supportsCopyInsert(columns)) {
+                copyInsertSimpleRows(columns, rows);
+                return;
+            } else if (dialect.supportsMultiRowInsert()) {
+                multiRowInsertSimpleRows(columns, rows);
+                return;
+            }
+        }
         boolean batched = supportsBatchUpdates && rows.size() > 1;
         String loggedSql = batched ? sql + " -- BATCHED" : sql;
-        List<Column> columns = sqlInfo.getInsertColumns(tableName);
         try (PreparedStatement ps = connection.prepareStatement(sql)) {
             int batch = 0;
             for (Iterator<Row> rowIt = rows.iterator(); rowIt.hasNext();) {
@@ -545,6 +579,63 @@ public class JDBCRowMapper extends JDBCConnection implements RowMapper {
         }
     }
 
+    /**
+     * Inserts multiple rows, all for the same table, using the native bulk load of the database.
+     *
+     * @since 2021.20
+     */
+    protected void copyInsertSimpleRows(List<Column> columns, List<Row> rows) {
+        List<Serializable[]> values = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            Serializable[] rowValues = new Serializable[columns.size()];
+            int i = 0;
+            for (Column column : columns) {
+                rowValues[i++] = row.get(column.getKey());
+            }
+            values.add(rowValues);
+        }
+        if (logger.isLogEnabled()) {
+            logger.log("COPY " + columns.get(0).getTable().getQuotedName() + " -- " + rows.size() + " rows");
+        }
+        try {
+            dialect.copyInsert(connection, columns, values);
+            countExecute();
+        } catch (SQLException e) {
+            checkConcurrentUpdate(e);
+            throw new NuxeoException("Could not copy into: " + columns.get(0).getTable().getQuotedName(), e);
+        }
+    }
+
+    /**
+     * Inserts multiple rows, all for the same table, using multi-row {@code INSERT} statements.
+     *
+     * @since 2021.20
+     */
+    protected void multiRowInsertSimpleRows(List<Column> columns, List<Row> rows) {
+        int maxRows = Math.max(1, Math.min(BULK_INSERT_MAX_ROWS, dialect.getMaxBindParameters() / columns.size()));
+        String sql = null;
+        for (int start = 0; start < rows.size(); start += maxRows) {
+            List<Row> chunk = rows.subList(start, Math.min(start + maxRows, rows.size()));
+            sql = dialect.getMultiRowInsertSql(columns, chunk.size());
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                int i = 1;
+                for (Row row : chunk) {
+                    if (logger.isLogEnabled()) {
+                        logger.logSQL(sql, columns, row);
+                    }
+                    for (Column column : columns) {
+                        column.setToPreparedStatement(ps, i++, row.get(column.getKey()));
+                    }
+                }
+                ps.execute();
+                countExecute();
+            } catch (SQLException e) {
+                checkConcurrentUpdate(e);
+                throw new NuxeoException("Could not insert: " + sql, e);
+            }
+        }
+    }
+
     /**
      * Updates multiple collection rows, all for the same table.
      */
@@ -949,6 +1040,28 @@ public class JDBCRowMapper extends JDBCConnection implements RowMapper {
         return ids;
     }
 
+    @Override
+    public List<Row> readSelectionsRows(SelectionType selType, List<Serializable> selIds, Serializable criterion) {
+        SQLInfoSelection selInfo = sqlInfo.getSelection(selType);
+        List<Row> rows = new ArrayList<>();
+        int size = selIds.size();
+        int chunkSize = sqlInfo.getMaximumArgsForIn();
+        for (int start = 0; start < size; start += chunkSize) {
+            int end = Math.min(start + chunkSize, size);
+            // needs to be Serializable -> copy
+            List<Serializable> chunkTodo = new ArrayList<>(selIds.subList(start, end));
+            Map<String, Serializable> criteriaMap = new HashMap<>();
+            criteriaMap.put(selType.selKey, (Serializable) chunkTodo);
+            if (selType.criterionKey != null) {
+                criteriaMap.put(selType.criterionKey, criterion);
+            }
+            SQLInfoSelect select = selInfo.getSelectSelectionsRows(chunkTodo.size());
+            // the selection id of each row is read from the result set
+            rows.addAll(getSelectRows(selType.tableName, select, criteriaMap, null, false));
+        }
+        return rows;
+    }
+
     @Override
     public CopyResult copy(IdWithTypes source, Serializable destParentId, String destName, Row overwriteRow,
             boolean excludeSpecialChildren, boolean excludeACL) {
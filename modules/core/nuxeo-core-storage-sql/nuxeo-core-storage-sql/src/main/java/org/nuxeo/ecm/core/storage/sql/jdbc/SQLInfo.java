@@ -1230,6 +1230,54 @@ public class SQLInfo {
             return new SQLInfoSelect(select.getStatement(), Collections.singletonList(whatColumn),
                     Collections.singletonList(whereColumn), null);
         }
+
+        /**
+         * Select all the rows of multiple selections, the selection id being returned with each row.
+         *
+         * @since 2021.20
+         */
+        public SQLInfoSelect getSelectSelectionsRows(int nids) {
+            Table table = database.getTable(type.tableName);
+            String from = table.getQuotedName();
+            List<String> wheres = new LinkedList<>();
+            if (!type.tableName.equals(Model.HIER_TABLE_NAME)) {
+                Table hierTable = database.getTable(Model.HIER_TABLE_NAME);
+                Join join = new Join(Join.INNER, hierTable.getQuotedName(), null, null,
+                        hierTable.getColumn(Model.MAIN_KEY), table.getColumn(Model.MAIN_KEY));
+                from += join.toSql(dialect);
+                String clause = getSoftDeleteClause();
+                if (clause != null) {
+                    wheres.add(clause);
+                }
+            }
+            List<Column> whatColumns = new LinkedList<>();
+            List<Column> opaqueColumns = new LinkedList<>();
+            List<String> whats = new LinkedList<>();
+            for (Column column : table.getColumns()) {
+                if (column.isOpaque()) {
+                    opaqueColumns.add(column);
+                } else {
+                    whatColumns.add(column);
+                    whats.add(column.getFullQuotedName());
+                }
+            }
+            List<Column> whereColumns = new LinkedList<>();
+            Column selColumn = table.getColumn(type.selKey);
+            whereColumns.add(selColumn);
+            wheres.add(selColumn.getFullQuotedName() + " IN (" + String.join(", ", Collections.nCopies(nids, "?"))
+                    + ")");
+            if (type.criterionKey != null) {
+                Column criterionColumn = table.getColumn(type.criterionKey);
+                whereColumns.add(criterionColumn);
+                wheres.add(criterionColumn.getFullQuotedName() + " = ?");
+            }
+            Select select = new Select(table);
+            select.setWhat(String.join(", ", whats));
+            select.setFrom(from);
+            select.setWhere(String.join(" AND ", wheres) + getSoftDeleteClause(table.getKey()));
+            return new SQLInfoSelect(select.getStatement(), whatColumns, whereColumns,
+                    opaqueColumns.isEmpty() ? null : opaqueColumns);
+        }
     }
 
     /**
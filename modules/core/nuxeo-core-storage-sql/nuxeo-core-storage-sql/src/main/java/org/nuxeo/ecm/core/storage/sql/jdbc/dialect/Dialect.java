@@ -1369,6 +1369,79 @@ public abstract class Dialect {
         return true;
     }
 
+    /**
+     * Does the dialect support multi-row inserts: {@code INSERT INTO foo (a, b) VALUES (?, ?), (?, ?)}.
+     *
+     * @since 2021.20
+     */
+    public boolean supportsMultiRowInsert() {
+        return false;
+    }
+
+    /**
+     * Gets the maximum number of bind parameters allowed in a single statement, used to size multi-row inserts.
+     *
+     * @since 2021.20
+     */
+    public int getMaxBindParameters() {
+        return 1000;
+    }
+
+    /**
+     * Gets the statement to insert several rows at once in the table of the given columns.
+     *
+     * @param columns the insert columns, all belonging to the same table
+     * @param rowCount the number of rows
+     * @return the SQL statement
+     * @since 2021.20
+     */
+    public String getMultiRowInsertSql(List<Column> columns, int rowCount) {
+        List<String> names = new ArrayList<>(columns.size());
+        List<String> values = new ArrayList<>(columns.size());
+        for (Column column : columns) {
+            names.add(column.getQuotedName());
+            values.add(column.getFreeVariableSetter());
+        }
+        String rowValues = '(' + String.join(", ", values) + ')';
+        StringBuilder sb = new StringBuilder(128 + rowCount * (rowValues.length() + 2));
+        sb.append("INSERT INTO ");
+        sb.append(columns.get(0).getTable().getQuotedName());
+        sb.append(" (");
+        sb.append(String.join(", ", names));
+        sb.append(") VALUES ");
+        for (int i = 0; i < rowCount; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(rowValues);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Does the dialect support a native bulk load of rows having the given columns, see
+     * {@link #copyInsert(Connection, List, List)}.
+     *
+     * @since 2021.20
+     */
+    public boolean supportsCopyInsert(List<Column> columns) {
+        return false;
+    }
+
+    /**
+     * Inserts rows using the native bulk load of the database.
+     *
+     * @param connection the connection
+     * @param columns the insert columns, all belonging to the same table
+     * @param rows the values of the rows, in the order of the columns
+     * @return the number of inserted rows
+     * @since 2021.20
+     */
+    public long copyInsert(Connection connection, List<Column> columns, List<Serializable[]> rows)
+            throws SQLException {
+        throw new UnsupportedOperationException();
+    }
+
     /**
      * Registers return parameters.
      * <p>
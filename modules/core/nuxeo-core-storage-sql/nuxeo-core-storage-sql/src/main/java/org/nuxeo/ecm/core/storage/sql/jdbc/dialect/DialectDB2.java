@@ -200,6 +200,11 @@ public class DialectDB2 extends Dialect {
         return false;
     }
 
+    @Override
+    public boolean supportsMultiRowInsert() {
+        return true;
+    }
+
     // check
     // http://www.channeldb2.com/profiles/blogs/porting-limit-and-offset
     // http://programmingzen.com/2010/06/02/enabling-limit-and-offset-in-db2-9-7-2/
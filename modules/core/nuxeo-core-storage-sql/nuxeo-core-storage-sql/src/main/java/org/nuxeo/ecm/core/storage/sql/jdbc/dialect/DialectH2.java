@@ -372,6 +372,11 @@ public class DialectH2 extends Dialect {
         return true;
     }
 
+    @Override
+    public boolean supportsMultiRowInsert() {
+        return true;
+    }
+
     @Override
     public String addPagingClause(String sql, long limit, long offset) {
         return sql + String.format(" LIMIT %d OFFSET %d", limit, offset);
@@ -501,6 +501,16 @@ public class DialectMySQL extends Dialect {
         return true;
     }
 
+    @Override
+    public boolean supportsMultiRowInsert() {
+        return true;
+    }
+
+    @Override
+    public int getMaxBindParameters() {
+        return 65535;
+    }
+
     @Override
     public String addPagingClause(String sql, long limit, long offset) {
         return sql + String.format(" LIMIT %d OFFSET %d", limit, offset);
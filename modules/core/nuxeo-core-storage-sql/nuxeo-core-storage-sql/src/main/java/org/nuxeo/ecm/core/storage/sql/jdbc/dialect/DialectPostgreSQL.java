@@ -19,7 +19,11 @@
  */
 package org.nuxeo.ecm.core.storage.sql.jdbc.dialect;
 
+import java.io.Reader;
 import java.io.Serializable;
+import java.io.StringReader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.sql.Array;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
@@ -31,6 +35,7 @@ import java.sql.Timestamp;
 import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Calendar;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -67,6 +72,7 @@ import org.nuxeo.ecm.core.storage.sql.jdbc.db.Join;
 import org.nuxeo.ecm.core.storage.sql.jdbc.db.Table;
 import org.nuxeo.ecm.core.storage.sql.jdbc.db.TableAlias;
 import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.datasource.ConnectionHelper;
 
 /**
  * PostgreSQL-specific dialect.
@@ -120,6 +126,12 @@ public class DialectPostgreSQL extends Dialect {
 
     protected String idSequenceName;
 
+    protected Class<?> pgConnectionClass;
+
+    protected Method pgConnectionGetCopyAPI;
+
+    protected Method copyManagerCopyIn;
+
     public DialectPostgreSQL(DatabaseMetaData metadata, RepositoryDescriptor repositoryDescriptor) {
         super(metadata, repositoryDescriptor);
         fulltextAnalyzer = repositoryDescriptor == null ? null
@@ -173,6 +185,22 @@ public class DialectPostgreSQL extends Dialect {
         } catch (SQLException e) {
             throw new NuxeoException(e);
         }
+        initCopyReflection();
+    }
+
+    // use reflection to avoid linking dependencies
+    private void initCopyReflection() {
+        try {
+            pgConnectionClass = Class.forName("org.postgresql.PGConnection");
+            pgConnectionGetCopyAPI = pgConnectionClass.getMethod("getCopyAPI");
+            Class<?> copyManagerClass = Class.forName("org.postgresql.copy.CopyManager");
+            copyManagerCopyIn = copyManagerClass.getMethod("copyIn", String.class, Reader.class);
+        } catch (ClassNotFoundException e) {
+            // query syntax unit test run without PostgreSQL JDBC driver
+            pgConnectionClass = null;
+        } catch (ReflectiveOperationException e) {
+            throw new NuxeoException(e);
+        }
     }
 
     protected boolean getCompatibilityFulltextTable(DatabaseMetaData metadata) throws SQLException {
@@ -1303,6 +1331,127 @@ public class DialectPostgreSQL extends Dialect {
         return true;
     }
 
+    @Override
+    public boolean supportsMultiRowInsert() {
+        return true;
+    }
+
+    @Override
+    public int getMaxBindParameters() {
+        return Short.MAX_VALUE;
+    }
+
+    @Override
+    public boolean supportsCopyInsert(List<Column> columns) {
+        if (pgConnectionClass == null) {
+            return false;
+        }
+        for (Column column : columns) {
+            // COPY cannot apply an expression to the value, like the fulltext conversion
+            if (!"?".equals(column.getFreeVariableSetter())) {
+                return false;
+            }
+            int jdbcType = column.getJdbcType();
+            if (jdbcType == Types.ARRAY) {
+                jdbcType = column.getJdbcBaseType();
+            }
+            switch (jdbcType) {
+            case Types.VARCHAR:
+            case Types.CLOB:
+            case Types.BIT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+            case Types.DOUBLE:
+            case Types.TIMESTAMP:
+                break;
+            case Types.OTHER:
+                if (!column.getType().isId()) {
+                    return false;
+                }
+                break;
+            default:
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Inserts rows using {@code COPY ... FROM STDIN} in CSV format, the values are written using the same
+     * representation as the one used by the JDBC driver for the corresponding {@link PreparedStatement} setters.
+     */
+    @SuppressWarnings("resource") // connection not ours to close
+    @Override
+    public long copyInsert(Connection connection, List<Column> columns, List<Serializable[]> rows)
+            throws SQLException {
+        String names = columns.stream().map(Column::getQuotedName).collect(Collectors.joining(", "));
+        String sql = String.format("COPY %s (%s) FROM STDIN WITH (FORMAT csv)",
+                columns.get(0).getTable().getQuotedName(), names);
+        StringBuilder sb = new StringBuilder(rows.size() * columns.size() * 16);
+        for (Serializable[] row : rows) {
+            for (int i = 0; i < row.length; i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                appendCopyValue(sb, row[i]);
+            }
+            sb.append('\n');
+        }
+        Connection pgConnection = ConnectionHelper.unwrap(connection);
+        try {
+            Object copyManager = pgConnectionGetCopyAPI.invoke(pgConnection.unwrap(pgConnectionClass));
+            return ((Long) copyManagerCopyIn.invoke(copyManager, sql, new StringReader(sb.toString()))).longValue();
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw new SQLException(e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new SQLException(e);
+        }
+    }
+
+    /**
+     * Appends a CSV value, {@code null} being an unquoted empty value.
+     */
+    protected void appendCopyValue(StringBuilder sb, Serializable value) {
+        if (value == null) {
+            return;
+        }
+        sb.append('"');
+        if (value instanceof Object[]) {
+            // array literal: {"a","b",NULL}
+            sb.append('{');
+            Object[] array = (Object[]) value;
+            for (int i = 0; i < array.length; i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                if (array[i] == null) {
+                    sb.append("NULL");
+                } else {
+                    String element = getCopyString(array[i]).replace("\\", "\\\\").replace("\"", "\\\"");
+                    sb.append("\"\"").append(element.replace("\"", "\"\"")).append("\"\"");
+                }
+            }
+            sb.append('}');
+        } else {
+            sb.append(getCopyString(value).replace("\"", "\"\""));
+        }
+        sb.append('"');
+    }
+
+    protected String getCopyString(Object value) {
+        if (value instanceof Calendar) {
+            // same default timezone representation as setTimestamp
+            return getTimestampFromCalendar((Calendar) value).toString();
+        } else if (value instanceof Boolean) {
+            return ((Boolean) value).booleanValue() ? "t" : "f";
+        }
+        return value.toString();
+    }
+
     @Override
     public String addPagingClause(String sql, long limit, long offset) {
         return sql + String.format(" LIMIT %d OFFSET %d", limit, offset);
@@ -157,6 +157,17 @@ public class DialectSQLServer extends Dialect {
         return (majorVersion >= 11);
     }
 
+    @Override
+    public boolean supportsMultiRowInsert() {
+        return true;
+    }
+
+    @Override
+    public int getMaxBindParameters() {
+        // hard limit is 2100, and 1000 rows for a table value constructor
+        return 2000;
+    }
+
     @Override
     public String addPagingClause(String sql, long limit, long offset) {
         if (!sql.contains("ORDER")) {
@@ -0,0 +1,644 @@
+/*
+ * (C) Copyright 2021 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.storage;
+
+import static java.lang.Boolean.FALSE;
+import static java.lang.Boolean.TRUE;
+import static org.nuxeo.ecm.core.api.trash.TrashService.Feature.TRASHED_STATE_IN_MIGRATION;
+import static org.nuxeo.ecm.core.api.trash.TrashService.Feature.TRASHED_STATE_IS_DEDICATED_PROPERTY;
+import static org.nuxeo.ecm.core.api.trash.TrashService.Feature.TRASHED_STATE_IS_DEDUCED_FROM_LIFECYCLE;
+import static org.nuxeo.ecm.core.storage.ExpressionEvaluator.DATE_CAST;
+import static org.nuxeo.ecm.core.storage.ExpressionEvaluator.NXQL_ECM_ANCESTOR_IDS;
+import static org.nuxeo.ecm.core.storage.ExpressionEvaluator.NXQL_ECM_FULLTEXT_BINARY;
+import static org.nuxeo.ecm.core.storage.ExpressionEvaluator.NXQL_ECM_FULLTEXT_SIMPLE;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntPredicate;
+import java.util.regex.Pattern;
+
+import org.nuxeo.ecm.core.api.LifeCycleConstants;
+import org.nuxeo.ecm.core.api.trash.TrashService;
+import org.nuxeo.ecm.core.query.QueryParseException;
+import org.nuxeo.ecm.core.query.sql.NXQL;
+import org.nuxeo.ecm.core.query.sql.model.Expression;
+import org.nuxeo.ecm.core.query.sql.model.Function;
+import org.nuxeo.ecm.core.query.sql.model.IntegerLiteral;
+import org.nuxeo.ecm.core.query.sql.model.Literal;
+import org.nuxeo.ecm.core.query.sql.model.LiteralList;
+import org.nuxeo.ecm.core.query.sql.model.MultiExpression;
+import org.nuxeo.ecm.core.query.sql.model.Operand;
+import org.nuxeo.ecm.core.query.sql.model.Operator;
+import org.nuxeo.ecm.core.query.sql.model.Predicate;
+import org.nuxeo.ecm.core.query.sql.model.Reference;
+import org.nuxeo.ecm.core.query.sql.model.StringLiteral;
+import org.nuxeo.ecm.core.storage.ExpressionEvaluator.CompiledOperand;
+import org.nuxeo.runtime.api.Framework;
+
+/**
+ * Compiles an {@link Expression} into a tree of {@link CompiledOperand}s, to be evaluated many times by an
+ * {@link ExpressionEvaluator}.
+ * <p>
+ * The compiled tree has the same semantics (ternary logic, errors) as the expression walked by the evaluator, but the
+ * dispatch on operators and operands, the evaluation of literals, the conversion of LIKE patterns to regexps, the
+ * resolution of paths and the configuration lookups are done once instead of for each evaluation. References are
+ * compiled by the evaluator, see {@link ExpressionEvaluator#compileReference}.
+ * <p>
+ * References are compiled in the same order as they are walked by the evaluator.
+ *
+ * @since 2021.20
+ */
+public class ExpressionCompiler {
+
+    protected final ExpressionEvaluator evaluator;
+
+    public ExpressionCompiler(ExpressionEvaluator evaluator) {
+        this.evaluator = evaluator;
+    }
+
+    /**
+     * A constant operand, used to specialize the operators having a literal argument.
+     */
+    protected static class Constant implements CompiledOperand {
+
+        protected final Object value;
+
+        protected Constant(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public Object evaluate() {
+            return value;
+        }
+    }
+
+    /**
+     * The id of a path, resolved at the first evaluation.
+     */
+    protected class PathId {
+
+        protected final String path;
+
+        protected boolean resolved;
+
+        protected String id;
+
+        protected PathId(String path) {
+            this.path = path;
+        }
+
+        protected String get() {
+            if (!resolved) {
+                id = evaluator.pathResolver.getIdForPath(path);
+                resolved = true;
+            }
+            return id;
+        }
+    }
+
+    /**
+     * A LIKE pattern converted once to a regexp.
+     */
+    protected class LikeMatcher {
+
+        protected final Pattern pattern;
+
+        protected final boolean caseInsensitive;
+
+        protected LikeMatcher(String like, boolean caseInsensitive) {
+            this.caseInsensitive = caseInsensitive;
+            pattern = Pattern.compile(ExpressionEvaluator.likeToRegex(caseInsensitive ? like.toLowerCase() : like));
+        }
+
+        // ternary logic
+        protected Boolean like(Object left) {
+            if (left == null) {
+                return null; // NOSONAR
+            }
+            if (!(left instanceof String)) {
+                throw new QueryParseException("Invalid LIKE lhs: " + left);
+            }
+            String value = (String) left;
+            if (caseInsensitive) {
+                value = value.toLowerCase();
+            }
+            return Boolean.valueOf(pattern.matcher(value).matches());
+        }
+
+        protected Boolean likeMaybeList(Object left, boolean positive) {
+            if (left instanceof Object[]) {
+                for (Object l : ((Object[]) left)) {
+                    if (TRUE.equals(like(l))) {
+                        return Boolean.valueOf(positive);
+                    }
+                }
+                return Boolean.valueOf(!positive);
+            } else {
+                Boolean like = like(left);
+                return positive ? like : evaluator.not(like);
+            }
+        }
+    }
+
+    /**
+     * The values of an IN list of literals.
+     */
+    protected class InMatcher {
+
+        protected final Set<Object> values = new HashSet<>();
+
+        protected boolean hasNull;
+
+        protected InMatcher(List<?> list) {
+            for (Object value : list) {
+                if (value == null) {
+                    hasNull = true;
+                } else {
+                    values.add(value);
+                }
+            }
+        }
+
+        // ternary logic
+        protected Boolean in(Object left) {
+            if (left == null) {
+                return null; // NOSONAR
+            }
+            if (values.contains(left)) {
+                return TRUE;
+            }
+            return hasNull ? null : FALSE;
+        }
+
+        protected Boolean inMaybeList(Object left) {
+            if (left instanceof Object[]) {
+                for (Object l : ((Object[]) left)) {
+                    if (TRUE.equals(in(l))) {
+                        return TRUE;
+                    }
+                }
+                return FALSE;
+            } else {
+                return in(left);
+            }
+        }
+    }
+
+    public CompiledOperand compileExpression(Expression expr) {
+        Operator op = expr.operator;
+        Operand lvalue = expr.lvalue;
+        Operand rvalue = expr.rvalue;
+        Reference ref = lvalue instanceof Reference ? (Reference) lvalue : null;
+        String name = ref != null ? ref.name : null;
+        String cast = ref != null ? ref.cast : null;
+        if (DATE_CAST.equals(cast)) {
+            evaluator.checkDateLiteralForCast(rvalue, name);
+        }
+        if (op == Operator.STARTSWITH) {
+            return compileStartsWith(lvalue, rvalue);
+        } else if (NXQL.ECM_PATH.equals(name)) {
+            return compileEcmPath(op, rvalue);
+        } else if (NXQL.ECM_ANCESTORID.equals(name)) {
+            return compileAncestorId(op, rvalue);
+        } else if (NXQL.ECM_ISTRASHED.equals(name)) {
+            return compileIsTrashed(op, rvalue);
+        } else if (name != null && name.startsWith(NXQL.ECM_FULLTEXT) && !NXQL.ECM_FULLTEXT_JOBID.equals(name)) {
+            return compileEcmFulltext(name, op, rvalue);
+        } else if (op == Operator.SUM) {
+            throw new UnsupportedOperationException("SUM");
+        } else if (op == Operator.SUB) {
+            throw new UnsupportedOperationException("SUB");
+        } else if (op == Operator.MUL) {
+            throw new UnsupportedOperationException("MUL");
+        } else if (op == Operator.DIV) {
+            throw new UnsupportedOperationException("DIV");
+        } else if (op == Operator.LT) {
+            return compileCmp(lvalue, rvalue, cmp -> cmp < 0);
+        } else if (op == Operator.GT) {
+            return compileCmp(lvalue, rvalue, cmp -> cmp > 0);
+        } else if (op == Operator.EQ) {
+            return compileEq(lvalue, rvalue);
+        } else if (op == Operator.NOTEQ) {
+            return compileNotEq(lvalue, rvalue);
+        } else if (op == Operator.LTEQ) {
+            return compileCmp(lvalue, rvalue, cmp -> cmp <= 0);
+        } else if (op == Operator.GTEQ) {
+            return compileCmp(lvalue, rvalue, cmp -> cmp >= 0);
+        } else if (op == Operator.AND) {
+            if (expr instanceof MultiExpression) {
+                return compileMultiExpression((MultiExpression) expr);
+            } else {
+                return compileAnd(lvalue, rvalue);
+            }
+        } else if (op == Operator.NOT) {
+            return compileNot(lvalue);
+        } else if (op == Operator.OR) {
+            if (expr instanceof MultiExpression) {
+                return compileMultiExpression((MultiExpression) expr);
+            } else {
+                return compileOr(lvalue, rvalue);
+            }
+        } else if (op == Operator.LIKE) {
+            return compileLike(lvalue, rvalue, true, false);
+        } else if (op == Operator.ILIKE) {
+            return compileLike(lvalue, rvalue, true, true);
+        } else if (op == Operator.NOTLIKE) {
+            return compileLike(lvalue, rvalue, false, false);
+        } else if (op == Operator.NOTILIKE) {
+            return compileLike(lvalue, rvalue, false, true);
+        } else if (op == Operator.IN) {
+            return compileIn(lvalue, rvalue, true);
+        } else if (op == Operator.NOTIN) {
+            return compileIn(lvalue, rvalue, false);
+        } else if (op == Operator.ISNULL) {
+            CompiledOperand value = compileOperand(lvalue);
+            return () -> Boolean.valueOf(value.evaluate() == null);
+        } else if (op == Operator.ISNOTNULL) {
+            CompiledOperand value = compileOperand(lvalue);
+            return () -> Boolean.valueOf(value.evaluate() != null);
+        } else if (op == Operator.BETWEEN) {
+            return compileBetween(lvalue, rvalue, true);
+        } else if (op == Operator.NOTBETWEEN) {
+            return compileBetween(lvalue, rvalue, false);
+        } else {
+            throw new QueryParseException("Unknown operator: " + op);
+        }
+    }
+
+    protected CompiledOperand compileEcmPath(Operator op, Operand rvalue) {
+        if (op != Operator.EQ && op != Operator.NOTEQ) {
+            throw new QueryParseException(NXQL.ECM_PATH + " requires = or <> operator");
+        }
+        if (!(rvalue instanceof StringLiteral)) {
+            throw new QueryParseException(NXQL.ECM_PATH + " requires literal path as right argument");
+        }
+        PathId pathId = new PathId(trimPath(((StringLiteral) rvalue).value));
+        CompiledOperand right = evaluator.compileReference(new Reference(NXQL.ECM_UUID));
+        boolean positive = op == Operator.EQ;
+        return () -> {
+            String id = pathId.get();
+            if (id == null) {
+                return FALSE;
+            }
+            Boolean eq = evaluator.eq(id, right.evaluate());
+            return positive ? eq : evaluator.not(eq);
+        };
+    }
+
+    protected CompiledOperand compileAncestorId(Operator op, Operand rvalue) {
+        if (op != Operator.EQ && op != Operator.NOTEQ) {
+            throw new QueryParseException(NXQL.ECM_ANCESTORID + " requires = or <> operator");
+        }
+        if (!(rvalue instanceof StringLiteral)) {
+            throw new QueryParseException(NXQL.ECM_ANCESTORID + " requires literal id as right argument");
+        }
+        String ancestorId = ((StringLiteral) rvalue).value;
+        CompiledOperand ancestorIds = evaluator.compileReference(new Reference(NXQL_ECM_ANCESTOR_IDS));
+        Boolean found = op == Operator.EQ ? TRUE : FALSE;
+        Boolean notFound = op == Operator.EQ ? FALSE : TRUE;
+        return () -> {
+            Object[] ids = (Object[]) ancestorIds.evaluate();
+            if (ids == null) {
+                // placeless
+                return notFound;
+            }
+            for (Object id : ids) {
+                if (ancestorId.equals(id)) {
+                    return found;
+                }
+            }
+            return notFound;
+        };
+    }
+
+    protected CompiledOperand compileEcmFulltext(String name, Operator op, Operand rvalue) {
+        if (op != Operator.EQ && op != Operator.LIKE) {
+            throw new QueryParseException(NXQL.ECM_FULLTEXT + " requires = or LIKE operator");
+        }
+        if (!(rvalue instanceof StringLiteral)) {
+            throw new QueryParseException(NXQL.ECM_FULLTEXT + " requires literal string as right argument");
+        }
+        if (evaluator.fulltextSearchDisabled) {
+            throw new QueryParseException("Fulltext search disabled by configuration");
+        }
+        String query = ((StringLiteral) rvalue).value;
+        if (name.equals(NXQL.ECM_FULLTEXT)) {
+            // standard fulltext query
+            evaluator.hasFulltext = true;
+            CompiledOperand simple = evaluator.compileReference(new Reference(NXQL_ECM_FULLTEXT_SIMPLE));
+            CompiledOperand binary = evaluator.compileReference(new Reference(NXQL_ECM_FULLTEXT_BINARY));
+            return () -> ExpressionEvaluator.fulltext((String) simple.evaluate(), (String) binary.evaluate(), query);
+        } else {
+            // secondary index match with explicit field
+            // do a regexp on the field
+            if (name.charAt(NXQL.ECM_FULLTEXT.length()) != '.') {
+                throw new QueryParseException(name + " has incorrect syntax for a secondary fulltext index");
+            }
+            String prop = name.substring(NXQL.ECM_FULLTEXT.length() + 1);
+            String ft = query.replace(" ", "%");
+            return compileLike(new Reference(prop), new StringLiteral(ft), true, true);
+        }
+    }
+
+    protected CompiledOperand compileIsTrashed(Operator op, Operand rvalue) {
+        if (op != Operator.EQ && op != Operator.NOTEQ) {
+            throw new QueryParseException(NXQL.ECM_ISTRASHED + " requires = or <> operator");
+        }
+        TrashService trashService = Framework.getService(TrashService.class);
+        if (trashService.hasFeature(TRASHED_STATE_IS_DEDUCED_FROM_LIFECYCLE)) {
+            return compileIsTrashed(new Reference(NXQL.ECM_LIFECYCLESTATE), op, rvalue,
+                    new StringLiteral(LifeCycleConstants.DELETED_STATE));
+        } else if (trashService.hasFeature(TRASHED_STATE_IN_MIGRATION)) {
+            CompiledOperand lifeCycleTrashed = compileIsTrashed(new Reference(NXQL.ECM_LIFECYCLESTATE), op, rvalue,
+                    new StringLiteral(LifeCycleConstants.DELETED_STATE));
+            CompiledOperand propertyTrashed = compileIsTrashed(new Reference(NXQL.ECM_ISTRASHED), op, rvalue,
+                    new IntegerLiteral(1L));
+            return () -> evaluator.or((Boolean) lifeCycleTrashed.evaluate(), (Boolean) propertyTrashed.evaluate());
+        } else if (trashService.hasFeature(TRASHED_STATE_IS_DEDICATED_PROPERTY)) {
+            return compileIsTrashed(new Reference(NXQL.ECM_ISTRASHED), op, rvalue, new IntegerLiteral(1L));
+        } else {
+            throw new UnsupportedOperationException("TrashService is in an unknown state");
+        }
+    }
+
+    protected CompiledOperand compileIsTrashed(Reference ref, Operator op, Operand initialRvalue,
+            Literal deletedRvalue) {
+        long v;
+        if (!(initialRvalue instanceof IntegerLiteral)
+                || ((v = ((IntegerLiteral) initialRvalue).value) != 0 && v != 1)) {
+            throw new QueryParseException(NXQL.ECM_ISTRASHED + " requires literal 0 or 1 as right argument");
+        }
+        boolean equalsDeleted = op == Operator.EQ ^ v == 0;
+        if (equalsDeleted) {
+            return compileEq(ref, deletedRvalue);
+        } else {
+            return compileNotEq(ref, deletedRvalue);
+        }
+    }
+
+    protected CompiledOperand compileNot(Operand value) {
+        CompiledOperand operand = compileOperand(value);
+        return () -> evaluator.not(evaluator.bool(operand.evaluate()));
+    }
+
+    // ternary logic, stops as soon as the result is known
+    protected CompiledOperand compileMultiExpression(MultiExpression expr) {
+        CompiledOperand[] predicates = new CompiledOperand[expr.predicates.size()];
+        int i = 0;
+        for (Predicate predicate : expr.predicates) {
+            predicates[i++] = compileExpression(predicate);
+        }
+        if (expr.operator == Operator.AND) {
+            return () -> {
+                Boolean res = TRUE;
+                for (CompiledOperand predicate : predicates) {
+                    // once not TRUE, the result of and() doesn't change
+                    res = evaluator.and(res, evaluator.bool(predicate.evaluate()));
+                    if (!TRUE.equals(res)) {
+                        break;
+                    }
+                }
+                return res;
+            };
+        } else {
+            return () -> {
+                Boolean res = FALSE;
+                for (CompiledOperand predicate : predicates) {
+                    // once TRUE, the result of or() doesn't change
+                    res = evaluator.or(res, evaluator.bool(predicate.evaluate()));
+                    if (TRUE.equals(res)) {
+                        break;
+                    }
+                }
+                return res;
+            };
+        }
+    }
+
+    protected CompiledOperand compileAnd(Operand lvalue, Operand rvalue) {
+        CompiledOperand left = compileOperand(lvalue);
+        CompiledOperand right = compileOperand(rvalue);
+        return () -> {
+            Boolean l = evaluator.bool(left.evaluate());
+            if (!TRUE.equals(l)) {
+                return l;
+            }
+            return evaluator.and(l, evaluator.bool(right.evaluate()));
+        };
+    }
+
+    protected CompiledOperand compileOr(Operand lvalue, Operand rvalue) {
+        CompiledOperand left = compileOperand(lvalue);
+        CompiledOperand right = compileOperand(rvalue);
+        return () -> {
+            Boolean l = evaluator.bool(left.evaluate());
+            if (TRUE.equals(l)) {
+                return l;
+            }
+            return evaluator.or(l, evaluator.bool(right.evaluate()));
+        };
+    }
+
+    protected CompiledOperand compileEq(Operand lvalue, Operand rvalue) {
+        CompiledOperand right = compileOperand(rvalue);
+        if (evaluator.isMixinTypes(lvalue)) {
+            return compileMixinTypes(right, rvalue, true, "Invalid EQ rhs: ");
+        }
+        CompiledOperand left = compileOperand(lvalue);
+        if (right instanceof Constant) {
+            Object value = ((Constant) right).value;
+            return () -> evaluator.eqMaybeList(left.evaluate(), value);
+        }
+        return () -> evaluator.eqMaybeList(left.evaluate(), right.evaluate());
+    }
+
+    protected CompiledOperand compileNotEq(Operand lvalue, Operand rvalue) {
+        if (evaluator.isMixinTypes(lvalue)) {
+            CompiledOperand right = compileOperand(rvalue);
+            return compileMixinTypes(right, rvalue, false, "Invalid NE rhs: ");
+        }
+        CompiledOperand eq = compileEq(lvalue, rvalue);
+        return () -> evaluator.not((Boolean) eq.evaluate());
+    }
+
+    protected CompiledOperand compileMixinTypes(CompiledOperand right, Operand rvalue, boolean include,
+            String message) {
+        if (right instanceof Constant) {
+            Object value = ((Constant) right).value;
+            if (!(value instanceof String)) {
+                throw new QueryParseException(message + rvalue);
+            }
+            return evaluator.compileMixinTypes(Collections.singletonList((String) value), include);
+        }
+        return () -> {
+            Object value = right.evaluate();
+            if (!(value instanceof String)) {
+                throw new QueryParseException(message + rvalue);
+            }
+            return evaluator.walkMixinTypes(Collections.singletonList((String) value), include);
+        };
+    }
+
+    protected CompiledOperand compileCmp(Operand lvalue, Operand rvalue, IntPredicate test) {
+        CompiledOperand left = compileOperand(lvalue);
+        CompiledOperand right = compileOperand(rvalue);
+        return () -> {
+            Integer cmp = evaluator.cmp(left.evaluate(), right.evaluate());
+            return cmp == null ? null : Boolean.valueOf(test.test(cmp.intValue()));
+        };
+    }
+
+    protected CompiledOperand compileBetween(Operand lvalue, Operand rvalue, boolean positive) {
+        LiteralList l = (LiteralList) rvalue;
+        Predicate va = new Predicate(lvalue, Operator.GTEQ, l.get(0));
+        Predicate vb = new Predicate(lvalue, Operator.LTEQ, l.get(1));
+        Predicate pred = new Predicate(va, Operator.AND, vb);
+        if (!positive) {
+            pred = new Predicate(pred, Operator.NOT, null);
+        }
+        return compileExpression(pred);
+    }
+
+    @SuppressWarnings("unchecked")
+    protected CompiledOperand compileIn(Operand lvalue, Operand rvalue, boolean positive) {
+        CompiledOperand right = compileOperand(rvalue);
+        if (right instanceof Constant) {
+            Object value = ((Constant) right).value;
+            if (!(value instanceof List)) {
+                throw new QueryParseException("Invalid IN rhs: " + rvalue);
+            }
+            if (evaluator.isMixinTypes(lvalue)) {
+                return evaluator.compileMixinTypes((List<String>) value, positive);
+            }
+            CompiledOperand left = compileOperand(lvalue);
+            InMatcher matcher = new InMatcher((List<Object>) value);
+            if (positive) {
+                return () -> matcher.inMaybeList(left.evaluate());
+            } else {
+                return () -> evaluator.not(matcher.inMaybeList(left.evaluate()));
+            }
+        }
+        boolean mixinTypes = evaluator.isMixinTypes(lvalue);
+        CompiledOperand left = mixinTypes ? null : compileOperand(lvalue);
+        return () -> {
+            Object value = right.evaluate();
+            if (!(value instanceof List)) {
+                throw new QueryParseException("Invalid IN rhs: " + rvalue);
+            }
+            if (mixinTypes) {
+                return evaluator.walkMixinTypes((List<String>) value, positive);
+            }
+            Boolean in = evaluator.inMaybeList(left.evaluate(), (List<Object>) value);
+            return positive ? in : evaluator.not(in);
+        };
+    }
+
+    protected CompiledOperand compileLike(Operand lvalue, Operand rvalue, boolean positive,
+            boolean caseInsensitive) {
+        CompiledOperand left = compileOperand(lvalue);
+        CompiledOperand right = compileOperand(rvalue);
+        if (right instanceof Constant) {
+            Object value = ((Constant) right).value;
+            if (!(value instanceof String)) {
+                throw new QueryParseException("Invalid LIKE rhs: " + rvalue);
+            }
+            LikeMatcher matcher = new LikeMatcher((String) value, caseInsensitive);
+            return () -> matcher.likeMaybeList(left.evaluate(), positive);
+        }
+        return () -> {
+            Object l = left.evaluate();
+            Object r = right.evaluate();
+            if (!(r instanceof String)) {
+                throw new QueryParseException("Invalid LIKE rhs: " + rvalue);
+            }
+            return evaluator.likeMaybeList(l, (String) r, positive, caseInsensitive);
+        };
+    }
+
+    protected CompiledOperand compileStartsWith(Operand lvalue, Operand rvalue) {
+        if (!(lvalue instanceof Reference)) {
+            throw new QueryParseException("Invalid STARTSWITH query, left hand side must be a property: " + lvalue);
+        }
+        String name = ((Reference) lvalue).name;
+        if (!(rvalue instanceof StringLiteral)) {
+            throw new QueryParseException(
+                    "Invalid STARTSWITH query, right hand side must be a literal path: " + rvalue);
+        }
+        String path = trimPath(((StringLiteral) rvalue).value);
+        if (NXQL.ECM_PATH.equals(name)) {
+            PathId ancestorId = new PathId(path);
+            CompiledOperand ancestorIds = evaluator.compileReference(new Reference(NXQL_ECM_ANCESTOR_IDS));
+            return () -> {
+                String id = ancestorId.get();
+                if (id == null) {
+                    // no such path
+                    return FALSE;
+                }
+                Object[] ids = (Object[]) ancestorIds.evaluate();
+                if (ids == null) {
+                    // placeless
+                    return FALSE;
+                }
+                for (Object aid : ids) {
+                    if (id.equals(aid)) {
+                        return TRUE;
+                    }
+                }
+                return FALSE;
+            };
+        } else {
+            CompiledOperand left = evaluator.compileReference((Reference) lvalue);
+            // prefix match TODO escape % chars
+            LikeMatcher matcher = new LikeMatcher(path + "/%", false);
+            return () -> {
+                Object value = left.evaluate();
+                // exact match
+                if (TRUE.equals(evaluator.eqMaybeList(value, path))) {
+                    return TRUE;
+                }
+                return matcher.likeMaybeList(value, true);
+            };
+        }
+    }
+
+    protected static String trimPath(String path) {
+        if (path.length() > 1 && path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        return path;
+    }
+
+    public CompiledOperand compileOperand(Operand op) {
+        if (op instanceof Literal) {
+            return new Constant(evaluator.walkLiteral((Literal) op));
+        } else if (op instanceof LiteralList) {
+            return new Constant(evaluator.walkLiteralList((LiteralList) op));
+        } else if (op instanceof Function) {
+            Function func = (Function) op;
+            return () -> evaluator.walkFunction(func);
+        } else if (op instanceof Expression) {
+            return compileExpression((Expression) op);
+        } else if (op instanceof Reference) {
+            return evaluator.compileReference((Reference) op);
+        } else {
+            throw new QueryParseException("Unknown operand: " + op);
+        }
+    }
+
+}
@@ -101,6 +101,22 @@ public abstract class ExpressionEvaluator {
         String getIdForPath(String path);
     }
 
+    /**
+     * An expression or operand compiled by an {@link ExpressionCompiler}, evaluated in the current context of the
+     * evaluator.
+     *
+     * @since 2021.20
+     */
+    @FunctionalInterface
+    public interface CompiledOperand {
+        /**
+         * Evaluates the operand.
+         *
+         * @return the value, or a {@link Boolean} (or {@code null}) for an expression
+         */
+        Object evaluate();
+    }
+
     public final PathResolver pathResolver;
 
     public final Set<String> principals;
@@ -115,6 +131,38 @@ public abstract class ExpressionEvaluator {
         this.fulltextSearchDisabled = fulltextSearchDisabled;
     }
 
+    /**
+     * Compiles an expression, to evaluate it repeatedly without walking it.
+     *
+     * @since 2021.20
+     */
+    public CompiledOperand compile(Expression expr) {
+        return new ExpressionCompiler(this).compileExpression(expr);
+    }
+
+    /**
+     * Compiles a reference. Called in the order in which {@link #walkReference} would be called by a walk of the
+     * expression.
+     * <p>
+     * The default implementation walks the reference at each evaluation.
+     *
+     * @since 2021.20
+     */
+    protected CompiledOperand compileReference(Reference ref) {
+        return () -> walkReference(ref);
+    }
+
+    /**
+     * Compiles a match of the mixin types against a list of values.
+     * <p>
+     * The default implementation calls {@link #walkMixinTypes} at each evaluation.
+     *
+     * @since 2021.20
+     */
+    protected CompiledOperand compileMixinTypes(List<String> mixins, boolean include) {
+        return () -> walkMixinTypes(mixins, include);
+    }
+
     public Object walkExpression(Expression expr) {
         Operator op = expr.operator;
         Operand lvalue = expr.lvalue;
@@ -19,15 +19,22 @@
  */
 package org.nuxeo.ecm.core.storage;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.io.Serializable;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Function;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.commons.text.StringEscapeUtils;
@@ -78,6 +85,13 @@ public class FulltextExtractorWork extends AbstractWork {
 
     protected static final String ANY2TEXT_CONVERTER = "any2text";
 
+    /**
+     * Conversion parameter bounding the size of the text extracted by the converters supporting it.
+     *
+     * @since 2021.20
+     */
+    protected static final String MAX_TEXT_SIZE_PARAMETER = "maxTextSize";
+
     protected static final int HTML_MAGIC_OFFSET = 8192;
 
     protected transient FulltextConfiguration fulltextConfiguration;
@@ -268,7 +282,15 @@ public class FulltextExtractorWork extends AbstractWork {
                 log.debug("No ConversionService available");
                 return "";
             }
-            BlobHolder blobHolder = conversionService.convert(ANY2TEXT_CONVERTER, new SimpleBlobHolder(blob), null);
+            int maxSize = fulltextConfiguration == null ? 0 : fulltextConfiguration.fulltextFieldSizeLimit;
+            Map<String, Serializable> parameters = null;
+            if (maxSize > 0) {
+                // the text is truncated to the field size limit anyway, let the converters stop early
+                parameters = new HashMap<>();
+                parameters.put(MAX_TEXT_SIZE_PARAMETER, Integer.valueOf(maxSize));
+            }
+            BlobHolder blobHolder = conversionService.convert(ANY2TEXT_CONVERTER, new SimpleBlobHolder(blob),
+                    parameters);
             if (blobHolder == null) {
                 return "";
             }
@@ -276,7 +298,7 @@ public class FulltextExtractorWork extends AbstractWork {
             if (resultBlob == null) {
                 return "";
             }
-            String string = resultBlob.getString();
+            String string = readText(resultBlob, maxSize);
             // strip '\0 chars from text
             if (string.indexOf('\0') >= 0) {
                 string = string.replace("\0", " ");
@@ -291,6 +313,24 @@ public class FulltextExtractorWork extends AbstractWork {
         }
     }
 
+    /**
+     * Reads the text of the blob, without loading more than the given number of characters in memory.
+     *
+     * @since 2021.20
+     */
+    protected String readText(Blob blob, int maxSize) throws IOException {
+        if (maxSize <= 0) {
+            return blob.getString();
+        }
+        String encoding = blob.getEncoding();
+        try (Reader reader = new InputStreamReader(blob.getStream(),
+                encoding == null ? UTF_8 : Charset.forName(encoding))) {
+            char[] chars = new char[maxSize];
+            int length = IOUtils.read(reader, chars);
+            return new String(chars, 0, length);
+        }
+    }
+
     protected <O> String joinText(List<O> objects, Function<O, String> extractor, int maxSize) {
         boolean limit = maxSize > 0;
         // add space at beginning and end for simulated phrase search using LIKE "% foo bar %"
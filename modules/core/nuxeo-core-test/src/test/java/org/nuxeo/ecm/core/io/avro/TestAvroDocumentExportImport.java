@@ -0,0 +1,136 @@
+/*
+ * (C) Copyright 2021 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.io.avro;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+
+import javax.inject.Inject;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.ecm.core.api.Blob;
+import org.nuxeo.ecm.core.api.Blobs;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.IdRef;
+import org.nuxeo.ecm.core.api.PathRef;
+import org.nuxeo.ecm.core.test.CoreFeature;
+import org.nuxeo.runtime.avro.AvroService;
+import org.nuxeo.runtime.test.runner.Deploy;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+import org.nuxeo.runtime.test.runner.TransactionalFeature;
+
+/**
+ * @since 2021.20
+ */
+@RunWith(FeaturesRunner.class)
+@Features(CoreFeature.class)
+@Deploy("org.nuxeo.ecm.core")
+@Deploy("org.nuxeo.ecm.core.schema")
+@Deploy("org.nuxeo.runtime.stream")
+public class TestAvroDocumentExportImport {
+
+    @Inject
+    public AvroService service;
+
+    @Inject
+    public CoreSession session;
+
+    @Inject
+    public TransactionalFeature txFeature;
+
+    @Test
+    public void testExportImport() throws IOException {
+        DocumentModel root = session.createDocumentModel("/", "root", "Folder");
+        root.setPropertyValue("dc:title", "Root");
+        root = session.createDocument(root);
+        DocumentModel folder = session.createDocumentModel("/root", "folder", "Folder");
+        folder = session.createDocument(folder);
+        for (int i = 0; i < 10; i++) {
+            DocumentModel file = session.createDocumentModel("/root/folder", "file" + i, "File");
+            file.setPropertyValue("dc:title", "File " + i);
+            session.createDocument(file);
+        }
+        txFeature.nextTransaction();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long exported = new AvroDocumentExporter(service).batchSize(3).threads(2).queueSize(4).export(session,
+                root.getRef(), out);
+        assertEquals(12, exported);
+
+        session.removeDocument(root.getRef());
+        txFeature.nextTransaction();
+        assertFalse(session.exists(root.getRef()));
+
+        DocumentModel target = session.createDocument(session.createDocumentModel("/", "target", "Folder"));
+        txFeature.nextTransaction();
+        long imported = new AvroDocumentImporter(service).batchSize(5).threads(2).queueSize(4).importDocuments(
+                session, target.getRef(), new ByteArrayInputStream(out.toByteArray()));
+        txFeature.nextTransaction();
+        assertEquals(12, imported);
+
+        // ids are kept and the root is imported under the target
+        DocumentModel importedRoot = session.getDocument(new IdRef(root.getId()));
+        assertEquals("/target/root", importedRoot.getPathAsString());
+        assertEquals("Root", importedRoot.getTitle());
+        assertTrue(session.exists(new IdRef(folder.getId())));
+        for (int i = 0; i < 10; i++) {
+            DocumentModel file = session.getDocument(new PathRef("/target/root/folder/file" + i));
+            assertEquals("File " + i, file.getTitle());
+        }
+    }
+
+    @Test
+    public void testExportImportBlobs() throws IOException {
+        DocumentModel root = session.createDocument(session.createDocumentModel("/", "blobs", "Folder"));
+        for (int i = 0; i < 10; i++) {
+            DocumentModel file = session.createDocumentModel("/blobs", "file" + i, "File");
+            file.setPropertyValue("file:content", (Serializable) Blobs.createBlob("content of file " + i));
+            session.createDocument(file);
+        }
+        txFeature.nextTransaction();
+
+        // the window holds a single document at a time
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long exported = new AvroDocumentExporter(service).threads(2).maxPendingBytes(10).export(session,
+                root.getRef(), out);
+        assertEquals(11, exported);
+
+        session.removeDocument(root.getRef());
+        txFeature.nextTransaction();
+
+        DocumentModel target = session.createDocument(session.createDocumentModel("/", "blobsTarget", "Folder"));
+        txFeature.nextTransaction();
+        long imported = new AvroDocumentImporter(service).threads(2).maxPendingBytes(10).importDocuments(session,
+                target.getRef(), new ByteArrayInputStream(out.toByteArray()));
+        txFeature.nextTransaction();
+        assertEquals(11, imported);
+        for (int i = 0; i < 10; i++) {
+            DocumentModel file = session.getDocument(new PathRef("/blobsTarget/blobs/file" + i));
+            Blob blob = (Blob) file.getPropertyValue("file:content");
+            assertEquals("content of file " + i, blob.getString());
+        }
+    }
+
+}
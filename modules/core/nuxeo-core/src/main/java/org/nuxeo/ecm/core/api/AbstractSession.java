@@ -104,6 +104,7 @@ import org.nuxeo.ecm.core.schema.SchemaManager;
 import org.nuxeo.ecm.core.schema.types.CompositeType;
 import org.nuxeo.ecm.core.schema.types.Schema;
 import org.nuxeo.ecm.core.security.LockSecurityPolicy;
+import org.nuxeo.ecm.core.security.ReadAclBitmap;
 import org.nuxeo.ecm.core.security.SecurityService;
 import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.metrics.MetricsService;
@@ -160,6 +161,9 @@ public abstract class AbstractSession implements CoreSession, Serializable {
 
     private Long maxResults;
 
+    /** @since 2021.20 */
+    protected transient ReadAclBitmap readAclBitmap;
+
     // @since 5.7.2
     protected static final MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
 
@@ -337,11 +341,24 @@ public abstract class AbstractSession implements CoreSession, Serializable {
         // this method.
         // -> cache ACP at securitymanager level or try to reuse the ACP when
         // it is known
-        return getSecurityService().checkPermission(doc, getPrincipal(), permission);
+        return getSecurityService().checkPermission(doc, getPrincipal(), permission, getReadAclBitmap());
         // return doc.getSession().getSecurityManager().checkPermission(doc,
         // getPrincipal().getName(), permission);
     }
 
+    /**
+     * Gets the cache of the ACL checks done for the principal of this session.
+     *
+     * @since 2021.20
+     */
+    protected ReadAclBitmap getReadAclBitmap() {
+        NuxeoPrincipal principal = getPrincipal();
+        if (readAclBitmap == null || readAclBitmap.getPrincipal() != principal) {
+            readAclBitmap = new ReadAclBitmap(principal);
+        }
+        return readAclBitmap;
+    }
+
     protected Document resolveReference(DocumentRef docRef) {
         if (docRef == null) {
             throw new IllegalArgumentException("null docRref");
@@ -72,6 +72,16 @@ public interface DocumentBlobManager {
      */
     String writeBlob(Blob blob, Document doc, String xpath) throws IOException;
 
+    /**
+     * Gets the id of the blob provider used by the blob dispatcher for the blobs of a repository whose key has no
+     * prefix.
+     *
+     * @param repositoryName the repository name
+     * @return the blob provider id
+     * @since 2021.20
+     */
+    String getBlobProviderId(String repositoryName);
+
     /**
      * Gets an {@link InputStream} for a conversion to the given MIME type.
      * <p>
@@ -19,14 +19,20 @@
 package org.nuxeo.ecm.core.blob;
 
 import static java.util.stream.Collectors.toSet;
+import static org.nuxeo.common.concurrent.ThreadFactories.newThreadFactory;
 import static org.nuxeo.runtime.model.Descriptor.UNIQUE_DESCRIPTOR_ID;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
@@ -48,10 +54,17 @@ import org.nuxeo.ecm.core.model.Document.BlobAccessor;
 import org.nuxeo.ecm.core.model.Repository;
 import org.nuxeo.ecm.core.repository.RepositoryService;
 import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.metrics.MetricsService;
 import org.nuxeo.runtime.model.ComponentInstance;
 import org.nuxeo.runtime.model.DefaultComponent;
 import org.nuxeo.runtime.transaction.TransactionHelper;
 
+import io.dropwizard.metrics5.Counter;
+import io.dropwizard.metrics5.MetricName;
+import io.dropwizard.metrics5.MetricRegistry;
+import io.dropwizard.metrics5.SharedMetricRegistries;
+import io.dropwizard.metrics5.Timer;
+
 /**
  * Implementation of the service managing {@link Blob}s associated to a {@link Document} or a repository.
  *
@@ -65,6 +78,21 @@ public class DocumentBlobManagerComponent extends DefaultComponent implements Do
 
     protected static final int BINARY_GC_TX_TIMEOUT_SEC = 86_400; // 1 day
 
+    protected final MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+
+    /** @since 2021.20 */
+    protected final Timer gcMarkTimer = registry.timer(MetricName.build("nuxeo", "blobs", "gc", "mark"));
+
+    /** @since 2021.20 */
+    protected final Timer gcSweepTimer = registry.timer(MetricName.build("nuxeo", "blobs", "gc", "sweep"));
+
+    /** @since 2021.20 */
+    protected final Counter gcDeletedCount = registry.counter(MetricName.build("nuxeo", "blobs", "gc", "deleted"));
+
+    /** @since 2021.20 */
+    protected final Counter gcDeletedSize = registry.counter(
+            MetricName.build("nuxeo", "blobs", "gc", "deleted", "size"));
+
     // in these low-level APIs we deal with unprefixed xpaths, so not file:content
     protected static final String MAIN_BLOB_XPATH = "content";
 
@@ -228,6 +256,11 @@ public class DocumentBlobManagerComponent extends DefaultComponent implements Do
         return key;
     }
 
+    @Override
+    public String getBlobProviderId(String repositoryName) {
+        return getBlobDispatcher().getBlobProvider(repositoryName);
+    }
+
     /** A key may have been replaced by an async digest computation, use the new one. */
     protected String getBlobKeyReplacement(ManagedBlob blob) {
         String key = blob.getKey();
@@ -407,17 +440,16 @@ public class DocumentBlobManagerComponent extends DefaultComponent implements Do
                 };
             }
             // in all repositories, mark referenced binaries
-            RepositoryService repositoryService = Framework.getService(RepositoryService.class);
-            for (String repositoryName : repositoryService.getRepositoryNames()) {
-                log.info("Marking binaries for repository: " + repositoryName);
-                Repository repository = repositoryService.getRepository(repositoryName);
-                repository.markReferencedBlobs(markerCallback);
+            try (Timer.Context context = gcMarkTimer.time()) {
+                markReferencedBlobs(gcs, markerCallback);
             }
             // stop gc
             BinaryManagerStatus globalStatus = new BinaryManagerStatus();
             for (BinaryGarbageCollector gc : gcs) {
                 log.info("GC Binaries: " + gc.getId());
-                gc.stop(delete);
+                try (Timer.Context context = gcSweepTimer.time()) {
+                    gc.stop(delete);
+                }
                 BinaryManagerStatus status = gc.getStatus();
                 log.info("GC Binaries status: " + status);
                 globalStatus.numBinaries += status.numBinaries;
@@ -426,11 +458,60 @@ public class DocumentBlobManagerComponent extends DefaultComponent implements Do
                 globalStatus.sizeBinariesGC += status.sizeBinariesGC;
             }
             globalStatus.gcDuration = System.currentTimeMillis() - start;
+            if (delete) {
+                gcDeletedCount.inc(globalStatus.numBinariesGC);
+                gcDeletedSize.inc(globalStatus.sizeBinariesGC);
+            }
             log.warn("GC Binaries Completed: " + globalStatus);
             return globalStatus;
         }, BINARY_GC_TX_TIMEOUT_SEC);
     }
 
+    /**
+     * Marks the blobs referenced by all the repositories.
+     * <p>
+     * When there are several repositories and all the garbage collectors accept concurrent marking, each repository is
+     * marked in its own thread and transaction, otherwise the repositories are marked one after the other.
+     *
+     * @since 2021.20
+     */
+    protected void markReferencedBlobs(List<BinaryGarbageCollector> gcs, BiConsumer<String, String> markerCallback) {
+        RepositoryService repositoryService = Framework.getService(RepositoryService.class);
+        List<String> repositoryNames = repositoryService.getRepositoryNames();
+        if (repositoryNames.size() < 2 || !gcs.stream().allMatch(BinaryGarbageCollector::isConcurrentMarkSupported)) {
+            for (String repositoryName : repositoryNames) {
+                markReferencedBlobs(repositoryService, repositoryName, markerCallback);
+            }
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(repositoryNames.size(),
+                newThreadFactory("Nuxeo-BlobGC-Mark", true));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (String repositoryName : repositoryNames) {
+                futures.add(executor.submit(() -> TransactionHelper.runInTransaction(BINARY_GC_TX_TIMEOUT_SEC,
+                        () -> markReferencedBlobs(repositoryService, repositoryName, markerCallback))));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NuxeoException(e);
+        } catch (ExecutionException e) {
+            throw new NuxeoException("Failed to mark binaries", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    protected void markReferencedBlobs(RepositoryService repositoryService, String repositoryName,
+            BiConsumer<String, String> markerCallback) {
+        log.info("Marking binaries for repository: " + repositoryName);
+        Repository repository = repositoryService.getRepository(repositoryName);
+        repository.markReferencedBlobs(markerCallback);
+    }
+
     /**
      * Runs the given {@link Supplier} in a transaction with the given {@code timeout}.
      *
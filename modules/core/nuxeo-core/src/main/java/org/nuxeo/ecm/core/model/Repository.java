@@ -90,4 +90,20 @@ public interface Repository {
      */
     String CAPABILITY_QUERY_BLOB_KEYS = "queryBlobKeys";
 
+    /**
+     * Whether the documents having a {@code null} value for a sort column are returned last by queries sorting it in
+     * ascending order, instead of first.
+     *
+     * @since 2021.20
+     */
+    String CAPABILITY_QUERY_NULLS_LAST_ASC = "queryNullsLastAsc";
+
+    /**
+     * Whether the documents having a {@code null} value for a sort column are returned last by queries sorting it in
+     * descending order, instead of first.
+     *
+     * @since 2021.20
+     */
+    String CAPABILITY_QUERY_NULLS_LAST_DESC = "queryNullsLastDesc";
+
 }
@@ -0,0 +1,147 @@
+/*
+ * (C) Copyright 2021 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.security;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.nuxeo.ecm.core.api.NuxeoPrincipal;
+import org.nuxeo.ecm.core.api.security.ACE;
+import org.nuxeo.ecm.core.api.security.ACL;
+import org.nuxeo.ecm.core.api.security.ACP;
+
+/**
+ * Per-session cache of the ACL checks done for a principal.
+ * <p>
+ * Each distinct merged ACL (the effective ACEs of a merged ACP, in order) gets a compact id from a dictionary kept by
+ * the session. For each checked permission, the session keeps two bitmaps over these ids: the ACLs already checked,
+ * and the ACLs granting the permission. Checking the many documents of a listing, which usually share a handful of
+ * ACLs, then costs a bit lookup per document instead of a match of every ACE against every group of the principal.
+ * <p>
+ * The ids are derived from the ACL content, so a document whose ACL changes gets the id of its new ACL and no explicit
+ * invalidation is needed. The bitmaps are dropped when the groups of the principal change, and the dictionary and the
+ * bitmaps are dropped together when the dictionary reaches {@link #MAX_ACL_IDS} entries.
+ *
+ * @since 2021.20
+ */
+public class ReadAclBitmap {
+
+    /** Maximum number of distinct ACLs given an id, beyond which the cache is reset. */
+    public static final int MAX_ACL_IDS = 100_000;
+
+    protected final Map<String, Integer> aclIds = new HashMap<>();
+
+    protected final NuxeoPrincipal principal;
+
+    protected List<String> groups;
+
+    protected String[] principals;
+
+    protected final Map<String, Bits> bitsByPermission = new HashMap<>();
+
+    protected static class Bits {
+
+        protected final BitSet checked = new BitSet();
+
+        protected final BitSet granted = new BitSet();
+    }
+
+    public ReadAclBitmap(NuxeoPrincipal principal) {
+        this.principal = principal;
+    }
+
+    public NuxeoPrincipal getPrincipal() {
+        return principal;
+    }
+
+    /**
+     * Gets the principals to check for the principal, see {@link SecurityService#getPrincipalsToCheck}.
+     */
+    public synchronized String[] getPrincipals() {
+        List<String> allGroups = principal.getAllGroups();
+        // compare by content, principals may return a new list on each call
+        if (principals == null || !allGroups.equals(groups)) {
+            groups = new ArrayList<>(allGroups);
+            principals = SecurityService.getPrincipalsToCheck(principal);
+            bitsByPermission.clear();
+        }
+        return principals;
+    }
+
+    /**
+     * Checks whether the ACP grants the permission to the principal.
+     *
+     * @param acp the merged ACP of the document
+     * @param permission the permission
+     * @param resolvedPermissions the permission and the permission groups containing it
+     */
+    public synchronized boolean checkPermission(ACP acp, String permission, String[] resolvedPermissions) {
+        String[] principals = getPrincipals();
+        int id = getAclId(acp);
+        Bits bits = bitsByPermission.computeIfAbsent(permission, k -> new Bits());
+        if (bits.checked.get(id)) {
+            return bits.granted.get(id);
+        }
+        boolean granted = acp.getAccess(principals, resolvedPermissions).toBoolean();
+        bits.checked.set(id);
+        if (granted) {
+            bits.granted.set(id);
+        }
+        return granted;
+    }
+
+    /**
+     * Gets the id of the effective ACL of the ACP, resetting the cache if the dictionary is full.
+     */
+    protected synchronized int getAclId(ACP acp) {
+        String key = getAclKey(acp);
+        Integer id = aclIds.get(key);
+        if (id == null) {
+            if (aclIds.size() >= MAX_ACL_IDS) {
+                // the ids are reused, so the bitmaps computed for them are no longer valid
+                aclIds.clear();
+                bitsByPermission.clear();
+            }
+            id = Integer.valueOf(aclIds.size());
+            aclIds.put(key, id);
+        }
+        return id.intValue();
+    }
+
+    /**
+     * Computes a key identifying the effective ACEs of the ACP, in the order in which they are checked.
+     */
+    protected static String getAclKey(ACP acp) {
+        StringBuilder sb = new StringBuilder();
+        for (ACL acl : acp.getACLs()) {
+            for (ACE ace : acl) {
+                if (!ace.isEffective()) {
+                    continue;
+                }
+                sb.append(ace.isGranted() ? '+' : '-');
+                sb.append(ace.getUsername());
+                sb.append('\u0000');
+                sb.append(ace.getPermission());
+                sb.append('\u0001');
+            }
+        }
+        return sb.toString();
+    }
+
+}
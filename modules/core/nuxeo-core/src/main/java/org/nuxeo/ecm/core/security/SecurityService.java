@@ -122,6 +122,16 @@ public class SecurityService extends DefaultComponent {
     }
 
     public boolean checkPermission(Document doc, NuxeoPrincipal principal, String permission) {
+        return checkPermission(doc, principal, permission, null);
+    }
+
+    /**
+     * Checks the permission on the document, using the given per-session cache of the ACL checks if not {@code null}.
+     *
+     * @since 2021.20
+     */
+    public boolean checkPermission(Document doc, NuxeoPrincipal principal, String permission,
+            ReadAclBitmap readAclBitmap) {
         if (principal.isAdministrator()) {
             if (SecurityConstants.REMOVE.equals(permission) && doc.isUnderRetentionOrLegalHold()) {
                 return BaseSession.canDeleteUndeletable(principal);
@@ -130,7 +140,8 @@ public class SecurityService extends DefaultComponent {
         }
         // fully check each ACE in turn
         String[] resolvedPermissions = getPermissionsToCheck(permission);
-        String[] additionalPrincipals = getPrincipalsToCheck(principal);
+        String[] additionalPrincipals = readAclBitmap == null ? getPrincipalsToCheck(principal)
+                : readAclBitmap.getPrincipals();
 
         // get the ordered list of ACE
         ACP acp = doc.getSession().getMergedACP(doc);
@@ -145,6 +156,9 @@ public class SecurityService extends DefaultComponent {
         if (acp == null) {
             return false; // no ACP on that doc - by default deny
         }
+        if (readAclBitmap != null) {
+            return readAclBitmap.checkPermission(acp, permission, resolvedPermissions);
+        }
         access = acp.getAccess(additionalPrincipals, resolvedPermissions);
 
         return access.toBoolean();
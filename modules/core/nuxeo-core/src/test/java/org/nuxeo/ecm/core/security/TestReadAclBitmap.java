@@ -0,0 +1,122 @@
+/*
+ * (C) Copyright 2021 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.security;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+import org.nuxeo.ecm.core.api.impl.UserPrincipal;
+import org.nuxeo.ecm.core.api.security.ACE;
+import org.nuxeo.ecm.core.api.security.Access;
+import org.nuxeo.ecm.core.api.security.impl.ACPImpl;
+
+public class TestReadAclBitmap {
+
+    protected static final String[] READ_PERMS = { "Read", "ReadWrite", "Everything" };
+
+    /** ACP counting the ACE matches. */
+    protected static class CountingACP extends ACPImpl {
+
+        private static final long serialVersionUID = 1L;
+
+        protected int checks;
+
+        @Override
+        public Access getAccess(String[] principals, String[] permissions) {
+            checks++;
+            return super.getAccess(principals, permissions);
+        }
+    }
+
+    protected static CountingACP acp(ACE... aces) {
+        CountingACP acp = new CountingACP();
+        for (ACE ace : aces) {
+            acp.addAccessRule("local", ace);
+        }
+        return acp;
+    }
+
+    @Test
+    public void testCheckPermission() {
+        UserPrincipal principal = new UserPrincipal("bob", Arrays.asList("g1", "g2"), false, false);
+        ReadAclBitmap bitmap = new ReadAclBitmap(principal);
+
+        CountingACP acp1 = acp(new ACE("g2", "Read", true));
+        CountingACP acp2 = acp(new ACE("g2", "Read", true));
+        assertTrue(bitmap.checkPermission(acp1, "Read", READ_PERMS));
+        // same ACL on another document is not matched again
+        assertTrue(bitmap.checkPermission(acp2, "Read", READ_PERMS));
+        assertEquals(1, acp1.checks);
+        assertEquals(0, acp2.checks);
+        // other permission is checked separately
+        assertFalse(bitmap.checkPermission(acp2, "Write", new String[] { "Write", "Everything" }));
+        assertEquals(1, acp2.checks);
+
+        CountingACP denied = acp(new ACE("g1", "Read", false), new ACE("g2", "Read", true));
+        assertFalse(bitmap.checkPermission(denied, "Read", READ_PERMS));
+        assertFalse(bitmap.checkPermission(denied, "Read", READ_PERMS));
+        assertEquals(1, denied.checks);
+
+        CountingACP other = acp(new ACE("g3", "Read", true));
+        assertFalse(bitmap.checkPermission(other, "Read", READ_PERMS));
+    }
+
+    @Test
+    public void testAclIds() {
+        ReadAclBitmap bitmap = new ReadAclBitmap(new UserPrincipal("bob", Collections.emptyList(), false, false));
+        int id1 = bitmap.getAclId(acp(new ACE("g1", "Read", true)));
+        assertEquals(id1, bitmap.getAclId(acp(new ACE("g1", "Read", true))));
+        assertNotEquals(id1, bitmap.getAclId(acp(new ACE("g1", "Read", false))));
+        assertNotEquals(id1, bitmap.getAclId(acp(new ACE("g1", "Write", true))));
+        assertNotEquals(id1, bitmap.getAclId(acp(new ACE("g1", "Read", true), new ACE("g2", "Read", true))));
+    }
+
+    @Test
+    public void testAclIdsReset() {
+        UserPrincipal principal = new UserPrincipal("bob", Collections.singletonList("g1"), false, false);
+        ReadAclBitmap bitmap = new ReadAclBitmap(principal);
+        CountingACP acp = acp(new ACE("g1", "Read", true));
+        assertTrue(bitmap.checkPermission(acp, "Read", READ_PERMS));
+        for (int i = 0; i < ReadAclBitmap.MAX_ACL_IDS; i++) {
+            bitmap.getAclId(acp(new ACE("user" + i, "Read", true)));
+        }
+        // the dictionary was reset when full, and the ACL is checked again
+        assertTrue(bitmap.aclIds.size() <= ReadAclBitmap.MAX_ACL_IDS);
+        assertTrue(bitmap.checkPermission(acp, "Read", READ_PERMS));
+        assertEquals(2, acp.checks);
+        assertTrue(bitmap.checkPermission(acp, "Read", READ_PERMS));
+        assertEquals(2, acp.checks);
+    }
+
+    @Test
+    public void testGroupsChange() {
+        UserPrincipal principal = new UserPrincipal("bob", Collections.singletonList("g1"), false, false);
+        ReadAclBitmap bitmap = new ReadAclBitmap(principal);
+        CountingACP acp = acp(new ACE("g2", "Read", true));
+        assertFalse(bitmap.checkPermission(acp, "Read", READ_PERMS));
+
+        principal.setGroups(Arrays.asList("g1", "g2"));
+        assertTrue(bitmap.checkPermission(acp, "Read", READ_PERMS));
+        assertEquals(2, acp.checks);
+    }
+
+}
@@ -92,6 +92,18 @@ public class CommandLineDescriptor {
     @XNode("timeout")
     public Duration timeout;
 
+    /**
+     * @since 2021.20
+     */
+    @XNode("maxConcurrency")
+    protected int maxConcurrency;
+
+    /**
+     * @since 2021.20
+     */
+    @XNode("server")
+    protected CommandServerDescriptor server;
+
     public String getName() {
         if (name == null) {
             return getCommand();
@@ -148,6 +160,9 @@ public class CommandLineDescriptor {
     }
 
     public String getExecutor() {
+        if (server != null) {
+            return CommandLineExecutorComponent.POOLED_EXECUTOR;
+        }
         return CommandLineExecutorComponent.DEFAULT_EXECUTOR;
     }
 
@@ -164,4 +179,22 @@ public class CommandLineDescriptor {
     public Duration getTimeout() {
         return timeout;
     }
+
+    /**
+     * Returns the maximum number of concurrent executions of the command, or {@code 0} if unlimited.
+     *
+     * @since 2021.20
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Returns the server mode of the command, or {@code null} if a process is started for each execution.
+     *
+     * @since 2021.20
+     */
+    public CommandServerDescriptor getServer() {
+        return server;
+    }
 }
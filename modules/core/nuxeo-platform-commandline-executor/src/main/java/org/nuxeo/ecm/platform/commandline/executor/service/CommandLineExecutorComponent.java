@@ -24,6 +24,8 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
 
 import org.apache.commons.lang3.SystemUtils;
 import org.apache.commons.logging.Log;
@@ -38,7 +40,9 @@ import org.nuxeo.ecm.platform.commandline.executor.api.ExecResult;
 import org.nuxeo.ecm.platform.commandline.executor.service.cmdtesters.CommandTestResult;
 import org.nuxeo.ecm.platform.commandline.executor.service.cmdtesters.CommandTester;
 import org.nuxeo.ecm.platform.commandline.executor.service.executors.Executor;
+import org.nuxeo.ecm.platform.commandline.executor.service.executors.PooledExecutor;
 import org.nuxeo.ecm.platform.commandline.executor.service.executors.ShellExecutor;
+import org.nuxeo.runtime.RuntimeServiceException;
 import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.model.ComponentContext;
 import org.nuxeo.runtime.model.ComponentInstance;
@@ -61,6 +65,9 @@ public class CommandLineExecutorComponent extends DefaultComponent implements Co
 
     public static final String DEFAULT_EXECUTOR = "ShellExecutor";
 
+    /** @since 2021.20 */
+    public static final String POOLED_EXECUTOR = "PooledExecutor";
+
     protected Map<String, CommandLineDescriptor> commandDescriptors = new HashMap<>();
 
     protected EnvironmentDescriptor env = new EnvironmentDescriptor();
@@ -71,6 +78,37 @@ public class CommandLineExecutorComponent extends DefaultComponent implements Co
 
     protected Map<String, Executor> executors = new HashMap<>();
 
+    // @since 2021.20
+    protected Map<String, CommandPermits> commandPermits = new ConcurrentHashMap<>();
+
+    // @since 2021.20
+    protected PooledExecutor pooledExecutor;
+
+    /**
+     * Permits limiting the concurrent executions of a command, resizable while executions hold permits.
+     *
+     * @since 2021.20
+     */
+    protected static class CommandPermits extends Semaphore {
+
+        private static final long serialVersionUID = 1L;
+
+        protected int size;
+
+        protected CommandPermits() {
+            super(0, true);
+        }
+
+        protected synchronized void resize(int newSize) {
+            if (newSize > size) {
+                release(newSize - size);
+            } else if (newSize < size) {
+                reducePermits(size - newSize);
+            }
+            size = newSize;
+        }
+    }
+
     private static final Log log = LogFactory.getLog(CommandLineExecutorComponent.class);
 
     // @since 11.5
@@ -82,13 +120,30 @@ public class CommandLineExecutorComponent extends DefaultComponent implements Co
         env = new EnvironmentDescriptor();
         testers = new HashMap<>();
         executors = new HashMap<>();
-
+        commandPermits = new ConcurrentHashMap<>();
     }
 
     @Override
     public void start(ComponentContext context) {
         super.start(context);
         executors.put(DEFAULT_EXECUTOR, new ShellExecutor(useTimeout));
+        pooledExecutor = new PooledExecutor();
+        executors.put(POOLED_EXECUTOR, pooledExecutor);
+        // start the server processes of the pooled commands
+        commandDescriptors.forEach((name, desc) -> {
+            if (desc.isAvailable() && desc.getServer() != null) {
+                pooledExecutor.prestart(desc, getEnvironment(name, desc));
+            }
+        });
+    }
+
+    @Override
+    public void stop(ComponentContext context) throws InterruptedException {
+        if (pooledExecutor != null) {
+            pooledExecutor.close();
+            pooledExecutor = null;
+        }
+        super.stop(context);
     }
 
     @Override
@@ -97,6 +152,7 @@ public class CommandLineExecutorComponent extends DefaultComponent implements Co
         env = null;
         testers = null;
         executors = null;
+        commandPermits = null;
     }
 
     @Override
@@ -123,6 +179,7 @@ public class CommandLineExecutorComponent extends DefaultComponent implements Co
 
             if (!desc.isEnabled()) {
                 commandDescriptors.remove(name);
+                commandPermits.remove(name);
                 log.info("Command configured to not be enabled: " + name);
                 return;
             }
@@ -159,6 +216,12 @@ public class CommandLineExecutorComponent extends DefaultComponent implements Co
             }
             desc.setAvailable(cmdAvailable);
             commandDescriptors.put(name, desc);
+            if (desc.getMaxConcurrency() > 0) {
+                // resize the current permits, which may be held by running executions
+                commandPermits.computeIfAbsent(name, k -> new CommandPermits()).resize(desc.getMaxConcurrency());
+            } else {
+                commandPermits.remove(name);
+            }
         } else if (EP_CMDTESTER.equals(extensionPoint)) {
             CommandTesterDescriptor desc = (CommandTesterDescriptor) contribution;
             CommandTester tester;
@@ -187,9 +250,28 @@ public class CommandLineExecutorComponent extends DefaultComponent implements Co
 
         CommandLineDescriptor cmdDesc = commandDescriptors.get(commandName);
         Executor executor = executors.get(cmdDesc.getExecutor());
-        EnvironmentDescriptor environment = new EnvironmentDescriptor().merge(env).merge(
-                envDescriptors.getOrDefault(commandName, envDescriptors.get(cmdDesc.getCommand())));
-        return executor.exec(cmdDesc, params, environment);
+        EnvironmentDescriptor environment = getEnvironment(commandName, cmdDesc);
+        Semaphore permits = commandPermits.get(commandName);
+        if (permits == null) {
+            return executor.exec(cmdDesc, params, environment);
+        }
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeServiceException(e);
+        }
+        try {
+            return executor.exec(cmdDesc, params, environment);
+        } finally {
+            permits.release();
+        }
+    }
+
+    protected EnvironmentDescriptor getEnvironment(String commandName, CommandLineDescriptor cmdDesc) {
+        return new EnvironmentDescriptor().merge(env)
+                                          .merge(envDescriptors.getOrDefault(commandName,
+                                                  envDescriptors.get(cmdDesc.getCommand())));
     }
 
     @Override
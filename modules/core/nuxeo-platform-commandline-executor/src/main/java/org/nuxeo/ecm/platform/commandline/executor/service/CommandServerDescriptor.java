@@ -0,0 +1,81 @@
+/*
+ * (C) Copyright 2021 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.platform.commandline.executor.service;
+
+import org.apache.commons.lang3.SystemUtils;
+import org.nuxeo.common.xmap.annotation.XNode;
+import org.nuxeo.common.xmap.annotation.XObject;
+
+/**
+ * XMap descriptor of the server mode of a command, for commands able to process several requests read from their
+ * standard input.
+ * <p>
+ * The server processes are started with the command line of the command and the parameters of this descriptor, each
+ * execution of the command then writes its expanded parameters as a line to the standard input of an idle server
+ * process and reads the output until a line starting with the end marker, optionally followed by a return code.
+ * <p>
+ * The server process must print the end marker after each request, otherwise the execution waits until its timeout.
+ * Tools reading commands from their standard input, such as {@code magick -script -}, don't do it by themselves and
+ * need a wrapper script printing it. No default command uses this mode.
+ *
+ * @since 2021.20
+ */
+@XObject("server")
+public class CommandServerDescriptor {
+
+    public static final String DEFAULT_END_MARKER = "__NUXEO_END__";
+
+    @XNode("parameterString")
+    protected String parameterString = "";
+
+    @XNode("winParameterString")
+    protected String winParameterString;
+
+    @XNode("@poolSize")
+    protected int poolSize = 1;
+
+    @XNode("@minIdle")
+    protected int minIdle;
+
+    @XNode("@endMarker")
+    protected String endMarker = DEFAULT_END_MARKER;
+
+    public String getParametersString() {
+        if (SystemUtils.IS_OS_WINDOWS && winParameterString != null) {
+            return winParameterString;
+        }
+        return parameterString;
+    }
+
+    /**
+     * Returns the maximum number of server processes, and thus of concurrent executions of the command.
+     */
+    public int getPoolSize() {
+        return Math.max(poolSize, 1);
+    }
+
+    /**
+     * Returns the number of server processes started with the component, before the first execution of the command.
+     */
+    public int getMinIdle() {
+        return Math.min(minIdle, getPoolSize());
+    }
+
+    public String getEndMarker() {
+        return endMarker;
+    }
+
+}
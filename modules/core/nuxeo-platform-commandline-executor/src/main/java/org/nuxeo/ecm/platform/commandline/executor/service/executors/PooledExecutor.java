@@ -0,0 +1,300 @@
+/*
+ * (C) Copyright 2021 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.platform.commandline.executor.service.executors;
+
+import static org.nuxeo.common.concurrent.ThreadFactories.newThreadFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.SystemUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.ecm.platform.commandline.executor.api.CmdParameters;
+import org.nuxeo.ecm.platform.commandline.executor.api.ExecResult;
+import org.nuxeo.ecm.platform.commandline.executor.service.CommandLineDescriptor;
+import org.nuxeo.ecm.platform.commandline.executor.service.CommandServerDescriptor;
+import org.nuxeo.ecm.platform.commandline.executor.service.EnvironmentDescriptor;
+import org.nuxeo.runtime.RuntimeServiceException;
+
+/**
+ * {@link Executor} sending the executions of a command to a pool of long running server processes, to avoid the cost
+ * of starting a process for each execution.
+ * <p>
+ * The size of the pool limits the number of concurrent executions of the command. A server process is discarded when
+ * it exits, when an execution times out, or when its response is not cleanly terminated by the end marker.
+ * <p>
+ * This is infrastructure for tools implementing the request/response protocol described by
+ * {@link CommandServerDescriptor}: none of the default commands is contributed in server mode, as their tools don't
+ * print an end marker after each request.
+ *
+ * @since 2021.20
+ * @see CommandServerDescriptor
+ */
+public class PooledExecutor extends ShellExecutor {
+
+    private static final Logger log = LogManager.getLogger(PooledExecutor.class);
+
+    /** Return code of a command killed by a timeout, see {@link ExecResult#isCommandInTimeout}. */
+    protected static final int TIMEOUT_RETURN_CODE = 137;
+
+    protected final Map<String, ServerPool> pools = new ConcurrentHashMap<>();
+
+    protected final ScheduledThreadPoolExecutor watchdog;
+
+    public PooledExecutor() {
+        // timeouts are handled by the executor, the server processes are not prefixed with the timeout command
+        super(false);
+        watchdog = new ScheduledThreadPoolExecutor(1, newThreadFactory("Nuxeo-command-server-watchdog", true));
+        watchdog.setRemoveOnCancelPolicy(true);
+    }
+
+    @Override
+    protected ExecResult exec1(CommandLineDescriptor cmdDesc, CmdParameters params, EnvironmentDescriptor env)
+            throws IOException {
+        ServerPool pool = getPool(cmdDesc, env);
+        String request = toRequest(splitParameters(cmdDesc.getParametersString(), params));
+        Server server = pool.acquire();
+        boolean reusable = false;
+        try {
+            ExecResult result = server.exec(request, getTimeout(cmdDesc), watchdog);
+            reusable = server.isReusable();
+            return result;
+        } finally {
+            pool.release(server, reusable);
+        }
+    }
+
+    /**
+     * Starts the minimum number of idle server processes of the command.
+     */
+    public void prestart(CommandLineDescriptor cmdDesc, EnvironmentDescriptor env) {
+        ServerPool pool = getPool(cmdDesc, env);
+        List<Server> servers = new ArrayList<>();
+        try {
+            for (int i = 0; i < cmdDesc.getServer().getMinIdle(); i++) {
+                servers.add(pool.acquire());
+            }
+        } catch (IOException e) {
+            log.warn("Cannot start server process for command: {}", cmdDesc.getName(), e);
+        } finally {
+            servers.forEach(server -> pool.release(server, true));
+        }
+    }
+
+    /**
+     * Stops all the server processes.
+     */
+    public void close() {
+        pools.values().forEach(ServerPool::close);
+        pools.clear();
+        watchdog.shutdownNow();
+    }
+
+    protected ServerPool getPool(CommandLineDescriptor cmdDesc, EnvironmentDescriptor env) {
+        return pools.computeIfAbsent(cmdDesc.getName(), k -> new ServerPool(cmdDesc, env));
+    }
+
+    /**
+     * Joins the parameters as a request line, quoting the parameters containing spaces or quotes.
+     * <p>
+     * Line breaks are rejected, as they would split the request.
+     */
+    protected String toRequest(List<String> parameters) throws IOException {
+        for (String parameter : parameters) {
+            if (StringUtils.containsAny(parameter, '\r', '\n')) {
+                throw new IOException("Line break in parameter of pooled command: " + parameter);
+            }
+        }
+        return parameters.stream().map(parameter -> {
+            if (!parameter.isEmpty() && StringUtils.containsNone(parameter, " \t\"'\\")) {
+                return parameter;
+            }
+            return '"' + parameter.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+        }).collect(Collectors.joining(" "));
+    }
+
+    protected class ServerPool {
+
+        protected final CommandLineDescriptor cmdDesc;
+
+        protected final EnvironmentDescriptor env;
+
+        protected final BlockingQueue<Server> idle = new LinkedBlockingQueue<>();
+
+        protected final Semaphore permits;
+
+        protected ServerPool(CommandLineDescriptor cmdDesc, EnvironmentDescriptor env) {
+            this.cmdDesc = cmdDesc;
+            this.env = env;
+            permits = new Semaphore(cmdDesc.getServer().getPoolSize(), true);
+        }
+
+        protected Server acquire() throws IOException {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeServiceException(e);
+            }
+            try {
+                Server server;
+                while ((server = idle.poll()) != null) {
+                    if (server.isAlive()) {
+                        return server;
+                    }
+                }
+                return start();
+            } catch (IOException | RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+        }
+
+        protected void release(Server server, boolean reusable) {
+            if (reusable) {
+                idle.add(server);
+            } else {
+                server.destroy();
+            }
+            permits.release();
+        }
+
+        protected Server start() throws IOException {
+            List<String> command = new ArrayList<>();
+            command.add(SystemUtils.IS_OS_WINDOWS ? getCommandAbsolutePath(cmdDesc.getCommand())
+                    : cmdDesc.getCommand());
+            command.addAll(splitParameters(cmdDesc.getServer().getParametersString(), new CmdParameters()));
+            log.debug("Starting server process for command: {}", cmdDesc::getName);
+            return new Server(createProcessBuilder(command, env).start(), cmdDesc.getServer().getEndMarker());
+        }
+
+        protected void close() {
+            Server server;
+            while ((server = idle.poll()) != null) {
+                server.destroy();
+            }
+        }
+    }
+
+    protected static class Server {
+
+        protected final Process process;
+
+        protected final String endMarker;
+
+        protected final BufferedWriter in;
+
+        protected final BufferedReader out;
+
+        /** Whether the last response was terminated by the end marker with nothing after it. */
+        protected boolean framed;
+
+        protected Server(Process process, String endMarker) {
+            this.process = process;
+            this.endMarker = endMarker;
+            // use the host charset, as for the output of the shell executor
+            in = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), Charset.defaultCharset()));
+            out = new BufferedReader(new InputStreamReader(process.getInputStream(), Charset.defaultCharset()));
+        }
+
+        protected ExecResult exec(String request, int timeout, ScheduledExecutorService watchdog) throws IOException {
+            framed = false;
+            long t0 = System.currentTimeMillis();
+            AtomicBoolean timedOut = new AtomicBoolean();
+            ScheduledFuture<?> kill = watchdog.schedule(() -> {
+                timedOut.set(true);
+                process.destroyForcibly();
+            }, timeout, TimeUnit.SECONDS);
+            try {
+                in.write(request);
+                in.newLine();
+                in.flush();
+                List<String> output = new ArrayList<>();
+                String line;
+                while ((line = out.readLine()) != null) {
+                    if (line.startsWith(endMarker)) {
+                        String returnCode = line.substring(endMarker.length()).trim();
+                        if (!returnCode.isEmpty() && !StringUtils.isNumeric(returnCode)) {
+                            throw new IOException("Invalid end of response from server process: " + line);
+                        }
+                        // output already pending after the end marker would be read as the next response
+                        framed = !out.ready();
+                        return new ExecResult(null, output, System.currentTimeMillis() - t0,
+                                returnCode.isEmpty() ? 0 : Integer.parseInt(returnCode));
+                    }
+                    output.add(line);
+                }
+                // the server process exited before the end of the response
+                return new ExecResult(null, output, System.currentTimeMillis() - t0,
+                        timedOut.get() ? TIMEOUT_RETURN_CODE : waitFor());
+            } catch (IOException e) {
+                if (timedOut.get()) {
+                    return new ExecResult(null, List.of(), System.currentTimeMillis() - t0, TIMEOUT_RETURN_CODE);
+                }
+                throw e;
+            } finally {
+                kill.cancel(false);
+            }
+        }
+
+        protected int waitFor() {
+            try {
+                return process.waitFor();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeServiceException(e);
+            }
+        }
+
+        protected boolean isAlive() {
+            return process.isAlive();
+        }
+
+        /**
+         * Checks whether the server process can handle another request.
+         */
+        protected boolean isReusable() {
+            if (!framed) {
+                log.debug("Discarding server process with unterminated response");
+            }
+            return framed && isAlive();
+        }
+
+        protected void destroy() {
+            process.destroy();
+        }
+    }
+
+}
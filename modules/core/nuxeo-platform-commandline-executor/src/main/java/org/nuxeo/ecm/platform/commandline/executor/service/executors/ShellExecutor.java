@@ -108,19 +108,7 @@ public class ShellExecutor implements Executor {
             log.debug("Prefixing command: {}, with {}", cmdDesc.getName(), list);
         }
         list.add(cmdDesc.getCommand());
-        Matcher m = COMMAND_SPLIT.matcher(cmdDesc.getParametersString());
-        while (m.find()) {
-            String word;
-            if (m.group(1) != null) {
-                word = m.group(1); // double-quoted
-            } else if (m.group(2) != null) {
-                word = m.group(2); // single-quoted
-            } else {
-                word = m.group(); // word
-            }
-            List<String> words = replaceParams(word, params);
-            list.addAll(words);
-        }
+        list.addAll(splitParameters(cmdDesc.getParametersString(), params));
 
         List<ProcessBuilder> builders = new LinkedList<>();
         List<String> command = new LinkedList<>();
@@ -162,6 +150,29 @@ public class ShellExecutor implements Executor {
         return new ExecResult(null, output, 0, returnCode);
     }
 
+    /**
+     * Splits the given parameters while keeping quoted parts intact, and expands the parameter values.
+     *
+     * @since 2021.20
+     */
+    protected List<String> splitParameters(String parametersString, CmdParameters params) {
+        List<String> list = new ArrayList<>();
+        Matcher m = COMMAND_SPLIT.matcher(parametersString);
+        while (m.find()) {
+            String word;
+            if (m.group(1) != null) {
+                word = m.group(1); // double-quoted
+            } else if (m.group(2) != null) {
+                word = m.group(2); // single-quoted
+            } else {
+                word = m.group(); // word
+            }
+            List<String> words = replaceParams(word, params);
+            list.addAll(words);
+        }
+        return list;
+    }
+
     protected int getTimeout(CommandLineDescriptor cmdDesc) {
         int timeout = cmdDesc.getTimeout() != null ? Math.toIntExact(cmdDesc.getTimeout().getSeconds()) : DEFAULT_TIMEOUT_S;
         int ttl = TransactionHelper.getTransactionTimeToLive();
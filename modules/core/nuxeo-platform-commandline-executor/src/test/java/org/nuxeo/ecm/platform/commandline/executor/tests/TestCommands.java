@@ -25,9 +25,14 @@ import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 
@@ -166,4 +171,69 @@ public class TestCommands {
         TransactionHelper.startTransaction();
     }
 
+    @Test
+    @Deploy("org.nuxeo.ecm.platform.commandline.executor:OSGI-INF/commandline-command-test-contrib.xml")
+    public void testPooledCommand() throws Exception {
+        Assume.assumeFalse("Requires sh", SystemUtils.IS_OS_WINDOWS);
+        assertTrue(cles.getAvailableCommands().contains("pooled"));
+
+        CmdParameters params = cles.getDefaultCmdParameters();
+        params.addNamedParameter("name", "world");
+        ExecResult result = cles.execCommand("pooled", params);
+        assertTrue(result.isSuccessful());
+        assertEquals(1, result.getOutput().size());
+        String[] first = result.getOutput().get(0).split(" ", 2);
+        assertEquals("hello world", first[1]);
+
+        // the server process is reused
+        params.addNamedParameter("name", "again");
+        result = cles.execCommand("pooled", params);
+        assertTrue(result.isSuccessful());
+        String[] second = result.getOutput().get(0).split(" ", 2);
+        assertEquals("hello again", second[1]);
+        assertEquals(first[0], second[0]);
+    }
+
+    @Test
+    @Deploy("org.nuxeo.ecm.platform.commandline.executor:OSGI-INF/commandline-command-test-contrib.xml")
+    public void testMaxConcurrency() throws Exception {
+        Assume.assumeFalse("Requires sh", SystemUtils.IS_OS_WINDOWS);
+        // an execution overlapping another one fails to create the lock directory
+        File lockDir = new File(Environment.getDefault().getTemp(), "limited-" + System.nanoTime());
+        CmdParameters params = cles.getDefaultCmdParameters();
+        params.addNamedParameter("lockDir", lockDir.getPath());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<ExecResult>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> cles.execCommand("limited", params)));
+            }
+            for (Future<ExecResult> future : futures) {
+                ExecResult result = future.get(30, TimeUnit.SECONDS);
+                assertTrue(String.valueOf(result.getReturnCode()), result.isSuccessful());
+                assertEquals(List.of("limited"), result.getOutput());
+            }
+        } finally {
+            executor.shutdownNow();
+            lockDir.delete();
+        }
+    }
+
+    @Test
+    @Deploy("org.nuxeo.ecm.platform.commandline.executor:OSGI-INF/commandline-command-test-contrib.xml")
+    public void testPooledCommandRejectsLineBreaks() throws Exception {
+        Assume.assumeFalse("Requires sh", SystemUtils.IS_OS_WINDOWS);
+        CmdParameters params = cles.getDefaultCmdParameters();
+        params.addNamedParameter("name", "world\nhello injected");
+        ExecResult result = cles.execCommand("pooled", params);
+        assertFalse(result.isSuccessful());
+
+        // the server process still answers the next request
+        params.addNamedParameter("name", "again");
+        result = cles.execCommand("pooled", params);
+        assertTrue(result.isSuccessful());
+        assertEquals(1, result.getOutput().size());
+        assertEquals("hello again", result.getOutput().get(0).split(" ", 2)[1]);
+    }
+
 }
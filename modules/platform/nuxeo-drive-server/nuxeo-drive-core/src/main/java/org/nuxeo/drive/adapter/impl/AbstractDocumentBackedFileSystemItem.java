@@ -20,6 +20,7 @@ package org.nuxeo.drive.adapter.impl;
 
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 
@@ -58,6 +59,14 @@ public abstract class AbstractDocumentBackedFileSystemItem extends AbstractFileS
 
     protected static final String PERMISSION_CHECK_OPTIMIZED_PROPERTY = "org.nuxeo.drive.permissionCheckOptimized";
 
+    /**
+     * Context data key of the permissions granted to the current user on a document, resolved for a whole batch of
+     * documents before adapting them, see {@link DocumentBackedFolderItem#adaptDocuments}.
+     *
+     * @since 2021.20
+     */
+    public static final String GRANTED_PERMISSIONS_CONTEXT_KEY = "driveGrantedPermissions";
+
     /** Backing {@link DocumentModel} attributes */
     protected String repositoryName;
 
@@ -190,10 +199,10 @@ public abstract class AbstractDocumentBackedFileSystemItem extends AbstractFileS
         lastModificationDate = (Calendar) doc.getPropertyValue("dc:modified");
         CoreSession docSession = doc.getCoreSession();
         canRename = !doc.hasFacet(FacetNames.PUBLISH_SPACE) && !doc.isProxy()
-                && docSession.hasPermission(doc.getRef(), SecurityConstants.WRITE_PROPERTIES);
+                && hasPermission(doc, SecurityConstants.WRITE_PROPERTIES);
         DocumentRef parentRef = doc.getParentRef();
         canDelete = !doc.hasFacet(FacetNames.PUBLISH_SPACE) && !doc.isProxy()
-                && docSession.hasPermission(doc.getRef(), SecurityConstants.REMOVE);
+                && hasPermission(doc, SecurityConstants.REMOVE);
         if (canDelete && Framework.getService(ConfigurationService.class)
                                   .isBooleanFalse(PERMISSION_CHECK_OPTIMIZED_PROPERTY)) {
             // In non optimized mode check RemoveChildren on the parent
@@ -214,6 +223,22 @@ public abstract class AbstractDocumentBackedFileSystemItem extends AbstractFileS
         path = parentPath + FILE_SYSTEM_ITEM_PATH_SEPARATOR + id;
     }
 
+    /**
+     * Checks the permission on the document, using the permissions resolved in batch if available in the
+     * {@value #GRANTED_PERMISSIONS_CONTEXT_KEY} context data of the document.
+     *
+     * @since 2021.20
+     */
+    @SuppressWarnings("unchecked")
+    protected static boolean hasPermission(DocumentModel doc, String permission) {
+        Collection<String> grantedPermissions = (Collection<String>) doc.getContextData(
+                GRANTED_PERMISSIONS_CONTEXT_KEY);
+        if (grantedPermissions != null) {
+            return grantedPermissions.contains(permission);
+        }
+        return doc.getCoreSession().hasPermission(doc.getRef(), permission);
+    }
+
     protected AbstractDocumentBackedFileSystemItem() {
         // Needed for JSON deserialization
     }
@@ -23,10 +23,13 @@ import static org.nuxeo.ecm.platform.query.nxql.CoreQueryDocumentPageProvider.CO
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.Semaphore;
 
@@ -347,14 +350,19 @@ public class DocumentBackedFolderItem extends AbstractDocumentBackedFileSystemIt
     /**
      * Adapts the given {@link DocumentModelList} as {@link FileSystemItem}s using a cache for the {@link FolderItem}
      * ancestors.
+     * <p>
+     * The ancestors and the permissions needed to adapt the documents are resolved for the whole batch beforehand, see
+     * {@link #fetchAncestors} and {@link #resolvePermissions}.
      */
     protected List<FileSystemItem> adaptDocuments(DocumentModelList docs, CoreSession session) {
         Map<DocumentRef, FolderItem> ancestorCache = new HashMap<>();
         log.trace("Caching current FolderItem for doc {}: {}", () -> docPath, this::getPath);
         ancestorCache.put(new IdRef(docId), this);
+        Map<DocumentRef, DocumentModel> ancestors = fetchAncestors(docs, session);
+        resolvePermissions(ancestors.values(), session);
         List<FileSystemItem> descendants = new ArrayList<>(docs.size());
         for (DocumentModel doc : docs) {
-            FolderItem parent = populateAncestorCache(ancestorCache, doc, session, false);
+            FolderItem parent = populateAncestorCache(ancestorCache, ancestors, doc, session, false);
             if (parent == null) {
                 log.debug("Cannot adapt parent document of {} as a FileSystemItem, skipping descendant document",
                         doc::getPathAsString);
@@ -375,9 +383,56 @@ public class DocumentBackedFolderItem extends AbstractDocumentBackedFileSystemIt
         return descendants;
     }
 
-    protected FolderItem populateAncestorCache(Map<DocumentRef, FolderItem> cache, DocumentModel doc,
-            CoreSession session, boolean cacheItem) {
-        DocumentRef parentDocRef = session.getParentDocumentRef(doc.getRef());
+    /**
+     * Fetches the given documents and their ancestors up to this folder, with one query per level of ancestors not
+     * already fetched.
+     *
+     * @return the documents by reference, not containing the ancestors that the current user cannot read
+     * @since 2021.20
+     */
+    protected Map<DocumentRef, DocumentModel> fetchAncestors(DocumentModelList docs, CoreSession session) {
+        Map<DocumentRef, DocumentModel> ancestors = new HashMap<>();
+        docs.forEach(doc -> ancestors.put(doc.getRef(), doc));
+        Set<DocumentRef> fetchedRefs = new HashSet<>(ancestors.keySet());
+        fetchedRefs.add(new IdRef(docId));
+        List<DocumentModel> level = docs;
+        while (!level.isEmpty()) {
+            List<String> parentIds = new ArrayList<>();
+            for (DocumentModel doc : level) {
+                DocumentRef parentRef = doc.getParentRef();
+                if (parentRef != null && fetchedRefs.add(parentRef)) {
+                    parentIds.add(parentRef.toString());
+                }
+            }
+            if (parentIds.isEmpty()) {
+                break;
+            }
+            level = fetchFromVCS(parentIds, session);
+            level.forEach(doc -> ancestors.put(doc.getRef(), doc));
+        }
+        return ancestors;
+    }
+
+    /**
+     * Resolves the permissions checked when adapting the given documents, with a single computation of the ACL of
+     * each document, and stores them in the {@value #GRANTED_PERMISSIONS_CONTEXT_KEY} context data of the document.
+     *
+     * @since 2021.20
+     */
+    protected void resolvePermissions(Collection<DocumentModel> docs, CoreSession session) {
+        List<String> permissions = List.of(SecurityConstants.WRITE_PROPERTIES, SecurityConstants.REMOVE,
+                SecurityConstants.ADD_CHILDREN);
+        for (DocumentModel doc : docs) {
+            // the list is modified for administrators
+            Collection<String> grantedPermissions = session.filterGrantedPermissions(session.getPrincipal(),
+                    doc.getRef(), new ArrayList<>(permissions));
+            doc.putContextData(GRANTED_PERMISSIONS_CONTEXT_KEY, new HashSet<>(grantedPermissions));
+        }
+    }
+
+    protected FolderItem populateAncestorCache(Map<DocumentRef, FolderItem> cache,
+            Map<DocumentRef, DocumentModel> ancestors, DocumentModel doc, CoreSession session, boolean cacheItem) {
+        DocumentRef parentDocRef = doc.getParentRef();
         if (parentDocRef == null) {
             throw new RootlessItemException("Reached repository root");
         }
@@ -389,15 +444,17 @@ public class DocumentBackedFolderItem extends AbstractDocumentBackedFileSystemIt
         }
 
         log.trace("No parent FolderItem found in cache for doc {}, computing ancestor cache", doc::getPathAsString);
-        DocumentModel parentDoc = null;
-        try {
-            parentDoc = session.getDocument(parentDocRef);
-        } catch (DocumentSecurityException e) {
-            log.debug("User {} has no READ access on parent of document {} ({}).", principal::getName,
-                    doc::getPathAsString, doc::getId, () -> e);
-            return null;
+        DocumentModel parentDoc = ancestors.get(parentDocRef);
+        if (parentDoc == null) {
+            try {
+                parentDoc = session.getDocument(parentDocRef);
+            } catch (DocumentSecurityException e) {
+                log.debug("User {} has no READ access on parent of document {} ({}).", principal::getName,
+                        doc::getPathAsString, doc::getId, () -> e);
+                return null;
+            }
         }
-        parentItem = populateAncestorCache(cache, parentDoc, session, true);
+        parentItem = populateAncestorCache(cache, ancestors, parentDoc, session, true);
         if (parentItem == null) {
             return null;
         }
@@ -500,7 +557,7 @@ public class DocumentBackedFolderItem extends AbstractDocumentBackedFileSystemIt
                 this.canCreateChild = canRename;
             } else {
                 // In non optimized mode check AddChildren
-                this.canCreateChild = doc.getCoreSession().hasPermission(doc.getRef(), SecurityConstants.ADD_CHILDREN);
+                this.canCreateChild = hasPermission(doc, SecurityConstants.ADD_CHILDREN);
             }
         }
         this.canScrollDescendants = true;
@@ -0,0 +1,153 @@
+/*
+ * (C) Copyright 2021 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.drive.service.impl;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.drive.service.NuxeoDriveEvents;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.platform.audit.api.LogEntry;
+import org.nuxeo.ecm.platform.audit.impl.LogEntryImpl;
+import org.nuxeo.ecm.platform.audit.listener.StreamAuditEventListener;
+import org.nuxeo.lib.stream.computation.AbstractComputation;
+import org.nuxeo.lib.stream.computation.ComputationContext;
+import org.nuxeo.lib.stream.computation.Record;
+import org.nuxeo.lib.stream.computation.Topology;
+import org.nuxeo.lib.stream.log.Name;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.stream.StreamProcessorTopology;
+import org.nuxeo.runtime.stream.StreamService;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Computation feeding the Drive change feed read by the {@link StreamChangeFinder}.
+ * <p>
+ * It consumes the audit stream and appends to the {@value #STREAM_NAME} stream the log entries that can result in a
+ * file system change, so that the change finder never queries the audit backend. The change feed has a single
+ * partition, its offsets are used as the bounds of the change summaries.
+ *
+ * @since 2021.20
+ */
+public class DriveChangeFeedWriter implements StreamProcessorTopology {
+
+    private static final Logger log = LogManager.getLogger(DriveChangeFeedWriter.class);
+
+    public static final String STREAM_NAME = "drive/changes";
+
+    public static final String COMPUTATION_NAME = "drive/changeFeedWriter";
+
+    protected static final String DOCUMENT_CATEGORY = "eventDocumentCategory";
+
+    protected static final String LIFE_CYCLE_CATEGORY = "eventLifeCycleCategory";
+
+    protected static final Set<String> DOCUMENT_EVENT_IDS = Set.of("documentCreated", "documentModified",
+            "documentMoved", "documentCreatedByCopy", "documentRestored", "addedToCollection", "documentProxyPublished",
+            "documentLocked", "documentUnlocked", "documentUntrashed", "blobDigestUpdated");
+
+    @Override
+    public Topology getTopology(Map<String, String> options) {
+        return Topology.builder()
+                       .addComputation(() -> new DriveChangeFeedComputation(COMPUTATION_NAME),
+                               List.of("i1:" + StreamAuditEventListener.STREAM_NAME, "o1:" + STREAM_NAME))
+                       .build();
+    }
+
+    /**
+     * Checks whether a log entry is a document change to look for under the synchronization roots.
+     */
+    public static boolean isDocumentChange(LogEntry entry) {
+        if (DOCUMENT_CATEGORY.equals(entry.getCategory())) {
+            return DOCUMENT_EVENT_IDS.contains(entry.getEventId());
+        }
+        return LIFE_CYCLE_CATEGORY.equals(entry.getCategory())
+                && "lifecycle_transition_event".equals(entry.getEventId())
+                && !"deleted".equals(entry.getDocLifeCycle());
+    }
+
+    /**
+     * Checks whether a log entry is a Drive event, impacting the synchronization roots. The root unregistrations are
+     * excluded as they are covered by a "deleted" virtual event.
+     */
+    public static boolean isDriveEvent(LogEntry entry) {
+        return NuxeoDriveEvents.EVENT_CATEGORY.equals(entry.getCategory())
+                && !"rootUnregistered".equals(entry.getEventId());
+    }
+
+    public static LogEntry getLogEntry(byte[] data) {
+        try {
+            return new ObjectMapper().readValue(new String(data, UTF_8), LogEntryImpl.class);
+        } catch (IOException e) {
+            throw new NuxeoException("Invalid json logEntry", e);
+        }
+    }
+
+    /**
+     * Waits until all the audit entries logged so far are in the change feed.
+     *
+     * @return {@code true} if the change feed is up to date, {@code false} on timeout
+     */
+    @SuppressWarnings("resource") // LogManager not ours to close
+    public static boolean await(Duration duration) throws InterruptedException {
+        org.nuxeo.lib.stream.log.LogManager logManager = Framework.getService(StreamService.class).getLogManager();
+        Name stream = Name.ofUrn(StreamAuditEventListener.STREAM_NAME);
+        Name group = Name.ofUrn(COMPUTATION_NAME);
+        if (!logManager.exists(stream) || !logManager.listConsumerGroups(stream).contains(group)) {
+            return true;
+        }
+        long deadline = System.currentTimeMillis() + duration.toMillis();
+        while (logManager.getLag(stream, group).lag() > 0) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            Thread.sleep(50);
+        }
+        return true;
+    }
+
+    public static class DriveChangeFeedComputation extends AbstractComputation {
+
+        public DriveChangeFeedComputation(String name) {
+            super(name, 1, 1);
+        }
+
+        @Override
+        public void processRecord(ComputationContext context, String inputStreamName, Record record) {
+            LogEntry entry;
+            try {
+                entry = getLogEntry(record.getData());
+            } catch (NuxeoException e) {
+                log.error("Discard invalid record: {}", record, e);
+                context.askForCheckpoint();
+                return;
+            }
+            if (isDocumentChange(entry) || isDriveEvent(entry)) {
+                log.trace("Append change: {}", entry);
+                context.produceRecord(OUTPUT_1, Record.of(entry.getRepositoryId(), record.getData()));
+            }
+            context.askForCheckpoint();
+        }
+    }
+
+}
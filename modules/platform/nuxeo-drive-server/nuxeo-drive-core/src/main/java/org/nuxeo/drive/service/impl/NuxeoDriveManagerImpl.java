@@ -345,7 +345,8 @@ public class NuxeoDriveManagerImpl extends DefaultComponent implements NuxeoDriv
         syncDate = syncDate - (syncDate % 1000);
         Boolean hasTooManyChanges = Boolean.FALSE;
         int limit = Integer.parseInt(Framework.getProperty(DOCUMENT_CHANGE_LIMIT_PROPERTY, "1000"));
-        if (!allRepositories.isEmpty() && lowerBound >= 0 && upperBound > lowerBound) {
+        // a lower bound greater than the upper bound is checked by the change finder, the changes may have been reset
+        if (!allRepositories.isEmpty() && lowerBound >= 0 && upperBound != lowerBound) {
             for (String repositoryName : allRepositories) {
                 CoreSession session = CoreInstance.getCoreSession(repositoryName, principal);
                 try {
@@ -605,6 +606,10 @@ public class NuxeoDriveManagerImpl extends DefaultComponent implements NuxeoDriv
     public void stop(ComponentContext context) {
         syncRootCache = null;
         collectionSyncRootMemberCache = null;
+        if (changeFinder instanceof StreamChangeFinder) {
+            // stop tailing the change feed
+            ((StreamChangeFinder) changeFinder).close();
+        }
         changeFinder = null;
     }
 
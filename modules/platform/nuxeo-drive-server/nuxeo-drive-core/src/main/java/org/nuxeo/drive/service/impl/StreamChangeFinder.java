@@ -0,0 +1,296 @@
+/*
+ * (C) Copyright 2021 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.drive.service.impl;
+
+import static javax.servlet.http.HttpServletResponse.SC_SERVICE_UNAVAILABLE;
+import static org.nuxeo.common.concurrent.ThreadFactories.newThreadFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.drive.service.SynchronizationRoots;
+import org.nuxeo.drive.service.TooManyChangesException;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.platform.audit.api.ExtendedInfo;
+import org.nuxeo.ecm.platform.audit.api.LogEntry;
+import org.nuxeo.lib.stream.computation.Record;
+import org.nuxeo.lib.stream.log.LogPartition;
+import org.nuxeo.lib.stream.log.LogRecord;
+import org.nuxeo.lib.stream.log.LogTailer;
+import org.nuxeo.lib.stream.log.Name;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.codec.CodecService;
+import org.nuxeo.runtime.stream.StreamService;
+
+/**
+ * Implementation of {@link org.nuxeo.drive.service.FileSystemChangeFinder} reading the Drive change feed written by
+ * the {@link DriveChangeFeedWriter} instead of querying the audit.
+ * <p>
+ * The change feed is tailed by a background thread into a window of the latest changes shared by all the users,
+ * refreshed every {@value #REFRESH_INTERVAL_PARAM} milliseconds, so that a poll only filters the changes of the window
+ * matching the synchronization roots of the user. The polls wait at most {@value #LOAD_TIMEOUT_PARAM} milliseconds for
+ * the initial load of the window, they never read the change feed themselves.
+ * <p>
+ * The bounds of the change summaries are positions in the change feed, a lower bound older than the window, or more
+ * recent than its end as after a reset of the change feed, results in a {@link TooManyChangesException} for the client
+ * to fully synchronize again.
+ * <p>
+ * The changes of a document for a given event are only reported once per poll.
+ *
+ * @since 2021.20
+ */
+public class StreamChangeFinder extends AuditChangeFinder implements AutoCloseable {
+
+    private static final Logger log = LogManager.getLogger(StreamChangeFinder.class);
+
+    public static final String REFRESH_INTERVAL_PARAM = "refreshInterval";
+
+    public static final String READ_TIMEOUT_PARAM = "readTimeout";
+
+    public static final String WINDOW_SIZE_PARAM = "windowSize";
+
+    public static final String CODEC_PARAM = "codec";
+
+    public static final String LOAD_TIMEOUT_PARAM = "loadTimeout";
+
+    protected static final long DEFAULT_REFRESH_INTERVAL = 1000;
+
+    protected static final long DEFAULT_READ_TIMEOUT = 10;
+
+    protected static final int DEFAULT_WINDOW_SIZE = 100_000;
+
+    protected static final String DEFAULT_CODEC = "avro";
+
+    protected static final long DEFAULT_LOAD_TIMEOUT = 10_000;
+
+    protected static final String GROUP_NAME = "drive/changeFinder";
+
+    /** Changes by position in the change feed, the position of a record being its offset + 1. */
+    protected final ConcurrentSkipListMap<Long, LogEntry> window = new ConcurrentSkipListMap<>();
+
+    /** Position of the last change evicted from the window. */
+    protected volatile long windowStart;
+
+    /** Position of the last change read from the change feed. */
+    protected volatile long windowEnd;
+
+    /** Released once the window holds all the changes of the change feed present at startup. */
+    protected final CountDownLatch loaded = new CountDownLatch(1);
+
+    protected volatile ScheduledExecutorService executor;
+
+    protected volatile LogTailer<Record> tailer;
+
+    @Override
+    public long getUpperBound() {
+        awaitLoaded();
+        return windowEnd;
+    }
+
+    @Override
+    protected List<LogEntry> queryAuditEntries(CoreSession session, SynchronizationRoots activeRoots,
+            Set<String> collectionSyncRootMemberIds, long lowerBound, long upperBound, int limit) {
+        awaitLoaded();
+        if (lowerBound < windowStart) {
+            throw new TooManyChangesException(String.format(
+                    "Lower bound %d is older than the change feed window starting at %d.", lowerBound, windowStart));
+        }
+        if (lowerBound > windowEnd && tailer != null) {
+            throw new TooManyChangesException(String.format(
+                    "Lower bound %d is more recent than the change feed window ending at %d.", lowerBound, windowEnd));
+        }
+        String repositoryName = session.getRepositoryName();
+        String principalName = session.getPrincipal().getName();
+        List<LogEntry> entries = new ArrayList<>();
+        for (LogEntry entry : window.subMap(lowerBound, false, upperBound, true).values()) {
+            if (!repositoryName.equals(entry.getRepositoryId())) {
+                continue;
+            }
+            if (!isDriveEvent(entry, principalName)
+                    && !isDocumentChange(entry, activeRoots.getPaths(), collectionSyncRootMemberIds)) {
+                continue;
+            }
+            entries.add(entry);
+        }
+        // same ordering as the audit query, see AuditChangeFinder
+        entries.sort(Comparator.comparing(LogEntry::getEventDate).reversed());
+        List<LogEntry> changes = new ArrayList<>();
+        Set<String> seenChanges = new HashSet<>();
+        for (LogEntry entry : entries) {
+            if (changes.size() >= limit) {
+                break;
+            }
+            if (DriveChangeFeedWriter.isDocumentChange(entry)
+                    && !seenChanges.add(entry.getDocUUID() + '/' + entry.getEventId())) {
+                // only keep the most recent change of a document for a given event
+                continue;
+            }
+            log.debug("Change detected: {}", entry);
+            changes.add(entry);
+        }
+        return changes;
+    }
+
+    protected boolean isDriveEvent(LogEntry entry, String principalName) {
+        if (!DriveChangeFeedWriter.isDriveEvent(entry)) {
+            return false;
+        }
+        // ignore events that only impact other users
+        ExtendedInfo impactedUserInfo = entry.getExtendedInfos().get("impactedUserName");
+        return impactedUserInfo == null || principalName.equals(impactedUserInfo.getValue(String.class));
+    }
+
+    protected boolean isDocumentChange(LogEntry entry, Set<String> rootPaths, Set<String> collectionSyncRootMemberIds) {
+        if (rootPaths.isEmpty() || !DriveChangeFeedWriter.isDocumentChange(entry)) {
+            return false;
+        }
+        String docPath = entry.getDocPath();
+        if (docPath != null && rootPaths.stream().anyMatch(docPath::startsWith)) {
+            return true;
+        }
+        return collectionSyncRootMemberIds != null && collectionSyncRootMemberIds.contains(entry.getDocUUID());
+    }
+
+    /**
+     * Starts the background tailing of the change feed if needed, then waits for the initial load of the window.
+     */
+    protected void awaitLoaded() {
+        startTailing();
+        try {
+            if (!loaded.await(getLongParameter(LOAD_TIMEOUT_PARAM, DEFAULT_LOAD_TIMEOUT), TimeUnit.MILLISECONDS)) {
+                throw new NuxeoException("The change feed window is still loading", SC_SERVICE_UNAVAILABLE);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NuxeoException(e);
+        }
+    }
+
+    protected void startTailing() {
+        if (executor != null) {
+            return;
+        }
+        synchronized (loaded) {
+            if (executor == null) {
+                long interval = Math.max(1, getLongParameter(REFRESH_INTERVAL_PARAM, DEFAULT_REFRESH_INTERVAL));
+                ScheduledExecutorService newExecutor = Executors.newSingleThreadScheduledExecutor(
+                        newThreadFactory("Nuxeo-DriveChangeFinder", true));
+                newExecutor.scheduleWithFixedDelay(this::refreshQuietly, 0, interval, TimeUnit.MILLISECONDS);
+                executor = newExecutor;
+            }
+        }
+    }
+
+    /**
+     * Stops the background tailing of the change feed.
+     */
+    @Override
+    public void close() {
+        synchronized (loaded) {
+            if (executor != null) {
+                executor.shutdownNow();
+                executor = null;
+            }
+        }
+        synchronized (this) {
+            if (tailer != null) {
+                tailer.close();
+                tailer = null;
+            }
+        }
+    }
+
+    protected void refreshQuietly() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            // keep the scheduling of the next refreshes
+            log.error("Cannot read the change feed", e);
+        }
+    }
+
+    /**
+     * Appends to the window the changes written to the change feed since the last refresh.
+     */
+    protected synchronized void refresh() {
+        LogTailer<Record> changeFeed = getTailer();
+        if (changeFeed == null) {
+            // nothing to wait for
+            loaded.countDown();
+            return;
+        }
+        Duration readTimeout = Duration.ofMillis(getLongParameter(READ_TIMEOUT_PARAM, DEFAULT_READ_TIMEOUT));
+        int windowSize = (int) getLongParameter(WINDOW_SIZE_PARAM, DEFAULT_WINDOW_SIZE);
+        try {
+            LogRecord<Record> logRecord;
+            while ((logRecord = changeFeed.read(readTimeout)) != null) {
+                long position = logRecord.offset().offset() + 1;
+                if (window.isEmpty() && windowEnd == 0) {
+                    // the beginning of the change feed may have been deleted by the retention
+                    windowStart = position - 1;
+                }
+                window.put(position, DriveChangeFeedWriter.getLogEntry(logRecord.message().getData()));
+                windowEnd = position;
+                while (window.size() > windowSize) {
+                    windowStart = window.pollFirstEntry().getKey();
+                }
+            }
+        } catch (InterruptedException e) {
+            // stopped
+            Thread.currentThread().interrupt();
+            return;
+        }
+        loaded.countDown();
+    }
+
+    @SuppressWarnings("resource") // LogManager not ours to close
+    protected LogTailer<Record> getTailer() {
+        if (tailer == null) {
+            org.nuxeo.lib.stream.log.LogManager logManager = Framework.getService(StreamService.class)
+                                                                      .getLogManager();
+            Name stream = Name.ofUrn(DriveChangeFeedWriter.STREAM_NAME);
+            if (!logManager.exists(stream)) {
+                log.warn("Change feed {} not found, nuxeo.drive.change.feed.enabled must be set to true",
+                        DriveChangeFeedWriter.STREAM_NAME);
+                return null;
+            }
+            String codecName = parameters.getOrDefault(CODEC_PARAM, DEFAULT_CODEC);
+            // positions are not committed, each node builds its own window from the beginning of the change feed
+            tailer = logManager.createTailer(Name.ofUrn(GROUP_NAME), LogPartition.of(stream, 0),
+                    Framework.getService(CodecService.class).getCodec(codecName, Record.class));
+            tailer.toStart();
+        }
+        return tailer;
+    }
+
+    protected long getLongParameter(String name, long defaultValue) {
+        String value = parameters.get(name);
+        return value == null ? defaultValue : Long.parseLong(value);
+    }
+
+}
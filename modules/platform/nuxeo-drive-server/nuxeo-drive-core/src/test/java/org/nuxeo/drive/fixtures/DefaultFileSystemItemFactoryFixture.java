@@ -30,6 +30,7 @@ import static org.junit.Assume.assumeFalse;
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Iterator;
 import java.util.List;
@@ -1126,6 +1127,50 @@ public class DefaultFileSystemItemFactoryFixture {
         resetPermissions(syncRootFolder, "joe");
     }
 
+    /**
+     * Checks the permissions of the descendants resolved for the whole batch.
+     *
+     * @since 2021.20
+     */
+    @Test
+    public void testScrollDescendantsPermissions() {
+        DocumentModel subFile = session.createDocumentModel(folder.getPathAsString(), "subFile", "File");
+        Blob blob = new StringBlob("This is a file in a writable folder.");
+        blob.setFilename("SubFile.odt");
+        subFile.setPropertyValue(FILE_CONTENT, (Serializable) blob);
+        subFile = session.createDocument(subFile);
+
+        setPermission(syncRootFolder, "joe", SecurityConstants.READ, true);
+        setPermission(folder, "joe", SecurityConstants.READ_WRITE, true);
+        TransactionHelper.commitOrRollbackTransaction();
+        TransactionHelper.startTransaction();
+
+        CoreSession joeSession = coreFeature.getCoreSession("joe");
+        nuxeoDriveManager.registerSynchronizationRoot(joeSession.getPrincipal(), syncRootFolder, session);
+        syncRootFolder = joeSession.getDocument(syncRootFolder.getRef());
+        FolderItem syncRootFolderItem = (FolderItem) defaultSyncRootFolderItemFactory.getFileSystemItem(syncRootFolder);
+        // small batches so that the parent of "subFile" may not be in the same batch
+        List<FileSystemItem> descendants = new ArrayList<>();
+        String scrollId = null;
+        ScrollFileSystemItemList batch;
+        do {
+            batch = syncRootFolderItem.scrollDescendants(scrollId, 2, 1000);
+            scrollId = batch.getScrollId();
+            descendants.addAll(batch);
+        } while (!batch.isEmpty());
+        assertEquals(6, descendants.size());
+        for (FileSystemItem descendant : descendants) {
+            boolean writable = descendant.getName().equals(folder.getTitle())
+                    || descendant.getName().equals("SubFile.odt");
+            assertEquals(descendant.getName(), writable, descendant.getCanRename());
+            if (descendant.getName().equals("SubFile.odt")) {
+                assertEquals(DEFAULT_FILE_SYSTEM_ITEM_ID_PREFIX + folder.getId(), descendant.getParentId());
+            }
+        }
+        resetPermissions(syncRootFolder, "joe");
+        resetPermissions(folder, "joe");
+    }
+
     @Test
     @Deploy("org.nuxeo.drive.core:OSGI-INF/test-nuxeodrive-blobholder-factory-contrib.xml")
     @LogCaptureFeature.FilterOn(logLevel = "ERROR")
@@ -0,0 +1,45 @@
+/*
+ * (C) Copyright 2021 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.drive.fixtures;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.nuxeo.drive.service.impl.StreamChangeFinder;
+
+/**
+ * Tests the bounds of the change summaries specific to the {@link StreamChangeFinder}.
+ *
+ * @since 2021.20
+ */
+public class StreamChangeFinderTestSuite extends AbstractChangeFinderTestCase {
+
+    @Test
+    public void testLowerBoundAfterWindow() {
+        try {
+            nuxeoDriveManager.registerSynchronizationRoot(session.getPrincipal(), folder1, session);
+        } finally {
+            commitAndWaitForAsyncCompletion();
+        }
+        assertFalse(getChanges().isEmpty());
+
+        // lower bound obtained before a reset of the change feed
+        lastEventLogId += 1000;
+        assertTrue(getChangeSummary(session.getPrincipal()).getHasTooManyChanges());
+    }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * (C) Copyright 2021 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.drive.test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.runners.model.FrameworkMethod;
+import org.nuxeo.drive.service.NuxeoDriveManager;
+import org.nuxeo.drive.service.SynchronizationRoots;
+import org.nuxeo.drive.service.impl.DriveChangeFeedWriter;
+import org.nuxeo.drive.service.impl.StreamChangeFinder;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.platform.audit.api.LogEntry;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.test.runner.Deploy;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+import org.nuxeo.runtime.test.runner.RunnerFeature;
+import org.nuxeo.runtime.test.runner.TransactionalFeature;
+
+/**
+ * Feature using the {@link StreamChangeFinder}, the changes of the previous tests being skipped.
+ *
+ * @since 2021.20
+ */
+@Features(NuxeoDriveFeature.class)
+@Deploy("org.nuxeo.drive.core:OSGI-INF/test-nuxeodrive-stream-change-finder-contrib.xml")
+public class StreamChangeFeedFeature implements RunnerFeature {
+
+    @Override
+    public void initialize(FeaturesRunner runner) {
+        runner.getFeature(TransactionalFeature.class).addWaiter(DriveChangeFeedWriter::await);
+    }
+
+    @Override
+    public void beforeSetup(FeaturesRunner runner, FrameworkMethod method, Object test) throws Exception {
+        if (!DriveChangeFeedWriter.await(Duration.ofSeconds(30))) {
+            throw new AssertionError("Timeout waiting for the change feed");
+        }
+        ((TestStreamChangeFinder) Framework.getService(NuxeoDriveManager.class).getChangeFinder()).reset();
+    }
+
+    /**
+     * Positions the change feed relatively to the beginning of the current test, as the tests start from a lower bound
+     * of 0.
+     */
+    public static class TestStreamChangeFinder extends StreamChangeFinder {
+
+        protected long base;
+
+        public void reset() {
+            base = 0;
+            base = getUpperBound();
+        }
+
+        @Override
+        public long getUpperBound() {
+            // read the changes of the test now instead of waiting for the background refresh
+            awaitLoaded();
+            refresh();
+            return super.getUpperBound() - base;
+        }
+
+        @Override
+        protected List<LogEntry> queryAuditEntries(CoreSession session, SynchronizationRoots activeRoots,
+                Set<String> collectionSyncRootMemberIds, long lowerBound, long upperBound, int limit) {
+            return super.queryAuditEntries(session, activeRoots, collectionSyncRootMemberIds, lowerBound + base,
+                    upperBound + base, limit);
+        }
+    }
+
+}
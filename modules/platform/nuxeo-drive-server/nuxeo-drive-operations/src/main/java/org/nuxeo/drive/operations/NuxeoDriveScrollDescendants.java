@@ -18,9 +18,13 @@
  */
 package org.nuxeo.drive.operations;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.StringWriter;
+import java.io.OutputStream;
 
+import org.nuxeo.drive.adapter.FileSystemItem;
 import org.nuxeo.drive.adapter.FolderItem;
 import org.nuxeo.drive.adapter.ScrollFileSystemItemList;
 import org.nuxeo.drive.service.FileSystemItemManager;
@@ -34,6 +38,7 @@ import org.nuxeo.ecm.core.api.Blob;
 import org.nuxeo.ecm.core.api.Blobs;
 import org.nuxeo.runtime.api.Framework;
 
+import com.fasterxml.jackson.core.JsonEncoding;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -86,16 +91,24 @@ public class NuxeoDriveScrollDescendants {
     }
 
     protected Blob writeJSONBlob(ScrollFileSystemItemList scrollFSIList) throws IOException {
-        StringWriter writer = new StringWriter();
+        // stream the items to a temporary file rather than building the whole JSON string in memory
+        Blob blob = Blobs.createBlobWithExtension(".json");
+        blob.setMimeType("application/json");
+        blob.setEncoding(UTF_8.name());
         JsonFactory factory = new JsonFactory();
-        try (JsonGenerator jg = factory.createGenerator(writer)) {
+        try (OutputStream out = new FileOutputStream(blob.getFile());
+                JsonGenerator jg = factory.createGenerator(out, JsonEncoding.UTF8)) {
             jg.setCodec(new ObjectMapper());
             jg.writeStartObject();
             jg.writeStringField("scrollId", scrollFSIList.getScrollId());
-            jg.writeObjectField("fileSystemItems", scrollFSIList);
+            jg.writeArrayFieldStart("fileSystemItems");
+            for (FileSystemItem item : scrollFSIList) {
+                jg.writeObject(item);
+            }
+            jg.writeEndArray();
             jg.writeEndObject();
         }
-        return Blobs.createJSONBlob(writer.toString());
+        return blob;
     }
 
 }
@@ -25,6 +25,7 @@ import java.util.List;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.lucene.search.TotalHits;
 import org.elasticsearch.action.search.ClearScrollRequest;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
@@ -172,7 +173,9 @@ public class ElasticSearchServiceImpl implements ElasticSearchService {
 
     protected DocumentModelListImpl getDocumentModels(NxQueryBuilder queryBuilder, SearchResponse response) {
         DocumentModelListImpl ret;
-        long totalSize = response.getHits().getTotalHits().value;
+        TotalHits totalHits = response.getHits().getTotalHits();
+        // the total hits are a lower bound when they are not all tracked
+        long totalSize = totalHits.relation == TotalHits.Relation.EQUAL_TO ? totalHits.value : -1;
         if (!queryBuilder.returnsDocuments() || response.getHits().getHits().length == 0) {
             ret = new DocumentModelListImpl(0);
             ret.setTotalSize(totalSize);
@@ -104,6 +104,13 @@ public class ElasticSearchNxqlPageProvider extends CoreQueryDocumentPageProvider
                 nxQuery.searchOnAllRepositories();
             }
             nxQuery.useUnrestrictedSession(useUnrestrictedSession());
+            Long cachedResultsCount = getCachedResultsCount(coreSession);
+            String countStrategy = getCountStrategy();
+            if (cachedResultsCount != null || COUNT_STRATEGY_NONE.equals(countStrategy)) {
+                nxQuery.trackTotalHitsUpTo(0);
+            } else if (COUNT_STRATEGY_CAPPED.equals(countStrategy)) {
+                nxQuery.trackTotalHitsUpTo((int) getMaxResults());
+            }
 
             List<String> highlightFields = getHighlights();
             if (highlightFields != null && !highlightFields.isEmpty()) {
@@ -116,7 +123,13 @@ public class ElasticSearchNxqlPageProvider extends CoreQueryDocumentPageProvider
             for (Aggregate<Bucket> agg : ret.getAggregates()) {
                 currentAggregates.put(agg.getId(), agg);
             }
-            setResultsCount(dmList.totalSize());
+            long resultsCount = dmList.totalSize();
+            if (cachedResultsCount != null) {
+                resultsCount = cachedResultsCount.longValue();
+            } else if (resultsCount >= 0 && COUNT_STRATEGY_CACHED.equals(countStrategy)) {
+                putCachedResultsCount(coreSession, resultsCount);
+            }
+            setResultsCount(resultsCount < 0 ? UNKNOWN_SIZE_AFTER_QUERY : resultsCount);
             currentPageDocuments = dmList;
         } catch (QueryParseException e) {
             error = e;
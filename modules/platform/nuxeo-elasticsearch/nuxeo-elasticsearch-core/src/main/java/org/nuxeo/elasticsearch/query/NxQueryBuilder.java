@@ -103,6 +103,8 @@ public class NxQueryBuilder {
 
     protected boolean useUnrestrictedSession;
 
+    protected int trackTotalHitsUpTo = -1;
+
     public NxQueryBuilder(CoreSession coreSession) {
         session = coreSession;
         repositories.add(coreSession.getRepositoryName());
@@ -225,6 +227,16 @@ public class NxQueryBuilder {
         return this;
     }
 
+    /**
+     * Counts the total hits up to the given number, instead of counting them all. Beyond it the total size is unknown.
+     *
+     * @since 2021.20
+     */
+    public NxQueryBuilder trackTotalHitsUpTo(int trackTotalHitsUpTo) {
+        this.trackTotalHitsUpTo = trackTotalHitsUpTo;
+        return this;
+    }
+
     /**
      * @since 9.1
      */
@@ -382,7 +394,11 @@ public class NxQueryBuilder {
             request.sort(sortBuilder);
         }
         // Ask for total hits
-        request.trackTotalHits(true);
+        if (trackTotalHitsUpTo < 0) {
+            request.trackTotalHits(true);
+        } else {
+            request.trackTotalHitsUpTo(trackTotalHitsUpTo);
+        }
         // Add Aggregate
         for (AbstractAggregationBuilder<?> aggregate : getEsAggregates()) {
             request.aggregation(aggregate);
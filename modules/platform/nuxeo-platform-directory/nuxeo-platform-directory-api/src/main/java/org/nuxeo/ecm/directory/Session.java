@@ -24,6 +24,7 @@ import java.io.Serializable;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import org.nuxeo.ecm.core.api.DocumentModel;
 import org.nuxeo.ecm.core.api.DocumentModelList;
@@ -217,6 +218,24 @@ public interface Session extends AutoCloseable {
      */
     List<String> queryIds(QueryBuilder queryBuilder);
 
+    /**
+     * Executes a query with the possibility to fetch a subset of the results, returning the entries as a stream.
+     * <p>
+     * Implementations may stream the entries from the backend as they are read, which is recommended for queries
+     * returning a large number of entries. The default implementation streams the result of
+     * {@link #query(QueryBuilder, boolean)}.
+     * <p>
+     * The returned stream must be closed.
+     *
+     * @param queryBuilder the query to use, including limit, offset and ordering
+     * @param fetchReferences boolean stating if references have to be fetched
+     * @return the stream of entries
+     * @since 2021.20
+     */
+    default Stream<DocumentModel> stream(QueryBuilder queryBuilder, boolean fetchReferences) {
+        return query(queryBuilder, fetchReferences).stream();
+    }
+
     /**
      * Closes the session and all open result sets obtained from this session.
      * <p>
@@ -21,6 +21,8 @@
 
 package org.nuxeo.ecm.directory.ldap;
 
+import static org.nuxeo.common.concurrent.ThreadFactories.newThreadFactory;
+
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.Socket;
@@ -35,12 +37,17 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.naming.Context;
 import javax.naming.NamingException;
 import javax.naming.directory.DirContext;
-import javax.naming.directory.InitialDirContext;
 import javax.naming.directory.SearchControls;
+import javax.naming.ldap.InitialLdapContext;
 import javax.net.SocketFactory;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLSocketFactory;
@@ -83,6 +90,9 @@ public class LDAPDirectory extends AbstractDirectory {
     // the following attribute is only used for testing purpose
     protected ContextProvider testServer;
 
+    /** @since 2021.20 */
+    protected volatile ExecutorService searchExecutor;
+
     public LDAPDirectory(LDAPDirectoryDescriptor descriptor) {
         super(descriptor, LDAPReference.class);
         if (StringUtils.isEmpty(descriptor.getSearchBaseDn())) {
@@ -313,12 +323,48 @@ public class LDAPDirectory extends AbstractDirectory {
                 String ldapUrls = serverConfig.getLdapUrls();
                 contextProperties.put(Context.PROVIDER_URL, ldapUrls);
             }
-            return new InitialDirContext(contextProperties);
+            // an LDAP context allows paging the results using controls
+            return new InitialLdapContext(contextProperties, null);
         } catch (NamingException e) {
             throw new DirectoryException("Cannot connect to LDAP directory '" + getName() + "': " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Gets the executor running searches in parallel, each with its own connection, or {@code null} if the directory
+     * is not configured for parallel searches. The number of threads, and thus of connections used in parallel, is
+     * bounded by {@link LDAPDirectoryDescriptor#getMaxParallelSearches}.
+     *
+     * @since 2021.20
+     */
+    public ExecutorService getSearchExecutor() {
+        int maxParallelSearches = getDescriptor().getMaxParallelSearches();
+        if (maxParallelSearches <= 1) {
+            return null;
+        }
+        if (searchExecutor == null) {
+            synchronized (this) {
+                if (searchExecutor == null) {
+                    ThreadFactory threadFactory = newThreadFactory("Nuxeo-LDAP-Search-" + getName(), true);
+                    ThreadPoolExecutor executor = new ThreadPoolExecutor(maxParallelSearches, maxParallelSearches, 60,
+                            TimeUnit.SECONDS, new LinkedBlockingQueue<>(), threadFactory);
+                    executor.allowCoreThreadTimeOut(true);
+                    searchExecutor = executor;
+                }
+            }
+        }
+        return searchExecutor;
+    }
+
+    @Override
+    public void shutdown() {
+        super.shutdown();
+        if (searchExecutor != null) {
+            searchExecutor.shutdownNow();
+            searchExecutor = null;
+        }
+    }
+
     /**
      * @since 5.7
      * @return ldap server descriptor bound to this directory
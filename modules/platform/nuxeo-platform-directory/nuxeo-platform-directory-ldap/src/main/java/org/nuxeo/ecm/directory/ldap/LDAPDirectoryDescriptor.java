@@ -60,6 +60,12 @@ public class LDAPDirectoryDescriptor extends BaseDirectoryDescriptor {
 
     public static final boolean DEFAULT_FOLLOW_REFERRALS = true;
 
+    /** @since 2021.20 */
+    public static final int DEFAULT_PAGE_SIZE = 0; // default to no paging
+
+    /** @since 2021.20 */
+    public static final int DEFAULT_MAX_PARALLEL_SEARCHES = 1;
+
     @XNode("server")
     public String serverName;
 
@@ -114,6 +120,23 @@ public class LDAPDirectoryDescriptor extends BaseDirectoryDescriptor {
     @XNode("queryTimeLimit")
     private Integer queryTimeLimit;
 
+    /**
+     * Page size of the searches using the RFC 2696 paged results control, 0 to disable paging.
+     *
+     * @since 2021.20
+     */
+    @XNode("pageSize")
+    protected Integer pageSize;
+
+    /**
+     * Maximum number of searches run in parallel, each with its own connection, when resolving references spanning
+     * several base DNs.
+     *
+     * @since 2021.20
+     */
+    @XNode("maxParallelSearches")
+    protected Integer maxParallelSearches;
+
     // Add attribute to allow to ignore referrals resolution
     /**
      * Since 5.9.4
@@ -295,6 +318,34 @@ public class LDAPDirectoryDescriptor extends BaseDirectoryDescriptor {
         return queryTimeLimit == null ? DEFAULT_QUERY_TIME_LIMIT : queryTimeLimit.intValue();
     }
 
+    /**
+     * @since 2021.20
+     */
+    public int getPageSize() {
+        return pageSize == null ? DEFAULT_PAGE_SIZE : pageSize.intValue();
+    }
+
+    /**
+     * @since 2021.20
+     */
+    public void setPageSize(int pageSize) {
+        this.pageSize = Integer.valueOf(pageSize);
+    }
+
+    /**
+     * @since 2021.20
+     */
+    public int getMaxParallelSearches() {
+        return maxParallelSearches == null ? DEFAULT_MAX_PARALLEL_SEARCHES : maxParallelSearches.intValue();
+    }
+
+    /**
+     * @since 2021.20
+     */
+    public void setMaxParallelSearches(int maxParallelSearches) {
+        this.maxParallelSearches = Integer.valueOf(maxParallelSearches);
+    }
+
     public EntryAdaptor getEntryAdaptor() {
         return entryAdaptor;
     }
@@ -375,6 +426,12 @@ public class LDAPDirectoryDescriptor extends BaseDirectoryDescriptor {
         if (other.queryTimeLimit != null) {
             queryTimeLimit = other.queryTimeLimit;
         }
+        if (other.pageSize != null) {
+            pageSize = other.pageSize;
+        }
+        if (other.maxParallelSearches != null) {
+            maxParallelSearches = other.maxParallelSearches;
+        }
         if (other.followReferrals != null) {
             followReferrals = other.followReferrals;
         }
@@ -0,0 +1,209 @@
+/*
+ * (C) Copyright 2021 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.directory.ldap;
+
+import java.io.IOException;
+import java.util.NoSuchElementException;
+
+import javax.naming.CompositeName;
+import javax.naming.Name;
+import javax.naming.NamingEnumeration;
+import javax.naming.NamingException;
+import javax.naming.directory.SearchControls;
+import javax.naming.directory.SearchResult;
+import javax.naming.ldap.Control;
+import javax.naming.ldap.LdapContext;
+import javax.naming.ldap.PagedResultsControl;
+import javax.naming.ldap.PagedResultsResponseControl;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Results of an LDAP search fetched page by page using the RFC 2696 paged results control.
+ * <p>
+ * The next page is requested from the server only when the current one has been consumed, so that large result sets
+ * are neither truncated by the server size limit on a single page nor held in memory. The control is not critical: a
+ * server that doesn't support it returns all the results in a single page.
+ * <p>
+ * The pages are searched with a new instance of the context of the session, holding the paged results control and
+ * its response controls, so that the other operations of the session and concurrent paged searches sharing the same
+ * context don't see them. This instance is closed when the results are exhausted or closed.
+ *
+ * @since 2021.20
+ */
+public class LDAPPagedResults implements NamingEnumeration<SearchResult> {
+
+    private static final Logger log = LogManager.getLogger(LDAPPagedResults.class);
+
+    /** Instance of the context of the session dedicated to this search. */
+    protected final LdapContext context;
+
+    protected final Name base;
+
+    protected final String filter;
+
+    protected final Object[] filterArgs;
+
+    protected final SearchControls controls;
+
+    protected final int pageSize;
+
+    protected NamingEnumeration<SearchResult> page;
+
+    protected int pageCount;
+
+    protected boolean done;
+
+    public LDAPPagedResults(LdapContext context, String base, String filter, Object[] filterArgs,
+            SearchControls controls, int pageSize) throws NamingException {
+        this(context, new CompositeName(base), filter, filterArgs, controls, pageSize);
+    }
+
+    public LDAPPagedResults(LdapContext context, Name base, String filter, Object[] filterArgs,
+            SearchControls controls, int pageSize) throws NamingException {
+        this.base = base;
+        this.filter = filter;
+        this.filterArgs = filterArgs;
+        this.controls = controls;
+        this.pageSize = pageSize;
+        this.context = context.newInstance(getRequestControls(null));
+        search();
+    }
+
+    protected Control[] getRequestControls(byte[] cookie) throws NamingException {
+        try {
+            return new Control[] { new PagedResultsControl(pageSize, cookie, Control.NONCRITICAL) };
+        } catch (IOException e) {
+            NamingException ne = new NamingException("Cannot create paged results control");
+            ne.setRootCause(e);
+            throw ne;
+        }
+    }
+
+    protected void fetchPage(byte[] cookie) throws NamingException {
+        try {
+            context.setRequestControls(getRequestControls(cookie));
+        } catch (NamingException e) {
+            throw closeOnError(e);
+        }
+        search();
+    }
+
+    protected void search() throws NamingException {
+        try {
+            page = context.search(base, filter, filterArgs, controls);
+        } catch (NamingException e) {
+            throw closeOnError(e);
+        }
+        pageCount++;
+    }
+
+    /**
+     * Gets the cookie to request the next page, or {@code null} if the current page is the last one.
+     */
+    protected byte[] getCookie() throws NamingException {
+        Control[] responseControls = context.getResponseControls();
+        if (responseControls != null) {
+            for (Control control : responseControls) {
+                if (control instanceof PagedResultsResponseControl) {
+                    byte[] cookie = ((PagedResultsResponseControl) control).getCookie();
+                    return cookie == null || cookie.length == 0 ? null : cookie;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the number of pages requested so far.
+     */
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    @Override
+    public boolean hasMore() throws NamingException {
+        while (!done) {
+            if (page.hasMore()) {
+                return true;
+            }
+            // response controls are available once the page has been read
+            byte[] cookie = getCookie();
+            page.close();
+            if (cookie == null) {
+                log.trace("Paged search base: {} filter: {} returned {} pages", base, filter, pageCount);
+                close();
+            } else {
+                fetchPage(cookie);
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public SearchResult next() throws NamingException {
+        if (!hasMore()) {
+            throw new NoSuchElementException();
+        }
+        return page.next();
+    }
+
+    @Override
+    public boolean hasMoreElements() {
+        try {
+            return hasMore();
+        } catch (NamingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public SearchResult nextElement() {
+        try {
+            return next();
+        } catch (NamingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void close() throws NamingException {
+        if (done) {
+            return;
+        }
+        try {
+            page.close();
+        } finally {
+            closeContext();
+        }
+    }
+
+    protected void closeContext() throws NamingException {
+        done = true;
+        context.close();
+    }
+
+    protected NamingException closeOnError(NamingException e) {
+        try {
+            closeContext();
+        } catch (NamingException ce) {
+            e.addSuppressed(ce);
+        }
+        return e;
+    }
+
+}
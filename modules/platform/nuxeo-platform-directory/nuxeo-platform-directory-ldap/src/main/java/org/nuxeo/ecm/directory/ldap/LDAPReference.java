@@ -25,6 +25,10 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import javax.naming.CompositeName;
 import javax.naming.InvalidNameException;
@@ -499,8 +503,8 @@ public class LDAPReference extends AbstractReference implements Cloneable {
                             targetId, searchBaseDn, filterExpr, StringUtils.join(filterArgs, ", "),
                             sctls.getSearchScope(), this));
                 }
-                NamingEnumeration<SearchResult> results = sourceSession.getContext().search(searchBaseDn, filterExpr,
-                        filterArgs, sctls);
+                NamingEnumeration<SearchResult> results = sourceSession.search(searchBaseDn, filterExpr, filterArgs,
+                        sctls);
 
                 try {
                     while (results.hasMore()) {
@@ -565,8 +569,8 @@ public class LDAPReference extends AbstractReference implements Cloneable {
                                     + " filter='%s' scope='%s' [%s]",
                             targetId, searchBaseDn, filterExpr, sctls.getSearchScope(), this));
                 }
-                NamingEnumeration<SearchResult> results = sourceSession.getContext().search(searchBaseDn, filterExpr,
-                        sctls);
+                NamingEnumeration<SearchResult> results = sourceSession.search(searchBaseDn, filterExpr,
+                        new Object[0], sctls);
                 try {
                     while (results.hasMore()) {
                         // step #2.3: for each sourceId and each ldapUrl test
@@ -774,6 +778,7 @@ public class LDAPReference extends AbstractReference implements Cloneable {
                 dynamicAttribute = attributes.get(dynamicAttributeId);
             }
             if (dynamicAttribute != null) {
+                List<Callable<Set<String>>> searches = new ArrayList<>();
                 NamingEnumeration<?> rawldapUrls = dynamicAttribute.getAll();
                 try {
                     while (rawldapUrls.hasMore()) {
@@ -797,14 +802,17 @@ public class LDAPReference extends AbstractReference implements Cloneable {
                         } else {
 
                             // Search for references elements
-                            targetIds.addAll(
-                                    getReferencedElements(attributes, directoryDn, linkDn, ldapUrl.getFilter(), scope));
+                            String filter = ldapUrl.getFilter();
+                            int searchScope = scope;
+                            searches.add(() -> getReferencedElements(attributes, directoryDn, linkDn, filter,
+                                    searchScope));
 
                         }
                     }
                 } finally {
                     rawldapUrls.close();
                 }
+                targetIds.addAll(runSearches(searches));
             }
 
             if (dynamicReferences != null && dynamicReferences.length > 0) {
@@ -902,6 +910,52 @@ public class LDAPReference extends AbstractReference implements Cloneable {
         return null;
     }
 
+    /**
+     * Runs the searches for the elements referenced by the several LDAP URLs of a dynamic reference, in parallel if
+     * the target directory allows it, and merges their results.
+     *
+     * @since 2021.20
+     */
+    protected Set<String> runSearches(List<Callable<Set<String>>> searches) throws NamingException {
+        Set<String> targetIds = new TreeSet<>();
+        ExecutorService executor = getTargetLDAPDirectory().getSearchExecutor();
+        if (executor == null || searches.size() < 2) {
+            for (Callable<Set<String>> search : searches) {
+                try {
+                    targetIds.addAll(search.call());
+                } catch (NamingException | RuntimeException e) {
+                    throw e;
+                } catch (Exception e) { // cannot happen
+                    throw new DirectoryException(e);
+                }
+            }
+            return targetIds;
+        }
+        List<Future<Set<String>>> futures = new ArrayList<>(searches.size());
+        try {
+            for (Callable<Set<String>> search : searches) {
+                futures.add(executor.submit(search));
+            }
+            for (Future<Set<String>> future : futures) {
+                targetIds.addAll(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DirectoryException("Interrupted while resolving references for " + this, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof NamingException) {
+                throw (NamingException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new DirectoryException(cause);
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+        return targetIds;
+    }
+
     /**
      * Retrieve the elements referenced by the filter/BaseDN/Scope request.
      *
@@ -952,7 +1006,7 @@ public class LDAPReference extends AbstractReference implements Cloneable {
             }
 
             Name name = new CompositeName().add(dn);
-            NamingEnumeration<SearchResult> results = targetSession.getContext().search(name, filter, scts);
+            NamingEnumeration<SearchResult> results = targetSession.search(name, filter, new Object[0], scts);
             try {
                 while (results.hasMore()) {
                     // NXP-2461: check that id field is filled
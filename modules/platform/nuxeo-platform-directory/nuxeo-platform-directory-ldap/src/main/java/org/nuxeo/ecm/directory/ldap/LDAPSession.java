@@ -31,15 +31,22 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Properties;
 import java.util.Set;
 import java.util.SimpleTimeZone;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import javax.naming.Context;
 import javax.naming.LimitExceededException;
+import javax.naming.Name;
 import javax.naming.NameNotFoundException;
 import javax.naming.NamingEnumeration;
 import javax.naming.NamingException;
@@ -52,6 +59,7 @@ import javax.naming.directory.DirContext;
 import javax.naming.directory.SearchControls;
 import javax.naming.directory.SearchResult;
 import javax.naming.ldap.InitialLdapContext;
+import javax.naming.ldap.LdapContext;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
@@ -510,8 +518,7 @@ public class LDAPSession extends BaseSession {
                         searchBaseDn, filterExpr, StringUtils.join(filterArgs, ","), scts.getSearchScope(), this));
             }
             try {
-                NamingEnumeration<SearchResult> results = getContext().search(searchBaseDn, filterExpr, filterArgs,
-                        scts);
+                NamingEnumeration<SearchResult> results = search(searchBaseDn, filterExpr, filterArgs, scts);
                 DocumentModelList entries = ldapResultsToDocumentModels(results, fetchReferences);
 
                 if (orderBy != null && !orderBy.isEmpty()) {
@@ -567,13 +574,11 @@ public class LDAPSession extends BaseSession {
                             searchBaseDn, filter, filterParams, scts.getSearchScope(), this));
         }
         try {
-            NamingEnumeration<SearchResult> results = getContext().search(searchBaseDn, filter, filterParams.toArray(),
-                    scts);
+            NamingEnumeration<SearchResult> results = search(searchBaseDn, filter, filterParams.toArray(), scts);
             DocumentModelList entries = ldapResultsToDocumentModels(results, fetchReferences);
             if (!orderBy.isEmpty()) {
                 getDirectory().orderEntries(entries, orderBy);
             }
-            // TODO paging using PagedResultsControl
             entries = applyQueryLimits(entries, limit, offset);
             if ((limit != 0 || offset != 0) && !countTotal) {
                 // compat with other directories
@@ -625,8 +630,7 @@ public class LDAPSession extends BaseSession {
                             searchBaseDn, filter, filterParams, scts.getSearchScope(), this));
         }
         try {
-            NamingEnumeration<SearchResult> results = getContext().search(searchBaseDn, filter, filterParams.toArray(),
-                    scts);
+            NamingEnumeration<SearchResult> results = search(searchBaseDn, filter, filterParams.toArray(), scts);
             List<String> ids = new ArrayList<>();
             DocumentModelList entries = ldapResultsToDocumentModels(results, false);
             // order entries if needed
@@ -634,7 +638,6 @@ public class LDAPSession extends BaseSession {
                 getDirectory().orderEntries(entries, AbstractDirectory.makeOrderBy(orders));
             }
             entries.forEach(doc -> ids.add(doc.getId()));
-            // TODO paging using PagedResultsControl
             return applyQueryLimits(ids, limit, offset);
         } catch (NameNotFoundException nnfe) {
             // sometimes ActiveDirectory have some query fail with:
@@ -650,6 +653,126 @@ public class LDAPSession extends BaseSession {
         }
     }
 
+    /**
+     * Executes a query, streaming the entries as they are returned by the server instead of loading all of them in
+     * memory. With an ordering, all the entries are fetched to be sorted before being streamed.
+     * <p>
+     * The returned stream must be closed to release the LDAP search.
+     *
+     * @since 2021.20
+     */
+    @Override
+    public Stream<DocumentModel> stream(QueryBuilder queryBuilder, boolean fetchReferences) {
+        if (!hasPermission(SecurityConstants.READ)) {
+            return Stream.empty();
+        }
+        if (!queryBuilder.orders().isEmpty()) {
+            return super.stream(queryBuilder, fetchReferences);
+        }
+        if (FieldDetector.hasField(queryBuilder.predicate(), getPasswordField())) {
+            throw new DirectoryException("Cannot filter on password");
+        }
+        queryBuilder = addTenantId(queryBuilder);
+
+        // build filter from query
+        LDAPFilterBuilder builder = new LDAPFilterBuilder(getDirectory());
+        builder.walk(queryBuilder.predicate());
+        String filter = builder.filter.toString();
+        List<Serializable> filterParams = builder.params;
+        // add static filters
+        filter = getDirectory().addBaseFilter(filter);
+
+        int limit = Math.max(0, (int) queryBuilder.limit());
+        int offset = Math.max(0, (int) queryBuilder.offset());
+        SearchControls scts = getDirectory().getSearchControls(true);
+
+        if (log.isDebugEnabled()) {
+            log.debug(
+                    String.format("LDAPSession.stream(...): LDAP search base='%s' filter='%s' args='%s' scope='%s' [%s]",
+                            searchBaseDn, filter, filterParams, scts.getSearchScope(), this));
+        }
+        NamingEnumeration<SearchResult> results;
+        try {
+            results = search(searchBaseDn, filter, filterParams.toArray(), scts);
+        } catch (NameNotFoundException nnfe) {
+            // see query(QueryBuilder, boolean)
+            log.error("Unexpected response from server while performing query: " + nnfe.getMessage(), nnfe);
+            return Stream.empty();
+        } catch (LimitExceededException e) {
+            throw new org.nuxeo.ecm.directory.SizeLimitExceededException(e);
+        } catch (NamingException e) {
+            throw new DirectoryException("executeQuery failed", e);
+        }
+        Iterator<DocumentModel> it = new Iterator<>() {
+
+            @Override
+            public boolean hasNext() {
+                try {
+                    return results.hasMore();
+                } catch (LimitExceededException e) {
+                    throw new org.nuxeo.ecm.directory.SizeLimitExceededException(e);
+                } catch (NamingException e) {
+                    throw new DirectoryException("executeQuery failed", e);
+                }
+            }
+
+            @Override
+            public DocumentModel next() {
+                try {
+                    return ldapResultToDocumentModel(results.next(), null, fetchReferences);
+                } catch (NamingException e) {
+                    throw new DirectoryException("executeQuery failed", e);
+                }
+            }
+        };
+        Stream<DocumentModel> stream = StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(it, Spliterator.ORDERED), false).filter(Objects::nonNull);
+        stream = stream.onClose(() -> {
+            try {
+                results.close();
+            } catch (NamingException e) {
+                log.error(e, e);
+            }
+        });
+        if (offset > 0) {
+            stream = stream.skip(offset);
+        }
+        if (limit > 0) {
+            stream = stream.limit(limit);
+        }
+        return stream;
+    }
+
+    /**
+     * Searches the directory, fetching the results page by page if a page size is configured and the context supports
+     * controls.
+     *
+     * @since 2021.20
+     */
+    protected NamingEnumeration<SearchResult> search(String base, String filter, Object[] filterArgs,
+            SearchControls scts) throws NamingException {
+        DirContext context = getContext();
+        int pageSize = getDirectory().getDescriptor().getPageSize();
+        if (pageSize > 0 && context instanceof LdapContext) {
+            return new LDAPPagedResults((LdapContext) context, base, filter, filterArgs, scts, pageSize);
+        }
+        return context.search(base, filter, filterArgs, scts);
+    }
+
+    /**
+     * @since 2021.20
+     * @see #search(String, String, Object[], SearchControls)
+     */
+    protected NamingEnumeration<SearchResult> search(Name base, String filter, Object[] filterArgs,
+            SearchControls scts) throws NamingException {
+        DirContext context = getContext();
+        int pageSize = getDirectory().getDescriptor().getPageSize();
+        if (pageSize > 0 && context instanceof LdapContext) {
+            return new LDAPPagedResults((LdapContext) context, base, filter, filterArgs, scts, pageSize);
+        }
+        return context.search(base, filter, filterArgs, scts);
+    }
+
     @Override
     public void close() {
         try {
@@ -26,6 +26,7 @@ import java.lang.reflect.Proxy;
 
 import javax.naming.ServiceUnavailableException;
 import javax.naming.directory.DirContext;
+import javax.naming.ldap.LdapContext;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -70,7 +71,9 @@ public class LdapRetryHandler implements InvocationHandler {
 
     public static DirContext wrap(DirContext dirContext, int retries) {
         LdapRetryHandler handler = new LdapRetryHandler(dirContext, retries);
+        // keep the LdapContext interface, needed to use controls
+        Class<?> iface = dirContext instanceof LdapContext ? LdapContext.class : DirContext.class;
         return (DirContext) Proxy.newProxyInstance(Thread.currentThread().getContextClassLoader(),
-                new Class<?>[] { DirContext.class }, handler);
+                new Class<?>[] { iface }, handler);
     }
 }
@@ -0,0 +1,261 @@
+/*
+ * (C) Copyright 2021 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.directory.ldap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.naming.NamingEnumeration;
+import javax.naming.NamingException;
+import javax.naming.directory.BasicAttributes;
+import javax.naming.directory.SearchControls;
+import javax.naming.directory.SearchResult;
+import javax.naming.ldap.Control;
+import javax.naming.ldap.LdapContext;
+import javax.naming.ldap.PagedResultsControl;
+import javax.naming.ldap.PagedResultsResponseControl;
+
+import org.junit.Test;
+
+/**
+ * Tests the paged results against a fake LDAP context serving the pages.
+ *
+ * @since 2021.20
+ */
+public class TestLDAPPagedResults {
+
+    protected static class ListEnumeration implements NamingEnumeration<SearchResult> {
+
+        protected final Iterator<SearchResult> it;
+
+        protected ListEnumeration(List<SearchResult> list) {
+            it = list.iterator();
+        }
+
+        @Override
+        public boolean hasMore() {
+            return it.hasNext();
+        }
+
+        @Override
+        public SearchResult next() {
+            return it.next();
+        }
+
+        @Override
+        public boolean hasMoreElements() {
+            return it.hasNext();
+        }
+
+        @Override
+        public SearchResult nextElement() {
+            return it.next();
+        }
+
+        @Override
+        public void close() {
+            // nothing to close
+        }
+    }
+
+    /** Fake server returning the results in pages, keeping track of the context instances. */
+    protected static class PagingServer {
+
+        protected final List<SearchResult> results = new ArrayList<>();
+
+        protected final int pageSize;
+
+        protected final boolean supportsPaging;
+
+        protected int searches;
+
+        protected int instances;
+
+        protected int closedInstances;
+
+        /** Whether the request controls of the context of the session were changed. */
+        protected boolean sessionControlsChanged;
+
+        protected PagingServer(int count, int pageSize, boolean supportsPaging) {
+            for (int i = 0; i < count; i++) {
+                results.add(new SearchResult("cn=entry" + i, null, new BasicAttributes()));
+            }
+            this.pageSize = pageSize;
+            this.supportsPaging = supportsPaging;
+        }
+
+        protected LdapContext getContext() {
+            return (LdapContext) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] { LdapContext.class }, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                        case "setRequestControls":
+                            sessionControlsChanged = true;
+                            return null;
+                        case "newInstance":
+                            instances++;
+                            return new PagingContext((Control[]) args[0]).getContext();
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                        }
+                    });
+        }
+
+        /** Context instance holding the controls and the position of a paged search. */
+        protected class PagingContext {
+
+            protected int offset;
+
+            protected Control[] requestControls;
+
+            protected Control[] responseControls;
+
+            protected PagingContext(Control[] requestControls) {
+                this.requestControls = requestControls;
+            }
+
+            protected LdapContext getContext() {
+                return (LdapContext) Proxy.newProxyInstance(getClass().getClassLoader(),
+                        new Class<?>[] { LdapContext.class }, (proxy, method, args) -> {
+                            switch (method.getName()) {
+                            case "setRequestControls":
+                                requestControls = (Control[]) args[0];
+                                return null;
+                            case "getResponseControls":
+                                return responseControls;
+                            case "search":
+                                return search();
+                            case "close":
+                                closedInstances++;
+                                return null;
+                            default:
+                                throw new UnsupportedOperationException(method.getName());
+                            }
+                        });
+            }
+
+            protected NamingEnumeration<SearchResult> search() throws IOException {
+                searches++;
+                assertTrue(requestControls[0] instanceof PagedResultsControl);
+                if (!supportsPaging) {
+                    responseControls = null;
+                    return new ListEnumeration(results);
+                }
+                int end = Math.min(offset + pageSize, results.size());
+                List<SearchResult> page = results.subList(offset, end);
+                offset = end;
+                // BER encoded sequence of the result size and the cookie
+                byte[] value = end < results.size() ? new byte[] { 0x30, 0x06, 0x02, 0x01, 0x00, 0x04, 0x01, 0x01 }
+                        : new byte[] { 0x30, 0x05, 0x02, 0x01, 0x00, 0x04, 0x00 };
+                responseControls = new Control[] {
+                        new PagedResultsResponseControl(PagedResultsResponseControl.OID, false, value) };
+                return new ListEnumeration(page);
+            }
+        }
+    }
+
+    protected static int count(NamingEnumeration<SearchResult> results) throws NamingException {
+        int count = 0;
+        while (results.hasMore()) {
+            results.next();
+            count++;
+        }
+        return count;
+    }
+
+    @Test
+    public void testPages() throws Exception {
+        PagingServer server = new PagingServer(25, 10, true);
+        LDAPPagedResults results = new LDAPPagedResults(server.getContext(), "ou=people", "(cn=*)", new Object[0],
+                new SearchControls(), 10);
+        assertEquals(25, count(results));
+        assertEquals(3, results.getPageCount());
+        assertEquals(3, server.searches);
+        // the controls are not set on the context of the session, used by its other operations
+        assertFalse(server.sessionControlsChanged);
+        assertEquals(1, server.instances);
+        assertEquals(1, server.closedInstances);
+    }
+
+    @Test
+    public void testExactPages() throws Exception {
+        PagingServer server = new PagingServer(20, 10, true);
+        LDAPPagedResults results = new LDAPPagedResults(server.getContext(), "ou=people", "(cn=*)", new Object[0],
+                new SearchControls(), 10);
+        assertEquals(20, count(results));
+        assertEquals(2, server.searches);
+    }
+
+    @Test
+    public void testPagingNotSupported() throws Exception {
+        PagingServer server = new PagingServer(25, 10, false);
+        LDAPPagedResults results = new LDAPPagedResults(server.getContext(), "ou=people", "(cn=*)", new Object[0],
+                new SearchControls(), 10);
+        assertEquals(25, count(results));
+        assertEquals(1, server.searches);
+        assertEquals(1, server.closedInstances);
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        PagingServer server = new PagingServer(25, 10, true);
+        LDAPPagedResults results = new LDAPPagedResults(server.getContext(), "ou=people", "(cn=*)", new Object[0],
+                new SearchControls(), 10);
+        assertTrue(results.hasMore());
+        results.next();
+        results.close();
+        assertFalse(results.hasMore());
+        // next pages are not fetched
+        assertEquals(1, server.searches);
+        assertEquals(1, server.closedInstances);
+        assertFalse(server.sessionControlsChanged);
+    }
+
+    @Test
+    public void testConcurrentSearches() throws Exception {
+        PagingServer server = new PagingServer(25, 10, true);
+        LdapContext context = server.getContext();
+        LDAPPagedResults results1 = new LDAPPagedResults(context, "ou=people", "(cn=*)", new Object[0],
+                new SearchControls(), 10);
+        LDAPPagedResults results2 = new LDAPPagedResults(context, "ou=people", "(cn=*)", new Object[0],
+                new SearchControls(), 10);
+        // interleaved pages don't mix their cookies
+        int count1 = 0;
+        int count2 = 0;
+        while (results1.hasMore() | results2.hasMore()) {
+            if (results1.hasMore()) {
+                results1.next();
+                count1++;
+            }
+            if (results2.hasMore()) {
+                results2.next();
+                count2++;
+            }
+        }
+        assertEquals(25, count1);
+        assertEquals(25, count2);
+        assertEquals(2, server.instances);
+        assertEquals(2, server.closedInstances);
+        assertFalse(server.sessionControlsChanged);
+    }
+
+}
@@ -39,6 +39,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.junit.Ignore;
 import org.junit.Test;
@@ -1017,6 +1018,43 @@ public class TestLDAPSession extends LDAPDirectoryTestCase {
         }
     }
 
+    @Test
+    public void testStream() throws Exception {
+        int pageSize = userDir.getDescriptor().getPageSize();
+        // small pages, ignored by servers not supporting paging
+        userDir.getDescriptor().setPageSize(2);
+        try (Session session = userDir.getSession()) {
+            checkStreamResult(session, new QueryBuilder(), "Administrator", "user1", "user2", "user3");
+            checkStreamResult(session, new QueryBuilder().predicate(Predicates.like("username", "user%")), "user1",
+                    "user2", "user3");
+            checkStreamResult(session, new QueryBuilder().predicate(Predicates.eq("username", "nosuchuser")));
+            checkStreamResult(session, new QueryBuilder().order(OrderByExprs.desc("username")).limit(2), "user3",
+                    "user2");
+            try (Stream<DocumentModel> stream = session.stream(new QueryBuilder().limit(3), false)) {
+                assertEquals(3, stream.count());
+            }
+            // the session is still usable after a partially consumed stream
+            try (Stream<DocumentModel> stream = session.stream(new QueryBuilder(), false)) {
+                assertTrue(stream.findFirst().isPresent());
+            }
+            assertNotNull(session.getEntry("user1"));
+        } finally {
+            userDir.getDescriptor().setPageSize(pageSize);
+        }
+    }
+
+    protected static void checkStreamResult(Session session, QueryBuilder queryBuilder, String... expected) {
+        try (Stream<DocumentModel> stream = session.stream(queryBuilder, false)) {
+            List<String> ids = stream.map(doc -> (String) doc.getProperty(USER_SCHEMANAME, "username"))
+                                     .collect(Collectors.toList());
+            if (queryBuilder.orders().isEmpty()) {
+                assertEquals(new HashSet<>(Arrays.asList(expected)), new HashSet<>(ids));
+            } else {
+                assertEquals(Arrays.asList(expected), ids);
+            }
+        }
+    }
+
     protected static void checkQueryResult(Session session, QueryBuilder queryBuilder, String... expected) {
         checkQueryResult(session, queryBuilder, -99, expected);
     }
@@ -21,6 +21,7 @@ package org.nuxeo.ecm.platform.picture;
 
 import static org.nuxeo.ecm.platform.picture.api.ImagingConvertConstants.CONVERSION_FORMAT;
 import static org.nuxeo.ecm.platform.picture.api.ImagingConvertConstants.JPEG_CONVERSATION_FORMAT;
+import static org.nuxeo.ecm.platform.picture.api.ImagingConvertConstants.MULTI_OUTPUT_CONVERSION;
 import static org.nuxeo.ecm.platform.picture.api.ImagingConvertConstants.OPTION_RESIZE_DEPTH;
 import static org.nuxeo.ecm.platform.picture.api.ImagingConvertConstants.OPTION_RESIZE_HEIGHT;
 import static org.nuxeo.ecm.platform.picture.api.ImagingConvertConstants.OPTION_RESIZE_WIDTH;
@@ -32,6 +33,7 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -42,6 +44,8 @@ import org.apache.logging.log4j.Logger;
 import org.nuxeo.ecm.automation.AutomationService;
 import org.nuxeo.ecm.automation.OperationContext;
 import org.nuxeo.ecm.automation.OperationException;
+import org.nuxeo.ecm.automation.OperationNotFoundException;
+import org.nuxeo.ecm.automation.OperationType;
 import org.nuxeo.ecm.automation.core.util.Properties;
 import org.nuxeo.ecm.core.api.Blob;
 import org.nuxeo.ecm.core.api.Blobs;
@@ -54,6 +58,7 @@ import org.nuxeo.ecm.platform.actions.ActionContext;
 import org.nuxeo.ecm.platform.actions.ELActionContext;
 import org.nuxeo.ecm.platform.actions.ejb.ActionManager;
 import org.nuxeo.ecm.platform.commandline.executor.api.CommandException;
+import org.nuxeo.ecm.platform.commandline.executor.api.CommandLineExecutorService;
 import org.nuxeo.ecm.platform.commandline.executor.api.CommandNotAvailable;
 import org.nuxeo.ecm.platform.mimetype.MimetypeDetectionException;
 import org.nuxeo.ecm.platform.mimetype.MimetypeNotFoundException;
@@ -81,6 +86,21 @@ public class ImagingComponent extends DefaultComponent implements ImagingService
 
     public static final String PICTURE_CONVERSIONS_EP = "pictureConversions";
 
+    /**
+     * The chain resizing the picture with the {@code pictureResize} converter, the views using it can be generated by
+     * a single command.
+     *
+     * @since 2021.20
+     */
+    public static final String DEFAULT_RESIZE_CHAIN = "Image.Blob.Resize";
+
+    /**
+     * Component contributing the default resize chain.
+     *
+     * @since 2021.20
+     */
+    protected static final String DEFAULT_RESIZE_CHAIN_COMPONENT = "org.nuxeo.ecm.platform.picture.operation";
+
     protected Map<String, String> configurationParameters = new HashMap<>();
 
     protected PictureConversionRegistry pictureConversionRegistry = new PictureConversionRegistry();
@@ -245,8 +265,16 @@ public class ImagingComponent extends DefaultComponent implements ImagingService
         if (imageInfo == null) {
             imageInfo = getImageInfo(blob);
         }
+        Map<String, PictureView> multiOutputViews = convert
+                ? computeMultiOutputViews(blob, pictureConversions, imageInfo)
+                : Collections.emptyMap();
         List<PictureView> views = new ArrayList<>();
         for (PictureConversion pictureConversion : pictureConversions) {
+            PictureView view = multiOutputViews.get(pictureConversion.getId());
+            if (view != null) {
+                views.add(view);
+                continue;
+            }
             try {
                 views.add(computeView(blob, pictureConversion, imageInfo, convert));
             } catch (NuxeoException e) {
@@ -278,13 +306,6 @@ public class ImagingComponent extends DefaultComponent implements ImagingService
     protected PictureView computeView(DocumentModel doc, Blob blob, PictureConversion pictureConversion,
             ImageInfo imageInfo) {
 
-        String title = pictureConversion.getId();
-
-        Map<String, Serializable> pictureViewMap = new HashMap<>();
-        pictureViewMap.put(PictureView.FIELD_TITLE, title);
-        pictureViewMap.put(PictureView.FIELD_DESCRIPTION, pictureConversion.getDescription());
-        pictureViewMap.put(PictureView.FIELD_TAG, pictureConversion.getTag());
-
         Point size = new Point(imageInfo.getWidth(), imageInfo.getHeight());
 
         /*
@@ -300,6 +321,24 @@ public class ImagingComponent extends DefaultComponent implements ImagingService
 
         Blob viewBlob = callPictureConversionChain(doc, blob, pictureConversion, imageInfo, size, conversionFormat);
 
+        return createPictureView(blob, pictureConversion, viewBlob, null);
+    }
+
+    /**
+     * Creates the picture view holding a converted blob.
+     *
+     * @param viewBlobImageInfo the info of the converted blob, or {@code null} to compute it from the blob
+     * @since 2021.20
+     */
+    protected PictureView createPictureView(Blob blob, PictureConversion pictureConversion, Blob viewBlob,
+            ImageInfo viewBlobImageInfo) {
+        String title = pictureConversion.getId();
+
+        Map<String, Serializable> pictureViewMap = new HashMap<>();
+        pictureViewMap.put(PictureView.FIELD_TITLE, title);
+        pictureViewMap.put(PictureView.FIELD_DESCRIPTION, pictureConversion.getDescription());
+        pictureViewMap.put(PictureView.FIELD_TAG, pictureConversion.getTag());
+
         // If the extension of the generated binary is empty, it's fetched from the mimetype
         String extension = FilenameUtils.getExtension(viewBlob.getFilename());
         if (StringUtils.isEmpty(extension)) {
@@ -313,7 +352,9 @@ public class ImagingComponent extends DefaultComponent implements ImagingService
         String viewFilename = String.format("%s_%s.%s", title, FilenameUtils.getBaseName(blob.getFilename()),
                 extension);
         viewBlob.setFilename(viewFilename);
-        ImageInfo viewBlobImageInfo = getImageInfo(viewBlob);
+        if (viewBlobImageInfo == null) {
+            viewBlobImageInfo = getImageInfo(viewBlob);
+        }
         pictureViewMap.put(PictureView.FIELD_FILENAME, viewFilename);
         pictureViewMap.put(PictureView.FIELD_CONTENT, (Serializable) viewBlob);
         pictureViewMap.put(PictureView.FIELD_INFO, viewBlobImageInfo);
@@ -370,13 +411,140 @@ public class ImagingComponent extends DefaultComponent implements ImagingService
         }
     }
 
+    /**
+     * Computes at once the views of the picture conversions using the default resize chain, decoding the original
+     * picture only once. The info of the views is derived from the conversion parameters.
+     * <p>
+     * The views are computed one by one if the default resize chain is overridden, as the conversion would not apply
+     * its operations.
+     *
+     * @return the computed views by picture conversion id, empty if the views have to be computed one by one
+     * @since 2021.20
+     */
+    protected Map<String, PictureView> computeMultiOutputViews(Blob blob, List<PictureConversion> pictureConversions,
+            ImageInfo imageInfo) {
+        if (imageInfo == null || !Boolean.parseBoolean(getConfigurationValue(MULTI_OUTPUT_CONVERSION))) {
+            return Collections.emptyMap();
+        }
+        List<PictureConversion> resizeConversions = new ArrayList<>();
+        for (PictureConversion pictureConversion : pictureConversions) {
+            if (DEFAULT_RESIZE_CHAIN.equals(pictureConversion.getChainId())) {
+                resizeConversions.add(pictureConversion);
+            }
+        }
+        if (resizeConversions.size() < 2 || !isDefaultResizeChain()) {
+            return Collections.emptyMap();
+        }
+        CommandLineExecutorService cles = Framework.getService(CommandLineExecutorService.class);
+        if (!cles.getCommandAvailability(ImageResizer.MULTI_RESIZER_COMMAND).isAvailable()) {
+            return Collections.emptyMap();
+        }
+
+        String conversionFormat = getConfigurationValue(CONVERSION_FORMAT, JPEG_CONVERSATION_FORMAT);
+        boolean jpeg = JPEG_CONVERSATION_FORMAT.equals(conversionFormat);
+        String mimeType = Framework.getService(MimetypeRegistry.class).getMimetypeFromExtension(conversionFormat);
+        Map<String, Point> outputs = new LinkedHashMap<>();
+        Map<String, File> files = new HashMap<>();
+        Map<String, Point> sizes = new HashMap<>();
+        try {
+            for (PictureConversion pictureConversion : resizeConversions) {
+                Point size = new Point(imageInfo.getWidth(), imageInfo.getHeight());
+                if (pictureConversion.getMaxSize() != null) {
+                    size = ImageResizer.scaleToMax(size.x, size.y, pictureConversion.getMaxSize());
+                }
+                if (jpeg) {
+                    size = ImageResizer.scaleToMax(size.x, size.y, ImageResizer.MAX_JEPG_DIMENSION);
+                }
+                File file = Framework.createTempFile("nuxeoImageTarget", "." + conversionFormat);
+                outputs.put(file.getAbsolutePath(), size);
+                files.put(pictureConversion.getId(), file);
+                sizes.put(pictureConversion.getId(), size);
+            }
+            String ext = blob.getFilename() == null ? ".tmp" : "." + FilenameUtils.getExtension(blob.getFilename());
+            try (CloseableFile cf = blob.getCloseableFile(ext)) {
+                resize(cf.getFile(), outputs, imageInfo.getDepth(), jpeg);
+            }
+        } catch (CommandNotAvailable | CommandException | IOException e) {
+            log.warn("Unable to compute views with a single decoding, computing them one by one: {}", e::getMessage);
+            log.debug(e, e);
+            files.values().forEach(File::delete);
+            return Collections.emptyMap();
+        }
+
+        String format = jpeg ? "JPEG" : conversionFormat.toUpperCase();
+        Map<String, PictureView> views = new HashMap<>();
+        for (PictureConversion pictureConversion : resizeConversions) {
+            File file = files.get(pictureConversion.getId());
+            Point size = sizes.get(pictureConversion.getId());
+            Blob viewBlob;
+            try {
+                viewBlob = Blobs.createBlob(file, mimeType, null,
+                        FilenameUtils.getBaseName(blob.getFilename()) + "." + conversionFormat);
+            } catch (IOException e) {
+                throw new NuxeoException(e);
+            }
+            Framework.trackFile(file, viewBlob);
+            ImageInfo viewImageInfo = new ImageInfo(String.valueOf(size.x), String.valueOf(size.y), format,
+                    String.valueOf(imageInfo.getDepth()), imageInfo.getColorSpace(), file.getAbsolutePath());
+            views.put(pictureConversion.getId(), createPictureView(blob, pictureConversion, viewBlob, viewImageInfo));
+        }
+        return views;
+    }
+
+    /**
+     * Checks whether the resize chain is the default one, not overridden by another contribution.
+     *
+     * @since 2021.20
+     */
+    protected boolean isDefaultResizeChain() {
+        try {
+            OperationType chain = Framework.getService(AutomationService.class).getOperation(DEFAULT_RESIZE_CHAIN);
+            return DEFAULT_RESIZE_CHAIN_COMPONENT.equals(chain.getContributingComponent());
+        } catch (OperationNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Resizes the picture to all the outputs, outside of the current transaction like the conversion chains as it can
+     * take a long time.
+     *
+     * @since 2021.20
+     */
+    protected void resize(File file, Map<String, Point> outputs, int depth, boolean jpeg)
+            throws CommandNotAvailable, CommandException {
+        boolean txWasActive = false;
+        try {
+            if (TransactionHelper.isTransactionActive()) {
+                txWasActive = true;
+                TransactionHelper.commitOrRollbackTransaction();
+            }
+            ImageResizer.resize(file.getAbsolutePath(), outputs, depth, jpeg);
+        } finally {
+            if (txWasActive && !TransactionHelper.isTransactionActiveOrMarkedRollback()) {
+                TransactionHelper.startTransaction();
+            }
+        }
+    }
+
     @Override
     public List<PictureView> computeViewsFor(DocumentModel doc, Blob blob, ImageInfo imageInfo, boolean convert) {
-        List<PictureConversion> pictureConversions = getPictureConversions();
+        List<PictureConversion> pictureConversions = new ArrayList<>();
+        for (PictureConversion pictureConversion : getPictureConversions()) {
+            if (canApplyPictureConversion(pictureConversion, doc)) {
+                pictureConversions.add(pictureConversion);
+            }
+        }
+        Map<String, PictureView> multiOutputViews = convert
+                ? computeMultiOutputViews(blob, pictureConversions, imageInfo)
+                : Collections.emptyMap();
         List<PictureView> pictureViews = new ArrayList<>(pictureConversions.size());
 
         for (PictureConversion pictureConversion : pictureConversions) {
-            if (canApplyPictureConversion(pictureConversion, doc)) {
+            PictureView multiOutputView = multiOutputViews.get(pictureConversion.getId());
+            if (multiOutputView != null) {
+                pictureViews.add(multiOutputView);
+            } else {
                 try {
                     PictureView pictureView = computeView(doc, blob, pictureConversion, imageInfo, convert);
                     pictureViews.add(pictureView);
@@ -54,6 +54,14 @@ public class ImagingConvertConstants {
 
     public static final String JPEG_CONVERSATION_FORMAT = "jpg";
 
+    /**
+     * Configuration parameter enabling the generation of all the resized picture views with a single decoding of the
+     * original picture.
+     *
+     * @since 2021.20
+     */
+    public static final String MULTI_OUTPUT_CONVERSION = "multiOutputConversion";
+
     private ImagingConvertConstants() {
     }
 
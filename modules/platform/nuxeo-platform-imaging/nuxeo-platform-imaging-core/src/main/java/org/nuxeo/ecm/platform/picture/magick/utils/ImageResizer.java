@@ -23,6 +23,10 @@ import static org.nuxeo.ecm.platform.picture.api.ImagingConvertConstants.JPEG_CO
 
 import java.awt.Point;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 
 import org.nuxeo.ecm.platform.commandline.executor.api.CmdParameters;
 import org.nuxeo.ecm.platform.commandline.executor.api.CommandException;
@@ -46,6 +50,11 @@ public class ImageResizer extends MagickExecutor {
      */
     public static final int MAX_JEPG_DIMENSION = 65500;
 
+    /**
+     * @since 2021.20
+     */
+    public static final String MULTI_RESIZER_COMMAND = "multiResizer";
+
     public static ImageInfo resize(String inputFile, String outputFile, int targetWidth, int targetHeight,
             int targetDepth) throws CommandNotAvailable, CommandException {
         if (targetDepth == -1) {
@@ -77,6 +86,47 @@ public class ImageResizer extends MagickExecutor {
         }
     }
 
+    /**
+     * Resizes a picture to several sizes at once, the input file is decoded only once.
+     *
+     * @param inputFile the input file
+     * @param outputs the output files and their target sizes, the format of an output file depends on its extension
+     * @param targetDepth the target depth
+     * @param flatten whether to flatten the picture on a white background, needed for JPEG outputs
+     * @since 2021.20
+     */
+    public static void resize(String inputFile, Map<String, Point> outputs, int targetDepth, boolean flatten)
+            throws CommandNotAvailable, CommandException {
+        if (targetDepth == -1) {
+            targetDepth = ImageIdentifier.getInfo(inputFile).getDepth();
+        }
+        List<String> operations = new ArrayList<>();
+        if (flatten) {
+            operations.add("-flatten");
+        }
+        for (Entry<String, Point> es : outputs.entrySet()) {
+            Point size = es.getValue();
+            // resize a clone of the decoded picture and write it, the decoded picture is kept for the next outputs
+            operations.add("(");
+            operations.add("+clone");
+            operations.add("-resize");
+            operations.add(size.x + "x" + size.y + "!");
+            operations.add("-write");
+            operations.add(es.getKey());
+            operations.add("+delete");
+            operations.add(")");
+        }
+        CommandLineExecutorService cles = Framework.getService(CommandLineExecutorService.class);
+        CmdParameters params = cles.getDefaultCmdParameters();
+        params.addNamedParameter("inputFilePath", inputFile);
+        params.addNamedParameter("targetDepth", String.valueOf(targetDepth));
+        params.addNamedParameter("resizeOperations", operations);
+        ExecResult res = cles.execCommand(MULTI_RESIZER_COMMAND, params);
+        if (!res.isSuccessful()) {
+            throw res.getError();
+        }
+    }
+
     /**
      * Adapts width and height to a max conserving ratio.
      *
@@ -0,0 +1,37 @@
+/*
+ * (C) Copyright 2021 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.platform.picture.core.test;
+
+import org.nuxeo.ecm.automation.core.annotations.Operation;
+import org.nuxeo.ecm.automation.core.annotations.OperationMethod;
+import org.nuxeo.ecm.core.api.Blob;
+import org.nuxeo.ecm.core.api.impl.blob.BlobWrapper;
+
+/**
+ * Returns the picture without resizing it.
+ *
+ * @since 2021.20
+ */
+@Operation(id = KeepPictureOperation.ID)
+public class KeepPictureOperation {
+
+    public static final String ID = "Test.KeepPicture";
+
+    @OperationMethod
+    public Blob run(Blob blob) {
+        return new BlobWrapper(blob);
+    }
+}
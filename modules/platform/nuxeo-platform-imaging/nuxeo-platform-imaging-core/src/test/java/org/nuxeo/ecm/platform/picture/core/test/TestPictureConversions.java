@@ -24,6 +24,7 @@ import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.nuxeo.ecm.platform.picture.api.ImagingConvertConstants.MULTI_OUTPUT_CONVERSION;
 
 import java.io.IOException;
 import java.io.Serializable;
@@ -233,6 +234,57 @@ public class TestPictureConversions {
         }
     }
 
+    /**
+     * @since 2021.20
+     */
+    @Test
+    public void testMultiOutputConversion() throws IOException {
+        Blob blob = getCatBlob();
+        List<PictureConversion> conversions = imagingService.getPictureConversions();
+        assertEquals("true", imagingService.getConfigurationValue(MULTI_OUTPUT_CONVERSION));
+        List<PictureView> views = imagingService.computeViewsFor(blob, conversions, true);
+
+        imagingService.setConfigurationValue(MULTI_OUTPUT_CONVERSION, "false");
+        List<PictureView> expectedViews;
+        try {
+            expectedViews = imagingService.computeViewsFor(blob, conversions, true);
+        } finally {
+            imagingService.setConfigurationValue(MULTI_OUTPUT_CONVERSION, "true");
+        }
+
+        assertEquals(expectedViews.size(), views.size());
+        for (int i = 0; i < views.size(); i++) {
+            PictureView view = views.get(i);
+            PictureView expectedView = expectedViews.get(i);
+            assertEquals(expectedView.getTitle(), view.getTitle());
+            assertEquals(expectedView.getFilename(), view.getFilename());
+            assertEquals(expectedView.getWidth(), view.getWidth());
+            assertEquals(expectedView.getHeight(), view.getHeight());
+            // the info derived from the conversion parameters matches the generated picture
+            ImageInfo info = imagingService.getImageInfo(view.getBlob());
+            assertEquals(info.getWidth(), view.getImageInfo().getWidth());
+            assertEquals(info.getHeight(), view.getImageInfo().getHeight());
+            assertEquals(info.getFormat(), view.getImageInfo().getFormat());
+        }
+    }
+
+    /**
+     * @since 2021.20
+     */
+    @Test
+    @Deploy("org.nuxeo.ecm.platform.picture.core:OSGI-INF/imaging-resize-chain-override.xml")
+    public void testMultiOutputConversionWithOverriddenResizeChain() throws IOException {
+        Blob blob = getCatBlob();
+        ImageInfo imageInfo = imagingService.getImageInfo(blob);
+        List<PictureView> views = imagingService.computeViewsFor(blob, imagingService.getPictureConversions(), true);
+        assertFalse(views.isEmpty());
+        // the overriding chain is used instead of the default resize
+        for (PictureView view : views) {
+            assertEquals(view.getTitle(), imageInfo.getWidth(), view.getWidth());
+            assertEquals(view.getTitle(), imageInfo.getHeight(), view.getHeight());
+        }
+    }
+
     protected Blob getCatBlob() throws IOException {
         return Blobs.createBlob(FileUtils.getResourceFileFromContext("images/cat.gif"), "image/gif", null, "cat.gif");
     }
@@ -330,6 +330,16 @@ public class GenericMultiThreadedImporter implements ImporterRunner {
         for (String k : nbCreatedDocsByThreads.keySet()) {
             log.info(k + " --> " + nbCreatedDocsByThreads.get(k));
         }
+        logStopwatches();
+
+    }
+
+    /**
+     * Logs the importer stopwatches that were hit during the import.
+     *
+     * @since 2021.20
+     */
+    protected void logStopwatches() {
         Stopwatch stopwatch;
         for (String name : SimonManager.simonNames()) {
             if (name == null || name.isEmpty() || !name.startsWith("org.nuxeo.ecm.platform.importer")) {
@@ -340,7 +350,6 @@ public class GenericMultiThreadedImporter implements ImporterRunner {
                 log.info(stopwatch.toString());
             }
         }
-
     }
 
     protected static void sleep(int millis) {
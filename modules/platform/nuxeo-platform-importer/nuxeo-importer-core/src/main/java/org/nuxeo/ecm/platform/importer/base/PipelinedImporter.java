@@ -0,0 +1,563 @@
+/*
+ * (C) Copyright 2021 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.platform.importer.base;
+
+import static org.nuxeo.common.concurrent.ThreadFactories.newThreadFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.javasimon.SimonManager;
+import org.javasimon.Split;
+import org.javasimon.Stopwatch;
+import org.nuxeo.common.utils.ExceptionUtils;
+import org.nuxeo.ecm.core.api.Blob;
+import org.nuxeo.ecm.core.api.CoreInstance;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.api.blobholder.BlobHolder;
+import org.nuxeo.ecm.core.api.blobholder.SimpleBlobHolderWithProperties;
+import org.nuxeo.ecm.core.blob.BlobContext;
+import org.nuxeo.ecm.core.blob.BlobInfo;
+import org.nuxeo.ecm.core.blob.BlobManager;
+import org.nuxeo.ecm.core.blob.BlobProvider;
+import org.nuxeo.ecm.core.blob.DocumentBlobManager;
+import org.nuxeo.ecm.core.blob.ManagedBlob;
+import org.nuxeo.ecm.core.blob.SimpleManagedBlob;
+import org.nuxeo.ecm.core.event.Event;
+import org.nuxeo.ecm.core.event.EventProducer;
+import org.nuxeo.ecm.core.event.impl.DocumentEventContext;
+import org.nuxeo.ecm.platform.importer.filter.ImportingDocumentFilter;
+import org.nuxeo.ecm.platform.importer.listener.ImporterListener;
+import org.nuxeo.ecm.platform.importer.log.ImporterLogger;
+import org.nuxeo.ecm.platform.importer.log.PerfLogger;
+import org.nuxeo.ecm.platform.importer.source.FileSourceNode;
+import org.nuxeo.ecm.platform.importer.source.SourceNode;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.transaction.TransactionHelper;
+
+/**
+ * Importer running the import as a pipeline of stages connected by bounded queues:
+ * <ul>
+ * <li>scan: walks the source tree and filters the nodes to import,</li>
+ * <li>map and upload: reads the blobs and metadata of the {@link FileSourceNode}s and writes the blobs to the blob
+ * provider, outside of any transaction, on {@code nbThreads} threads,</li>
+ * <li>create: creates the documents in tree order and commits them every {@code batchSize} documents.</li>
+ * </ul>
+ * When a queue is full the upstream stage blocks, so that scanning never runs far ahead of the blob uploads and the
+ * document creation. The throughput of each stage is tracked by the {@code org.nuxeo.ecm.platform.importer.pipeline.*}
+ * stopwatches and logged during the import.
+ * <p>
+ * The factory receives the source nodes unchanged, so it can still depend on their concrete type: the uploaded blobs
+ * are passed to it through {@link FileSourceNode#setPreparedBlobHolder}. The blobs of other kinds of source nodes are
+ * written during the document creation.
+ *
+ * @since 2021.20
+ */
+public class PipelinedImporter extends GenericMultiThreadedImporter {
+
+    public static final String STOPWATCH_PREFIX = "org.nuxeo.ecm.platform.importer.pipeline.";
+
+    public static final String SCAN_STAGE = "scan";
+
+    public static final String MAP_STAGE = "map";
+
+    public static final String UPLOAD_STAGE = "upload";
+
+    public static final String CREATE_STAGE = "create";
+
+    public static final String COMMIT_STAGE = "commit";
+
+    protected static final String[] STAGES = { SCAN_STAGE, MAP_STAGE, UPLOAD_STAGE, CREATE_STAGE, COMMIT_STAGE };
+
+    protected static final String[] PIPELINE_PERF_HEADERS = { "nbDocs", "average", "imediate", "scanned", "uploaded",
+            "queued" };
+
+    protected static final int DEFAULT_PIPELINE_QUEUE_SIZE = 1000;
+
+    protected static final String CREATE_TASK_ID = "pipeline";
+
+    protected static final PipelineItem END = new PipelineItem(null, null, false);
+
+    protected String blobProviderName;
+
+    protected String blobProviderId;
+
+    protected BlobProvider blobProvider;
+
+    protected BlockingQueue<PipelineItem> createQueue;
+
+    protected ThreadPoolExecutor uploadExecutor;
+
+    protected ExecutorService stageExecutor;
+
+    protected volatile boolean aborted;
+
+    protected long createdDocs;
+
+    public PipelinedImporter(SourceNode sourceNode, String importWritePath, Boolean skipRootContainerCreation,
+            Integer batchSize, Integer nbThreads, ImporterLogger log) {
+        super(sourceNode, importWritePath, skipRootContainerCreation, batchSize, nbThreads, log);
+        queueSize = DEFAULT_PIPELINE_QUEUE_SIZE;
+    }
+
+    public PipelinedImporter(ImporterRunnerConfiguration configuration) {
+        super(configuration);
+        queueSize = DEFAULT_PIPELINE_QUEUE_SIZE;
+    }
+
+    /**
+     * Sets the blob provider to which the blobs are uploaded, defaults to the one used by the blob dispatcher for the
+     * repository.
+     * <p>
+     * When the blob dispatcher sends a document to another blob provider, its blobs are written again to that provider
+     * during the document creation.
+     */
+    public void setBlobProviderName(String blobProviderName) {
+        this.blobProviderName = blobProviderName;
+    }
+
+    /**
+     * Sets the capacity of the queues between the stages.
+     */
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    @Override
+    protected void doRun() throws IOException {
+        targetContainer = getTargetContainer();
+        if (repositoryName == null) {
+            repositoryName = session.getRepositoryName();
+        }
+        blobProvider = getBlobProvider();
+
+        nbCreatedDocsByThreads.clear();
+        for (String stage : STAGES) {
+            getStopwatch(stage).reset();
+        }
+        aborted = false;
+        createdDocs = 0;
+
+        createQueue = new ArrayBlockingQueue<>(queueSize);
+        uploadExecutor = new ThreadPoolExecutor(nbThreads, nbThreads, 500L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), newThreadFactory("Nuxeo-Importer-Upload"),
+                PipelinedImporter::putBlocking);
+        stageExecutor = Executors.newFixedThreadPool(2, newThreadFactory("Nuxeo-Importer-Pipeline"));
+
+        long t0 = System.currentTimeMillis();
+
+        notifyBeforeImport();
+
+        stageExecutor.execute(this::scan);
+        Future<?> creator = stageExecutor.submit(this::create);
+
+        long lastLogProgressTime = t0;
+        long lastCreatedDocCounter = 0;
+        PerfLogger perfLogger = enablePerfLogging ? new PerfLogger(PIPELINE_PERF_HEADERS) : null;
+        while (!creator.isDone()) {
+            sleep(500);
+            long ti = System.currentTimeMillis();
+            if (ti - lastLogProgressTime > 5000) {
+                long inbCreatedDocs = getCreatedDocsCounter();
+                long scanned = getStopwatch(SCAN_STAGE).getCounter();
+                long uploaded = getStopwatch(UPLOAD_STAGE).getCounter();
+                int queued = createQueue.size() + uploadExecutor.getQueue().size();
+                double averageSpeed = 1000 * ((float) (inbCreatedDocs) / (ti - t0));
+                double imediateSpeed = 1000 * ((float) (inbCreatedDocs - lastCreatedDocCounter)
+                        / (ti - lastLogProgressTime));
+                log.info(inbCreatedDocs + " docs created, " + scanned + " nodes scanned, " + uploaded
+                        + " nodes uploaded, " + queued + " nodes queued");
+                log.info("average speed = " + averageSpeed + " docs/s");
+                log.info("immediate speed = " + imediateSpeed + " docs/s");
+
+                if (enablePerfLogging) {
+                    Double[] perfData = { Double.valueOf(inbCreatedDocs), averageSpeed, imediateSpeed,
+                            Double.valueOf(scanned), Double.valueOf(uploaded), Double.valueOf(queued) };
+                    perfLogger.log(perfData);
+                }
+
+                lastLogProgressTime = ti;
+                lastCreatedDocCounter = inbCreatedDocs;
+            }
+        }
+        stopImportProcrocess();
+        log.info("All pipeline stages terminated");
+        if (enablePerfLogging) {
+            perfLogger.release();
+        }
+        notifyAfterImport();
+
+        long t1 = System.currentTimeMillis();
+        long nbCreatedDocs = getCreatedDocsCounter();
+        log.info(nbCreatedDocs + " docs created");
+        log.info(1000 * ((float) (nbCreatedDocs) / (t1 - t0)) + " docs/s");
+        logStopwatches();
+    }
+
+    @Override
+    public void stopImportProcrocess() {
+        aborted = true;
+        if (uploadExecutor != null) {
+            uploadExecutor.shutdownNow();
+        }
+        if (stageExecutor != null) {
+            stageExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Gets the blob provider to which the blobs are uploaded, or {@code null} if they have to be written during the
+     * document creation.
+     */
+    protected BlobProvider getBlobProvider() {
+        blobProviderId = blobProviderName == null
+                ? Framework.getService(DocumentBlobManager.class).getBlobProviderId(repositoryName)
+                : blobProviderName;
+        BlobProvider provider = Framework.getService(BlobManager.class).getBlobProvider(blobProviderId);
+        if (provider == null) {
+            log.warn("No blob provider: " + blobProviderId + ", blobs will be written during document creation");
+            return null;
+        }
+        if (provider.isRecordMode() || provider.isTransient()) {
+            // record mode needs the document to write a blob, transient blobs are written again anyway
+            log.info("Blob provider: " + blobProviderId + " cannot store blobs ahead of their document, blobs will be "
+                    + "written during document creation");
+            return null;
+        }
+        return provider;
+    }
+
+    public static Stopwatch getStopwatch(String stage) {
+        return SimonManager.getStopwatch(STOPWATCH_PREFIX + stage);
+    }
+
+    /**
+     * Blocks the submitter until the upload queue has room, this is the backpressure on the scan stage.
+     */
+    protected static void putBlocking(Runnable task, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("Upload stage is shut down");
+        }
+        try {
+            executor.getQueue().put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException(e);
+        }
+    }
+
+    // ---------- scan stage ----------
+
+    protected void scan() {
+        try {
+            if (skipRootContainerCreation && getFactory().isTargetDocumentModelFolderish(importSource)) {
+                scanChildren(null, importSource);
+            } else {
+                scanNode(null, importSource);
+            }
+        } catch (IOException | RuntimeException e) { // deals with interrupt below
+            log.error("Error while scanning the import source", e);
+            ExceptionUtils.checkInterrupt(e);
+            aborted = true;
+            notifyImportError();
+        } finally {
+            enqueue(END);
+        }
+    }
+
+    protected void scanNode(PipelineItem parent, SourceNode node) throws IOException {
+        if (aborted) {
+            return;
+        }
+        Split split = getStopwatch(SCAN_STAGE).start();
+        PipelineItem item;
+        try {
+            if (!shouldImportDocument(node)) {
+                return;
+            }
+            item = new PipelineItem(parent, node, getFactory().isTargetDocumentModelFolderish(node));
+        } finally {
+            split.stop();
+        }
+        item.prepared = uploadExecutor.submit(() -> prepare(item));
+        if (enqueue(item) && item.folderish) {
+            scanChildren(item, node);
+        }
+    }
+
+    protected void scanChildren(PipelineItem parent, SourceNode node) throws IOException {
+        List<SourceNode> children = node.getChildren();
+        if (children != null) {
+            for (SourceNode child : children) {
+                scanNode(parent, child);
+            }
+        }
+    }
+
+    protected boolean shouldImportDocument(SourceNode node) {
+        for (ImportingDocumentFilter importingDocumentFilter : importingDocumentFilters) {
+            if (!importingDocumentFilter.shouldImportDocument(node)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Puts the item in the creation queue, waiting for room as long as the import is not aborted.
+     */
+    protected boolean enqueue(PipelineItem item) {
+        try {
+            while (!createQueue.offer(item, 1, TimeUnit.SECONDS)) {
+                if (aborted) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NuxeoException(e);
+        }
+    }
+
+    // ---------- map and upload stage ----------
+
+    protected SourceNode prepare(PipelineItem item) throws IOException {
+        if (item.folderish || blobProvider == null || !(item.node instanceof FileSourceNode)) {
+            // other nodes cannot carry the uploaded blobs without being wrapped, which would hide their type
+            return item.node;
+        }
+        FileSourceNode node = (FileSourceNode) item.node;
+        BlobHolder bh;
+        Split split = getStopwatch(MAP_STAGE).start();
+        try {
+            bh = node.getBlobHolder();
+        } finally {
+            split.stop();
+        }
+        List<Blob> blobs = bh == null ? null : bh.getBlobs();
+        if (blobs == null || blobs.isEmpty()) {
+            return node;
+        }
+        split = getStopwatch(UPLOAD_STAGE).start();
+        try {
+            List<Blob> uploaded = new ArrayList<>(blobs.size());
+            for (Blob blob : blobs) {
+                uploaded.add(upload(blob));
+            }
+            node.setPreparedBlobHolder(new SimpleBlobHolderWithProperties(uploaded, bh.getProperties()));
+            return node;
+        } finally {
+            split.stop();
+        }
+    }
+
+    /**
+     * Writes the blob to the blob provider and returns a managed blob pointing to it, the document creation then
+     * reuses its key instead of writing the blob again.
+     */
+    protected Blob upload(Blob blob) throws IOException {
+        if (blob == null || blob instanceof ManagedBlob || blob.getLength() <= 0) {
+            return blob;
+        }
+        BlobInfo blobInfo = new BlobInfo();
+        blobInfo.key = blobProvider.writeBlob(new BlobContext(blob));
+        // the provider sets the digest computed while writing, as during the document creation
+        blobInfo.digest = blob.getDigest();
+        blobInfo.length = Long.valueOf(blob.getLength());
+        blobInfo.filename = blob.getFilename();
+        blobInfo.mimeType = blob.getMimeType();
+        blobInfo.encoding = blob.getEncoding();
+        return new SimpleManagedBlob(blobProviderId, blobInfo);
+    }
+
+    // ---------- create stage ----------
+
+    protected void create() {
+        TransactionHelper.startTransaction(getTransactionTimeout());
+        boolean completedAbruptly = true;
+        try {
+            Framework.doPrivileged(() -> {
+                CoreSession createSession = CoreInstance.getCoreSessionSystem(repositoryName);
+                DocumentModel root = createSession.getDocument(targetContainer.getRef());
+                createAll(createSession, root);
+                createSession.save();
+            });
+            completedAbruptly = false;
+        } catch (RuntimeException e) { // deals with interrupt below
+            log.error("Error during import", e);
+            ExceptionUtils.checkInterrupt(e);
+            notifyImportError();
+        } finally {
+            if (completedAbruptly) {
+                aborted = true;
+                TransactionHelper.setTransactionRollbackOnly();
+            }
+            TransactionHelper.commitOrRollbackTransaction();
+            addCreatedDoc(CREATE_TASK_ID, createdDocs);
+        }
+    }
+
+    protected void createAll(CoreSession createSession, DocumentModel root) {
+        for (;;) {
+            PipelineItem item = dequeue();
+            if (item == null || item == END) {
+                return;
+            }
+            DocumentModel parent = item.parent == null ? root : item.parent.document;
+            if (parent == null) {
+                // parent was filtered out or failed, skip its subtree
+                continue;
+            }
+            DocumentModel doc = createDocument(createSession, parent, item);
+            if (doc == null) {
+                continue;
+            }
+            if (item.folderish) {
+                item.document = doc;
+            }
+            createdDocs++;
+            if (createdDocs % 10 == 0) {
+                addCreatedDoc(CREATE_TASK_ID, createdDocs);
+            }
+            if (createdDocs % batchSize == 0) {
+                Split split = getStopwatch(COMMIT_STAGE).start();
+                createSession.save();
+                TransactionHelper.commitOrRollbackTransaction();
+                TransactionHelper.startTransaction(getTransactionTimeout());
+                split.stop();
+            }
+        }
+    }
+
+    protected PipelineItem dequeue() {
+        try {
+            PipelineItem item;
+            while ((item = createQueue.poll(1, TimeUnit.SECONDS)) == null) {
+                if (aborted) {
+                    return null;
+                }
+            }
+            return item;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NuxeoException(e);
+        }
+    }
+
+    protected DocumentModel createDocument(CoreSession createSession, DocumentModel parent, PipelineItem item) {
+        SourceNode node = item.node;
+        try {
+            node = getPreparedNode(item);
+            DocumentModel doc;
+            Split split = getStopwatch(CREATE_STAGE).start();
+            try {
+                if (item.folderish) {
+                    doc = getFactory().createFolderishNode(createSession, parent, node);
+                } else {
+                    doc = getFactory().createLeafNode(createSession, parent, node);
+                }
+            } finally {
+                split.stop();
+            }
+            if (doc != null && !item.folderish && node.getBlobHolder() != null) {
+                // send an event about the imported document
+                EventProducer eventProducer = Framework.getService(EventProducer.class);
+                Event event = new DocumentEventContext(createSession, createSession.getPrincipal(), doc).newEvent(
+                        GenericThreadedImportTask.DOC_IMPORTED_EVENT);
+                eventProducer.fireEvent(event);
+            }
+            return doc;
+        } catch (IOException e) {
+            String errMsg = "Unable to create " + (item.folderish ? "folderish" : "leaf") + " document for "
+                    + item.node.getSourcePath() + ":" + e + (e.getCause() != null ? e.getCause() : "");
+            log.error(errMsg);
+            // process node creation error and check if the import should continue
+            boolean shouldImportContinue = item.folderish
+                    ? getFactory().processFolderishNodeCreationError(createSession, parent, node)
+                    : getFactory().processLeafNodeCreationError(createSession, parent, node);
+            if (!shouldImportContinue) {
+                throw new NuxeoException(e);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Waits for the map and upload stage of the item, its failure is reported as a creation failure.
+     */
+    protected SourceNode getPreparedNode(PipelineItem item) throws IOException {
+        try {
+            return item.prepared.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NuxeoException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    protected int getTransactionTimeout() {
+        return transactionTimeout == null || transactionTimeout < 1 ? GenericThreadedImportTask.TX_TIMEOUT
+                : transactionTimeout;
+    }
+
+    protected void notifyImportError() {
+        for (ImporterListener listener : listeners) {
+            listener.importError();
+        }
+    }
+
+    /**
+     * A node traveling through the pipeline.
+     */
+    protected static class PipelineItem {
+
+        protected final PipelineItem parent;
+
+        protected final SourceNode node;
+
+        protected final boolean folderish;
+
+        protected volatile Future<SourceNode> prepared;
+
+        /** The created document, only kept for folderish nodes. */
+        protected volatile DocumentModel document;
+
+        protected PipelineItem(PipelineItem parent, SourceNode node, boolean folderish) {
+            this.parent = parent;
+            this.node = node;
+            this.folderish = folderish;
+        }
+    }
+
+}
@@ -102,6 +102,10 @@ public class DefaultImporterComponent extends DefaultComponent {
             if (descriptor.getEnablePerfLogging() != null) {
                 importerService.setEnablePerfLogging(descriptor.getEnablePerfLogging().booleanValue());
             }
+
+            if (descriptor.getPipelined() != null) {
+                importerService.setPipelined(descriptor.getPipelined().booleanValue());
+            }
         }
     }
 
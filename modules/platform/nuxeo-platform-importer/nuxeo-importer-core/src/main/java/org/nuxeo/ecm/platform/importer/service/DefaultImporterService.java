@@ -122,4 +122,12 @@ public interface DefaultImporterService {
      */
     boolean getEnablePerfLogging();
 
+    /**
+     * Sets whether or not the {@link org.nuxeo.ecm.platform.importer.base.PipelinedImporter} is used instead of the
+     * GenericMultiThreadedImporter, uploading the blobs in parallel before creating the documents.
+     *
+     * @since 2021.20
+     */
+    void setPipelined(boolean pipelined);
+
 }
@@ -23,6 +23,7 @@ import org.apache.commons.logging.LogFactory;
 import org.nuxeo.ecm.core.api.NuxeoException;
 import org.nuxeo.ecm.platform.importer.base.GenericMultiThreadedImporter;
 import org.nuxeo.ecm.platform.importer.base.ImporterRunnerConfiguration;
+import org.nuxeo.ecm.platform.importer.base.PipelinedImporter;
 import org.nuxeo.ecm.platform.importer.executor.AbstractImporterExecutor;
 import org.nuxeo.ecm.platform.importer.executor.DefaultImporterExecutor;
 import org.nuxeo.ecm.platform.importer.factories.DefaultDocumentModelFactory;
@@ -57,6 +58,8 @@ public class DefaultImporterServiceImpl implements DefaultImporterService {
 
     protected boolean enablePerfLogging = true;
 
+    protected boolean pipelined;
+
     @Override
     public void importDocuments(String destinationPath, String sourcePath, boolean skipRootContainerCreation,
             int batchSize, int noImportingThreads) {
@@ -92,7 +95,8 @@ public class DefaultImporterServiceImpl implements DefaultImporterService {
         ImporterRunnerConfiguration configuration = new ImporterRunnerConfiguration.Builder(sourceNode,
                 destinationPath, executor.getLogger()).skipRootContainerCreation(skipRootContainerCreation).batchSize(
                 batchSize).nbThreads(noImportingThreads).repository(repositoryName).build();
-        GenericMultiThreadedImporter runner = new GenericMultiThreadedImporter(configuration);
+        GenericMultiThreadedImporter runner = pipelined ? new PipelinedImporter(configuration)
+                : new GenericMultiThreadedImporter(configuration);
         runner.setEnablePerfLogging(enablePerfLogging);
         runner.setTransactionTimeout(transactionTimeout);
         ImporterFilter filter = new EventServiceConfiguratorFilter(false, false, false, false, bulkMode);
@@ -235,4 +239,9 @@ public class DefaultImporterServiceImpl implements DefaultImporterService {
     public boolean getEnablePerfLogging() {
         return this.enablePerfLogging;
     }
+
+    @Override
+    public void setPipelined(boolean pipelined) {
+        this.pipelined = pipelined;
+    }
 }
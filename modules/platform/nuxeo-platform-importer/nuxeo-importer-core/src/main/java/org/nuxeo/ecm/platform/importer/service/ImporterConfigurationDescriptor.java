@@ -48,6 +48,12 @@ public class ImporterConfigurationDescriptor {
     @XNode("enablePerfLogging")
     protected Boolean enablePerfLogging;
 
+    /**
+     * @since 2021.20
+     */
+    @XNode("pipelined")
+    protected Boolean pipelined;
+
     @XObject("documentModelFactory")
     public static class DocumentModelFactory {
 
@@ -100,4 +106,12 @@ public class ImporterConfigurationDescriptor {
     public Boolean getEnablePerfLogging() {
         return enablePerfLogging;
     }
+
+    /**
+     * @since 2021.20
+     * @return true if the PipelinedImporter should be used instead of the GenericMultiThreadedImporter
+     */
+    public Boolean getPipelined() {
+        return pipelined;
+    }
 }
@@ -39,6 +39,11 @@ public class FileSourceNode implements SourceNode {
 
     protected File file;
 
+    /**
+     * @since 2021.20
+     */
+    protected volatile BlobHolder preparedBlobHolder;
+
     public FileSourceNode(File file) {
         this.file = file;
     }
@@ -49,9 +54,25 @@ public class FileSourceNode implements SourceNode {
 
     @Override
     public BlobHolder getBlobHolder() throws IOException {
+        if (preparedBlobHolder != null) {
+            return preparedBlobHolder;
+        }
         return new SimpleBlobHolder(Blobs.createBlob(file));
     }
 
+    /**
+     * Sets the blob holder to return instead of computing it again, used by the pipelined importer to pass the blobs
+     * uploaded ahead of the document creation.
+     * <p>
+     * Subclasses overriding {@link #getBlobHolder()} have to return it when set, otherwise the blobs are written again
+     * during the document creation.
+     *
+     * @since 2021.20
+     */
+    public void setPreparedBlobHolder(BlobHolder preparedBlobHolder) {
+        this.preparedBlobHolder = preparedBlobHolder;
+    }
+
     @Override
     public List<SourceNode> getChildren() throws IOException {
 
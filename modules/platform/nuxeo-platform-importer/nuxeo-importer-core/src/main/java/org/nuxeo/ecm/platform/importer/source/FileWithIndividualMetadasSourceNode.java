@@ -65,6 +65,9 @@ public class FileWithIndividualMetadasSourceNode extends FileSourceNode {
 
     @Override
     public BlobHolder getBlobHolder() throws IOException {
+        if (preparedBlobHolder != null) {
+            return preparedBlobHolder;
+        }
         BlobHolder bh = new SimpleBlobHolderWithProperties(Blobs.createBlob(file), collector.getProperties(file));
         return bh;
     }
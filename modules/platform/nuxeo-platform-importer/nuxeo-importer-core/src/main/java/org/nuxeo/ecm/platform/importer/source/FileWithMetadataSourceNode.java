@@ -56,6 +56,9 @@ public class FileWithMetadataSourceNode extends FileSourceNode {
 
     @Override
     public BlobHolder getBlobHolder() throws IOException {
+        if (preparedBlobHolder != null) {
+            return preparedBlobHolder;
+        }
         BlobHolder bh = new SimpleBlobHolderWithProperties(Blobs.createBlob(file), collector.getProperties(file.getPath()));
         return bh;
     }
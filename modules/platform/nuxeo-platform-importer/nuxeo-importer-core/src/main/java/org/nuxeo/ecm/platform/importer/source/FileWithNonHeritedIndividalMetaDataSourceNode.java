@@ -81,6 +81,9 @@ public class FileWithNonHeritedIndividalMetaDataSourceNode extends FileSourceNod
 
     @Override
     public BlobHolder getBlobHolder() throws IOException {
+        if (preparedBlobHolder != null) {
+            return preparedBlobHolder;
+        }
         BlobHolder bh = null;
         String metadataFilename = file.getParent() + File.separator + getFileNameNoExt(file) + PROPERTY_FILE_SUFIX;
         File metadataFile = new File(metadataFilename);
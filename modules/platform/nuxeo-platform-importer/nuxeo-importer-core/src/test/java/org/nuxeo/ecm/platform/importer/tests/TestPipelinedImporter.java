@@ -0,0 +1,151 @@
+/*
+ * (C) Copyright 2021 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.platform.importer.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.inject.Inject;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.common.utils.FileUtils;
+import org.nuxeo.ecm.core.api.Blob;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.PathRef;
+import org.nuxeo.ecm.core.blob.ManagedBlob;
+import org.nuxeo.ecm.core.test.CoreFeature;
+import org.nuxeo.ecm.core.test.annotations.Granularity;
+import org.nuxeo.ecm.core.test.annotations.RepositoryConfig;
+import org.nuxeo.ecm.platform.importer.base.PipelinedImporter;
+import org.nuxeo.ecm.platform.importer.executor.DefaultImporterExecutor;
+import org.nuxeo.ecm.platform.importer.factories.DefaultDocumentModelFactory;
+import org.nuxeo.ecm.platform.importer.source.FileWithMetadataSourceNode;
+import org.nuxeo.ecm.platform.importer.source.SourceNode;
+import org.nuxeo.runtime.test.runner.Deploy;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+import org.nuxeo.runtime.test.runner.TransactionalFeature;
+
+/**
+ * @since 2021.20
+ */
+@RunWith(FeaturesRunner.class)
+@Features(CoreFeature.class)
+@RepositoryConfig(cleanup = Granularity.METHOD)
+@Deploy("org.nuxeo.ecm.platform.content.template")
+public class TestPipelinedImporter {
+
+    protected static final String TARGET_PATH = "/default-domain/workspaces/";
+
+    @Inject
+    protected CoreSession session;
+
+    @Inject
+    protected TransactionalFeature txFeature;
+
+    protected DefaultImporterExecutor executor = new DefaultImporterExecutor();
+
+    /** Factory keeping the source nodes it receives, to check their type. */
+    protected static class RecordingDocumentModelFactory extends DefaultDocumentModelFactory {
+
+        protected final List<SourceNode> nodes = new ArrayList<>();
+
+        @Override
+        public DocumentModel createLeafNode(CoreSession session, DocumentModel parent, SourceNode node)
+                throws IOException {
+            nodes.add(node);
+            return super.createLeafNode(session, parent, node);
+        }
+    }
+
+    protected long runImport(PipelinedImporter importer) {
+        executor.run(importer, true);
+        txFeature.nextTransaction();
+        return executor.getCreatedDocsCounter();
+    }
+
+    protected PipelinedImporter newImporter(File source) {
+        SourceNode src = new FileWithMetadataSourceNode(source);
+        // small batches and queues to go through commits and backpressure
+        PipelinedImporter importer = new PipelinedImporter(src, TARGET_PATH, false, 2, 3, executor.getLogger());
+        importer.setFactory(new DefaultDocumentModelFactory());
+        importer.setQueueSize(2);
+        importer.setEnablePerfLogging(false);
+        return importer;
+    }
+
+    @Test
+    public void testImport() throws Exception {
+        File source = FileUtils.getResourceFileFromContext("import-src");
+        PipelinedImporter importer = newImporter(source);
+        RecordingDocumentModelFactory factory = new RecordingDocumentModelFactory();
+        importer.setFactory(factory);
+
+        long createdDocs = runImport(importer);
+        // 5 folders and 5 files
+        assertEquals(10, createdDocs);
+        // the factory receives the source nodes with their concrete type
+        assertEquals(5, factory.nodes.size());
+        factory.nodes.forEach(node -> assertTrue(node.toString(), node instanceof FileWithMetadataSourceNode));
+
+        DocumentModel doc = session.getDocument(new PathRef(TARGET_PATH + "import-src/branch1/hello.pdf"));
+        assertEquals("src1", doc.getPropertyValue("dc:source"));
+        assertArrayEquals(new String[] { "subject4", "subject5" }, (String[]) doc.getPropertyValue("dc:subjects"));
+
+        // the blob was uploaded before the document creation
+        Blob blob = (Blob) doc.getPropertyValue("file:content");
+        assertTrue(blob instanceof ManagedBlob);
+        assertEquals("hello.pdf", blob.getFilename());
+        File file = new File(source, "branch1/hello.pdf");
+        assertEquals(file.length(), blob.getLength());
+        // the digest is the one of the content, not the blob key
+        try (InputStream in = new FileInputStream(file)) {
+            assertEquals(DigestUtils.md5Hex(in), blob.getDigest());
+        }
+        assertEquals(5, PipelinedImporter.getStopwatch(PipelinedImporter.UPLOAD_STAGE).getCounter());
+        assertEquals(10, PipelinedImporter.getStopwatch(PipelinedImporter.CREATE_STAGE).getCounter());
+
+        doc = session.getDocument(new PathRef(TARGET_PATH + "import-src/branch2/branch21/hello.pdf"));
+        assertEquals("src2", doc.getPropertyValue("dc:source"));
+    }
+
+    @Test
+    public void testImportWithFilter() throws Exception {
+        File source = FileUtils.getResourceFileFromContext("import-src");
+        PipelinedImporter importer = newImporter(source);
+        importer.addImportingDocumentFilters(node -> !"branch1".equals(node.getName()));
+
+        long createdDocs = runImport(importer);
+        // branch1 subtree is not imported
+        assertEquals(6, createdDocs);
+        assertFalse(session.exists(new PathRef(TARGET_PATH + "import-src/branch1")));
+        assertTrue(session.exists(new PathRef(TARGET_PATH + "import-src/hello.pdf")));
+        assertTrue(session.exists(new PathRef(TARGET_PATH + "import-src/branch2/branch21/hello.pdf")));
+    }
+
+}
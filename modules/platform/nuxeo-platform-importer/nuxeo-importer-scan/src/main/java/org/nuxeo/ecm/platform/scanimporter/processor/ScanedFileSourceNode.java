@@ -71,6 +71,9 @@ public class ScanedFileSourceNode extends FileSourceNode {
 
     @Override
     public BlobHolder getBlobHolder() throws IOException {
+        if (preparedBlobHolder != null) {
+            return preparedBlobHolder;
+        }
         if (bh == null) {
             return new SimpleBlobHolder(Blobs.createBlob(file));
         } else {
@@ -19,11 +19,17 @@
  */
 package org.nuxeo.ecm.platform.query.nxql;
 
+import static org.nuxeo.ecm.core.api.security.SecurityConstants.SYSTEM_USERNAME;
+import static org.nuxeo.ecm.core.model.Repository.CAPABILITY_QUERY_NULLS_LAST_ASC;
+import static org.nuxeo.ecm.core.model.Repository.CAPABILITY_QUERY_NULLS_LAST_DESC;
+
 import java.io.Serializable;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -33,12 +39,18 @@ import org.nuxeo.ecm.core.api.DocumentModelList;
 import org.nuxeo.ecm.core.api.Filter;
 import org.nuxeo.ecm.core.api.NuxeoException;
 import org.nuxeo.ecm.core.api.SortInfo;
+import org.nuxeo.ecm.core.api.impl.DocumentModelListImpl;
+import org.nuxeo.ecm.core.model.Repository;
+import org.nuxeo.ecm.core.query.sql.NXQL;
+import org.nuxeo.ecm.core.repository.RepositoryService;
 import org.nuxeo.ecm.platform.query.api.AbstractPageProvider;
 import org.nuxeo.ecm.platform.query.api.PageProviderDefinition;
 import org.nuxeo.ecm.platform.query.api.PageSelections;
 import org.nuxeo.ecm.platform.query.api.QuickFilter;
 import org.nuxeo.ecm.platform.query.api.WhereClauseDefinition;
 import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.kv.KeyValueService;
+import org.nuxeo.runtime.kv.KeyValueStore;
 import org.nuxeo.runtime.services.config.ConfigurationService;
 
 /**
@@ -53,6 +65,10 @@ import org.nuxeo.runtime.services.config.ConfigurationService;
  * Since 6.0, the page provider property named {@link #USE_UNRESTRICTED_SESSION_PROPERTY} allows specifying whether the
  * query should be run as unrestricted. When such a property is set to "true", the additional property
  * {@link #DETACH_DOCUMENTS_PROPERTY} is used to detach documents (defaults to true when session is unrestricted).
+ * <p>
+ * Since 2021.20, the page provider property named {@link #KEYSET_PAGINATION_PROPERTY} can be set to "true" to fetch the
+ * next pages with a seek predicate on the sort columns instead of an offset, see {@link KeysetCursor}. The page
+ * provider property named {@link #COUNT_STRATEGY_PROPERTY} allows choosing how the total results count is computed.
  *
  * @author Anahide Tchertchian
  * @since 5.4
@@ -92,6 +108,66 @@ public class CoreQueryDocumentPageProvider extends AbstractPageProvider<Document
      */
     public static final String DETACH_DOCUMENTS_PROPERTY = "detachDocuments";
 
+    /**
+     * Boolean property stating that the next pages should be fetched after the sort values of the last document of the
+     * current page instead of using an offset, which the database would have to skip.
+     * <p>
+     * The sort columns are completed with {@value NXQL#ECM_UUID} to make the order unique. The total count is not
+     * computed, unless {@link #MAX_RESULTS_PROPERTY} is set in which case it is counted up to this limit on the first
+     * page. Keyset pagination is not used if the pattern has its own ORDER BY clause.
+     *
+     * @since 2021.20
+     */
+    public static final String KEYSET_PAGINATION_PROPERTY = "keysetPagination";
+
+    /**
+     * Property defining how the total results count is computed, one of {@value #COUNT_STRATEGY_EXACT} (default),
+     * {@value #COUNT_STRATEGY_CAPPED}, {@value #COUNT_STRATEGY_CACHED} or {@value #COUNT_STRATEGY_NONE}.
+     *
+     * @since 2021.20
+     */
+    public static final String COUNT_STRATEGY_PROPERTY = "countStrategy";
+
+    /**
+     * Counts all the results, or up to {@link #MAX_RESULTS_PROPERTY} if set.
+     *
+     * @since 2021.20
+     */
+    public static final String COUNT_STRATEGY_EXACT = "exact";
+
+    /**
+     * Counts up to {@link #MAX_RESULTS_PROPERTY}, which defaults to {@link #DEFAULT_NAVIGATION_RESULTS_KEY}, the
+     * database stops reading the results after this limit.
+     *
+     * @since 2021.20
+     */
+    public static final String COUNT_STRATEGY_CAPPED = "capped";
+
+    /**
+     * Counts as {@link #COUNT_STRATEGY_EXACT} and keeps the count for the user and query during
+     * {@link #COUNT_CACHE_TTL_PROPERTY}, the next pages and the same searches don't count again. The count may be
+     * outdated by the changes done meanwhile.
+     *
+     * @since 2021.20
+     */
+    public static final String COUNT_STRATEGY_CACHED = "cached";
+
+    /**
+     * Doesn't count, the results count is unknown and the next page is available while the pages are full.
+     *
+     * @since 2021.20
+     */
+    public static final String COUNT_STRATEGY_NONE = "none";
+
+    /** @since 2021.20 */
+    public static final String COUNT_CACHE_TTL_PROPERTY = "org.nuxeo.ecm.platform.query.nxql.countCacheTTL";
+
+    /** @since 2021.20 */
+    public static final Duration DEFAULT_COUNT_CACHE_TTL = Duration.ofMinutes(1);
+
+    /** @since 2021.20 */
+    public static final String COUNT_CACHE_KV_STORE = "pageProviderCounts";
+
     private static final Log log = LogFactory.getLog(CoreQueryDocumentPageProvider.class);
 
     private static final long serialVersionUID = 1L;
@@ -102,6 +178,15 @@ public class CoreQueryDocumentPageProvider extends AbstractPageProvider<Document
 
     protected Long maxResults;
 
+    /** @since 2021.20 */
+    protected String currentPageCursor;
+
+    /** @since 2021.20 */
+    protected String nextPageCursor;
+
+    /** @since 2021.20 */
+    protected Boolean nextPageAvailable;
+
     @Override
     public List<DocumentModel> getCurrentPage() {
 
@@ -138,7 +223,20 @@ public class CoreQueryDocumentPageProvider extends AbstractPageProvider<Document
                 final boolean useUnrestricted = useUnrestrictedSession();
 
                 final boolean detachDocs = detachDocuments();
-                if (maxResults > 0) {
+                final Long cachedResultsCount = getCachedResultsCount(coreSession);
+                if (isKeysetPagination()) {
+                    docs = queryKeysetPage(coreSession, minMaxPageSize, offset);
+                } else if (cachedResultsCount != null || COUNT_STRATEGY_NONE.equals(getCountStrategy())) {
+                    // no count, the page can be limited in the database
+                    if (useUnrestricted) {
+                        CoreQueryUnrestrictedSessionRunner r = new CoreQueryUnrestrictedSessionRunner(coreSession,
+                                query, filter, minMaxPageSize, offset, false, 0, detachDocs);
+                        r.runUnrestricted();
+                        docs = r.getDocs();
+                    } else {
+                        docs = coreSession.query(query, getFilter(), minMaxPageSize, offset, 0);
+                    }
+                } else if (maxResults > 0) {
                     if (useUnrestricted) {
                         CoreQueryUnrestrictedSessionRunner r = new CoreQueryUnrestrictedSessionRunner(coreSession,
                                 query, filter, minMaxPageSize, offset, false, maxResults, detachDocs);
@@ -161,6 +259,11 @@ public class CoreQueryDocumentPageProvider extends AbstractPageProvider<Document
                 }
 
                 long resultsCount = docs.totalSize();
+                if (cachedResultsCount != null) {
+                    resultsCount = cachedResultsCount.longValue();
+                } else if (resultsCount >= 0 && COUNT_STRATEGY_CACHED.equals(getCountStrategy())) {
+                    putCachedResultsCount(coreSession, resultsCount);
+                }
                 if (resultsCount < 0) {
                     // results count is truncated
                     setResultsCount(UNKNOWN_SIZE_AFTER_QUERY);
@@ -198,6 +301,193 @@ public class CoreQueryDocumentPageProvider extends AbstractPageProvider<Document
         return currentPageDocuments;
     }
 
+    /**
+     * Queries the current page, after the current cursor if any, fetching one more document to know if there is a next
+     * page.
+     *
+     * @since 2021.20
+     */
+    protected DocumentModelList queryKeysetPage(CoreSession coreSession, long pageSize, long offset) {
+        KeysetCursor cursor = currentPageCursor == null ? null : KeysetCursor.decode(currentPageCursor);
+        String pageQuery = cursor == null ? query
+                : getSeekQuery(cursor,
+                        Framework.getService(RepositoryService.class).getRepository(coreSession.getRepositoryName()));
+        long pageOffset = cursor == null ? offset : 0;
+        // seek queries don't see the previous documents, so only offset queries can count
+        long countUpTo = cursor == null ? getMaxResults() : 0;
+        if (log.isDebugEnabled()) {
+            log.debug(String.format("Perform keyset query for provider '%s': '%s' with cursor=%s", getName(),
+                    pageQuery, cursor));
+        }
+        DocumentModelList docs;
+        if (useUnrestrictedSession()) {
+            CoreQueryUnrestrictedSessionRunner r = new CoreQueryUnrestrictedSessionRunner(coreSession, pageQuery,
+                    getFilter(), pageSize + 1, pageOffset, false, countUpTo, detachDocuments());
+            r.runUnrestricted();
+            docs = r.getDocs();
+        } else {
+            docs = coreSession.query(pageQuery, getFilter(), pageSize + 1, pageOffset, countUpTo);
+        }
+        boolean hasNext = docs.size() > pageSize;
+        List<DocumentModel> page = hasNext ? new ArrayList<>(docs.subList(0, (int) pageSize)) : docs;
+        nextPageAvailable = Boolean.valueOf(hasNext);
+        nextPageCursor = null;
+        if (hasNext) {
+            KeysetCursor next = KeysetCursor.of(page.get(page.size() - 1), getKeysetSortInfos());
+            // without cursor the next page falls back to the offset
+            nextPageCursor = next == null ? null : next.encode();
+        }
+        long totalSize;
+        if (!hasNext) {
+            totalSize = offset + page.size();
+        } else if (countUpTo > 0) {
+            totalSize = docs.totalSize();
+        } else {
+            totalSize = resultsCount >= 0 ? resultsCount : -1;
+        }
+        return new DocumentModelListImpl(page, totalSize);
+    }
+
+    /**
+     * Adds the seek predicate of the cursor to the current query, before its ORDER BY clause, following the position of
+     * the {@code null} values in the sort order of the repository.
+     *
+     * @since 2021.20
+     */
+    protected String getSeekQuery(KeysetCursor cursor, Repository repository) {
+        String seekClause = "(" + cursor.getSeekClause(getKeysetSortInfos(),
+                repository.hasCapability(CAPABILITY_QUERY_NULLS_LAST_ASC),
+                repository.hasCapability(CAPABILITY_QUERY_NULLS_LAST_DESC)) + ")";
+        int orderBy = query.lastIndexOf("ORDER BY");
+        String select = query.substring(0, orderBy).trim();
+        String sortClause = query.substring(orderBy);
+        if (StringUtils.containsIgnoreCase(select, " WHERE ")) {
+            return NXQLQueryBuilder.appendClause(select, seekClause) + " " + sortClause;
+        }
+        return select + " WHERE " + seekClause + " " + sortClause;
+    }
+
+    /**
+     * Checks whether the pages are fetched after the cursor of the previous page instead of an offset.
+     *
+     * @since 2021.20
+     */
+    public boolean isKeysetPagination() {
+        if (getPageSize() == 0 || !getBooleanProperty(KEYSET_PAGINATION_PROPERTY, false)) {
+            return false;
+        }
+        PageProviderDefinition def = getDefinition();
+        // the sort values can't be retrieved from an ORDER BY clause of the pattern
+        return def.getWhereClause() != null || !StringUtils.containsIgnoreCase(def.getPattern(), "ORDER BY");
+    }
+
+    /**
+     * Gets the sort infos of the query, completed with {@value NXQL#ECM_UUID} in keyset pagination mode.
+     *
+     * @since 2021.20
+     */
+    protected List<SortInfo> getKeysetSortInfos() {
+        List<SortInfo> sortInfos = getSortInfos();
+        List<SortInfo> keysetSortInfos = sortInfos == null ? new ArrayList<>() : new ArrayList<>(sortInfos);
+        if (keysetSortInfos.stream().noneMatch(sortInfo -> NXQL.ECM_UUID.equals(sortInfo.getSortColumn()))) {
+            keysetSortInfos.add(new SortInfo(NXQL.ECM_UUID, true));
+        }
+        return keysetSortInfos;
+    }
+
+    /**
+     * Gets the cursor to pass to {@link #setCurrentPageCursor} to fetch the page following the current one, or
+     * {@code null} if there is no next page or if the current page is not fetched with keyset pagination.
+     *
+     * @since 2021.20
+     */
+    public String getNextPageCursor() {
+        getCurrentPage();
+        return nextPageCursor;
+    }
+
+    /**
+     * Sets the cursor returned by {@link #getNextPageCursor} for the previous page, so that the current page is fetched
+     * after it. The current page offset should be set before, as setting it resets the cursor.
+     *
+     * @since 2021.20
+     */
+    public void setCurrentPageCursor(String cursor) {
+        pageChanged();
+        currentPageCursor = cursor;
+    }
+
+    /**
+     * @since 2021.20
+     */
+    public String getCurrentPageCursor() {
+        return currentPageCursor;
+    }
+
+    /**
+     * Gets the strategy used to compute the total results count, see {@link #COUNT_STRATEGY_PROPERTY}.
+     *
+     * @since 2021.20
+     */
+    public String getCountStrategy() {
+        String strategy = (String) getProperties().get(COUNT_STRATEGY_PROPERTY);
+        if (strategy == null) {
+            return COUNT_STRATEGY_EXACT;
+        }
+        switch (strategy) {
+        case COUNT_STRATEGY_EXACT:
+        case COUNT_STRATEGY_CAPPED:
+        case COUNT_STRATEGY_CACHED:
+        case COUNT_STRATEGY_NONE:
+            return strategy;
+        default:
+            log.warn(String.format("Invalid countStrategy property value: %s for page provider: %s, fallback to %s.",
+                    strategy, getName(), COUNT_STRATEGY_EXACT));
+            return COUNT_STRATEGY_EXACT;
+        }
+    }
+
+    /**
+     * Gets the results count kept for the current query with the {@value #COUNT_STRATEGY_CACHED} strategy.
+     *
+     * @return the count, or {@code null} if there is none or if the strategy is different
+     * @since 2021.20
+     */
+    protected Long getCachedResultsCount(CoreSession coreSession) {
+        if (!COUNT_STRATEGY_CACHED.equals(getCountStrategy())) {
+            return null;
+        }
+        return getCountCache().getLong(getCountCacheKey(coreSession));
+    }
+
+    /**
+     * @since 2021.20
+     */
+    protected void putCachedResultsCount(CoreSession coreSession, long count) {
+        Duration ttl = Framework.getService(ConfigurationService.class)
+                                .getDuration(COUNT_CACHE_TTL_PROPERTY, DEFAULT_COUNT_CACHE_TTL);
+        getCountCache().put(getCountCacheKey(coreSession), Long.valueOf(count), ttl.toSeconds());
+    }
+
+    /**
+     * Gets the key of the results count of the current query, depending on the user as the results are filtered by
+     * the permissions.
+     *
+     * @since 2021.20
+     */
+    protected String getCountCacheKey(CoreSession coreSession) {
+        String normalizedQuery = query.trim().replaceAll("\\s+", " ");
+        String user = useUnrestrictedSession() ? SYSTEM_USERNAME : coreSession.getPrincipal().getName();
+        return coreSession.getRepositoryName() + ':' + user + ':' + DigestUtils.sha256Hex(normalizedQuery);
+    }
+
+    /**
+     * @since 2021.20
+     */
+    protected KeyValueStore getCountCache() {
+        return Framework.getService(KeyValueService.class).getKeyValueStore(COUNT_CACHE_KV_STORE);
+    }
+
     protected void buildQuery(CoreSession coreSession) {
         List<QuickFilter> quickFilters = getQuickFilters();
         String quickFiltersClause = "";
@@ -215,7 +505,7 @@ public class CoreQueryDocumentPageProvider extends AbstractPageProvider<Document
             }
         }
 
-        List<SortInfo> sortInfos = getSortInfos();
+        List<SortInfo> sortInfos = isKeysetPagination() ? getKeysetSortInfos() : getSortInfos();
         SortInfo[] sortArray = null;
         if (sortInfos != null) {
             sortArray = sortInfos.toArray(SortInfo[]::new);
@@ -286,6 +576,9 @@ public class CoreQueryDocumentPageProvider extends AbstractPageProvider<Document
         if (maxResults == null) {
             maxResults = Long.valueOf(0);
             String maxResultsStr = (String) getProperties().get(MAX_RESULTS_PROPERTY);
+            if (maxResultsStr == null && COUNT_STRATEGY_CAPPED.equals(getCountStrategy())) {
+                maxResultsStr = DEFAULT_NAVIGATION_RESULTS_KEY;
+            }
             if (maxResultsStr != null) {
                 if (DEFAULT_NAVIGATION_RESULTS_KEY.equals(maxResultsStr)) {
                     ConfigurationService cs = Framework.getService(ConfigurationService.class);
@@ -392,9 +685,27 @@ public class CoreQueryDocumentPageProvider extends AbstractPageProvider<Document
         return null;
     }
 
+    @Override
+    public boolean isNextPageAvailable() {
+        if (nextPageAvailable != null && isKeysetPagination()) {
+            return nextPageAvailable.booleanValue();
+        }
+        return super.isNextPageAvailable();
+    }
+
+    @Override
+    public void nextPage() {
+        String cursor = isKeysetPagination() ? nextPageCursor : null;
+        super.nextPage();
+        currentPageCursor = cursor;
+    }
+
     @Override
     protected void pageChanged() {
         currentPageDocuments = null;
+        currentPageCursor = null;
+        nextPageCursor = null;
+        nextPageAvailable = null;
         super.pageChanged();
     }
 
@@ -402,6 +713,9 @@ public class CoreQueryDocumentPageProvider extends AbstractPageProvider<Document
     public void refresh() {
         query = null;
         currentPageDocuments = null;
+        currentPageCursor = null;
+        nextPageCursor = null;
+        nextPageAvailable = null;
         super.refresh();
     }
 
@@ -0,0 +1,286 @@
+/*
+ * (C) Copyright 2021 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.platform.query.nxql;
+
+import static javax.servlet.http.HttpServletResponse.SC_BAD_REQUEST;
+import static org.nuxeo.common.utils.DateUtils.formatISODateTime;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.api.PropertyException;
+import org.nuxeo.ecm.core.api.SortInfo;
+import org.nuxeo.ecm.core.query.sql.NXQL;
+
+/**
+ * Position in a sorted result list, made of the values of the sort columns of the last document of a page.
+ * <p>
+ * The values are encoded in an opaque string to be passed back to fetch the next page, which is then selected with a
+ * seek predicate on the sort columns instead of an offset, so that the database doesn't have to skip all the previous
+ * results. The last sort column must be {@value NXQL#ECM_UUID} to make the position unique.
+ * <p>
+ * Only scalar values are supported, a document having a value of another type for one of the sort columns has no
+ * cursor. The {@code null} values are supported, the seek predicate then follows the position of the {@code null}
+ * values in the sort order of the repository.
+ *
+ * @since 2021.20
+ */
+public class KeysetCursor {
+
+    protected static final byte STRING = 'S';
+
+    protected static final byte LONG = 'L';
+
+    protected static final byte DOUBLE = 'D';
+
+    protected static final byte BOOLEAN = 'B';
+
+    protected static final byte DATE = 'T';
+
+    protected static final byte NULL = 'N';
+
+    protected final List<Serializable> values;
+
+    public KeysetCursor(List<Serializable> values) {
+        this.values = Collections.unmodifiableList(values);
+    }
+
+    public List<Serializable> getValues() {
+        return values;
+    }
+
+    /**
+     * Creates the cursor positioned after the given document.
+     *
+     * @return the cursor, or {@code null} if a sort value of the document is not supported
+     */
+    public static KeysetCursor of(DocumentModel doc, List<SortInfo> sortInfos) {
+        List<Serializable> values = new ArrayList<>(sortInfos.size());
+        for (SortInfo sortInfo : sortInfos) {
+            Serializable value = getSortValue(doc, sortInfo.getSortColumn());
+            if (value instanceof Calendar) {
+                value = ((Calendar) value).getTime();
+            } else if (value instanceof Integer) {
+                value = Long.valueOf(((Integer) value).longValue());
+            } else if (value instanceof Float) {
+                value = Double.valueOf(((Float) value).doubleValue());
+            }
+            if (value != null && !(value instanceof String || value instanceof Long || value instanceof Double
+                    || value instanceof Boolean || value instanceof Date)) {
+                return null;
+            }
+            values.add(value);
+        }
+        return new KeysetCursor(values);
+    }
+
+    protected static Serializable getSortValue(DocumentModel doc, String column) {
+        switch (column) {
+        case NXQL.ECM_UUID:
+            return doc.getId();
+        case NXQL.ECM_NAME:
+            return doc.getName();
+        case NXQL.ECM_PATH:
+            return doc.getPathAsString();
+        case NXQL.ECM_PRIMARYTYPE:
+            return doc.getType();
+        case NXQL.ECM_PARENTID:
+            return doc.getParentRef() == null ? null : doc.getParentRef().toString();
+        case NXQL.ECM_LIFECYCLESTATE:
+            return doc.getCurrentLifeCycleState();
+        case NXQL.ECM_POS:
+            return doc.getPos();
+        default:
+            if (column.startsWith(NXQL.ECM_PREFIX)) {
+                // other system properties are not available on the document model
+                return null;
+            }
+            try {
+                return doc.getPropertyValue(column);
+            } catch (PropertyException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Builds the NXQL predicate selecting the documents sorted after this cursor.
+     * <p>
+     * For sort columns {@code a, b} the predicate is {@code a > va OR (a = va AND b > vb)}, the operators being
+     * reversed for descending columns.
+     * <p>
+     * The documents having a {@code null} value for a column are sorted after the other ones if the repository returns
+     * the {@code null} values last for the direction of the column, and before them otherwise, so for instance when
+     * they are last {@code a > va} becomes {@code (a > va OR a IS NULL)}, and when {@code va} is {@code null} then
+     * {@code a = va} becomes {@code a IS NULL}.
+     *
+     * @param nullsLastAsc whether the repository returns the {@code null} values last for ascending columns
+     * @param nullsLastDesc whether the repository returns the {@code null} values last for descending columns
+     * @see org.nuxeo.ecm.core.model.Repository#CAPABILITY_QUERY_NULLS_LAST_ASC
+     * @see org.nuxeo.ecm.core.model.Repository#CAPABILITY_QUERY_NULLS_LAST_DESC
+     */
+    public String getSeekClause(List<SortInfo> sortInfos, boolean nullsLastAsc, boolean nullsLastDesc) {
+        if (sortInfos.size() != values.size()) {
+            throw new NuxeoException("Cursor does not match the sort columns: " + sortInfos, SC_BAD_REQUEST);
+        }
+        StringBuilder clause = new StringBuilder();
+        for (int i = 0; i < sortInfos.size(); i++) {
+            SortInfo sortInfo = sortInfos.get(i);
+            String after = getAfterClause(sortInfo, values.get(i),
+                    sortInfo.getSortAscending() ? nullsLastAsc : nullsLastDesc);
+            if (after == null) {
+                // nothing is sorted after a null value for this column
+                continue;
+            }
+            if (clause.length() > 0) {
+                clause.append(" OR ");
+            }
+            clause.append('(');
+            for (int j = 0; j < i; j++) {
+                clause.append(getEqualClause(sortInfos.get(j).getSortColumn(), values.get(j))).append(" AND ");
+            }
+            clause.append(after);
+            clause.append(')');
+        }
+        return clause.toString();
+    }
+
+    protected static String getEqualClause(String column, Serializable value) {
+        if (value == null) {
+            return column + " IS NULL";
+        }
+        return column + " = " + toLiteral(value);
+    }
+
+    /**
+     * Builds the predicate selecting the values sorted after the given one for a column, or {@code null} if there are
+     * none.
+     */
+    protected static String getAfterClause(SortInfo sortInfo, Serializable value, boolean nullsLast) {
+        String column = sortInfo.getSortColumn();
+        if (value == null) {
+            return nullsLast ? null : column + " IS NOT NULL";
+        }
+        String after = column + (sortInfo.getSortAscending() ? " > " : " < ") + toLiteral(value);
+        return nullsLast ? "(" + after + " OR " + column + " IS NULL)" : after;
+    }
+
+    protected static String toLiteral(Serializable value) {
+        if (value instanceof String) {
+            return NXQL.escapeString((String) value);
+        } else if (value instanceof Boolean) {
+            return Boolean.TRUE.equals(value) ? "1" : "0";
+        } else if (value instanceof Date) {
+            return "TIMESTAMP '" + formatISODateTime(((Date) value).toInstant().atZone(ZoneOffset.UTC)) + "'";
+        } else {
+            return value.toString();
+        }
+    }
+
+    /**
+     * Encodes this cursor as an opaque URL-safe string.
+     */
+    public String encode() {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(baos)) {
+            out.writeShort(values.size());
+            for (Serializable value : values) {
+                if (value == null) {
+                    out.writeByte(NULL);
+                } else if (value instanceof String) {
+                    out.writeByte(STRING);
+                    out.writeUTF((String) value);
+                } else if (value instanceof Long) {
+                    out.writeByte(LONG);
+                    out.writeLong(((Long) value).longValue());
+                } else if (value instanceof Double) {
+                    out.writeByte(DOUBLE);
+                    out.writeDouble(((Double) value).doubleValue());
+                } else if (value instanceof Boolean) {
+                    out.writeByte(BOOLEAN);
+                    out.writeBoolean(((Boolean) value).booleanValue());
+                } else {
+                    out.writeByte(DATE);
+                    out.writeLong(((Date) value).getTime());
+                }
+            }
+        } catch (IOException e) {
+            throw new NuxeoException(e);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(baos.toByteArray());
+    }
+
+    /**
+     * Decodes a cursor previously encoded with {@link #encode}.
+     *
+     * @throws NuxeoException with a {@code 400} status code if the cursor is invalid
+     */
+    public static KeysetCursor decode(String cursor) {
+        try (DataInputStream in = new DataInputStream(
+                new ByteArrayInputStream(Base64.getUrlDecoder().decode(cursor)))) {
+            int size = in.readShort();
+            List<Serializable> values = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                byte type = in.readByte();
+                switch (type) {
+                case STRING:
+                    values.add(in.readUTF());
+                    break;
+                case LONG:
+                    values.add(Long.valueOf(in.readLong()));
+                    break;
+                case DOUBLE:
+                    values.add(Double.valueOf(in.readDouble()));
+                    break;
+                case BOOLEAN:
+                    values.add(Boolean.valueOf(in.readBoolean()));
+                    break;
+                case DATE:
+                    values.add(Date.from(Instant.ofEpochMilli(in.readLong())));
+                    break;
+                case NULL:
+                    values.add(null);
+                    break;
+                default:
+                    throw new NuxeoException("Invalid cursor: " + cursor, SC_BAD_REQUEST);
+                }
+            }
+            return new KeysetCursor(values);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new NuxeoException("Invalid cursor: " + cursor, e, SC_BAD_REQUEST);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + values;
+    }
+
+}
@@ -0,0 +1,120 @@
+/*
+ * (C) Copyright 2021 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.platform.query.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.nuxeo.ecm.platform.query.api.PageProvider.UNKNOWN_SIZE_AFTER_QUERY;
+
+import java.io.Serializable;
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.test.CoreFeature;
+import org.nuxeo.ecm.core.test.annotations.Granularity;
+import org.nuxeo.ecm.core.test.annotations.RepositoryConfig;
+import org.nuxeo.ecm.platform.query.api.PageProvider;
+import org.nuxeo.ecm.platform.query.api.PageProviderService;
+import org.nuxeo.ecm.platform.query.nxql.CoreQueryDocumentPageProvider;
+import org.nuxeo.runtime.test.runner.Deploy;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+import org.nuxeo.runtime.test.runner.TransactionalFeature;
+
+/**
+ * @since 2021.20
+ */
+@RunWith(FeaturesRunner.class)
+@Features(CoreFeature.class)
+@RepositoryConfig(cleanup = Granularity.METHOD)
+@Deploy("org.nuxeo.ecm.platform.query.api")
+@Deploy("org.nuxeo.ecm.platform.query.api.test:test-schemas-contrib.xml")
+@Deploy("org.nuxeo.ecm.platform.query.api.test:test-pageprovider-contrib.xml")
+public class TestPageProviderCountStrategy {
+
+    @Inject
+    protected TransactionalFeature transactionalFeature;
+
+    @Inject
+    protected PageProviderService pps;
+
+    @Inject
+    protected CoreSession session;
+
+    @Before
+    public void createTestDocuments() {
+        createDocuments(0, 20);
+    }
+
+    protected void createDocuments(int from, int to) {
+        for (int i = from; i < to; i++) {
+            DocumentModel doc = session.createDocumentModel("/", "file" + i, "File");
+            doc.setPropertyValue("dc:source", "count");
+            session.createDocument(doc);
+        }
+        transactionalFeature.nextTransaction();
+    }
+
+    protected PageProvider<?> getPageProvider(String name) {
+        Map<String, Serializable> props = Map.of(CoreQueryDocumentPageProvider.CORE_SESSION_PROPERTY,
+                (Serializable) session);
+        return pps.getPageProvider(name, null, null, null, props);
+    }
+
+    @Test
+    public void testCappedCount() {
+        PageProvider<?> pp = getPageProvider("DUMMY_CAPPED_COUNT");
+        assertEquals(5, pp.getCurrentPage().size());
+        // more than the max results
+        assertEquals(UNKNOWN_SIZE_AFTER_QUERY, pp.getResultsCount());
+        assertTrue(pp.isNextPageAvailable());
+    }
+
+    @Test
+    public void testNoCount() {
+        PageProvider<?> pp = getPageProvider("DUMMY_NO_COUNT");
+        assertEquals(5, pp.getCurrentPage().size());
+        assertTrue(pp.getResultsCount() < 0);
+        assertTrue(pp.isNextPageAvailable());
+        pp.setCurrentPage(3);
+        assertEquals(5, pp.getCurrentPage().size());
+        pp.setCurrentPage(4);
+        assertEquals(0, pp.getCurrentPage().size());
+        assertFalse(pp.isNextPageAvailable());
+    }
+
+    @Test
+    public void testCachedCount() {
+        PageProvider<?> pp = getPageProvider("DUMMY_CACHED_COUNT");
+        assertEquals(5, pp.getCurrentPage().size());
+        assertEquals(20, pp.getResultsCount());
+
+        createDocuments(20, 25);
+        // the count is reused by the next searches until it expires
+        pp = getPageProvider("DUMMY_CACHED_COUNT");
+        pp.setCurrentPage(4);
+        assertEquals(5, pp.getCurrentPage().size());
+        assertEquals(20, pp.getResultsCount());
+    }
+
+}
@@ -0,0 +1,237 @@
+/*
+ * (C) Copyright 2021 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.platform.query.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.api.SortInfo;
+import org.nuxeo.ecm.core.test.CoreFeature;
+import org.nuxeo.ecm.core.test.annotations.Granularity;
+import org.nuxeo.ecm.core.test.annotations.RepositoryConfig;
+import org.nuxeo.ecm.platform.query.api.PageProviderService;
+import org.nuxeo.ecm.platform.query.nxql.CoreQueryDocumentPageProvider;
+import org.nuxeo.ecm.platform.query.nxql.KeysetCursor;
+import org.nuxeo.runtime.test.runner.Deploy;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+import org.nuxeo.runtime.test.runner.TransactionalFeature;
+
+/**
+ * @since 2021.20
+ */
+@RunWith(FeaturesRunner.class)
+@Features(CoreFeature.class)
+@RepositoryConfig(cleanup = Granularity.METHOD)
+@Deploy("org.nuxeo.ecm.platform.query.api")
+@Deploy("org.nuxeo.ecm.platform.query.api.test:test-schemas-contrib.xml")
+@Deploy("org.nuxeo.ecm.platform.query.api.test:test-pageprovider-contrib.xml")
+public class TestPageProviderKeyset {
+
+    protected static final String KEYSET_DOCUMENTS = "DUMMY_KEYSET_DOCUMENTS";
+
+    protected static final int NUM_DOCS = 25;
+
+    @Inject
+    protected TransactionalFeature transactionalFeature;
+
+    @Inject
+    protected PageProviderService pps;
+
+    @Inject
+    protected CoreSession session;
+
+    @Before
+    public void createTestDocuments() {
+        for (int i = 0; i < NUM_DOCS; i++) {
+            DocumentModel doc = session.createDocumentModel("/", "file" + i, "File");
+            // duplicate titles so that the order depends on the id
+            doc.setPropertyValue("dc:title", "File " + i % 7);
+            doc.setPropertyValue("dc:source", "keyset");
+            session.createDocument(doc);
+        }
+        transactionalFeature.nextTransaction();
+    }
+
+    protected CoreQueryDocumentPageProvider getPageProvider(List<SortInfo> sortInfos) {
+        Map<String, Serializable> props = Map.of(CoreQueryDocumentPageProvider.CORE_SESSION_PROPERTY,
+                (Serializable) session);
+        return (CoreQueryDocumentPageProvider) pps.getPageProvider(KEYSET_DOCUMENTS, sortInfos, null, null, props,
+                "keyset");
+    }
+
+    protected List<String> getExpectedIds(String orderBy) {
+        return session.query("SELECT * FROM File WHERE dc:source = 'keyset' ORDER BY " + orderBy)
+                      .stream()
+                      .map(DocumentModel::getId)
+                      .collect(Collectors.toList());
+    }
+
+    protected List<String> getAllIds(CoreQueryDocumentPageProvider pp) {
+        List<String> ids = new ArrayList<>();
+        int pages = 0;
+        while (true) {
+            pp.getCurrentPage().forEach(doc -> ids.add(doc.getId()));
+            pages++;
+            if (!pp.isNextPageAvailable()) {
+                break;
+            }
+            pp.nextPage();
+            assertNotNull(pp.getCurrentPageCursor());
+        }
+        assertEquals(3, pages);
+        return ids;
+    }
+
+    @Test
+    public void testKeysetPagination() {
+        CoreQueryDocumentPageProvider pp = getPageProvider(null);
+        assertTrue(pp.isKeysetPagination());
+        assertTrue(pp.getCurrentQuery(), pp.getCurrentQuery().endsWith("ORDER BY dc:title , ecm:uuid"));
+        List<String> ids = getAllIds(pp);
+        assertEquals(getExpectedIds("dc:title, ecm:uuid"), ids);
+        // the count is known once the last page is reached
+        assertEquals(NUM_DOCS, pp.getResultsCount());
+        assertNull(pp.getNextPageCursor());
+    }
+
+    @Test
+    public void testKeysetPaginationDescending() {
+        CoreQueryDocumentPageProvider pp = getPageProvider(List.of(new SortInfo("dc:title", false)));
+        List<String> ids = getAllIds(pp);
+        assertEquals(getExpectedIds("dc:title DESC, ecm:uuid"), ids);
+    }
+
+    @Test
+    public void testKeysetPaginationWithCursor() {
+        CoreQueryDocumentPageProvider pp = getPageProvider(null);
+        List<DocumentModel> firstPage = pp.getCurrentPage();
+        assertEquals(10, firstPage.size());
+        String cursor = pp.getNextPageCursor();
+        assertNotNull(cursor);
+
+        // a new page provider continues after the cursor
+        pp = getPageProvider(null);
+        pp.setCurrentPageCursor(cursor);
+        List<String> ids = pp.getCurrentPage().stream().map(DocumentModel::getId).collect(Collectors.toList());
+        assertEquals(getExpectedIds("dc:title, ecm:uuid").subList(10, 20), ids);
+        assertTrue(pp.isNextPageAvailable());
+    }
+
+    protected void removeSomeTitles() {
+        session.query("SELECT * FROM File WHERE dc:source = 'keyset' AND dc:title = 'File 0'").forEach(doc -> {
+            doc.setPropertyValue("dc:title", null);
+            session.saveDocument(doc);
+        });
+        transactionalFeature.nextTransaction();
+    }
+
+    @Test
+    public void testKeysetPaginationWithNullValues() {
+        removeSomeTitles();
+        CoreQueryDocumentPageProvider pp = getPageProvider(null);
+        List<String> ids = getAllIds(pp);
+        assertEquals(getExpectedIds("dc:title, ecm:uuid"), ids);
+    }
+
+    @Test
+    public void testKeysetPaginationDescendingWithNullValues() {
+        removeSomeTitles();
+        CoreQueryDocumentPageProvider pp = getPageProvider(List.of(new SortInfo("dc:title", false)));
+        List<String> ids = getAllIds(pp);
+        assertEquals(getExpectedIds("dc:title DESC, ecm:uuid"), ids);
+    }
+
+    @Test
+    public void testCursor() {
+        Date date = new Date(1_600_000_000_000L);
+        KeysetCursor cursor = new KeysetCursor(List.of("it's", Long.valueOf(3), Boolean.TRUE, date, "id"));
+        KeysetCursor decoded = KeysetCursor.decode(cursor.encode());
+        assertEquals(cursor.getValues(), decoded.getValues());
+
+        List<SortInfo> sortInfos = List.of(new SortInfo("dc:title", true), new SortInfo("my:long", false),
+                new SortInfo("my:boolean", true), new SortInfo("dc:modified", false), new SortInfo("ecm:uuid", true));
+        String clause = decoded.getSeekClause(sortInfos, false, true);
+        assertTrue(clause, clause.startsWith("(dc:title > 'it\\'s') OR (dc:title = 'it\\'s' AND my:long < 3) OR "));
+        assertTrue(clause, clause.contains("my:boolean > 1"));
+        assertTrue(clause, clause.contains("dc:modified < TIMESTAMP '2020-09-13T12:26:40.000Z'"));
+        assertTrue(clause, clause.endsWith("AND ecm:uuid > 'id')"));
+        assertFalse(clause, clause.contains("?"));
+        assertFalse(clause, clause.contains("NULL"));
+    }
+
+    @Test
+    public void testCursorWithNullValues() {
+        KeysetCursor cursor = new KeysetCursor(Arrays.asList(null, "id"));
+        KeysetCursor decoded = KeysetCursor.decode(cursor.encode());
+        assertEquals(cursor.getValues(), decoded.getValues());
+
+        List<SortInfo> sortInfos = List.of(new SortInfo("dc:title", true), new SortInfo("ecm:uuid", true));
+        // null values first
+        assertEquals("(dc:title IS NOT NULL) OR (dc:title IS NULL AND ecm:uuid > 'id')",
+                decoded.getSeekClause(sortInfos, false, true));
+        // null values last, nothing is after them
+        assertEquals("(dc:title IS NULL AND ecm:uuid > 'id')", decoded.getSeekClause(sortInfos, true, true));
+
+        // documents with null values come after a non-null value when they are last
+        cursor = new KeysetCursor(List.of("foo", "id"));
+        assertEquals("((dc:title > 'foo' OR dc:title IS NULL)) OR (dc:title = 'foo' AND ecm:uuid > 'id')",
+                cursor.getSeekClause(sortInfos, true, true));
+        assertEquals("(dc:title > 'foo') OR (dc:title = 'foo' AND ecm:uuid > 'id')",
+                cursor.getSeekClause(sortInfos, false, true));
+    }
+
+    @Test
+    public void testInvalidCursor() {
+        // not base64, unknown type, truncated value
+        String truncated = new KeysetCursor(List.of("id")).encode().substring(0, 6);
+        for (String cursor : List.of("not a cursor", "AAFY", truncated)) {
+            try {
+                KeysetCursor.decode(cursor);
+                fail("Should have failed to decode: " + cursor);
+            } catch (NuxeoException e) {
+                assertEquals(400, e.getStatusCode());
+            }
+        }
+        try {
+            new KeysetCursor(List.of("id")).getSeekClause(List.of(), false, true);
+            fail("Should have failed on mismatched sort columns");
+        } catch (NuxeoException e) {
+            assertEquals(400, e.getStatusCode());
+        }
+    }
+
+}
@@ -0,0 +1,245 @@
+/*
+ * (C) Copyright 2021 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.platform.usermanager;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.ecm.core.api.NuxeoGroup;
+
+/**
+ * In-memory index of the transitive closure of the parent groups of each group.
+ * <p>
+ * The parent groups read from the group directory are kept as the nodes of a DAG, and the closure of each group (the
+ * group followed by all its ancestors) is memoized, so that resolving the groups of a principal is a lookup per group
+ * of the principal instead of a directory read per ancestor group.
+ * <p>
+ * When a group changes, only the nodes that may reference it and the closures that went through it are dropped, see
+ * {@link #invalidate}. The whole index is dropped after a time to live, to account for the changes made directly in
+ * the directory without going through the {@link UserManager}.
+ *
+ * @since 2021.20
+ */
+public class GroupClosureIndex {
+
+    private static final Logger log = LogManager.getLogger(GroupClosureIndex.class);
+
+    protected static final Node MISSING = new Node(null, Collections.emptyList());
+
+    protected final Function<String, NuxeoGroup> groupLoader;
+
+    protected final long ttlMillis;
+
+    protected final Map<String, Node> nodes = new ConcurrentHashMap<>();
+
+    protected final Map<String, Closure> closures = new ConcurrentHashMap<>();
+
+    /** Incremented on each invalidation, so that values computed concurrently with it are not stored. */
+    protected long generation;
+
+    protected volatile long expiration;
+
+    /** A group and its parent groups. */
+    protected static class Node {
+
+        protected final String name;
+
+        protected final List<String> parents;
+
+        protected Node(String name, List<String> parents) {
+            this.name = name;
+            this.parents = parents;
+        }
+    }
+
+    /** The closure of a group, and the lowercased names of all the groups visited to compute it. */
+    protected static class Closure {
+
+        protected final List<String> groups;
+
+        protected final Set<String> visited;
+
+        /** Whether the group is one of its own ancestors. */
+        protected final boolean cyclic;
+
+        protected Closure(List<String> groups, Set<String> visited, boolean cyclic) {
+            this.groups = groups;
+            this.visited = visited;
+            this.cyclic = cyclic;
+        }
+    }
+
+    /**
+     * @param groupLoader the function reading a group from the directory, returning {@code null} if it doesn't exist
+     * @param ttl the time after which the whole index is dropped
+     */
+    public GroupClosureIndex(Function<String, NuxeoGroup> groupLoader, Duration ttl) {
+        this.groupLoader = groupLoader;
+        ttlMillis = ttl.toMillis();
+        expiration = System.currentTimeMillis() + ttlMillis;
+    }
+
+    /**
+     * Gets the closure of a group: the name of the group followed by the names of all its ancestor groups, breadth
+     * first. The names are the ones of the directory entries, which may differ in case from the requested ones for case
+     * insensitive directories.
+     *
+     * @return the closure, or {@code null} if the group does not exist
+     */
+    public List<String> getClosure(String groupName) {
+        Closure closure = getClosureEntry(groupName);
+        return closure == null ? null : closure.groups;
+    }
+
+    /**
+     * Gets the ancestor groups of a group. Like {@link UserManager#getAncestorGroups}, the group itself is included if
+     * it is one of its own ancestors.
+     *
+     * @return the ancestor groups, empty if the group does not exist
+     */
+    public List<String> getAncestorGroups(String groupName) {
+        Closure closure = getClosureEntry(groupName);
+        if (closure == null) {
+            return new ArrayList<>();
+        }
+        List<String> ancestorGroups = new ArrayList<>(closure.groups.subList(1, closure.groups.size()));
+        if (closure.cyclic) {
+            ancestorGroups.add(closure.groups.get(0));
+        }
+        return ancestorGroups;
+    }
+
+    protected Closure getClosureEntry(String groupName) {
+        checkExpiration();
+        Closure closure = closures.get(groupName);
+        if (closure == null) {
+            long gen = getGeneration();
+            closure = computeClosure(groupName);
+            if (closure == null) {
+                return null;
+            }
+            synchronized (this) {
+                if (gen == generation) {
+                    closures.put(groupName, closure);
+                }
+            }
+        }
+        return closure;
+    }
+
+    protected Closure computeClosure(String groupName) {
+        Node root = getNode(groupName);
+        if (root == MISSING) {
+            return null;
+        }
+        List<String> groups = new ArrayList<>();
+        Set<String> visited = new HashSet<>();
+        Set<String> checked = new HashSet<>();
+        Deque<String> toProcess = new ArrayDeque<>();
+        boolean cyclic = false;
+        checked.add(groupName);
+        visited.add(groupName.toLowerCase());
+        groups.add(root.name);
+        toProcess.addAll(root.parents);
+        while (!toProcess.isEmpty()) {
+            String name = toProcess.poll();
+            // avoid infinite loop in case a group has one of its parents as a subgroup
+            if (!checked.add(name)) {
+                cyclic = cyclic || name.equals(groupName);
+                continue;
+            }
+            // a missing group is remembered too, so that its creation drops the closure
+            visited.add(name.toLowerCase());
+            Node node = getNode(name);
+            if (node == MISSING) {
+                log.error("Group: {} references the: {} parent group that does not exist", groupName, name);
+                continue;
+            }
+            groups.add(node.name);
+            toProcess.addAll(node.parents);
+        }
+        return new Closure(Collections.unmodifiableList(groups), visited, cyclic);
+    }
+
+    protected Node getNode(String groupName) {
+        Node node = nodes.get(groupName);
+        if (node == null) {
+            long gen = getGeneration();
+            NuxeoGroup group = groupLoader.apply(groupName);
+            node = group == null ? MISSING : new Node(group.getName(), new ArrayList<>(group.getParentGroups()));
+            synchronized (this) {
+                if (gen == generation) {
+                    nodes.put(groupName, node);
+                }
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Invalidates the index after a change of a group.
+     * <p>
+     * As the parent groups of a group are computed from the subgroups of its parents, the change of a group also drops
+     * the nodes of its current subgroups and of the groups referencing it as parent.
+     *
+     * @param groupName the changed group
+     * @param subGroups the subgroups of the changed group after the change
+     */
+    public synchronized void invalidate(String groupName, Collection<String> subGroups) {
+        generation++;
+        Set<String> changed = new HashSet<>();
+        changed.add(groupName.toLowerCase());
+        subGroups.forEach(subGroup -> changed.add(subGroup.toLowerCase()));
+        nodes.entrySet()
+             .removeIf(entry -> changed.contains(entry.getKey().toLowerCase())
+                     || entry.getValue().parents.stream().anyMatch(groupName::equalsIgnoreCase));
+        closures.values().removeIf(closure -> !Collections.disjoint(closure.visited, changed));
+    }
+
+    /**
+     * Drops the whole index.
+     */
+    public synchronized void invalidateAll() {
+        generation++;
+        nodes.clear();
+        closures.clear();
+        expiration = System.currentTimeMillis() + ttlMillis;
+    }
+
+    protected synchronized long getGeneration() {
+        return generation;
+    }
+
+    protected void checkExpiration() {
+        if (System.currentTimeMillis() > expiration) {
+            log.debug("Group closure index expired");
+            invalidateAll();
+        }
+    }
+
+}
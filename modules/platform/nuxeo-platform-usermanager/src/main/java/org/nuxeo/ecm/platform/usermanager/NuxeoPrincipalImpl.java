@@ -35,6 +35,7 @@ import java.io.Serializable;
 import java.security.Principal;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
@@ -313,6 +314,34 @@ public class NuxeoPrincipalImpl implements NuxeoPrincipal {
 
     public void updateAllGroups() {
         UserManager userManager = Framework.getService(UserManager.class);
+        GroupClosureIndex groupClosureIndex = userManager instanceof UserManagerImpl
+                ? ((UserManagerImpl) userManager).getGroupClosureIndex()
+                : null;
+        if (groupClosureIndex != null) {
+            allGroups = computeAllGroups(groupClosureIndex);
+        } else {
+            allGroups = computeAllGroups(userManager);
+        }
+
+        // set isAdministrator boolean according to groups declared on user
+        // manager
+        if (!isAdministrator() && userManager != null) {
+            List<String> adminGroups = userManager.getAdministratorsGroups();
+            for (String adminGroup : adminGroups) {
+                if (allGroups.contains(adminGroup)) {
+                    isAdministrator = true;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes all the groups of the principal, reading each group from the user manager.
+     *
+     * @since 2021.20
+     */
+    protected List<String> computeAllGroups(UserManager userManager) {
         Set<String> checkedGroups = new HashSet<>();
         List<String> groupsToProcess = new ArrayList<>();
         List<String> resultingGroups = new ArrayList<>();
@@ -359,19 +388,39 @@ public class NuxeoPrincipalImpl implements NuxeoPrincipal {
             }
         }
 
-        allGroups = new ArrayList<>(resultingGroups);
+        return resultingGroups;
+    }
 
-        // set isAdministrator boolean according to groups declared on user
-        // manager
-        if (!isAdministrator() && userManager != null) {
-            List<String> adminGroups = userManager.getAdministratorsGroups();
-            for (String adminGroup : adminGroups) {
-                if (allGroups.contains(adminGroup)) {
-                    isAdministrator = true;
-                    break;
+    /**
+     * Computes all the groups of the principal from the closures of its groups.
+     *
+     * @since 2021.20
+     */
+    protected List<String> computeAllGroups(GroupClosureIndex groupClosureIndex) {
+        Set<String> resultingGroups = new LinkedHashSet<>();
+        for (String groupName : getGroups()) {
+            List<String> closure;
+            try {
+                closure = groupClosureIndex.getClosure(groupName);
+            } catch (DirectoryException de) {
+                if (!virtualGroups.contains(groupName)) {
+                    throw de;
                 }
+                // do not fail while retrieving a virtual group
+                log.warn("Failed to get group '" + groupName + "' due to '" + de.getMessage()
+                        + "': permission resolution involving groups may not be correct");
+                closure = null;
+            }
+            if (closure != null) {
+                resultingGroups.addAll(closure);
+            } else if (virtualGroups.contains(groupName)) {
+                // just add the virtual group as is
+                resultingGroups.add(groupName);
+            } else {
+                log.error("User " + getName() + " references the " + groupName + " group that does not exists");
             }
         }
+        return new ArrayList<>(resultingGroups);
     }
 
     public List<String> getVirtualGroups() {
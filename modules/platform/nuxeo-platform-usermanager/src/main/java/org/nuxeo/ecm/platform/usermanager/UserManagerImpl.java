@@ -26,6 +26,7 @@ import static org.nuxeo.ecm.platform.usermanager.UserConfig.GROUPS_COLUMN;
 
 import java.io.Serializable;
 import java.security.Principal;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -98,6 +99,15 @@ public class UserManagerImpl implements UserManager, MultiTenantUserManager, Adm
     /** @since 11.1 */
     protected static final String SEARCH_ESCAPE_COMPAT_PARAM = "nuxeo.usermanager.search.escape.compat";
 
+    /** @since 2021.20 */
+    protected static final String GROUP_CLOSURE_ENABLED_PARAM = "nuxeo.usermanager.group.closure.enabled";
+
+    /** @since 2021.20 */
+    protected static final String GROUP_CLOSURE_TTL_PARAM = "nuxeo.usermanager.group.closure.ttl";
+
+    /** @since 2021.20 */
+    protected static final Duration GROUP_CLOSURE_TTL_DEFAULT = Duration.ofMinutes(20);
+
     private static final long serialVersionUID = 1L;
 
     private static final Log log = LogFactory.getLog(UserManagerImpl.class);
@@ -162,6 +172,11 @@ public class UserManagerImpl implements UserManager, MultiTenantUserManager, Adm
 
     protected Cache principalCache = null;
 
+    /**
+     * @since 2021.20
+     */
+    protected GroupClosureIndex groupClosureIndex;
+
     public UserMultiTenantManagement multiTenantManagement = new DefaultUserMultiTenantManagement();
 
     /**
@@ -292,6 +307,22 @@ public class UserManagerImpl implements UserManager, MultiTenantUserManager, Adm
             invalidateAllPrincipals();
         }
 
+        ConfigurationService configurationService = Framework.getService(ConfigurationService.class);
+        if (configurationService != null && configurationService.isBooleanTrue(GROUP_CLOSURE_ENABLED_PARAM)) {
+            Duration ttl = configurationService.getDuration(GROUP_CLOSURE_TTL_PARAM, GROUP_CLOSURE_TTL_DEFAULT);
+            groupClosureIndex = new GroupClosureIndex(this::getGroup, ttl);
+        } else {
+            groupClosureIndex = null;
+        }
+    }
+
+    /**
+     * Gets the index of the group closures used to resolve the groups of the principals, or {@code null} if disabled.
+     *
+     * @since 2021.20
+     */
+    public GroupClosureIndex getGroupClosureIndex() {
+        return groupClosureIndex;
     }
 
     protected void setUserDirectoryName(String userDirectoryName) {
@@ -829,6 +860,7 @@ public class UserManagerImpl implements UserManager, MultiTenantUserManager, Adm
 
     @Override
     public void notifyGroupChanged(String groupName, String eventId, List<String> ancestorGroupNames) {
+        invalidateGroupClosure(groupName);
         invalidateAllPrincipals();
         notifyRuntime(groupName, GROUPCHANGED_EVENT_ID);
         if (eventId != null) {
@@ -843,6 +875,40 @@ public class UserManagerImpl implements UserManager, MultiTenantUserManager, Adm
         }
     }
 
+    /**
+     * Invalidates the group closures involving a changed group, on this node and on the other nodes of the cluster.
+     *
+     * @since 2021.20
+     */
+    protected void invalidateGroupClosure(String groupName) {
+        if (groupClosureIndex == null) {
+            return;
+        }
+        // the subgroups are read here, as other nodes may not see the change yet
+        NuxeoGroup group = getGroup(groupName);
+        List<String> subGroups = group == null ? Collections.emptyList() : group.getMemberGroups();
+        groupClosureIndex.invalidate(groupName, subGroups);
+        UserService userService = (UserService) Framework.getRuntime().getComponent(UserService.NAME);
+        if (userService != null) {
+            userService.sendGroupClosureInvalidation(groupName, subGroups);
+        }
+    }
+
+    /**
+     * Invalidates the group closures involving a group changed on another node of the cluster.
+     *
+     * @since 2021.20
+     */
+    protected void invalidateGroupClosure(String groupName, List<String> subGroups) {
+        if (groupClosureIndex != null) {
+            groupClosureIndex.invalidate(groupName, subGroups);
+        }
+        // principals may have been cached from the index since the cluster invalidation of the cache
+        if (useCache()) {
+            ((CacheManagement) principalCache).invalidateLocalAll();
+        }
+    }
+
     @Override
     public Boolean areGroupsReadOnly() {
         try (Session groupDir = dirService.open(groupDirectoryName)) {
@@ -1571,6 +1637,9 @@ public class UserManagerImpl implements UserManager, MultiTenantUserManager, Adm
 
     @Override
     public List<String> getAncestorGroups(String groupId) {
+        if (groupClosureIndex != null) {
+            return groupClosureIndex.getAncestorGroups(groupId);
+        }
         List<String> ancestorGroups = new ArrayList<>();
         populateAncestorGroups(groupId, ancestorGroups);
         return ancestorGroups;
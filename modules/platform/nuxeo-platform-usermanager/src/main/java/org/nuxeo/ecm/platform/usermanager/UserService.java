@@ -21,6 +21,12 @@
 
 package org.nuxeo.ecm.platform.usermanager;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -34,10 +40,13 @@ import org.nuxeo.ecm.directory.api.DirectoryService;
 import org.nuxeo.ecm.platform.usermanager.UserManager.MatchType;
 import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.api.login.Authenticator;
+import org.nuxeo.runtime.cluster.ClusterService;
 import org.nuxeo.runtime.model.ComponentContext;
 import org.nuxeo.runtime.model.ComponentInstance;
 import org.nuxeo.runtime.model.ComponentName;
 import org.nuxeo.runtime.model.DefaultComponent;
+import org.nuxeo.runtime.pubsub.AbstractPubSubBroker;
+import org.nuxeo.runtime.pubsub.SerializableMessage;
 import org.nuxeo.runtime.services.event.EventService;
 
 public class UserService extends DefaultComponent {
@@ -50,6 +59,12 @@ public class UserService extends DefaultComponent {
 
     private UserManager userManager;
 
+    /** @since 2021.20 */
+    public static final String GROUP_CLOSURE_INVAL_PUBSUB_TOPIC = "groupclosureinval";
+
+    /** @since 2021.20 */
+    protected GroupClosureInvalidator groupClosureInvalidator;
+
     public UserManager getUserManager() {
         if (userManager == null) {
             recomputeUserManager(false);
@@ -120,6 +135,102 @@ public class UserService extends DefaultComponent {
         log.info("UserService activated");
     }
 
+    @Override
+    public void start(ComponentContext context) {
+        ClusterService clusterService = Framework.getService(ClusterService.class);
+        if (clusterService != null && clusterService.isEnabled()) {
+            // register group closure invalidator
+            String nodeId = clusterService.getNodeId();
+            groupClosureInvalidator = new GroupClosureInvalidator();
+            groupClosureInvalidator.initialize(GROUP_CLOSURE_INVAL_PUBSUB_TOPIC, nodeId);
+            log.info("Registered group closure invalidator for node: " + nodeId);
+        }
+    }
+
+    @Override
+    public void stop(ComponentContext context) {
+        if (groupClosureInvalidator != null) {
+            groupClosureInvalidator.close();
+            groupClosureInvalidator = null;
+        }
+    }
+
+    /**
+     * Sends the invalidation of the group closures involving a changed group to the other nodes of the cluster.
+     *
+     * @since 2021.20
+     */
+    public void sendGroupClosureInvalidation(String groupName, List<String> subGroups) {
+        if (groupClosureInvalidator != null) {
+            groupClosureInvalidator.sendMessage(new GroupClosureInvalidation(groupName, subGroups));
+        }
+    }
+
+    /**
+     * A change of a group, with its subgroups after the change.
+     *
+     * @since 2021.20
+     */
+    public static class GroupClosureInvalidation implements SerializableMessage {
+
+        private static final long serialVersionUID = 1L;
+
+        public final String groupName;
+
+        public final List<String> subGroups;
+
+        public GroupClosureInvalidation(String groupName, List<String> subGroups) {
+            this.groupName = groupName;
+            this.subGroups = subGroups;
+        }
+
+        @Override
+        public void serialize(OutputStream out) throws IOException {
+            DataOutputStream data = new DataOutputStream(out);
+            data.writeUTF(groupName);
+            data.writeInt(subGroups.size());
+            for (String subGroup : subGroups) {
+                data.writeUTF(subGroup);
+            }
+            data.flush();
+        }
+
+        public static GroupClosureInvalidation deserialize(InputStream in) throws IOException {
+            DataInputStream data = new DataInputStream(in);
+            String groupName = data.readUTF();
+            int size = data.readInt();
+            List<String> subGroups = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                subGroups.add(data.readUTF());
+            }
+            return new GroupClosureInvalidation(groupName, subGroups);
+        }
+
+        @Override
+        public String toString() {
+            return getClass().getSimpleName() + "(" + groupName + "," + subGroups + ")";
+        }
+    }
+
+    /**
+     * @since 2021.20
+     */
+    public class GroupClosureInvalidator extends AbstractPubSubBroker<GroupClosureInvalidation> {
+
+        @Override
+        public GroupClosureInvalidation deserialize(InputStream in) throws IOException {
+            return GroupClosureInvalidation.deserialize(in);
+        }
+
+        @Override
+        public void receivedMessage(GroupClosureInvalidation invalidation) {
+            if (userManager instanceof UserManagerImpl) {
+                ((UserManagerImpl) userManager).invalidateGroupClosure(invalidation.groupName,
+                        invalidation.subGroups);
+            }
+        }
+    }
+
     @Override
     public void deactivate(ComponentContext context) {
         log.info("UserService deactivated");
@@ -0,0 +1,110 @@
+/*
+ * (C) Copyright 2021 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.platform.usermanager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.NuxeoPrincipal;
+import org.nuxeo.runtime.test.runner.Deploy;
+
+/**
+ * @since 2021.20
+ */
+@Deploy("org.nuxeo.ecm.platform.usermanager.tests:test-usermanagerimpl/directory-config.xml")
+@Deploy("org.nuxeo.ecm.platform.usermanager.tests:test-usermanager-group-closure.xml")
+public class TestGroupClosureIndex extends UserManagerTestCase {
+
+    protected void createUser(String userId) {
+        DocumentModel user = userManager.getBareUserModel();
+        user.setProperty("user", "username", userId);
+        userManager.createUser(user);
+    }
+
+    protected void createGroup(String groupId, List<String> members, List<String> subGroups) {
+        DocumentModel group = userManager.getBareGroupModel();
+        group.setProperty("group", "groupname", groupId);
+        group.setProperty("group", "members", members);
+        group.setProperty("group", "subGroups", subGroups);
+        userManager.createGroup(group);
+    }
+
+    protected GroupClosureIndex getIndex() {
+        GroupClosureIndex index = ((UserManagerImpl) userManager).getGroupClosureIndex();
+        assertNotNull(index);
+        return index;
+    }
+
+    @Test
+    public void testNestedGroups() {
+        createUser("user1");
+        createGroup("group1", List.of("user1"), List.of());
+        createGroup("group2", List.of(), List.of("group1"));
+        createGroup("group3", List.of(), List.of("group2"));
+
+        NuxeoPrincipal principal = userManager.getPrincipal("user1");
+        assertTrue(principal.isMemberOf("group1"));
+        assertTrue(principal.isMemberOf("group2"));
+        assertTrue(principal.isMemberOf("group3"));
+        assertEquals(List.of("group1", "group2", "group3"), getIndex().getClosure("group1"));
+        assertEquals(List.of("group2", "group3"), userManager.getAncestorGroups("group1"));
+        assertEquals(List.of(), userManager.getAncestorGroups("group3"));
+        assertEquals(List.of(), userManager.getAncestorGroups("nosuchgroup"));
+    }
+
+    @Test
+    public void testGroupChanges() {
+        createUser("user1");
+        createGroup("group1", List.of("user1"), List.of());
+        createGroup("group2", List.of(), List.of("group1"));
+        // the closure of group1 is now in the index
+        assertEquals(List.of("group2"), userManager.getAncestorGroups("group1"));
+
+        // a new group with group1 as subgroup changes the parents of group1
+        createGroup("group3", List.of(), List.of("group1"));
+        assertEquals(List.of("group1", "group2", "group3"), getIndex().getClosure("group1"));
+        assertTrue(userManager.getPrincipal("user1").isMemberOf("group3"));
+
+        // removing group1 from the subgroups of group2
+        DocumentModel group2 = userManager.getGroupModel("group2");
+        group2.setProperty("group", "subGroups", List.of());
+        userManager.updateGroup(group2);
+        assertEquals(List.of("group1", "group3"), getIndex().getClosure("group1"));
+        assertFalse(userManager.getPrincipal("user1").isMemberOf("group2"));
+
+        // deleting group3
+        userManager.deleteGroup("group3");
+        assertEquals(List.of("group1"), getIndex().getClosure("group1"));
+        NuxeoPrincipal principal = userManager.getPrincipal("user1");
+        assertTrue(principal.isMemberOf("group1"));
+        assertFalse(principal.isMemberOf("group3"));
+    }
+
+    @Test
+    public void testCycle() {
+        createGroup("group1", List.of(), List.of("group2"));
+        createGroup("group2", List.of(), List.of("group1"));
+        assertEquals(List.of("group2", "group1"), userManager.getAncestorGroups("group1"));
+        assertEquals(List.of("group1", "group2"), getIndex().getClosure("group1"));
+    }
+
+}
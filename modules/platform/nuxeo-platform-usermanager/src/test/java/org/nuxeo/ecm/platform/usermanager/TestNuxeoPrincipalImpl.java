@@ -25,11 +25,16 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.Map;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.security.ACE;
+import org.nuxeo.ecm.core.api.security.Access;
+import org.nuxeo.ecm.core.api.security.impl.ACPImpl;
+import org.nuxeo.ecm.core.security.ReadAclBitmap;
 import org.nuxeo.ecm.directory.BaseSession;
 import org.nuxeo.runtime.test.runner.Deploy;
 import org.nuxeo.runtime.test.runner.Features;
@@ -86,4 +91,34 @@ public class TestNuxeoPrincipalImpl {
         assertTrue((boolean) bContextData.get("readonly"));
     }
 
+    @Test
+    public void testReadAclBitmap() {
+        NuxeoPrincipalImpl principal = new NuxeoPrincipalImpl("bob");
+        principal.setVirtualGroups(Arrays.asList("g1", "g2"));
+        // a new list is returned on each call
+        assertFalse(principal.getAllGroups() == principal.getAllGroups());
+
+        int[] checks = new int[1];
+        ACPImpl acp = new ACPImpl() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public Access getAccess(String[] principals, String[] permissions) {
+                checks[0]++;
+                return super.getAccess(principals, permissions);
+            }
+        };
+        acp.addAccessRule("local", new ACE("g2", "Read", true));
+        ReadAclBitmap bitmap = new ReadAclBitmap(principal);
+        String[] perms = { "Read", "Everything" };
+        assertTrue(bitmap.checkPermission(acp, "Read", perms));
+        assertTrue(bitmap.checkPermission(acp, "Read", perms));
+        assertEquals(1, checks[0]);
+
+        // actual groups change still drops the cache
+        principal.setVirtualGroups(Arrays.asList("g1"));
+        assertFalse(bitmap.checkPermission(acp, "Read", perms));
+        assertEquals(2, checks[0]);
+    }
+
 }
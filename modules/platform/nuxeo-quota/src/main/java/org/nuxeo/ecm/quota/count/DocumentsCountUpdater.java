@@ -41,6 +41,7 @@ import org.nuxeo.ecm.core.event.Event;
 import org.nuxeo.ecm.quota.AbstractQuotaStatsUpdater;
 import org.nuxeo.ecm.quota.QuotaStatsInitialWork;
 import org.nuxeo.ecm.quota.QuotaUtils;
+import org.nuxeo.ecm.quota.delta.QuotaDeltas;
 import org.nuxeo.ecm.quota.size.QuotaExceededException;
 import org.nuxeo.runtime.transaction.TransactionHelper;
 
@@ -139,6 +140,16 @@ public class DocumentsCountUpdater extends AbstractQuotaStatsUpdater {
             return;
         }
 
+        if (QuotaDeltas.isEnabled()) {
+            // applied later by batch, outside of the current transaction
+            String repositoryName = session.getRepositoryName();
+            if (!doc.hasFacet(FOLDERISH)) {
+                QuotaDeltas.addCounts(repositoryName, ancestors.get(0).getId(), count, 0);
+            }
+            ancestors.forEach(ancestor -> QuotaDeltas.addCounts(repositoryName, ancestor.getId(), 0, count));
+            return;
+        }
+
         if (!doc.hasFacet(FOLDERISH)) {
             DocumentModel parent = ancestors.get(0);
             updateCount(session, parent, DOCUMENTS_COUNT_STATISTICS_CHILDREN_COUNT_PROPERTY, count);
@@ -168,12 +179,16 @@ public class DocumentsCountUpdater extends AbstractQuotaStatsUpdater {
 
     protected long getCount(DocumentModel doc) {
         if (doc.hasFacet(FOLDERISH)) {
+            long count = 0;
             if (doc.hasFacet(DOCUMENTS_COUNT_STATISTICS_FACET)) {
-                Number count = (Number) doc.getPropertyValue(DOCUMENTS_COUNT_STATISTICS_DESCENDANTS_COUNT_PROPERTY);
-                return count == null ? 0 : count.longValue();
-            } else {
-                return 0;
+                Number value = (Number) doc.getPropertyValue(DOCUMENTS_COUNT_STATISTICS_DESCENDANTS_COUNT_PROPERTY);
+                count = value == null ? 0 : value.longValue();
+            }
+            if (QuotaDeltas.isEnabled()) {
+                // the descendants not yet counted
+                count += QuotaDeltas.getPendingCount(doc.getRepositoryName(), doc.getId());
             }
+            return count;
         } else {
             return 1;
         }
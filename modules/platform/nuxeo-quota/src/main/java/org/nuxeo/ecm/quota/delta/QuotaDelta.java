@@ -0,0 +1,150 @@
+/*
+ * (C) Copyright 2021 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.quota.delta;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.nuxeo.ecm.core.api.NuxeoException;
+
+/**
+ * Deltas of the quota statistics of a document, to be added to its size and count statistics.
+ *
+ * @since 2021.20
+ */
+public class QuotaDelta {
+
+    protected final String repositoryName;
+
+    protected final String docId;
+
+    protected long totalSize;
+
+    protected long trashSize;
+
+    protected long versionsSize;
+
+    protected long childrenCount;
+
+    protected long descendantsCount;
+
+    public QuotaDelta(String repositoryName, String docId) {
+        this.repositoryName = repositoryName;
+        this.docId = docId;
+    }
+
+    public String getRepositoryName() {
+        return repositoryName;
+    }
+
+    public String getDocId() {
+        return docId;
+    }
+
+    /**
+     * Gets the key identifying the document in the stream and in the pending deltas.
+     */
+    public String getKey() {
+        return repositoryName + ':' + docId;
+    }
+
+    public long getTotalSize() {
+        return totalSize;
+    }
+
+    public long getTrashSize() {
+        return trashSize;
+    }
+
+    public long getVersionsSize() {
+        return versionsSize;
+    }
+
+    public long getChildrenCount() {
+        return childrenCount;
+    }
+
+    public long getDescendantsCount() {
+        return descendantsCount;
+    }
+
+    public QuotaDelta addSizes(long totalSize, long trashSize, long versionsSize) {
+        this.totalSize += totalSize;
+        this.trashSize += trashSize;
+        this.versionsSize += versionsSize;
+        return this;
+    }
+
+    public QuotaDelta addCounts(long childrenCount, long descendantsCount) {
+        this.childrenCount += childrenCount;
+        this.descendantsCount += descendantsCount;
+        return this;
+    }
+
+    public QuotaDelta add(QuotaDelta other) {
+        addSizes(other.totalSize, other.trashSize, other.versionsSize);
+        return addCounts(other.childrenCount, other.descendantsCount);
+    }
+
+    public boolean hasSizes() {
+        return totalSize != 0 || trashSize != 0 || versionsSize != 0;
+    }
+
+    public boolean hasCounts() {
+        return childrenCount != 0 || descendantsCount != 0;
+    }
+
+    public boolean isEmpty() {
+        return !hasSizes() && !hasCounts();
+    }
+
+    public byte[] toBytes() {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(baos)) {
+            out.writeUTF(repositoryName);
+            out.writeUTF(docId);
+            out.writeLong(totalSize);
+            out.writeLong(trashSize);
+            out.writeLong(versionsSize);
+            out.writeLong(childrenCount);
+            out.writeLong(descendantsCount);
+        } catch (IOException e) {
+            throw new NuxeoException(e);
+        }
+        return baos.toByteArray();
+    }
+
+    public static QuotaDelta fromBytes(byte[] bytes) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            QuotaDelta delta = new QuotaDelta(in.readUTF(), in.readUTF());
+            delta.addSizes(in.readLong(), in.readLong(), in.readLong());
+            return delta.addCounts(in.readLong(), in.readLong());
+        } catch (IOException e) {
+            throw new NuxeoException("Invalid quota delta", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(" + getKey() + ", total=" + totalSize + ", trash=" + trashSize
+                + ", versions=" + versionsSize + ", children=" + childrenCount + ", descendants=" + descendantsCount
+                + ")";
+    }
+
+}
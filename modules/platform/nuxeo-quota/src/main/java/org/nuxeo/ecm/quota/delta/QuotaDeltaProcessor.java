@@ -0,0 +1,193 @@
+/*
+ * (C) Copyright 2021 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.quota.delta;
+
+import static org.nuxeo.ecm.quota.count.Constants.DOCUMENTS_COUNT_STATISTICS_CHILDREN_COUNT_PROPERTY;
+import static org.nuxeo.ecm.quota.count.Constants.DOCUMENTS_COUNT_STATISTICS_DESCENDANTS_COUNT_PROPERTY;
+import static org.nuxeo.ecm.quota.count.Constants.DOCUMENTS_COUNT_STATISTICS_FACET;
+import static org.nuxeo.ecm.quota.delta.QuotaDeltas.STREAM_NAME;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.ecm.core.api.CoreInstance;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.DocumentRef;
+import org.nuxeo.ecm.core.api.IdRef;
+import org.nuxeo.ecm.core.api.model.DeltaLong;
+import org.nuxeo.ecm.quota.QuotaUtils;
+import org.nuxeo.ecm.quota.size.QuotaAware;
+import org.nuxeo.ecm.quota.size.QuotaAwareDocumentFactory;
+import org.nuxeo.lib.stream.computation.AbstractBatchComputation;
+import org.nuxeo.lib.stream.computation.ComputationContext;
+import org.nuxeo.lib.stream.computation.Record;
+import org.nuxeo.lib.stream.computation.Topology;
+import org.nuxeo.lib.stream.log.Name;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.stream.StreamProcessorTopology;
+import org.nuxeo.runtime.stream.StreamService;
+import org.nuxeo.runtime.transaction.TransactionHelper;
+
+/**
+ * Computation applying the quota deltas appended by {@link QuotaDeltas}.
+ * <p>
+ * The deltas of a batch are aggregated per document, so that a folder receiving many deltas during the batch window is
+ * written once, and they are applied in a single transaction per repository. As the deltas of a document are all in
+ * the same partition, a document is only written by one computation thread.
+ * <p>
+ * A failing batch is retried with the same records, so the repositories whose transaction already committed are
+ * skipped by the retry, the deltas being increments that must not be applied twice.
+ *
+ * @since 2021.20
+ */
+public class QuotaDeltaProcessor implements StreamProcessorTopology {
+
+    private static final Logger log = LogManager.getLogger(QuotaDeltaProcessor.class);
+
+    public static final String COMPUTATION_NAME = "quota/deltaApplier";
+
+    @Override
+    public Topology getTopology(Map<String, String> options) {
+        return Topology.builder()
+                       .addComputation(() -> new QuotaDeltaComputation(COMPUTATION_NAME), List.of("i1:" + STREAM_NAME))
+                       .build();
+    }
+
+    /**
+     * Waits until all the deltas appended so far are applied.
+     *
+     * @return {@code true} if all the deltas were applied, {@code false} on timeout
+     */
+    @SuppressWarnings("resource") // LogManager not ours to close
+    public static boolean await(Duration duration) throws InterruptedException {
+        if (!QuotaDeltas.isEnabled()) {
+            return true;
+        }
+        org.nuxeo.lib.stream.log.LogManager logManager = Framework.getService(StreamService.class).getLogManager();
+        Name stream = Name.ofUrn(STREAM_NAME);
+        if (!logManager.exists(stream)) {
+            return true;
+        }
+        long deadline = System.currentTimeMillis() + duration.toMillis();
+        while (logManager.getLag(stream, Name.ofUrn(COMPUTATION_NAME)).lag() > 0) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            Thread.sleep(50);
+        }
+        return true;
+    }
+
+    public static class QuotaDeltaComputation extends AbstractBatchComputation {
+
+        /** The repositories on which the deltas of the current batch are already committed. */
+        protected final Set<String> appliedRepositories = new HashSet<>();
+
+        public QuotaDeltaComputation(String name) {
+            super(name, 1, 0);
+        }
+
+        @Override
+        protected void batchProcess(ComputationContext context, String inputStreamName, List<Record> records) {
+            Map<String, Map<String, QuotaDelta>> deltasByRepository = new LinkedHashMap<>();
+            for (Record record : records) {
+                QuotaDelta delta = QuotaDelta.fromBytes(record.getData());
+                deltasByRepository.computeIfAbsent(delta.getRepositoryName(), k -> new LinkedHashMap<>())
+                                  .merge(delta.getDocId(), delta, QuotaDelta::add);
+            }
+            for (Map.Entry<String, Map<String, QuotaDelta>> entry : deltasByRepository.entrySet()) {
+                Collection<QuotaDelta> deltas = entry.getValue().values();
+                if (appliedRepositories.contains(entry.getKey())) {
+                    log.debug("Skip quota deltas already applied on repository: {}", entry::getKey);
+                    continue;
+                }
+                TransactionHelper.runInTransaction(() -> {
+                    CoreSession session = CoreInstance.getCoreSessionSystem(entry.getKey());
+                    deltas.forEach(delta -> apply(session, delta));
+                    session.save();
+                });
+                appliedRepositories.add(entry.getKey());
+                deltas.forEach(QuotaDeltas::release);
+                log.debug("Applied {} quota deltas from {} records on repository: {}", deltas::size, records::size,
+                        entry::getKey);
+            }
+        }
+
+        @Override
+        protected void checkpointBatch(ComputationContext context) {
+            super.checkpointBatch(context);
+            appliedRepositories.clear();
+        }
+
+        @Override
+        public void batchFailure(ComputationContext context, String inputStreamName, List<Record> records) {
+            // error log already done by abstract
+            appliedRepositories.clear();
+        }
+
+        protected void apply(CoreSession session, QuotaDelta delta) {
+            if (delta.isEmpty()) {
+                return;
+            }
+            DocumentRef ref = new IdRef(delta.getDocId());
+            if (!session.exists(ref)) {
+                log.debug("Skip quota delta on removed document: {}", delta);
+                return;
+            }
+            DocumentModel doc = session.getDocument(ref);
+            log.trace("Apply: {}", delta);
+            if (delta.hasSizes()) {
+                QuotaAware quotaDoc = QuotaAwareDocumentFactory.make(doc);
+                if (delta.getTotalSize() != 0) {
+                    quotaDoc.addTotalSize(delta.getTotalSize());
+                }
+                if (delta.getTrashSize() != 0) {
+                    quotaDoc.addTrashSize(delta.getTrashSize());
+                }
+                if (delta.getVersionsSize() != 0) {
+                    quotaDoc.addVersionsSize(delta.getVersionsSize());
+                }
+            }
+            if (delta.hasCounts()) {
+                if (!doc.hasFacet(DOCUMENTS_COUNT_STATISTICS_FACET)) {
+                    doc.addFacet(DOCUMENTS_COUNT_STATISTICS_FACET);
+                }
+                addCount(doc, DOCUMENTS_COUNT_STATISTICS_CHILDREN_COUNT_PROPERTY, delta.getChildrenCount());
+                addCount(doc, DOCUMENTS_COUNT_STATISTICS_DESCENDANTS_COUNT_PROPERTY, delta.getDescendantsCount());
+            }
+            // do not send notifications
+            QuotaUtils.disableListeners(doc);
+            session.saveDocument(doc);
+            QuotaUtils.clearContextData(doc);
+        }
+
+        protected void addCount(DocumentModel doc, String xpath, long count) {
+            if (count != 0) {
+                Number previous = (Number) doc.getPropertyValue(xpath);
+                doc.setPropertyValue(xpath, DeltaLong.valueOf(previous, count));
+            }
+        }
+    }
+
+}
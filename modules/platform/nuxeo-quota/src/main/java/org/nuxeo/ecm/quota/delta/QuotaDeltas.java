@@ -0,0 +1,257 @@
+/*
+ * (C) Copyright 2021 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.quota.delta;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import javax.naming.NamingException;
+import javax.transaction.RollbackException;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.SystemException;
+import javax.transaction.Transaction;
+import javax.transaction.TransactionManager;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.lib.stream.computation.Record;
+import org.nuxeo.lib.stream.computation.StreamManager;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.kv.KeyValueService;
+import org.nuxeo.runtime.kv.KeyValueStore;
+import org.nuxeo.runtime.stream.StreamService;
+import org.nuxeo.runtime.transaction.TransactionHelper;
+
+/**
+ * Collects the quota deltas of the ancestors of the documents changed in a transaction, to apply them asynchronously.
+ * <p>
+ * When asynchronous updates are enabled, the quota updaters don't write the statistics of the ancestors inside the
+ * transaction of the user, which would serialize the concurrent writers on the same high-level folders. The deltas are
+ * aggregated per ancestor for the transaction and are appended to the {@value #STREAM_NAME} stream on commit, keyed by
+ * ancestor, where they are aggregated again and applied by batch by the {@link QuotaDeltaProcessor}.
+ * <p>
+ * Until they are applied, the deltas of total size and descendants count are also kept as pending values in a
+ * key/value store shared by the cluster, so that the quota checks and the moves or removals of folders take into
+ * account the deltas not yet applied. The quota checks reserve the size they check before the commit, so that
+ * concurrent transactions cannot all pass the check, and the reservations are released on rollback.
+ *
+ * @since 2021.20
+ */
+public class QuotaDeltas implements Synchronization {
+
+    private static final Logger log = LogManager.getLogger(QuotaDeltas.class);
+
+    public static final String ASYNC_ENABLED_PROP = "nuxeo.quota.async.enabled";
+
+    public static final String STREAM_NAME = "quota/deltas";
+
+    public static final String KV_STORE_NAME = "quota";
+
+    protected static final String PENDING_SIZE_PREFIX = "pending:size:";
+
+    protected static final String PENDING_COUNT_PREFIX = "pending:count:";
+
+    /**
+     * TTL of the pending values, set when they are created and not refreshed by the following changes, so that the
+     * deltas lost by a crash or a failed append stop skewing the quota checks even under steady traffic.
+     */
+    protected static final long PENDING_TTL = Duration.ofHours(1).toSeconds();
+
+    protected static final ThreadLocal<QuotaDeltas> CURRENT = new ThreadLocal<>();
+
+    /** Deltas of the transaction, by key. */
+    protected final Map<String, QuotaDelta> deltas = new LinkedHashMap<>();
+
+    /** Sizes already added to the pending total sizes by the quota checks of the transaction, by key. */
+    protected final Map<String, Long> reserved = new HashMap<>();
+
+    /**
+     * Checks whether the statistics of the ancestors are updated asynchronously.
+     */
+    public static boolean isEnabled() {
+        return Framework.isBooleanPropertyTrue(ASYNC_ENABLED_PROP);
+    }
+
+    /**
+     * Adds size deltas to the statistics of a document.
+     */
+    public static void addSizes(String repositoryName, String docId, long totalSize, long trashSize,
+            long versionsSize) {
+        if (totalSize == 0 && trashSize == 0 && versionsSize == 0) {
+            return;
+        }
+        run(deltas -> deltas.getDelta(repositoryName, docId).addSizes(totalSize, trashSize, versionsSize));
+    }
+
+    /**
+     * Adds count deltas to the statistics of a document.
+     */
+    public static void addCounts(String repositoryName, String docId, long childrenCount, long descendantsCount) {
+        if (childrenCount == 0 && descendantsCount == 0) {
+            return;
+        }
+        run(deltas -> deltas.getDelta(repositoryName, docId).addCounts(childrenCount, descendantsCount));
+    }
+
+    /**
+     * Reserves a size on a document having a maximum quota, if its total size with the pending deltas and the size
+     * doesn't exceed the maximum quota. The reservation becomes part of the pending deltas of the document, it is
+     * released if the transaction is rolled back.
+     *
+     * @param totalSize the last total size applied to the document
+     * @return {@code true} if the size was reserved, {@code false} if it would exceed the quota
+     */
+    public static boolean reserve(String repositoryName, String docId, long totalSize, long size, long maxQuota) {
+        String key = repositoryName + ':' + docId;
+        // the pending value is negative if it expired while deltas were still pending, don't count it as free space
+        long pending = Math.max(addPending(PENDING_SIZE_PREFIX + key, size), size);
+        if (totalSize + pending > maxQuota) {
+            log.debug("Cannot reserve: {} on: {}, total size: {}, pending: {}, max: {}", size, key, totalSize,
+                    pending - size, maxQuota);
+            addPending(PENDING_SIZE_PREFIX + key, -size);
+            return false;
+        }
+        run(deltas -> deltas.reserved.merge(key, size, Long::sum));
+        return true;
+    }
+
+    /**
+     * Gets the total size deltas of a document not yet applied, including the reservations.
+     */
+    public static long getPendingSize(String repositoryName, String docId) {
+        return getPending(PENDING_SIZE_PREFIX + repositoryName + ':' + docId);
+    }
+
+    /**
+     * Gets the descendants count deltas of a document not yet applied.
+     */
+    public static long getPendingCount(String repositoryName, String docId) {
+        return getPending(PENDING_COUNT_PREFIX + repositoryName + ':' + docId);
+    }
+
+    /**
+     * Removes applied deltas from the pending ones.
+     */
+    protected static void release(QuotaDelta delta) {
+        if (delta.getTotalSize() != 0) {
+            addPending(PENDING_SIZE_PREFIX + delta.getKey(), -delta.getTotalSize());
+        }
+        if (delta.getDescendantsCount() != 0) {
+            addPending(PENDING_COUNT_PREFIX + delta.getKey(), -delta.getDescendantsCount());
+        }
+    }
+
+    protected static KeyValueStore getKeyValueStore() {
+        return Framework.getService(KeyValueService.class).getKeyValueStore(KV_STORE_NAME);
+    }
+
+    protected static long getPending(String key) {
+        Long pending = getKeyValueStore().getLong(key);
+        return pending == null ? 0 : pending.longValue();
+    }
+
+    protected static long addPending(String key, long delta) {
+        KeyValueStore kv = getKeyValueStore();
+        long pending = kv.addAndGet(key, delta);
+        if (pending == delta) {
+            // the key was just created (or was back to 0), start its expiration
+            kv.setTTL(key, PENDING_TTL);
+        }
+        return pending;
+    }
+
+    protected static void run(Consumer<QuotaDeltas> consumer) {
+        QuotaDeltas deltas = CURRENT.get();
+        if (deltas != null) {
+            consumer.accept(deltas);
+            return;
+        }
+        deltas = new QuotaDeltas();
+        consumer.accept(deltas);
+        if (registerSynchronization(deltas)) {
+            CURRENT.set(deltas);
+        } else {
+            // there is no transaction so don't wait for a commit
+            deltas.afterCompletion(Status.STATUS_COMMITTED);
+        }
+    }
+
+    protected static boolean registerSynchronization(Synchronization sync) {
+        try {
+            TransactionManager tm = TransactionHelper.lookupTransactionManager();
+            Transaction transaction = tm.getTransaction();
+            if (transaction == null) {
+                return false;
+            }
+            transaction.registerSynchronization(sync);
+            return true;
+        } catch (NamingException | IllegalStateException | SystemException | RollbackException e) {
+            log.error("Unable to register synchronization, applying quota deltas without waiting for commit", e);
+            return false;
+        }
+    }
+
+    protected QuotaDelta getDelta(String repositoryName, String docId) {
+        return deltas.computeIfAbsent(repositoryName + ':' + docId, k -> new QuotaDelta(repositoryName, docId));
+    }
+
+    @Override
+    public void beforeCompletion() {
+        // nothing to do
+    }
+
+    @Override
+    public void afterCompletion(int status) {
+        CURRENT.remove();
+        if (status == Status.STATUS_COMMITTED) {
+            writeDeltas();
+        } else {
+            reserved.forEach((key, size) -> addPending(PENDING_SIZE_PREFIX + key, -size));
+        }
+    }
+
+    protected void writeDeltas() {
+        StreamManager streamManager = Framework.getService(StreamService.class).getStreamManager();
+        // reservations without delta have nothing to wait for
+        reserved.forEach((key, size) -> {
+            if (!deltas.containsKey(key)) {
+                addPending(PENDING_SIZE_PREFIX + key, -size);
+            }
+        });
+        for (QuotaDelta delta : deltas.values()) {
+            String key = delta.getKey();
+            // the reserved size is already pending
+            long size = delta.getTotalSize() - reserved.getOrDefault(key, 0L);
+            if (size != 0) {
+                addPending(PENDING_SIZE_PREFIX + key, size);
+            }
+            if (delta.isEmpty()) {
+                continue;
+            }
+            if (delta.getDescendantsCount() != 0) {
+                addPending(PENDING_COUNT_PREFIX + key, delta.getDescendantsCount());
+            }
+            // all the deltas of a document go to the same partition, so they are applied by a single consumer
+            streamManager.append(STREAM_NAME, Record.of(key, delta.toBytes()));
+        }
+        log.trace("Appended {} quota deltas", deltas::size);
+    }
+
+}
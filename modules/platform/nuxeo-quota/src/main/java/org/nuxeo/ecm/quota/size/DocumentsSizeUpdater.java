@@ -21,6 +21,7 @@ package org.nuxeo.ecm.quota.size;
 
 import static org.nuxeo.ecm.core.api.versioning.VersioningService.VERSIONING_OPTION;
 
+import java.time.Duration;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
@@ -31,7 +32,9 @@ import org.apache.logging.log4j.Logger;
 import org.nuxeo.ecm.core.api.Blob;
 import org.nuxeo.ecm.core.api.CoreSession;
 import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.DocumentRef;
 import org.nuxeo.ecm.core.api.IdRef;
+import org.nuxeo.ecm.core.api.NuxeoException;
 import org.nuxeo.ecm.core.api.PathRef;
 import org.nuxeo.ecm.core.api.ScrollResult;
 import org.nuxeo.ecm.core.event.Event;
@@ -39,6 +42,8 @@ import org.nuxeo.ecm.core.query.sql.NXQL;
 import org.nuxeo.ecm.core.utils.BlobsExtractor;
 import org.nuxeo.ecm.quota.AbstractQuotaStatsUpdater;
 import org.nuxeo.ecm.quota.QuotaStatsInitialWork;
+import org.nuxeo.ecm.quota.delta.QuotaDeltaProcessor;
+import org.nuxeo.ecm.quota.delta.QuotaDeltas;
 import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.services.config.ConfigurationService;
 import org.nuxeo.runtime.transaction.TransactionHelper;
@@ -80,6 +85,9 @@ public class DocumentsSizeUpdater extends AbstractQuotaStatsUpdater {
     /** @since 11.1 */
     public static final int DEFAULT_INIT_SCROLL_KEEP_ALIVE = 120;
 
+    /** @since 2021.20 */
+    protected static final long AWAIT_DELTAS_TIMEOUT_MINUTES = 10;
+
     @Override
     public void computeInitialStatistics(CoreSession session, QuotaStatsInitialWork currentWorker, String path) {
         log.debug("Starting initial Quota computation for path: {}", path);
@@ -122,6 +130,8 @@ public class DocumentsSizeUpdater extends AbstractQuotaStatsUpdater {
 
         // if recomputing only for descendants of a given path, recompute ancestors from their direct children
         if (path != null) {
+            // the children must not have deltas left to apply on the ancestors
+            awaitDeltas();
             DocumentModel doc = root;
             do {
                 doc = session.getDocument(doc.getParentRef());
@@ -130,6 +140,24 @@ public class DocumentsSizeUpdater extends AbstractQuotaStatsUpdater {
         }
     }
 
+    protected void awaitDeltas() {
+        if (!QuotaDeltas.isEnabled()) {
+            return;
+        }
+        // don't keep the transaction open while waiting
+        TransactionHelper.commitOrRollbackTransaction();
+        try {
+            if (!QuotaDeltaProcessor.await(Duration.ofMinutes(AWAIT_DELTAS_TIMEOUT_MINUTES))) {
+                log.warn("Timeout waiting for quota deltas to be applied, ancestors statistics may be incorrect");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NuxeoException(e);
+        } finally {
+            TransactionHelper.startTransaction();
+        }
+    }
+
     protected long scrollAndDo(CoreSession session, String query, int scrollSize, int scrollKeepAlive,
             BiConsumer<String, Long> consumer) {
         long count = 0;
@@ -275,7 +303,7 @@ public class DocumentsSizeUpdater extends AbstractQuotaStatsUpdater {
     @Override
     protected void processDocumentMoved(CoreSession session, DocumentModel doc, DocumentModel sourceParent) {
         QuotaAware quotaDoc = doc.getAdapter(QuotaAware.class);
-        long size = quotaDoc == null ? 0 : quotaDoc.getTotalSize();
+        long size = quotaDoc == null ? 0 : getTotalSize(doc, quotaDoc);
         checkQuota(session, doc, size);
         long versionsSize = quotaDoc == null ? 0 : quotaDoc.getVersionsSize();
         // add on new ancestors
@@ -312,7 +340,7 @@ public class DocumentsSizeUpdater extends AbstractQuotaStatsUpdater {
             versionsSize = 0;
             log.trace("Document {} doesn't have the facet quotaDoc. Compute impacted size: {}", doc.getId(), size);
         } else {
-            size = quotaDoc.getTotalSize();
+            size = getTotalSize(doc, quotaDoc);
             versionsSize = quotaDoc.getVersionsSize();
             log.trace("Found facet quotaDoc on document  {}. Total size: {} and versions size: {}", doc.getId(), size,
                     versionsSize);
@@ -352,7 +380,7 @@ public class DocumentsSizeUpdater extends AbstractQuotaStatsUpdater {
             return;
         }
         // remove versions size on parents since they will be recalculated on restore
-        long size = quotaDoc.getTotalSize();
+        long size = getTotalSize(doc, quotaDoc);
         long versionsSize = quotaDoc.getVersionsSize();
         updateAncestors(session, doc, -size, 0, -versionsSize);
     }
@@ -384,6 +412,7 @@ public class DocumentsSizeUpdater extends AbstractQuotaStatsUpdater {
         if (delta <= 0) {
             return;
         }
+        boolean async = QuotaDeltas.isEnabled();
         for (DocumentModel parent : getAncestors(session, doc)) {
             log.trace("processing {} {}", parent::getId, parent::getPathAsString);
             QuotaAware quotaDoc = parent.getAdapter(QuotaAware.class);
@@ -392,13 +421,34 @@ public class DocumentsSizeUpdater extends AbstractQuotaStatsUpdater {
             if (quotaDoc == null || quotaDoc.getMaxQuota() <= 0 || USER_WORKSPACES_ROOT.equals(parent.getType())) {
                 continue;
             }
-            if (quotaDoc.getTotalSize() + delta > quotaDoc.getMaxQuota()) {
+            if (async) {
+                // reserve the delta against the deltas of the other transactions not yet applied
+                if (!QuotaDeltas.reserve(session.getRepositoryName(), parent.getId(), quotaDoc.getTotalSize(), delta,
+                        quotaDoc.getMaxQuota())) {
+                    log.info("Raising Quota Exception on {} ({})", doc::getId, doc::getPathAsString);
+                    throw new QuotaExceededException(parent, doc, quotaDoc.getMaxQuota());
+                }
+            } else if (quotaDoc.getTotalSize() + delta > quotaDoc.getMaxQuota()) {
                 log.info("Raising Quota Exception on {} ({})", doc::getId, doc::getPathAsString);
                 throw new QuotaExceededException(parent, doc, quotaDoc.getMaxQuota());
             }
         }
     }
 
+    /**
+     * Gets the total size of a document, including the deltas not yet applied when the statistics of the ancestors are
+     * updated asynchronously.
+     *
+     * @since 2021.20
+     */
+    protected long getTotalSize(DocumentModel doc, QuotaAware quotaDoc) {
+        long size = quotaDoc.getTotalSize();
+        if (QuotaDeltas.isEnabled()) {
+            size += QuotaDeltas.getPendingSize(doc.getRepositoryName(), doc.getId());
+        }
+        return size;
+    }
+
     /** Gets the sum of all blobs sizes for all the document's versions. */
     protected long getVersionsSize(CoreSession session, DocumentModel doc) {
         long versionsSize = 0;
@@ -470,6 +520,15 @@ public class DocumentsSizeUpdater extends AbstractQuotaStatsUpdater {
             // avoids computing ancestors if there's no update to do
             return;
         }
+        if (QuotaDeltas.isEnabled()) {
+            // applied later by batch, outside of the current transaction
+            String repositoryName = session.getRepositoryName();
+            for (DocumentRef ref : session.getParentDocumentRefs(doc.getRef())) {
+                QuotaDeltas.addSizes(repositoryName, ref.reference().toString(), deltaTotal, deltaTrash,
+                        deltaVersions);
+            }
+            return;
+        }
         List<DocumentModel> ancestors = getAncestors(session, doc);
         for (DocumentModel ancestor : ancestors) {
             updateDocument(ancestor, 0, deltaTotal, deltaTrash, deltaVersions);
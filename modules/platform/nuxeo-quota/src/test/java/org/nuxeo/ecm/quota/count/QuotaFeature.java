@@ -27,10 +27,13 @@ import org.nuxeo.ecm.core.api.Blob;
 import org.nuxeo.ecm.core.api.Blobs;
 import org.nuxeo.ecm.core.api.DocumentModel;
 import org.nuxeo.ecm.core.test.CoreFeature;
+import org.nuxeo.ecm.quota.delta.QuotaDeltaProcessor;
 import org.nuxeo.ecm.quota.size.QuotaAware;
 import org.nuxeo.runtime.test.runner.Deploy;
 import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
 import org.nuxeo.runtime.test.runner.RunnerFeature;
+import org.nuxeo.runtime.test.runner.TransactionalFeature;
 
 /**
  * @author dmetzler
@@ -42,6 +45,12 @@ import org.nuxeo.runtime.test.runner.RunnerFeature;
 @Deploy("org.nuxeo.ecm.platform.content.template")
 public class QuotaFeature implements RunnerFeature {
 
+    @Override
+    public void initialize(FeaturesRunner runner) {
+        // wait for the asynchronous quota updates, if enabled
+        runner.getFeature(TransactionalFeature.class).addWaiter(QuotaDeltaProcessor::await);
+    }
+
     @SuppressWarnings("unchecked")
     public static <B extends Blob & Serializable> B createFakeBlob(int size) {
         Blob blob = Blobs.createBlob("a".repeat(Math.max(0, size)));
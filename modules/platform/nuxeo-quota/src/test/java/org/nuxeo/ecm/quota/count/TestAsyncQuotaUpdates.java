@@ -0,0 +1,210 @@
+/*
+ * (C) Copyright 2021 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.quota.count;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.nuxeo.ecm.quota.count.Constants.DOCUMENTS_COUNT_STATISTICS_CHILDREN_COUNT_PROPERTY;
+import static org.nuxeo.ecm.quota.count.Constants.DOCUMENTS_COUNT_STATISTICS_DESCENDANTS_COUNT_PROPERTY;
+import static org.nuxeo.ecm.quota.count.QuotaFeature.assertQuota;
+import static org.nuxeo.ecm.quota.count.QuotaFeature.createFakeBlob;
+
+import java.util.List;
+
+import javax.inject.Inject;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.test.CoreFeature;
+import org.nuxeo.ecm.core.test.annotations.Granularity;
+import org.nuxeo.ecm.core.test.annotations.RepositoryConfig;
+import org.nuxeo.ecm.quota.delta.QuotaDelta;
+import org.nuxeo.ecm.quota.delta.QuotaDeltaProcessor;
+import org.nuxeo.ecm.quota.delta.QuotaDeltas;
+import org.nuxeo.ecm.quota.size.QuotaAware;
+import org.nuxeo.ecm.quota.size.QuotaExceededException;
+import org.nuxeo.lib.stream.computation.ComputationContext;
+import org.nuxeo.lib.stream.computation.Record;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+import org.nuxeo.runtime.test.runner.WithFrameworkProperty;
+import org.nuxeo.runtime.transaction.TransactionHelper;
+
+/**
+ * @since 2021.20
+ */
+@RunWith(FeaturesRunner.class)
+@Features(QuotaFeature.class)
+@RepositoryConfig(cleanup = Granularity.METHOD)
+@WithFrameworkProperty(name = QuotaDeltas.ASYNC_ENABLED_PROP, value = "true")
+public class TestAsyncQuotaUpdates {
+
+    @Inject
+    protected CoreSession session;
+
+    @Inject
+    protected CoreFeature coreFeature;
+
+    protected DocumentModel ws;
+
+    /** Exposes the batch processing to the test. */
+    protected static class TestQuotaDeltaComputation extends QuotaDeltaProcessor.QuotaDeltaComputation {
+
+        public TestQuotaDeltaComputation() {
+            super("test");
+        }
+
+        @Override
+        public void batchProcess(ComputationContext context, String inputStreamName, List<Record> records) {
+            super.batchProcess(context, inputStreamName, records);
+        }
+    }
+
+    protected DocumentModel folder;
+
+    protected DocumentModel subFolder;
+
+    @Before
+    public void createFolders() {
+        ws = session.createDocument(session.createDocumentModel("/", "ws", "Workspace"));
+        folder = session.createDocument(session.createDocumentModel("/ws", "folder", "Folder"));
+        subFolder = session.createDocument(session.createDocumentModel("/ws/folder", "subfolder", "Folder"));
+        coreFeature.waitForAsyncCompletion();
+    }
+
+    protected DocumentModel createFile(String parentPath, String name, int size) {
+        DocumentModel file = session.createDocumentModel(parentPath, name, "File");
+        file.setPropertyValue("file:content", createFakeBlob(size));
+        return session.createDocument(file);
+    }
+
+    protected void assertCounts(DocumentModel doc, long childrenCount, long descendantsCount) {
+        doc = session.getDocument(doc.getRef());
+        assertEquals(childrenCount, getCount(doc, DOCUMENTS_COUNT_STATISTICS_CHILDREN_COUNT_PROPERTY));
+        assertEquals(descendantsCount, getCount(doc, DOCUMENTS_COUNT_STATISTICS_DESCENDANTS_COUNT_PROPERTY));
+    }
+
+    protected long getCount(DocumentModel doc, String xpath) {
+        Number count = (Number) doc.getPropertyValue(xpath);
+        return count == null ? 0 : count.longValue();
+    }
+
+    @Test
+    public void testAddContent() {
+        DocumentModel file1 = createFile("/ws/folder/subfolder", "file1", 100);
+        createFile("/ws/folder/subfolder", "file2", 200);
+        createFile("/ws/folder", "file3", 50);
+        // the document itself is updated synchronously
+        assertQuota(file1, 100, 100);
+        coreFeature.waitForAsyncCompletion();
+
+        assertQuota(session.getDocument(subFolder.getRef()), 0, 300);
+        assertQuota(session.getDocument(folder.getRef()), 0, 350);
+        assertQuota(session.getDocument(ws.getRef()), 0, 350);
+        assertCounts(subFolder, 2, 2);
+        assertCounts(folder, 1, 3);
+        assertCounts(ws, 0, 3);
+        assertEquals(0, QuotaDeltas.getPendingSize(session.getRepositoryName(), ws.getId()));
+        assertEquals(0, QuotaDeltas.getPendingCount(session.getRepositoryName(), ws.getId()));
+    }
+
+    @Test
+    public void testMoveAndRemoveContent() {
+        createFile("/ws/folder/subfolder", "file1", 100);
+        createFile("/ws/folder/subfolder", "file2", 200);
+        coreFeature.waitForAsyncCompletion();
+
+        session.move(subFolder.getRef(), ws.getRef(), null);
+        coreFeature.waitForAsyncCompletion();
+        assertQuota(session.getDocument(folder.getRef()), 0, 0);
+        assertQuota(session.getDocument(ws.getRef()), 0, 300);
+        assertCounts(folder, 0, 0);
+        assertCounts(ws, 0, 2);
+
+        session.removeDocument(subFolder.getRef());
+        coreFeature.waitForAsyncCompletion();
+        assertQuota(session.getDocument(ws.getRef()), 0, 0);
+        assertCounts(ws, 0, 0);
+    }
+
+    @Test
+    public void testQuotaReservation() {
+        QuotaAware qa = session.getDocument(ws.getRef()).getAdapter(QuotaAware.class);
+        qa.setMaxQuota(250);
+        qa.save();
+        coreFeature.waitForAsyncCompletion();
+
+        // the total size of the workspace is not updated in the transaction, the first file is reserved
+        createFile("/ws/folder", "file1", 150);
+        try {
+            createFile("/ws/folder/subfolder", "file2", 150);
+            fail("Should have failed due to quota exceeded");
+        } catch (Exception e) {
+            assertTrue(QuotaExceededException.isQuotaExceededException(e));
+            TransactionHelper.setTransactionRollbackOnly();
+        }
+        coreFeature.waitForAsyncCompletion();
+        // reservations are released on rollback
+        assertEquals(0, QuotaDeltas.getPendingSize(session.getRepositoryName(), ws.getId()));
+        assertQuota(session.getDocument(ws.getRef()), 0, 0);
+
+        createFile("/ws/folder", "file1", 150);
+        coreFeature.waitForAsyncCompletion();
+        assertQuota(session.getDocument(ws.getRef()), 0, 150);
+        try {
+            createFile("/ws/folder/subfolder", "file2", 150);
+            fail("Should have failed due to quota exceeded");
+        } catch (Exception e) {
+            assertTrue(QuotaExceededException.isQuotaExceededException(e));
+            TransactionHelper.setTransactionRollbackOnly();
+        }
+        coreFeature.waitForAsyncCompletion();
+        createFile("/ws/folder/subfolder", "file2", 100);
+        coreFeature.waitForAsyncCompletion();
+        assertQuota(session.getDocument(ws.getRef()), 0, 250);
+        assertEquals(0, QuotaDeltas.getPendingSize(session.getRepositoryName(), ws.getId()));
+    }
+
+    @Test
+    public void testRetryDoesNotApplyTwice() {
+        String repositoryName = session.getRepositoryName();
+        List<Record> records = List.of(
+                Record.of(ws.getId(), new QuotaDelta(repositoryName, ws.getId()).addCounts(1, 0).toBytes()),
+                Record.of("other", new QuotaDelta("unknownRepository", "other").addCounts(1, 0).toBytes()));
+        TestQuotaDeltaComputation computation = new TestQuotaDeltaComputation();
+        TransactionHelper.commitOrRollbackTransaction();
+        try {
+            // the first repository commits, the second one fails and the batch is retried
+            for (int i = 0; i < 2; i++) {
+                try {
+                    computation.batchProcess(null, QuotaDeltas.STREAM_NAME, records);
+                    fail("Should have failed on unknown repository");
+                } catch (NuxeoException e) {
+                    // expected
+                }
+            }
+        } finally {
+            TransactionHelper.startTransaction();
+        }
+        assertCounts(ws, 1, 0);
+    }
+
+}
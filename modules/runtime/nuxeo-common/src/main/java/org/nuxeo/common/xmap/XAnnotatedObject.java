@@ -22,8 +22,11 @@
 package org.nuxeo.common.xmap;
 
 import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -45,6 +48,9 @@ public class XAnnotatedObject {
 
     final Constructor<?> ctor;
 
+    /** The constructor as a method handle, resolved on first instantiation. */
+    volatile MethodHandle ctorHandle;
+
     final Path path;
 
     final List<XAnnotatedMember> members;
@@ -78,19 +84,30 @@ public class XAnnotatedObject {
         return path;
     }
 
+    protected MethodHandle getConstructorHandle() {
+        MethodHandle handle = ctorHandle;
+        if (handle == null) {
+            if (Modifier.isAbstract(klass.getModifiers())) {
+                throw new IllegalArgumentException("Cannot instantiate abstract class: " + klass.getName());
+            }
+            try {
+                handle = MethodHandles.lookup().unreflectConstructor(ctor).asType(MethodType.methodType(Object.class));
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException(e);
+            }
+            ctorHandle = handle;
+        }
+        return handle;
+    }
+
     public Object newInstance(Context ctx, Element element) {
         Object ob;
         try {
-            ob = ctor.newInstance();
-        } catch (InstantiationException e) {
-            throw new IllegalArgumentException(e);
-        } catch (IllegalAccessException e) {
-            throw new IllegalArgumentException(e);
-        } catch (InvocationTargetException e) {
-            if (e.getCause() instanceof RuntimeException) {
-                throw (RuntimeException) e.getCause();
-            }
-            throw new IllegalArgumentException(e);
+            ob = getConstructorHandle().invokeExact();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) { // NOSONAR
+            throw new IllegalArgumentException(t);
         }
         ctx.push(ob);
 
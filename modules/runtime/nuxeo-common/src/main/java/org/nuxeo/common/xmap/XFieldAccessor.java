@@ -21,18 +21,38 @@
 
 package org.nuxeo.common.xmap;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 
 /**
+ * Accessor for an annotated field, using method handles rather than reflective calls.
+ *
  * @author <a href="mailto:bs@nuxeo.com">Bogdan Stefanescu</a>
  */
 public class XFieldAccessor implements XAccessor {
 
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
     private final Field field;
 
+    private final MethodHandle setter;
+
+    private final MethodHandle getter;
+
     public XFieldAccessor(Field field) {
         this.field = field;
         this.field.setAccessible(true);
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            setter = lookup.unreflectSetter(field).asType(SETTER_TYPE);
+            getter = lookup.unreflectGetter(field).asType(GETTER_TYPE);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException(e);
+        }
     }
 
     @Override
@@ -43,19 +63,31 @@ public class XFieldAccessor implements XAccessor {
     @Override
     public void setValue(Object instance, Object value) {
         try {
-            field.set(instance, value);
-        } catch (IllegalAccessException e) {
-            throw new IllegalArgumentException(e);
+            setter.invokeExact(instance, value);
+        } catch (ClassCastException | NullPointerException e) {
+            // same as Field.set for a value not matching the field type
+            throw new IllegalArgumentException("Cannot set " + field + " to " + value, e);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) { // NOSONAR
+            throw new IllegalArgumentException(t);
         }
     }
 
     @Override
     public Object getValue(Object instance) {
         try {
-            return field.get(instance);
-        } catch (IllegalAccessException e) {
-            throw new IllegalArgumentException(e);
+            return getter.invokeExact(instance);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) { // NOSONAR
+            throw new IllegalArgumentException(t);
         }
     }
 
+    @Override
+    public String toString() {
+        return "XFieldAccessor {field: " + field + '}';
+    }
+
 }
@@ -97,6 +97,40 @@ public class XMap {
 
     private static DocumentBuilderFactory factory = initFactory();
 
+    /**
+     * Document builders are costly to create, each thread reuses its own one.
+     *
+     * @since 2021.20
+     */
+    private static final ThreadLocal<DocumentBuilder> BUILDERS = new ThreadLocal<>();
+
+    /**
+     * The annotated members of each scanned class, with their accessors, shared by all the XMap instances so that a
+     * class is introspected only once.
+     *
+     * @since 2021.20
+     */
+    private static final ClassValue<List<ScannedMember>> SCANNED_MEMBERS = new ClassValue<>() {
+        @Override
+        protected List<ScannedMember> computeValue(Class<?> type) {
+            List<ScannedMember> members = new ArrayList<>();
+            scanClass(type, members);
+            return members;
+        }
+    };
+
+    private static final class ScannedMember {
+
+        private final Annotation annotation;
+
+        private final XAccessor accessor;
+
+        private ScannedMember(Annotation annotation, XAccessor accessor) {
+            this.annotation = annotation;
+            this.accessor = accessor;
+        }
+    }
+
     // top level objects
     private final Map<String, XAnnotatedObject> roots;
 
@@ -184,16 +218,17 @@ public class XMap {
     }
 
     private void scan(XAnnotatedObject xob) {
-        scanClass(xob, xob.klass);
+        for (ScannedMember scanned : SCANNED_MEMBERS.get(xob.klass)) {
+            xob.addMember(createMember(scanned.annotation, scanned.accessor));
+        }
     }
 
-    private void scanClass(XAnnotatedObject xob, Class<?> aClass) {
+    private static void scanClass(Class<?> aClass, List<ScannedMember> members) {
         Field[] fields = aClass.getDeclaredFields();
         for (Field field : fields) {
             Annotation anno = checkMemberAnnotation(field);
             if (anno != null) {
-                XAnnotatedMember member = createFieldMember(field, anno);
-                xob.addMember(member);
+                members.add(new ScannedMember(anno, new XFieldAccessor(field)));
             }
         }
 
@@ -206,14 +241,31 @@ public class XMap {
             }
             Annotation anno = checkMemberAnnotation(method);
             if (anno != null) {
-                XAnnotatedMember member = createMethodMember(method, anno, aClass);
-                xob.addMember(member);
+                members.add(new ScannedMember(anno, new XMethodAccessor(method, aClass)));
             }
         }
 
         // scan superClass annotations
         if (aClass.getSuperclass() != null) {
-            scanClass(xob, aClass.getSuperclass());
+            scanClass(aClass.getSuperclass(), members);
+        }
+    }
+
+    /**
+     * Parses the given XML input stream, reusing the document builder of the current thread.
+     *
+     * @since 2021.20
+     */
+    protected static Document parse(InputStream in) throws ParserConfigurationException, SAXException, IOException {
+        DocumentBuilder builder = BUILDERS.get();
+        if (builder == null) {
+            builder = getFactory().newDocumentBuilder();
+            BUILDERS.set(builder);
+        }
+        try {
+            return builder.parse(in);
+        } finally {
+            builder.reset();
         }
     }
 
@@ -257,9 +309,7 @@ public class XMap {
      */
     public Object load(Context ctx, InputStream in) throws IOException {
         try {
-            DocumentBuilderFactory factory = getFactory();
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            Document document = builder.parse(in);
+            Document document = parse(in);
             return load(ctx, document.getDocumentElement());
         } catch (ParserConfigurationException | SAXException e) {
             throw new IOException(e);
@@ -330,9 +380,7 @@ public class XMap {
      */
     public Object[] loadAll(Context ctx, InputStream in) throws IOException {
         try {
-            DocumentBuilderFactory factory = getFactory();
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            Document document = builder.parse(in);
+            Document document = parse(in);
             return loadAll(ctx, document.getDocumentElement());
         } catch (ParserConfigurationException | SAXException e) {
             throw new IOException(e);
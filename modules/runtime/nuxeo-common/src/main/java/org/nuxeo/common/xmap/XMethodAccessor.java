@@ -21,27 +21,48 @@
 
 package org.nuxeo.common.xmap;
 
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 
+import org.apache.commons.lang3.ClassUtils;
+
 /**
+ * Accessor for an annotated setter, using method handles rather than reflective calls.
+ *
  * @author <a href="mailto:bs@nuxeo.com">Bogdan Stefanescu</a>
  */
 public class XMethodAccessor implements XAccessor {
 
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
     private final Method setter;
 
+    private final MethodHandle setterHandle;
+
     private final Class<?> klass;
 
-    Method getter;
+    volatile MethodHandle getter;
 
     public XMethodAccessor(Method method, Class<?> klass) {
         setter = method;
         setter.setAccessible(true);
+        setterHandle = unreflect(setter).asType(SETTER_TYPE);
         //
         this.klass = klass;
     }
 
+    protected static MethodHandle unreflect(Method method) {
+        try {
+            return MethodHandles.lookup().unreflect(method);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
     @Override
     public Class<?> getType() {
         return setter.getParameterTypes()[0];
@@ -50,15 +71,27 @@ public class XMethodAccessor implements XAccessor {
     @Override
     public void setValue(Object instance, Object value) {
         try {
-            setter.invoke(instance, value);
-        } catch (IllegalAccessException e) {
-            throw new IllegalArgumentException(e);
-        } catch (InvocationTargetException e) {
-            if (e.getCause() instanceof RuntimeException) {
-                throw (RuntimeException) e.getCause();
+            setterHandle.invokeExact(instance, value);
+        } catch (ClassCastException | NullPointerException e) {
+            if (isAssignable(value)) {
+                // thrown by the setter itself
+                throw e;
             }
-            throw new IllegalArgumentException(e);
+            // same as Method.invoke for a value not matching the parameter type
+            throw new IllegalArgumentException("Cannot call " + setter + " with " + value, e);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) { // NOSONAR
+            throw new IllegalArgumentException(t);
+        }
+    }
+
+    protected boolean isAssignable(Object value) {
+        Class<?> type = getType();
+        if (value == null) {
+            return !type.isPrimitive();
         }
+        return ClassUtils.isAssignable(value.getClass(), type);
     }
 
     @Override
@@ -70,24 +103,22 @@ public class XMethodAccessor implements XAccessor {
     public Object getValue(Object instance) {
         // lazy initialization for getter to keep the compatibility
         // with current xmap definition
-        if (getter == null) {
-            getter = findGetter(klass);
-        }
-        if (getter != null) {
-            try {
-                return getter.invoke(instance);
-            } catch (IllegalAccessException e) {
-                throw new IllegalArgumentException(e);
-            } catch (InvocationTargetException e) {
-                if (e.getCause() instanceof RuntimeException) {
-                    throw (RuntimeException) e.getCause();
-                }
-                throw new IllegalArgumentException(e);
+        MethodHandle handle = getter;
+        if (handle == null) {
+            Method method = findGetter(klass);
+            if (method == null) {
+                return null;
             }
+            handle = getter = unreflect(method).asType(GETTER_TYPE);
+        }
+        try {
+            return handle.invokeExact(instance);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) { // NOSONAR
+            throw new IllegalArgumentException(t);
         }
-        return null;
     }
-
     private Method findGetter(Class<?> klass) {
         String setterName = setter.getName();
         if (setterName.toLowerCase().startsWith("set")) {
@@ -21,7 +21,10 @@ package org.nuxeo.common.xmap;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.net.URL;
@@ -134,4 +137,44 @@ public class XMapTest {
         }
     }
 
+    @Test
+    public void testAccessorsSharedBetweenInstances() throws Exception {
+        XMap xmap1 = new XMap();
+        XAnnotatedObject xao1 = xmap1.register(Author.class);
+        XMap xmap2 = new XMap();
+        XAnnotatedObject xao2 = xmap2.register(Author.class);
+        assertNotSame(xao1, xao2);
+        assertEquals(xao1.members.size(), xao2.members.size());
+        for (int i = 0; i < xao1.members.size(); i++) {
+            // the class is introspected only once
+            assertSame(xao1.members.get(i).accessor, xao2.members.get(i).accessor);
+        }
+
+        // both instances map the same
+        URL url = Thread.currentThread().getContextClassLoader().getResource("test-xmap.xml");
+        checkAuthor((Author) xmap1.load(url));
+        checkAuthor((Author) xmap2.load(url));
+    }
+
+    @Test
+    public void testSetterWithInvalidValue() throws Exception {
+        XMethodAccessor accessor = new XMethodAccessor(Author.class.getMethod("setAge", int.class), Author.class);
+        Author author = new Author();
+        accessor.setValue(author, Integer.valueOf(42));
+        assertEquals(42, author.age);
+        try {
+            accessor.setValue(author, "42");
+            fail("Should not allow a value not matching the setter type");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getCause() instanceof ClassCastException);
+        }
+        try {
+            accessor.setValue(author, null);
+            fail("Should not allow a null value for a primitive setter");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getCause() instanceof NullPointerException);
+        }
+        assertEquals(42, author.age);
+    }
+
 }
@@ -0,0 +1,68 @@
+/*
+ * (C) Copyright 2021 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.runtime;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.nuxeo.runtime.model.ComponentContext;
+import org.nuxeo.runtime.model.DefaultComponent;
+
+/**
+ * Component recording the order in which the components are started.
+ *
+ * @since 2021.20
+ */
+public class StartRecorderComponent extends DefaultComponent {
+
+    public static final List<String> STARTED = Collections.synchronizedList(new ArrayList<>());
+
+    public static final AtomicInteger RUNNING = new AtomicInteger();
+
+    public static final AtomicInteger NOT_ALONE = new AtomicInteger();
+
+    @Override
+    public void start(ComponentContext context) {
+        int running = RUNNING.incrementAndGet();
+        try {
+            if (!isConcurrentStartSafe() && running > 1) {
+                NOT_ALONE.incrementAndGet();
+            }
+            Thread.sleep(50);
+            STARTED.add(name);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeServiceException(e);
+        } finally {
+            RUNNING.decrementAndGet();
+        }
+    }
+
+    /**
+     * Component whose start must not run concurrently with other starts.
+     */
+    public static class NotConcurrent extends StartRecorderComponent {
+
+        @Override
+        public boolean isConcurrentStartSafe() {
+            return false;
+        }
+
+    }
+
+}
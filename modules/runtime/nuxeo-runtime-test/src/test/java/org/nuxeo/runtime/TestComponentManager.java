@@ -30,6 +30,8 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.model.ComponentManager;
+import org.nuxeo.runtime.model.ComponentName;
+import org.nuxeo.runtime.model.impl.ComponentManagerImpl;
 import org.nuxeo.runtime.test.runner.Deploy;
 import org.nuxeo.runtime.test.runner.Features;
 import org.nuxeo.runtime.test.runner.FeaturesRunner;
@@ -66,6 +68,34 @@ public class TestComponentManager {
         listener.assertCounters(3, 3, 3, 3);
     }
 
+    /**
+     * @since 2021.20
+     */
+    @Test
+    @Deploy("org.nuxeo.runtime.test.tests:start-recorder-a.xml")
+    @Deploy("org.nuxeo.runtime.test.tests:start-recorder-b.xml")
+    @Deploy("org.nuxeo.runtime.test.tests:start-recorder-c.xml")
+    @Deploy("org.nuxeo.runtime.test.tests:start-recorder-d.xml")
+    public void testParallelStart() {
+        ComponentManager mgr = Framework.getRuntime().getComponentManager();
+        Framework.getProperties().setProperty(ComponentManagerImpl.PARALLEL_START_PROP, "true");
+        try {
+            mgr.stop();
+            StartRecorderComponent.STARTED.clear();
+            StartRecorderComponent.NOT_ALONE.set(0);
+            mgr.start();
+        } finally {
+            Framework.getProperties().remove(ComponentManagerImpl.PARALLEL_START_PROP);
+        }
+        List<String> started = StartRecorderComponent.STARTED;
+        assertEquals(4, started.size());
+        assertTrue(started.toString(), started.indexOf("start.recorder.c") < started.indexOf("start.recorder.b"));
+        assertEquals(0, StartRecorderComponent.NOT_ALONE.get());
+        for (String name : List.of("start.recorder.a", "start.recorder.b", "start.recorder.c", "start.recorder.d")) {
+            assertTrue(mgr.getRegistrationInfo(new ComponentName(name)).isStarted());
+        }
+    }
+
     protected static class EventsInfo {
 
         public int beforeStop = 0;
@@ -0,0 +1,132 @@
+/*
+ * (C) Copyright 2021 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.runtime;
+
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.common.xmap.XMap;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.model.ComponentManager;
+import org.nuxeo.runtime.model.Extension;
+import org.nuxeo.runtime.model.ExtensionPoint;
+import org.nuxeo.runtime.model.RegistrationInfo;
+import org.nuxeo.runtime.model.impl.ComponentDescriptorReader;
+import org.nuxeo.runtime.model.impl.XMapContext;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+import org.nuxeo.runtime.test.runner.RuntimeFeature;
+
+/**
+ * Benchmarks the XMap mapping of all the component descriptors and contributions deployed in the runtime.
+ * <p>
+ * Skipped unless run with {@code -Dxmap.benchmark=true}. Features deploying more bundles can be added to bench a full
+ * distribution.
+ *
+ * @since 2021.20
+ */
+@RunWith(FeaturesRunner.class)
+@Features(RuntimeFeature.class)
+public class TestXMapBenchmark {
+
+    private static final Logger log = LogManager.getLogger(TestXMapBenchmark.class);
+
+    public static final String BENCHMARK_PROP = "xmap.benchmark";
+
+    public static final String ITERATIONS_PROP = "xmap.benchmark.iterations";
+
+    @Before
+    public void before() {
+        Assume.assumeTrue("Skip XMap benchmark", Boolean.getBoolean(BENCHMARK_PROP));
+    }
+
+    @Test
+    public void benchmark() throws Exception {
+        int iterations = Integer.getInteger(ITERATIONS_PROP, 10);
+        ComponentManager mgr = Framework.getRuntime().getComponentManager();
+        Collection<RegistrationInfo> registrations = mgr.getRegistrations();
+
+        // component descriptors, read with the same reader as at boot
+        ComponentDescriptorReader reader = new ComponentDescriptorReader();
+        long descriptors = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            for (RegistrationInfo ri : registrations) {
+                URL url = ri.getXmlFileUrl();
+                if (url == null) {
+                    continue;
+                }
+                try (InputStream in = url.openStream()) {
+                    reader.read(ri.getContext(), in);
+                }
+                descriptors++;
+            }
+        }
+        long descriptorsTime = System.nanoTime() - start;
+
+        // contributions, with a new XMap for each extension point as at boot
+        long contributions = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            for (RegistrationInfo ri : registrations) {
+                Extension[] extensions = ri.getExtensions();
+                if (extensions == null) {
+                    continue;
+                }
+                for (Extension extension : extensions) {
+                    Class<?>[] classes = getContributionClasses(mgr, extension);
+                    if (classes == null) {
+                        continue;
+                    }
+                    XMap xmap = new XMap();
+                    for (Class<?> klass : classes) {
+                        xmap.register(klass);
+                    }
+                    contributions += xmap.loadAll(new XMapContext(extension.getContext()), extension.getElement())
+                                         .length;
+                }
+            }
+        }
+        long contributionsTime = System.nanoTime() - start;
+
+        log.warn("XMap benchmark: {} descriptors in {} ms, {} contributions in {} ms ({} iterations)", descriptors,
+                TimeUnit.NANOSECONDS.toMillis(descriptorsTime), contributions,
+                TimeUnit.NANOSECONDS.toMillis(contributionsTime), iterations);
+    }
+
+    protected Class<?>[] getContributionClasses(ComponentManager mgr, Extension extension) {
+        RegistrationInfo target = mgr.getRegistrationInfo(extension.getTargetComponent());
+        if (target == null) {
+            return null;
+        }
+        Class<?>[] classes = target.getExtensionPoint(extension.getExtensionPoint())
+                                   .map(ExtensionPoint::getContributions)
+                                   .orElse(null);
+        if (classes == null || classes.length == 0 || classes[0] == null) {
+            return null;
+        }
+        return classes;
+    }
+
+}
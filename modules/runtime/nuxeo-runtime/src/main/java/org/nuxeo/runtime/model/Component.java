@@ -70,6 +70,17 @@ public interface Component extends Extensible, TimestampedService {
         return ComponentStartOrders.DEFAULT;
     }
 
+    /**
+     * Whether {@link #start} can be called concurrently with the start of other components, when the components are
+     * started in parallel. Components returning {@code false} are started alone.
+     *
+     * @return {@code true} by default
+     * @since 2021.20
+     */
+    default boolean isConcurrentStartSafe() {
+        return true;
+    }
+
     /**
      * Notify the component that Nuxeo Framework finished starting all Nuxeo bundles. Implementors must migrate the code
      * of the applicationStarted and move it to {@link Component#start(ComponentContext)} and
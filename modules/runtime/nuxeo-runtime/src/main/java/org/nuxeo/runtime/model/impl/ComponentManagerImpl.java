@@ -31,18 +31,26 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Consumer;
 
 import org.apache.logging.log4j.LogManager;
@@ -56,6 +64,7 @@ import org.nuxeo.runtime.RuntimeMessage.Level;
 import org.nuxeo.runtime.RuntimeMessage.Source;
 import org.nuxeo.runtime.RuntimeService;
 import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.model.Component;
 import org.nuxeo.runtime.model.ComponentInstance;
 import org.nuxeo.runtime.model.ComponentManager;
 import org.nuxeo.runtime.model.ComponentName;
@@ -72,6 +81,21 @@ public class ComponentManagerImpl implements ComponentManager {
 
     private static final Logger log = LogManager.getLogger(ComponentManagerImpl.class);
 
+    /**
+     * Property enabling the concurrent start of the components, see {@link #startComponentsInParallel}.
+     *
+     * @since 2021.20
+     */
+    public static final String PARALLEL_START_PROP = "nuxeo.runtime.component.start.parallel";
+
+    /**
+     * Property holding the number of threads used to start the components concurrently, defaults to the number of
+     * processors.
+     *
+     * @since 2021.20
+     */
+    public static final String PARALLEL_START_THREADS_PROP = "nuxeo.runtime.component.start.parallel.threads";
+
     // must use an ordered Set to avoid loosing the order of the pending
     // extensions
     protected final ConcurrentMap<ComponentName, Set<Extension>> pendingExtensions;
@@ -732,13 +756,18 @@ public class ComponentManagerImpl implements ComponentManager {
      */
     protected void startComponents(List<RegistrationInfo> ris, boolean isResume) {
         log.info("Start components (isResume={})", isResume);
-        Watch watch = new Watch();
+        boolean parallel = Framework.isBooleanPropertyTrue(PARALLEL_START_PROP);
+        Watch watch = parallel ? new Watch(new ConcurrentHashMap<>()) : new Watch();
         watch.start();
         listeners.beforeStart(isResume);
-        for (RegistrationInfo ri : ris) {
-            watch.start(ri.getName().getName());
-            startComponent(ri);
-            watch.stop(ri.getName().getName());
+        if (parallel) {
+            startComponentsInParallel(ris, watch);
+        } else {
+            for (RegistrationInfo ri : ris) {
+                watch.start(ri.getName().getName());
+                startComponent(ri);
+                watch.stop(ri.getName().getName());
+            }
         }
         this.started = ris;
         listeners.afterStart(isResume);
@@ -748,6 +777,102 @@ public class ComponentManagerImpl implements ComponentManager {
         writeDevMetrics(watch, "start");
     }
 
+    /**
+     * Starts the given components concurrently.
+     * <p>
+     * The components are started following a dependency graph: a component is started once the components preceding it
+     * with a lower start order and the components it requires are started, so that independent components with the
+     * same start order are started concurrently. Components whose start is not safe to run concurrently, see
+     * {@link Component#isConcurrentStartSafe}, are started alone.
+     *
+     * @since 2021.20
+     */
+    protected void startComponentsInParallel(List<RegistrationInfo> ris, Watch watch) {
+        int parallelism = Integer.parseInt(Framework.getProperty(PARALLEL_START_THREADS_PROP,
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        log.debug("Starting components in parallel using {} threads", parallelism);
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        ForkJoinPool pool = new ForkJoinPool(parallelism, p -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setName("Nuxeo-Component-Start-" + thread.getPoolIndex());
+            thread.setContextClassLoader(classLoader);
+            return thread;
+        }, null, false);
+        // components not safe to start concurrently take the write lock
+        ReadWriteLock startLock = new ReentrantReadWriteLock();
+        try {
+            CompletableFuture<Void> previous = CompletableFuture.completedFuture(null);
+            int i = 0;
+            while (i < ris.size()) {
+                // group the consecutive components with the same start order
+                int order = ris.get(i).getApplicationStartedOrder();
+                int j = i + 1;
+                while (j < ris.size() && ris.get(j).getApplicationStartedOrder() == order) {
+                    j++;
+                }
+                Map<ComponentName, RegistrationInfo> group = new LinkedHashMap<>();
+                for (RegistrationInfo ri : ris.subList(i, j)) {
+                    group.put(ri.getName(), ri);
+                    ri.getAliases().forEach(alias -> group.putIfAbsent(alias, ri));
+                }
+                Map<RegistrationInfo, CompletableFuture<Void>> futures = new HashMap<>();
+                for (RegistrationInfo ri : ris.subList(i, j)) {
+                    scheduleStart(ri, previous, group, futures, new HashSet<>(), pool, startLock, watch);
+                }
+                previous = CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0]));
+                i = j;
+            }
+            previous.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException("Failed to start components", cause);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    protected CompletableFuture<Void> scheduleStart(RegistrationInfo ri, CompletableFuture<Void> previous,
+            Map<ComponentName, RegistrationInfo> group, Map<RegistrationInfo, CompletableFuture<Void>> futures,
+            Set<RegistrationInfo> visiting, ExecutorService pool, ReadWriteLock startLock, Watch watch) {
+        CompletableFuture<Void> future = futures.get(ri);
+        if (future != null) {
+            return future;
+        }
+        visiting.add(ri);
+        List<CompletableFuture<Void>> dependencies = new ArrayList<>();
+        dependencies.add(previous);
+        for (ComponentName name : ri.getRequiredComponents()) {
+            RegistrationInfo required = group.get(name);
+            // requirements on components with another start order are handled by the start order
+            if (required != null && required != ri && !visiting.contains(required)) {
+                dependencies.add(scheduleStart(required, previous, group, futures, visiting, pool, startLock, watch));
+            }
+        }
+        visiting.remove(ri);
+        Lock lock = isConcurrentStartSafe(ri) ? startLock.readLock() : startLock.writeLock();
+        future = CompletableFuture.allOf(dependencies.toArray(new CompletableFuture[0])).thenRunAsync(() -> {
+            lock.lock();
+            try {
+                watch.start(ri.getName().getName());
+                startComponent(ri);
+                watch.stop(ri.getName().getName());
+            } finally {
+                lock.unlock();
+            }
+        }, pool);
+        futures.put(ri, future);
+        return future;
+    }
+
+    protected boolean isConcurrentStartSafe(RegistrationInfo ri) {
+        ComponentInstance component = ri.getComponent();
+        Object instance = component == null ? null : component.getInstance();
+        return !(instance instanceof Component) || ((Component) instance).isConcurrentStartSafe();
+    }
+
     /**
      * Starts the given {@link RegistrationInfo}. This step will start the component.
      *